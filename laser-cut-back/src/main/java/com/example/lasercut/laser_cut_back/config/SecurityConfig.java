@@ -40,8 +40,11 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/analizar-archivo").permitAll() // Mantener público para pruebas
+                .requestMatchers("/api/subidas/**").permitAll() // Subida por bloques, igual que analizar-archivo
+                .requestMatchers("/api/previews/**").permitAll() // Vistas previas por hash de contenido
                 .requestMatchers("/api/catalogo").permitAll() // Mantener público
                 .requestMatchers("/api/cotizacion").permitAll() // Mantener público por ahora
+                .requestMatchers("/api/cotizacion/matriz").permitAll()
                 .requestMatchers("/api/orders/webhook").permitAll() // Webhook debe ser público
                 .requestMatchers("/api/orders/**").authenticated() // Pedidos requieren autenticación
                 .anyRequest().authenticated()
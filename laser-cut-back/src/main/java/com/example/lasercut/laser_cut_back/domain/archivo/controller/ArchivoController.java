@@ -1,10 +1,21 @@
 package com.example.lasercut.laser_cut_back.domain.archivo.controller;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -12,11 +23,21 @@ import org.springframework.web.multipart.MultipartFile;
 
 import com.example.lasercut.laser_cut_back.domain.archivo.dto.ArchivoResponse;
 import com.example.lasercut.laser_cut_back.domain.archivo.service.ArchivoService;
+import com.example.lasercut.laser_cut_back.domain.archivo.service.Geometria2D;
+import com.example.lasercut.laser_cut_back.domain.archivo.service.MiniaturaService;
+import com.example.lasercut.laser_cut_back.domain.archivo.service.Modelo3D;
+import com.example.lasercut.laser_cut_back.domain.archivo.service.VistaPrevia;
 
 @RestController
 @RequestMapping("/api")
 public class ArchivoController {
 
+    private static final MediaType SVG = MediaType.valueOf("image/svg+xml");
+    private static final MediaType GLB = MediaType.valueOf("model/gltf-binary");
+    private static final CacheControl CACHE_VISTA_PREVIA = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+    // Una versión degradada puede salir completa más adelante: el navegador revalida con el ETag
+    private static final CacheControl CACHE_DEGRADADA = CacheControl.noCache();
+
     private final ArchivoService archivoService;
 
     public ArchivoController(ArchivoService archivoService) {
@@ -28,5 +49,154 @@ public class ArchivoController {
     ArchivoResponse resp = archivoService.analizar(archivo);
     return ResponseEntity.ok(resp);
     }
-    
+
+    /**
+     * SVG de la vista previa. La URL lleva el hash del contenido del archivo, así que la
+     * respuesta no cambia nunca y el navegador puede guardarla sin volver a preguntar.
+     * Con ?nivel=0 o 1 se devuelve una versión simplificada para mostrar rápido; sin nivel,
+     * el dibujo completo. Si el dibujo no entra en el presupuesto de generación se sirve solo
+     * con los contornos exteriores o la caja, y esa respuesta no se marca como inmutable.
+     *
+     * Éste y los demás endpoints de /previews generan en el pool de VistaPreviaService y
+     * responden de forma asíncrona, sin ocupar un hilo del servidor mientras tanto.
+     */
+    @GetMapping("/previews/{hash}.svg")
+    public CompletableFuture<ResponseEntity<byte[]>> vistaPrevia(
+            @PathVariable String hash,
+            @RequestParam(required = false) Integer nivel,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        boolean gzip = VistaPrevia.aceptaGzip(acceptEncoding);
+        return archivoService.obtenerVistaPrevia(hash, nivel)
+            .thenApply(vistaPrevia -> respuestaVistaPrevia(vistaPrevia, gzip, ifNoneMatch));
+    }
+
+    private static ResponseEntity<byte[]> respuestaVistaPrevia(VistaPrevia vistaPrevia, boolean gzip, String ifNoneMatch) {
+        String etag = "\"" + vistaPrevia.getEtag() + (gzip ? "-gzip\"" : "\"");
+        CacheControl cache = vistaPrevia.isDegradada() ? CACHE_DEGRADADA : CACHE_VISTA_PREVIA;
+
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(cache)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .build();
+        }
+
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+            .contentType(SVG)
+            .eTag(etag)
+            .cacheControl(cache)
+            .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(vistaPrevia.getSvgGzip());
+        }
+        return respuesta.body(vistaPrevia.getSvg());
+    }
+
+    /**
+     * La misma geometría que el SVG, en binario compacto (ver DxfBinaryWriter) para dibujarla
+     * en un canvas. Acepta los mismos niveles de detalle.
+     */
+    @GetMapping("/previews/{hash}.bin")
+    public CompletableFuture<ResponseEntity<byte[]>> geometria(
+            @PathVariable String hash,
+            @RequestParam(required = false) Integer nivel,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return archivoService.obtenerGeometria(hash, nivel)
+            .thenApply(geometria -> respuestaGeometria(geometria, ifNoneMatch));
+    }
+
+    private static ResponseEntity<byte[]> respuestaGeometria(Geometria2D geometria, String ifNoneMatch) {
+        String etag = "\"" + geometria.getEtag() + "\"";
+        CacheControl cache = geometria.isDegradada() ? CACHE_DEGRADADA : CACHE_VISTA_PREVIA;
+
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(cache)
+                .build();
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .eTag(etag)
+            .cacheControl(cache)
+            .body(geometria.getDatos());
+    }
+
+    /**
+     * Miniatura PNG para los listados. Si todavía se está generando responde 503 con
+     * Retry-After, sin guardarse en caché. Una miniatura degradada se revalida como el SVG.
+     */
+    @GetMapping("/previews/{hash}.png")
+    public CompletableFuture<ResponseEntity<byte[]>> miniatura(
+            @PathVariable String hash,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return archivoService.obtenerMiniatura(hash)
+            .thenApply(png -> respuestaMiniatura(png, ifNoneMatch));
+    }
+
+    private static ResponseEntity<byte[]> respuestaMiniatura(Path png, String ifNoneMatch) {
+        if (png == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "2")
+                .cacheControl(CacheControl.noStore())
+                .build();
+        }
+        // El nombre del archivo lleva el hash y el tamaño
+        String nombre = png.getFileName().toString();
+        String etag = "\"" + nombre.substring(0, nombre.length() - ".png".length()) + "\"";
+        CacheControl cache = nombre.endsWith(MiniaturaService.SUFIJO_DEGRADADA) ? CACHE_DEGRADADA : CACHE_VISTA_PREVIA;
+
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(cache)
+                .build();
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.IMAGE_PNG)
+            .eTag(etag)
+            .cacheControl(cache)
+            .body(leer(png));
+    }
+
+    /**
+     * Malla 3D de la pieza extruida al espesor pedido, como glTF binario. Igual que el SVG, no
+     * cambia nunca para un mismo hash y espesor, salvo que haya salido degradada.
+     */
+    @GetMapping("/previews/{hash}.glb")
+    public CompletableFuture<ResponseEntity<byte[]>> modelo3D(
+            @PathVariable String hash,
+            @RequestParam(required = false) Double espesor,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return archivoService.obtenerModelo3D(hash, espesor)
+            .thenApply(modelo -> respuestaModelo3D(modelo, ifNoneMatch));
+    }
+
+    private static ResponseEntity<byte[]> respuestaModelo3D(Modelo3D modelo, String ifNoneMatch) {
+        String etag = "\"" + modelo.getEtag() + "\"";
+        CacheControl cache = modelo.isDegradado() ? CACHE_DEGRADADA : CACHE_VISTA_PREVIA;
+
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(cache)
+                .build();
+        }
+        return ResponseEntity.ok()
+            .contentType(GLB)
+            .eTag(etag)
+            .cacheControl(cache)
+            .body(modelo.getGlb());
+    }
+
+    private static byte[] leer(Path archivo) {
+        try {
+            return Files.readAllBytes(archivo);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
 }
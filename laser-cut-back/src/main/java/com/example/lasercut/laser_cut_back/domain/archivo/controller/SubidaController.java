@@ -0,0 +1,68 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.lasercut.laser_cut_back.domain.archivo.dto.ArchivoResponse;
+import com.example.lasercut.laser_cut_back.domain.archivo.dto.SubidaRequest;
+import com.example.lasercut.laser_cut_back.domain.archivo.dto.SubidaResponse;
+import com.example.lasercut.laser_cut_back.domain.archivo.service.SubidaPorBloquesService;
+
+import jakarta.validation.Valid;
+
+/**
+ * Subida por bloques, alternativa a /api/analizar-archivo para archivos grandes:
+ *   POST /api/subidas                        inicia (nombre, tamaño y opcionalmente sha256)
+ *   GET  /api/subidas/{id}                   bloques que faltan, para retomar
+ *   PUT  /api/subidas/{id}/bloques/{numero}  un bloque, con su SHA-256 en X-Checksum-Sha256
+ *   POST /api/subidas/{id}/completar         arma el archivo y devuelve el análisis
+ */
+@RestController
+@RequestMapping("/api/subidas")
+public class SubidaController {
+
+    public static final String HEADER_CHECKSUM = "X-Checksum-Sha256";
+
+    private final SubidaPorBloquesService subidaPorBloquesService;
+
+    public SubidaController(SubidaPorBloquesService subidaPorBloquesService) {
+        this.subidaPorBloquesService = subidaPorBloquesService;
+    }
+
+    @PostMapping
+    public ResponseEntity<SubidaResponse> iniciar(@Valid @RequestBody SubidaRequest pedido) throws IOException {
+        return ResponseEntity.ok(subidaPorBloquesService.iniciar(pedido));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<SubidaResponse> estado(@PathVariable String id) {
+        return ResponseEntity.ok(subidaPorBloquesService.estado(id));
+    }
+
+    @PutMapping(path = "/{id}/bloques/{numero}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> bloque(
+            @PathVariable String id,
+            @PathVariable int numero,
+            @RequestHeader(value = HEADER_CHECKSUM, required = false) String checksum,
+            InputStream cuerpo) throws IOException {
+        subidaPorBloquesService.recibirBloque(id, numero, checksum, cuerpo);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/{id}/completar")
+    public ResponseEntity<ArchivoResponse> completar(@PathVariable String id) throws IOException {
+        return ResponseEntity.ok(subidaPorBloquesService.completar(id));
+    }
+
+}
@@ -5,16 +5,24 @@ public class ArchivoResponse {
     private String nombre;
     private double ancho;
     private double alto;
-    private String vistaPreviaBase64;
+    private double areaNeta;
+    private double longitudCorte;
+    private int perforaciones;
+    private String vistaPreviaUrl;
+    private String modelo3dUrl;
+    private String geometriaUrl;
+    private String miniaturaUrl;
+    private String token;
+    private String unidadDetectada;
 
     public ArchivoResponse() {
     }
 
-    public ArchivoResponse(String nombre, double ancho, double alto, String vistaPreviaBase64) {
+    public ArchivoResponse(String nombre, double ancho, double alto, String vistaPreviaUrl) {
         this.nombre = nombre;
         this.ancho = ancho;
         this.alto = alto;
-        this.vistaPreviaBase64 = vistaPreviaBase64;
+        this.vistaPreviaUrl = vistaPreviaUrl;
     }
 
     public String getNombre() {
@@ -40,12 +48,76 @@ public class ArchivoResponse {
         this.alto = alto;
     }
 
-    public String getVistaPreviaBase64() {
-        return vistaPreviaBase64;
+    public String getVistaPreviaUrl() {
+        return vistaPreviaUrl;
     }
 
-    public void setVistaPreviaBase64(String vistaPreviaBase64) {
-        this.vistaPreviaBase64 = vistaPreviaBase64;
+    public void setVistaPreviaUrl(String vistaPreviaUrl) {
+        this.vistaPreviaUrl = vistaPreviaUrl;
     }
-    
+
+    public String getModelo3dUrl() {
+        return modelo3dUrl;
+    }
+
+    public void setModelo3dUrl(String modelo3dUrl) {
+        this.modelo3dUrl = modelo3dUrl;
+    }
+
+    public String getGeometriaUrl() {
+        return geometriaUrl;
+    }
+
+    public void setGeometriaUrl(String geometriaUrl) {
+        this.geometriaUrl = geometriaUrl;
+    }
+
+    public String getMiniaturaUrl() {
+        return miniaturaUrl;
+    }
+
+    public void setMiniaturaUrl(String miniaturaUrl) {
+        this.miniaturaUrl = miniaturaUrl;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public double getAreaNeta() {
+        return areaNeta;
+    }
+
+    public void setAreaNeta(double areaNeta) {
+        this.areaNeta = areaNeta;
+    }
+
+    public double getLongitudCorte() {
+        return longitudCorte;
+    }
+
+    public void setLongitudCorte(double longitudCorte) {
+        this.longitudCorte = longitudCorte;
+    }
+
+    public int getPerforaciones() {
+        return perforaciones;
+    }
+
+    public void setPerforaciones(int perforaciones) {
+        this.perforaciones = perforaciones;
+    }
+
+    public String getUnidadDetectada() {
+        return unidadDetectada;
+    }
+
+    public void setUnidadDetectada(String unidadDetectada) {
+        this.unidadDetectada = unidadDetectada;
+    }
+
 }
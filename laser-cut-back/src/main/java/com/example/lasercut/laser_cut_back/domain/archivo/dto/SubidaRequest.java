@@ -0,0 +1,47 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Inicio de una subida por bloques. sha256 es opcional: si viene y el archivo ya está en el
+ * almacén, no hace falta mandar ningún bloque.
+ */
+public class SubidaRequest {
+
+    @NotBlank(message = "El nombre del archivo es obligatorio")
+    private String nombre;
+
+    @Positive(message = "El tamaño debe ser mayor a cero")
+    private long tamanio;
+
+    private String sha256;
+
+    public SubidaRequest() {
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public long getTamanio() {
+        return tamanio;
+    }
+
+    public void setTamanio(long tamanio) {
+        this.tamanio = tamanio;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+}
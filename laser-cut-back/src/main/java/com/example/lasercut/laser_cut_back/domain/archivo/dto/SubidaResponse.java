@@ -0,0 +1,58 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.dto;
+
+import java.util.List;
+
+/**
+ * Estado de una subida por bloques: el cliente manda los bloques de faltantes (numerados desde
+ * 0, de tamanioBloque bytes salvo el último) y, cuando no queda ninguno, la completa.
+ */
+public class SubidaResponse {
+
+    private String id;
+    private int tamanioBloque;
+    private int bloques;
+    private List<Integer> faltantes;
+
+    public SubidaResponse() {
+    }
+
+    public SubidaResponse(String id, int tamanioBloque, int bloques, List<Integer> faltantes) {
+        this.id = id;
+        this.tamanioBloque = tamanioBloque;
+        this.bloques = bloques;
+        this.faltantes = faltantes;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getTamanioBloque() {
+        return tamanioBloque;
+    }
+
+    public void setTamanioBloque(int tamanioBloque) {
+        this.tamanioBloque = tamanioBloque;
+    }
+
+    public int getBloques() {
+        return bloques;
+    }
+
+    public void setBloques(int bloques) {
+        this.bloques = bloques;
+    }
+
+    public List<Integer> getFaltantes() {
+        return faltantes;
+    }
+
+    public void setFaltantes(List<Integer> faltantes) {
+        this.faltantes = faltantes;
+    }
+
+}
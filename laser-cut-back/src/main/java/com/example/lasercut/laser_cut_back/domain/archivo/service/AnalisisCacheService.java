@@ -0,0 +1,66 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Caché en memoria de archivos analizados, por hash de contenido.
+ *
+ * Acotada por cantidad de entradas y por memoria aproximada; cuando se pasa de cualquiera
+ * de los dos límites descarta las entradas usadas hace más tiempo (LRU). Las entradas crecen
+ * después de guardadas (vistas previas, geometría y mallas se generan a pedido), así que la
+ * memoria se vuelve a medir también cada vez que una entrada guarda algo nuevo.
+ *
+ * Configuración opcional en application.properties:
+ *   archivo.cache.max-entradas=256
+ *   archivo.cache.max-mb=256
+ */
+@Service
+public class AnalisisCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalisisCacheService.class);
+
+    @Value("${archivo.cache.max-entradas:256}")
+    private int maxEntradas;
+
+    @Value("${archivo.cache.max-mb:256}")
+    private long maxMb;
+
+    private final LinkedHashMap<String, ArchivoAnalizado> entradas = new LinkedHashMap<>(64, 0.75f, true);
+
+    public synchronized ArchivoAnalizado obtener(String token) {
+        return entradas.get(token);
+    }
+
+    public synchronized void guardar(ArchivoAnalizado archivo) {
+        archivo.setAlCrecer(this::reajustar);
+        entradas.put(archivo.getToken(), archivo);
+        desalojar();
+    }
+
+    private synchronized void reajustar() {
+        desalojar();
+    }
+
+    private void desalojar() {
+        long maxBytes = maxMb * 1024 * 1024;
+        long total = 0;
+        for (ArchivoAnalizado entrada : entradas.values()) {
+            total += entrada.getTamanioBytes();
+        }
+        Iterator<Map.Entry<String, ArchivoAnalizado>> it = entradas.entrySet().iterator();
+        while (it.hasNext() && entradas.size() > 1 && (entradas.size() > maxEntradas || total > maxBytes)) {
+            ArchivoAnalizado descartada = it.next().getValue();
+            total -= descartada.getTamanioBytes();
+            it.remove();
+            logger.debug("Análisis {} descartado de la caché", descartada.getToken());
+        }
+    }
+
+}
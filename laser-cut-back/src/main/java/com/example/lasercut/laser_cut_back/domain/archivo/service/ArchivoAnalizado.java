@@ -0,0 +1,243 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.example.lasercut.laser_cut_back.exception.PreviewGenerationException;
+import com.example.lasercut.laser_cut_back.shared.util.DxfAnalysis;
+import com.example.lasercut.laser_cut_back.shared.util.DxfMesh;
+import com.example.lasercut.laser_cut_back.shared.util.DxfPresupuesto;
+import com.example.lasercut.laser_cut_back.shared.util.DxfPreviewGenerator;
+
+/**
+ * Resultado cacheado del análisis de un archivo, identificado por el SHA-256 de su contenido.
+ *
+ * Si el archivo fue rechazado se guarda solo el motivo, para no volver a parsearlo.
+ * Cada nivel de detalle de la vista previa se genera la primera vez que se pide (ver
+ * /api/previews): cotizar no la necesita y el detalle completo solo se arma si hay zoom.
+ * Lo mismo vale para la geometría en binario. Las dos se generan dentro del presupuesto de
+ * vistas previas; si no alcanza se guarda la versión degradada solo por
+ * {@link #REINTENTO_DEGRADADA_MS} ms, para no gastar el mismo tiempo en cada pedido pero
+ * volver a intentar la completa cuando el servidor esté menos cargado.
+ * La malla 3D se triangula una sola vez, con el mismo presupuesto y la misma espera para
+ * reintentar si sale degradada, y se extruye por espesor; se guardan los últimos espesores
+ * pedidos. Si la triangulación falla se guarda el error, para no repetirla en cada pedido.
+ *
+ * Cada vez que se guarda algo nuevo se avisa a la caché que contiene la entrada (ver
+ * {@link AnalisisCacheService}), fuera de los bloqueos propios, para que vuelva a medirse.
+ */
+public class ArchivoAnalizado {
+
+    private static final int MAXIMO_MODELOS = 4;
+    static final long REINTENTO_DEGRADADA_MS = 60_000;
+
+    private final String token;
+    private final DxfAnalysis analisis;
+    private final String error;
+    private final DxfPresupuesto presupuesto;
+    private final AtomicReferenceArray<VistaPrevia> vistasPrevias =
+        new AtomicReferenceArray<>(DxfPreviewGenerator.getNiveles());
+    private final AtomicReferenceArray<Geometria2D> geometrias =
+        new AtomicReferenceArray<>(DxfPreviewGenerator.getNiveles());
+    // System.nanoTime desde el que se vuelve a generar cada salida degradada
+    private final AtomicLongArray reintentoVistasPrevias = new AtomicLongArray(DxfPreviewGenerator.getNiveles());
+    private final AtomicLongArray reintentoGeometrias = new AtomicLongArray(DxfPreviewGenerator.getNiveles());
+    private DxfMesh malla;
+    private long reintentoMalla;
+    private PreviewGenerationException errorMalla;
+    // Malla y modelos medidos al guardarlos, para no esperar una triangulación en curso al medir la entrada
+    private volatile long tamanioModelos;
+    private volatile Runnable alCrecer = () -> { };
+    private final LinkedHashMap<Double, Modelo3D> modelos = new LinkedHashMap<>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Double, Modelo3D> masVieja) {
+            return size() > MAXIMO_MODELOS;
+        }
+    };
+
+    private ArchivoAnalizado(String token, DxfAnalysis analisis, String error, DxfPresupuesto presupuesto) {
+        this.token = token;
+        this.analisis = analisis;
+        this.error = error;
+        this.presupuesto = presupuesto;
+    }
+
+    public static ArchivoAnalizado valido(String token, DxfAnalysis analisis, DxfPresupuesto presupuesto) {
+        return new ArchivoAnalizado(token, analisis, null, presupuesto);
+    }
+
+    public static ArchivoAnalizado rechazado(String token, String error) {
+        return new ArchivoAnalizado(token, null, error, DxfPresupuesto.SIN_LIMITE);
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public DxfAnalysis getAnalisis() {
+        return analisis;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isValido() {
+        return error == null;
+    }
+
+    /**
+     * Lo que hay que hacer cada vez que la entrada guarda una vista previa, geometría o malla.
+     */
+    void setAlCrecer(Runnable alCrecer) {
+        this.alCrecer = alCrecer;
+    }
+
+    /**
+     * Si hay una vista previa guardada que se puede servir sin volver a generarla.
+     */
+    public boolean isVistaPreviaGenerada(int nivel) {
+        VistaPrevia actual = vistasPrevias.get(nivel);
+        return actual != null && vigente(actual.isDegradada(), reintentoVistasPrevias, nivel);
+    }
+
+    public VistaPrevia getVistaPrevia(int nivel) {
+        VistaPrevia actual = vistasPrevias.get(nivel);
+        if (actual == null || !vigente(actual.isDegradada(), reintentoVistasPrevias, nivel)) {
+            boolean generada = false;
+            synchronized (this) {
+                actual = vistasPrevias.get(nivel);
+                if (actual == null || !vigente(actual.isDegradada(), reintentoVistasPrevias, nivel)) {
+                    DxfPreviewGenerator.Salida salida = DxfPreviewGenerator.generarVistaPrevia(analisis, nivel, presupuesto);
+                    actual = VistaPrevia.de(salida.getDatos(), salida.isDegradada());
+                    reintentoVistasPrevias.set(nivel, reintento());
+                    vistasPrevias.set(nivel, actual);
+                    generada = true;
+                }
+            }
+            if (generada) {
+                alCrecer.run();
+            }
+        }
+        return actual;
+    }
+
+    public boolean isGeometriaGenerada(int nivel) {
+        Geometria2D actual = geometrias.get(nivel);
+        return actual != null && vigente(actual.isDegradada(), reintentoGeometrias, nivel);
+    }
+
+    public Geometria2D getGeometria(int nivel) {
+        Geometria2D actual = geometrias.get(nivel);
+        if (actual == null || !vigente(actual.isDegradada(), reintentoGeometrias, nivel)) {
+            boolean generada = false;
+            synchronized (this) {
+                actual = geometrias.get(nivel);
+                if (actual == null || !vigente(actual.isDegradada(), reintentoGeometrias, nivel)) {
+                    DxfPreviewGenerator.Salida salida = DxfPreviewGenerator.generarGeometria(analisis, nivel, presupuesto);
+                    actual = Geometria2D.de(salida.getDatos(), salida.isDegradada());
+                    reintentoGeometrias.set(nivel, reintento());
+                    geometrias.set(nivel, actual);
+                    generada = true;
+                }
+            }
+            if (generada) {
+                alCrecer.run();
+            }
+        }
+        return actual;
+    }
+
+    private static long reintento() {
+        return System.nanoTime() + REINTENTO_DEGRADADA_MS * 1_000_000L;
+    }
+
+    /**
+     * Una salida completa vale siempre; una degradada, hasta su momento de reintento.
+     */
+    private static boolean vigente(boolean degradada, AtomicLongArray reintentos, int nivel) {
+        return !degradada || System.nanoTime() - reintentos.get(nivel) < 0;
+    }
+
+    /**
+     * Si el modelo se puede responder sin triangular ni extruir (también si la triangulación
+     * ya falló: se responde el mismo error).
+     */
+    public boolean isModelo3DGenerado(double espesor) {
+        synchronized (modelos) {
+            return errorMalla != null || (mallaVigente() && modelos.containsKey(espesor));
+        }
+    }
+
+    private boolean mallaVigente() {
+        return malla != null && (!malla.isDegradada() || System.nanoTime() - reintentoMalla < 0);
+    }
+
+    /**
+     * Malla extruida al espesor dado (mm).
+     *
+     * @throws PreviewGenerationException si no se pudo triangular el dibujo
+     */
+    public Modelo3D getModelo3D(double espesor) {
+        Modelo3D modelo;
+        boolean generado = false;
+        synchronized (modelos) {
+            if (errorMalla != null) {
+                throw errorMalla;
+            }
+            if (!mallaVigente()) {
+                try {
+                    malla = DxfMesh.triangular(analisis, presupuesto);
+                } catch (PreviewGenerationException e) {
+                    errorMalla = e;
+                    throw e;
+                } catch (RuntimeException e) {
+                    errorMalla = new PreviewGenerationException("No se pudo armar la vista 3D.", e);
+                    throw errorMalla;
+                }
+                reintentoMalla = reintento();
+                // Los modelos extruidos de la malla anterior quedan viejos
+                modelos.clear();
+            }
+            modelo = modelos.get(espesor);
+            if (modelo == null) {
+                modelo = Modelo3D.de(malla.escribirGlb(espesor), malla.isDegradada());
+                modelos.put(espesor, modelo);
+                long tamanio = malla.getTamanioBytes();
+                for (Modelo3D guardado : modelos.values()) {
+                    tamanio += guardado.getTamanioBytes();
+                }
+                tamanioModelos = tamanio;
+                generado = true;
+            }
+        }
+        if (generado) {
+            alCrecer.run();
+        }
+        return modelo;
+    }
+
+    /**
+     * Memoria aproximada de la entrada (geometría, vistas previas y mallas), usada para acotar la caché.
+     */
+    public long getTamanioBytes() {
+        long tamanio = 256;
+        if (analisis != null) {
+            tamanio += analisis.getGeometria().getTamanioBytes() + analisis.getContornos().getTamanioBytes();
+        }
+        for (int nivel = 0; nivel < vistasPrevias.length(); nivel++) {
+            VistaPrevia actual = vistasPrevias.get(nivel);
+            if (actual != null) {
+                tamanio += actual.getTamanioBytes();
+            }
+            Geometria2D binaria = geometrias.get(nivel);
+            if (binaria != null) {
+                tamanio += binaria.getTamanioBytes();
+            }
+        }
+        return tamanio + tamanioModelos;
+    }
+
+}
@@ -1,55 +1,248 @@
 package com.example.lasercut.laser_cut_back.domain.archivo.service;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.example.lasercut.laser_cut_back.domain.archivo.dto.ArchivoResponse;
+import com.example.lasercut.laser_cut_back.exception.AnalisisInterrumpidoException;
 import com.example.lasercut.laser_cut_back.exception.BadRequestException;
+import com.example.lasercut.laser_cut_back.exception.NotFoundException;
+import com.example.lasercut.laser_cut_back.shared.util.DxfAnalysis;
+import com.example.lasercut.laser_cut_back.shared.util.DxfLimites;
 import com.example.lasercut.laser_cut_back.shared.util.DxfParser;
 import com.example.lasercut.laser_cut_back.shared.util.DxfPreviewGenerator;
 
+/**
+ * Análisis de los DXF subidos y acceso a sus vistas previas.
+ *
+ * /api/analizar-archivo es público, así que el parser trabaja dentro de límites de tamaño,
+ * entidades (contando los bloques expandidos), anidamiento de bloques y tiempo (ver
+ * {@link DxfLimites}); un archivo que se pasa se rechaza con el motivo y el rechazo queda en
+ * la caché como cualquier otro.
+ *
+ * Configuración opcional en application.properties:
+ *   archivo.analisis.maximo-mb=200
+ *   archivo.analisis.maximo-entidades=2000000
+ *   archivo.analisis.profundidad-bloques=16
+ *   archivo.analisis.limite-ms=20000
+ */
 @Service
 public class ArchivoService {
 
     private static final Logger logger = LoggerFactory.getLogger(ArchivoService.class);
 
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final String URL_VISTA_PREVIA = "/api/previews/";
+    private static final double ESPESOR_MAXIMO_MM = 100.0;
+
+    private final AnalisisCacheService analisisCacheService;
+    private final MiniaturaService miniaturaService;
+    private final VistaPreviaService vistaPreviaService;
+    private final SubidaService subidaService;
+    private final DxfLimites limites;
+
+    public ArchivoService(AnalisisCacheService analisisCacheService, MiniaturaService miniaturaService,
+            VistaPreviaService vistaPreviaService, SubidaService subidaService,
+            @Value("${archivo.analisis.maximo-mb:200}") long maximoMb,
+            @Value("${archivo.analisis.maximo-entidades:2000000}") long maximoEntidades,
+            @Value("${archivo.analisis.profundidad-bloques:16}") int profundidadBloques,
+            @Value("${archivo.analisis.limite-ms:20000}") long limiteMs) {
+        this.analisisCacheService = analisisCacheService;
+        this.miniaturaService = miniaturaService;
+        this.vistaPreviaService = vistaPreviaService;
+        this.subidaService = subidaService;
+        this.limites = new DxfLimites(maximoMb * 1024 * 1024, maximoEntidades, profundidadBloques, limiteMs);
+    }
+
     public ArchivoResponse analizar(MultipartFile archivo) throws IOException {
-        if (archivo == null || archivo.isEmpty()) {
-            throw new BadRequestException("El archivo DXF no puede estar vacío.");
+        return responder(obtenerAnalisis(archivo), archivo.getOriginalFilename());
+    }
+
+    /**
+     * Analiza un archivo que ya está en disco con su hash calculado, como los que arma la
+     * subida por bloques (ver {@link SubidaPorBloquesService}). Si está comprimido se
+     * descomprime primero a un temporal y el análisis queda con el hash del DXF.
+     */
+    public ArchivoResponse analizar(Path archivo, String hash, String nombre) throws IOException {
+        if (!SubidaService.isComprimido(archivo)) {
+            return responder(obtenerAnalisis(hash, archivo), nombre);
+        }
+        try (InputStream is = Files.newInputStream(archivo);
+                ArchivoSubido subido = subidaService.guardar(is)) {
+            return responder(obtenerAnalisis(subido.getHash(), subido.getRuta()), nombre);
         }
+    }
 
-        String name = archivo.getOriginalFilename();
-        if (name == null || !name.toLowerCase().endsWith(".dxf")) {
-            throw new BadRequestException("El archivo debe ser un .dxf.");
+    private ArchivoResponse responder(ArchivoAnalizado analizado, String name) {
+        DxfAnalysis analisis = analizado.getAnalisis();
+
+        double ancho = analisis.getAncho();
+        double alto = analisis.getAlto();
+
+        ArchivoResponse resp = new ArchivoResponse();
+        resp.setNombre(name);
+        resp.setAncho(ancho);
+        resp.setAlto(alto);
+        resp.setAreaNeta(analisis.getAreaNeta());
+        resp.setLongitudCorte(analisis.getLongitudCorte());
+        resp.setPerforaciones(analisis.getPerforaciones());
+        resp.setVistaPreviaUrl(URL_VISTA_PREVIA + analizado.getToken() + ".svg");
+        resp.setModelo3dUrl(URL_VISTA_PREVIA + analizado.getToken() + ".glb");
+        resp.setGeometriaUrl(URL_VISTA_PREVIA + analizado.getToken() + ".bin");
+        resp.setMiniaturaUrl(URL_VISTA_PREVIA + analizado.getToken() + ".png");
+        resp.setToken(analizado.getToken());
+        if (analisis.getUnidad() != null) {
+            resp.setUnidadDetectada(analisis.getUnidad().getNombre());
         }
 
-        byte[] fileBytes = archivo.getBytes();
+        logger.info("Archivo analizado: {} (ancho={}mm, alto={}mm)", name, ancho, alto);
 
-        try (InputStream dimensionsStream = new ByteArrayInputStream(fileBytes)) {
-            double[] wh = DxfParser.getWidthHeightMillimeters(dimensionsStream);
-            double ancho = wh[0];
-            double alto = wh[1];
+        // Las medidas ya están: la vista previa se genera en segundo plano y el cliente la pide
+        // con vistaPreviaUrl. La simplificada es la que se muestra primero, así que se adelanta.
+        if (!analizado.isVistaPreviaGenerada(0)) {
+            vistaPreviaService.adelantar(() -> analizado.getVistaPrevia(0));
+        }
+        // La miniatura se usa recién en el listado de pedidos: se arma mientras tanto
+        miniaturaService.generar(analizado);
 
-            try (InputStream previewStream = new ByteArrayInputStream(fileBytes)) {
-                String vistaPrevia = DxfPreviewGenerator.generarVistaPreviaBase64(previewStream);
+        return resp;
+    }
 
-                ArchivoResponse resp = new ArchivoResponse();
-                resp.setNombre(name);
-                resp.setAncho(ancho);
-                resp.setAlto(alto);
-                resp.setVistaPreviaBase64(vistaPrevia);
+    /**
+     * Devuelve el análisis del archivo subido. Si el mismo contenido ya se analizó
+     * (mismo SHA-256) se reutiliza el resultado, también cuando había sido rechazado; un
+     * análisis cortado por tiempo no se guarda, porque con otra carga puede terminar.
+     * El archivo se copia una vez a disco (ver {@link SubidaService}) y se analiza desde ahí.
+     */
+    public ArchivoAnalizado obtenerAnalisis(MultipartFile archivo) throws IOException {
+        validarArchivo(archivo);
 
-                logger.info("Archivo analizado: {} (ancho={}mm, alto={}mm)", name, ancho, alto);
+        try (ArchivoSubido subido = subidaService.guardar(archivo)) {
+            return obtenerAnalisis(subido.getHash(), subido.getRuta());
+        }
+    }
 
-                return resp;
+    private ArchivoAnalizado obtenerAnalisis(String token, Path ruta) throws IOException {
+        ArchivoAnalizado analizado = analisisCacheService.obtener(token);
+        if (analizado != null) {
+            logger.info("Análisis {} reutilizado desde la caché", token);
+        } else {
+            try {
+                analizado = ArchivoAnalizado.valido(token, DxfParser.analizar(ruta, limites), vistaPreviaService.getPresupuesto());
+            } catch (AnalisisInterrumpidoException e) {
+                logger.warn("Análisis {} cortado sin guardarlo en la caché: {}", token, e.getMessage());
+                throw e;
+            } catch (BadRequestException e) {
+                analisisCacheService.guardar(ArchivoAnalizado.rechazado(token, e.getMessage()));
+                throw e;
             }
+            analisisCacheService.guardar(analizado);
+        }
+
+        if (!analizado.isValido()) {
+            throw new BadRequestException(analizado.getError());
+        }
+        return analizado;
+    }
+
+    /**
+     * Busca un archivo ya analizado por el token devuelto en /api/analizar-archivo.
+     */
+    public ArchivoAnalizado obtenerPorToken(String token) {
+        if (token == null || !TOKEN_PATTERN.matcher(token.trim().toLowerCase()).matches()) {
+            throw new BadRequestException("Token de archivo inválido.");
+        }
+        ArchivoAnalizado analizado = analisisCacheService.obtener(token.trim().toLowerCase());
+        if (analizado == null) {
+            throw new NotFoundException("El archivo ya no está disponible. Volvé a subirlo.");
+        }
+        if (!analizado.isValido()) {
+            throw new BadRequestException(analizado.getError());
+        }
+        return analizado;
+    }
+
+    /**
+     * Vista previa del archivo con ese hash al nivel de detalle pedido (sin nivel, el completo);
+     * cada nivel se genera la primera vez que se pide, en el pool de {@link VistaPreviaService}.
+     */
+    public CompletableFuture<VistaPrevia> obtenerVistaPrevia(String hash, Integer nivel) {
+        int n = validarNivel(nivel);
+        ArchivoAnalizado analizado = obtenerPorToken(hash);
+        if (analizado.isVistaPreviaGenerada(n)) {
+            return CompletableFuture.completedFuture(analizado.getVistaPrevia(n));
+        }
+        return vistaPreviaService.ejecutar(() -> analizado.getVistaPrevia(n));
+    }
+
+    /**
+     * Geometría del archivo con ese hash en binario (ver DxfBinaryWriter), con los mismos
+     * niveles de detalle que la vista previa.
+     */
+    public CompletableFuture<Geometria2D> obtenerGeometria(String hash, Integer nivel) {
+        int n = validarNivel(nivel);
+        ArchivoAnalizado analizado = obtenerPorToken(hash);
+        if (analizado.isGeometriaGenerada(n)) {
+            return CompletableFuture.completedFuture(analizado.getGeometria(n));
+        }
+        return vistaPreviaService.ejecutar(() -> analizado.getGeometria(n));
+    }
+
+    /**
+     * Miniatura PNG del archivo con ese hash; null si todavía se está generando. Una vez
+     * generada se sirve desde disco aunque el análisis ya no esté en la caché.
+     */
+    public CompletableFuture<Path> obtenerMiniatura(String hash) {
+        String token = hash == null ? "" : hash.trim().toLowerCase();
+        if (!TOKEN_PATTERN.matcher(token).matches()) {
+            throw new BadRequestException("Token de archivo inválido.");
+        }
+        return miniaturaService.obtener(token, () -> obtenerPorToken(token));
+    }
+
+    /**
+     * Malla 3D del archivo con ese hash extruida al espesor pedido (mm), redondeado al
+     * milésimo para que la caché no dependa de decimales de más.
+     */
+    public CompletableFuture<Modelo3D> obtenerModelo3D(String hash, Double espesor) {
+        if (espesor == null || !(espesor > 0) || espesor > ESPESOR_MAXIMO_MM) {
+            throw new BadRequestException("Espesor inválido.");
+        }
+        double redondeado = Math.round(espesor * 1000) / 1000.0;
+        ArchivoAnalizado analizado = obtenerPorToken(hash);
+        if (analizado.isModelo3DGenerado(redondeado)) {
+            return CompletableFuture.completedFuture(analizado.getModelo3D(redondeado));
+        }
+        return vistaPreviaService.ejecutar(() -> analizado.getModelo3D(redondeado));
+    }
+
+    private void validarArchivo(MultipartFile archivo) {
+        if (archivo == null || archivo.isEmpty()) {
+            throw new BadRequestException("El archivo DXF no puede estar vacío.");
+        }
+
+        String name = archivo.getOriginalFilename();
+        if (!SubidaService.isNombreAceptado(name)) {
+            throw new BadRequestException("El archivo debe ser un .dxf, .dxf.gz o .zip.");
+        }
+    }
+
+    private static int validarNivel(Integer nivel) {
+        int n = nivel == null ? DxfPreviewGenerator.NIVEL_COMPLETO : nivel;
+        if (n < 0 || n > DxfPreviewGenerator.NIVEL_COMPLETO) {
+            throw new BadRequestException("Nivel de detalle inválido.");
         }
+        return n;
     }
 
 }
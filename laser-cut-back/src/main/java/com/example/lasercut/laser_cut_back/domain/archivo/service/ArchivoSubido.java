@@ -0,0 +1,49 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copia en disco de un archivo subido, con el SHA-256 calculado al copiarlo. Se borra al
+ * cerrarla.
+ */
+public class ArchivoSubido implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivoSubido.class);
+
+    private final Path ruta;
+    private final String hash;
+    private final long tamanio;
+
+    ArchivoSubido(Path ruta, String hash, long tamanio) {
+        this.ruta = ruta;
+        this.hash = hash;
+        this.tamanio = tamanio;
+    }
+
+    public Path getRuta() {
+        return ruta;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public long getTamanio() {
+        return tamanio;
+    }
+
+    @Override
+    public void close() {
+        try {
+            Files.deleteIfExists(ruta);
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar el temporal {}", ruta, e);
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Geometría 2D de la pieza en el formato binario de DxfBinaryWriter, a un nivel de detalle.
+ *
+ * Los varints ya son compactos y gzip casi no les saca nada, así que se guarda tal cual. El
+ * ETag es un hash del contenido, como en {@link VistaPrevia}.
+ */
+public class Geometria2D {
+
+    private final byte[] datos;
+    private final String etag;
+    private final boolean degradada;
+
+    private Geometria2D(byte[] datos, String etag, boolean degradada) {
+        this.datos = datos;
+        this.etag = etag;
+        this.degradada = degradada;
+    }
+
+    public static Geometria2D de(byte[] datos, boolean degradada) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+        return new Geometria2D(datos, HexFormat.of().formatHex(digest.digest(datos), 0, 16), degradada);
+    }
+
+    public byte[] getDatos() {
+        return datos;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Como en {@link VistaPrevia#isDegradada()}.
+     */
+    public boolean isDegradada() {
+        return degradada;
+    }
+
+    public long getTamanioBytes() {
+        return datos.length;
+    }
+
+}
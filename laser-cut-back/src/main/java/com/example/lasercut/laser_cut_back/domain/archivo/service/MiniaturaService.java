@@ -0,0 +1,183 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.batik.transcoder.SVGAbstractTranscoder;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.image.PNGTranscoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.lasercut.laser_cut_back.exception.PreviewGenerationException;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Miniaturas PNG de las piezas para los listados de pedidos, una por hash de contenido.
+ *
+ * Se rasteriza con Batik la vista previa más simplificada y el PNG queda en disco, repartido
+ * en subdirectorios por los primeros caracteres del hash (ab/cd/abcd…-160.png) para que
+ * ninguno junte demasiados archivos. Como el archivo sobrevive a la caché de análisis, la
+ * miniatura de un pedido viejo se sigue sirviendo aunque el DXF ya no esté en memoria. Si la
+ * vista previa salió degradada, el PNG se escribe con el sufijo {@link #SUFIJO_DEGRADADA} y
+ * no cuenta como la miniatura definitiva: se vuelve a generar en el próximo pedido.
+ *
+ * Se generan en segundo plano apenas se analiza el archivo, en un pool de pocos hilos con cola
+ * acotada: si la cola está llena la miniatura no se encola y se vuelve a intentar cuando
+ * alguien la pida.
+ *
+ * Configuración opcional en application.properties:
+ *   archivo.miniaturas.dir=${java.io.tmpdir}/laser-cut/miniaturas
+ *   archivo.miniaturas.pixeles=160
+ *   archivo.miniaturas.hilos=2
+ *   archivo.miniaturas.cola=64
+ *   archivo.miniaturas.espera-ms=5000
+ */
+@Service
+public class MiniaturaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MiniaturaService.class);
+
+    public static final String SUFIJO_DEGRADADA = "-degradada.png";
+
+    private final Path directorio;
+    private final int pixeles;
+    private final long esperaMs;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> enCurso = new ConcurrentHashMap<>();
+
+    public MiniaturaService(
+            @Value("${archivo.miniaturas.dir:${java.io.tmpdir}/laser-cut/miniaturas}") String directorio,
+            @Value("${archivo.miniaturas.pixeles:160}") int pixeles,
+            @Value("${archivo.miniaturas.hilos:2}") int hilos,
+            @Value("${archivo.miniaturas.cola:64}") int cola,
+            @Value("${archivo.miniaturas.espera-ms:5000}") long esperaMs) {
+        this.directorio = Paths.get(directorio);
+        this.pixeles = pixeles;
+        this.esperaMs = esperaMs;
+        AtomicInteger hilo = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(cola), r -> {
+            Thread t = new Thread(r, "miniaturas-" + hilo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Encola la miniatura si todavía no está en disco. Devuelve null si la cola estaba llena.
+     */
+    public CompletableFuture<Path> generar(ArchivoAnalizado analizado) {
+        if (!analizado.isValido()) {
+            return null;
+        }
+        String hash = analizado.getToken();
+        Path ruta = ruta(hash);
+        if (Files.isRegularFile(ruta)) {
+            return CompletableFuture.completedFuture(ruta);
+        }
+        CompletableFuture<Path> nueva = new CompletableFuture<>();
+        CompletableFuture<Path> actual = enCurso.putIfAbsent(hash, nueva);
+        if (actual != null) {
+            return actual;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    nueva.complete(renderizar(analizado, ruta));
+                } catch (Throwable e) {
+                    logger.warn("No se pudo generar la miniatura de {}", hash, e);
+                    nueva.completeExceptionally(e);
+                } finally {
+                    enCurso.remove(hash, nueva);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            enCurso.remove(hash, nueva);
+            logger.debug("Cola de miniaturas llena, {} queda para cuando se pida", hash);
+            return null;
+        }
+        return nueva;
+    }
+
+    /**
+     * PNG de la miniatura. Si no está en disco se genera a partir del análisis en caché (que
+     * entrega analizado); la respuesta es null si no está lista en espera-ms. Si la generación
+     * falla, termina con {@link PreviewGenerationException}.
+     */
+    public CompletableFuture<Path> obtener(String hash, Supplier<ArchivoAnalizado> analizado) {
+        Path ruta = ruta(hash);
+        if (Files.isRegularFile(ruta)) {
+            return CompletableFuture.completedFuture(ruta);
+        }
+        CompletableFuture<Path> futura = generar(analizado.get());
+        if (futura == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // Sobre una copia: la original la comparten todos los que esperan esta miniatura
+        return futura.copy()
+            .completeOnTimeout(null, esperaMs, TimeUnit.MILLISECONDS)
+            .exceptionally(e -> {
+                throw new PreviewGenerationException("No se pudo generar la miniatura.", e.getCause() != null ? e.getCause() : e);
+            });
+    }
+
+    private Path ruta(String hash) {
+        return directorio.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + "-" + pixeles + ".png");
+    }
+
+    /**
+     * Escribe primero a un temporal del mismo directorio y lo mueve, así nunca se sirve un PNG
+     * a medio escribir.
+     */
+    private Path renderizar(ArchivoAnalizado analizado, Path ruta) throws Exception {
+        long inicio = System.nanoTime();
+        VistaPrevia vistaPrevia = analizado.getVistaPrevia(0);
+        byte[] svg = vistaPrevia.getSvg();
+        if (vistaPrevia.isDegradada()) {
+            ruta = ruta.resolveSibling(ruta.getFileName().toString().replace(".png", SUFIJO_DEGRADADA));
+        }
+        Files.createDirectories(ruta.getParent());
+        Path temporal = Files.createTempFile(ruta.getParent(), analizado.getToken(), ".tmp");
+        try {
+            PNGTranscoder transcoder = new PNGTranscoder();
+            transcoder.addTranscodingHint(SVGAbstractTranscoder.KEY_WIDTH, (float) pixeles);
+            transcoder.addTranscodingHint(SVGAbstractTranscoder.KEY_HEIGHT, (float) pixeles);
+            try (OutputStream out = Files.newOutputStream(temporal)) {
+                transcoder.transcode(new TranscoderInput(new ByteArrayInputStream(svg)), new TranscoderOutput(out));
+            }
+            Files.move(temporal, ruta, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            try {
+                Files.deleteIfExists(temporal);
+            } catch (IOException e) {
+                logger.debug("No se pudo borrar {}", temporal, e);
+            }
+        }
+        logger.debug("Miniatura {} generada en {} ms", analizado.getToken(), (System.nanoTime() - inicio) / 1_000_000);
+        return ruta;
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Malla 3D de la pieza extruida a un espesor, como glTF binario (.glb).
+ *
+ * Las posiciones en float32 casi no se comprimen con gzip, así que se guarda tal cual. El
+ * ETag es un hash del contenido, como en {@link VistaPrevia}.
+ */
+public class Modelo3D {
+
+    private final byte[] glb;
+    private final String etag;
+    private final boolean degradado;
+
+    private Modelo3D(byte[] glb, String etag, boolean degradado) {
+        this.glb = glb;
+        this.etag = etag;
+        this.degradado = degradado;
+    }
+
+    public static Modelo3D de(byte[] glb, boolean degradado) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+        return new Modelo3D(glb, HexFormat.of().formatHex(digest.digest(glb), 0, 16), degradado);
+    }
+
+    public byte[] getGlb() {
+        return glb;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Como en {@link VistaPrevia#isDegradada()}: la malla no entró en el presupuesto.
+     */
+    public boolean isDegradado() {
+        return degradado;
+    }
+
+    public long getTamanioBytes() {
+        return glb.length;
+    }
+
+}
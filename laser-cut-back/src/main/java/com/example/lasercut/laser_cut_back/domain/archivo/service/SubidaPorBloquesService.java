@@ -0,0 +1,426 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.lasercut.laser_cut_back.domain.archivo.dto.ArchivoResponse;
+import com.example.lasercut.laser_cut_back.domain.archivo.dto.SubidaRequest;
+import com.example.lasercut.laser_cut_back.domain.archivo.dto.SubidaResponse;
+import com.example.lasercut.laser_cut_back.exception.BadRequestException;
+import com.example.lasercut.laser_cut_back.exception.NotFoundException;
+import com.example.lasercut.laser_cut_back.exception.ServiceUnavailableException;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Subida de archivos grandes por bloques, para conexiones lentas: si se corta, el cliente
+ * pregunta qué bloques faltan y sigue desde ahí en lugar de empezar de nuevo.
+ *
+ * Cada bloque trae su SHA-256 y se escribe en su posición de un temporal preasignado, así
+ * pueden llegar en cualquier orden o repetirse. Al completar, el archivo armado se verifica
+ * entero y se mueve a un almacén por hash de contenido (ab/cd/abcd….dxf), desde donde se
+ * analiza igual que /api/analizar-archivo. Si al iniciar se declara el SHA-256 y ese archivo
+ * ya está en el almacén, alcanza con mandar un bloque elegido al azar, que se compara con el
+ * guardado: conocer el hash no basta para obtener el análisis. Los .dxf.gz y .zip se guardan
+ * tal como llegan (el hash es el del comprimido) y se descomprimen recién al analizarlos.
+ *
+ * Las subidas abandonadas se descartan pasada la expiración, y los archivos del almacén que
+ * no se usaron en retencion-horas se borran; las dos limpiezas se hacen al iniciar subidas,
+ * a lo sumo cada cinco minutos.
+ *
+ * Configuración opcional en application.properties:
+ *   archivo.subidas.dir=${java.io.tmpdir}/laser-cut/subidas
+ *   archivo.subidas.almacen=${java.io.tmpdir}/laser-cut/almacen
+ *   archivo.subidas.maximo-mb=50
+ *   archivo.subidas.bloque-kb=1024
+ *   archivo.subidas.max-sesiones=64
+ *   archivo.subidas.expiracion-min=60
+ *   archivo.subidas.retencion-horas=24
+ */
+@Service
+public class SubidaPorBloquesService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubidaPorBloquesService.class);
+
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9a-f]{32}");
+    private static final Pattern SHA256_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final int TAMANIO_LECTURA = 64 * 1024;
+    private static final long INTERVALO_LIMPIEZA_MS = 5 * 60 * 1000L;
+
+    private final ArchivoService archivoService;
+    private final Path directorio;
+    private final Path almacen;
+    private final long maximoBytes;
+    private final int tamanioBloque;
+    private final int maxSesiones;
+    private final long expiracionMs;
+    private final long retencionMs;
+
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentHashMap<String, Subida> subidas = new ConcurrentHashMap<>();
+    private final AtomicLong proximaLimpieza = new AtomicLong();
+
+    public SubidaPorBloquesService(ArchivoService archivoService,
+            @Value("${archivo.subidas.dir:${java.io.tmpdir}/laser-cut/subidas}") String directorio,
+            @Value("${archivo.subidas.almacen:${java.io.tmpdir}/laser-cut/almacen}") String almacen,
+            @Value("${archivo.subidas.maximo-mb:50}") long maximoMb,
+            @Value("${archivo.subidas.bloque-kb:1024}") int bloqueKb,
+            @Value("${archivo.subidas.max-sesiones:64}") int maxSesiones,
+            @Value("${archivo.subidas.expiracion-min:60}") long expiracionMin,
+            @Value("${archivo.subidas.retencion-horas:24}") long retencionHoras) {
+        this.archivoService = archivoService;
+        this.directorio = Paths.get(directorio);
+        this.almacen = Paths.get(almacen);
+        this.maximoBytes = maximoMb * 1024 * 1024;
+        this.tamanioBloque = bloqueKb * 1024;
+        this.maxSesiones = maxSesiones;
+        this.expiracionMs = expiracionMin * 60 * 1000;
+        this.retencionMs = retencionHoras * 60 * 60 * 1000;
+    }
+
+    @PreDestroy
+    public void detener() {
+        subidas.values().forEach(this::descartar);
+        subidas.clear();
+    }
+
+    public SubidaResponse iniciar(SubidaRequest pedido) throws IOException {
+        String nombre = pedido.getNombre();
+        if (!SubidaService.isNombreAceptado(nombre)) {
+            throw new BadRequestException("El archivo debe ser un .dxf, .dxf.gz o .zip.");
+        }
+        if (pedido.getTamanio() <= 0) {
+            throw new BadRequestException("El archivo DXF no puede estar vacío.");
+        }
+        if (pedido.getTamanio() > maximoBytes) {
+            throw new BadRequestException("El archivo supera el tamaño máximo de " + maximoBytes / (1024 * 1024) + " MB.");
+        }
+        String esperado = null;
+        if (pedido.getSha256() != null && !pedido.getSha256().isBlank()) {
+            esperado = normalizarSha256(pedido.getSha256(), "SHA-256 del archivo inválido.");
+        }
+
+        limpiar();
+        if (subidas.size() >= maxSesiones) {
+            throw new ServiceUnavailableException("Hay demasiadas subidas en curso. Reintentá en unos minutos.");
+        }
+
+        int bloques = (int) ((pedido.getTamanio() + tamanioBloque - 1) / tamanioBloque);
+        Subida subida = new Subida(nuevoId(), nombre, pedido.getTamanio(), bloques, esperado);
+        Path almacenado = esperado == null ? null : rutaAlmacen(esperado);
+        if (almacenado != null && Files.isRegularFile(almacenado) && Files.size(almacenado) == pedido.getTamanio()) {
+            Files.setLastModifiedTime(almacenado, FileTime.fromMillis(System.currentTimeMillis()));
+            subida.almacenado = almacenado;
+            // Prueba de que el cliente tiene el archivo: un bloque al azar queda pendiente
+            subida.recibidos.set(0, bloques);
+            subida.recibidos.clear(random.nextInt(bloques));
+            logger.info("Subida {}: {} ya está en el almacén", subida.id, esperado);
+        } else {
+            Files.createDirectories(directorio);
+            subida.temporal = Files.createTempFile(directorio, "bloques-", ".dxf");
+            subida.canal = FileChannel.open(subida.temporal, StandardOpenOption.WRITE);
+        }
+        subidas.put(subida.id, subida);
+        return estado(subida);
+    }
+
+    public SubidaResponse estado(String id) {
+        return estado(buscar(id));
+    }
+
+    /**
+     * Escribe el bloque en su lugar. Se puede repetir: si el checksum no coincide el bloque
+     * queda como faltante. Si el archivo ya estaba en el almacén no se escribe: se compara con
+     * el bloque guardado en la misma posición.
+     *
+     * @throws BadRequestException si el número, el largo o el checksum no son los esperados
+     */
+    public void recibirBloque(String id, int numero, String sha256, InputStream datos) throws IOException {
+        Subida subida = buscar(id);
+        if (numero < 0 || numero >= subida.bloques) {
+            throw new BadRequestException("Número de bloque inválido.");
+        }
+        String esperado = normalizarSha256(sha256, "Falta el SHA-256 del bloque o es inválido.");
+        long posicion = (long) numero * tamanioBloque;
+        int largo = (int) Math.min(tamanioBloque, subida.tamanio - posicion);
+
+        subida.lock.readLock().lock();
+        try {
+            if (subida.cerrada) {
+                throw new NotFoundException("La subida ya se completó o expiró.");
+            }
+            subida.marcar(numero, false);
+            MessageDigest digest = sha256();
+            byte[] bloque = new byte[TAMANIO_LECTURA];
+            ByteBuffer escritura = ByteBuffer.wrap(bloque);
+            long recibidos = 0;
+            int leidos;
+            while ((leidos = datos.read(bloque)) != -1) {
+                if (recibidos + leidos > largo) {
+                    throw new BadRequestException("El bloque " + numero + " debe tener " + largo + " bytes.");
+                }
+                digest.update(bloque, 0, leidos);
+                escritura.clear().limit(leidos);
+                while (subida.canal != null && escritura.hasRemaining()) {
+                    subida.canal.write(escritura, posicion + recibidos + escritura.position());
+                }
+                recibidos += leidos;
+            }
+            if (recibidos != largo) {
+                throw new BadRequestException("El bloque " + numero + " debe tener " + largo + " bytes.");
+            }
+            if (!HexFormat.of().formatHex(digest.digest()).equals(esperado)) {
+                throw new BadRequestException("El SHA-256 del bloque " + numero + " no coincide. Volvé a mandarlo.");
+            }
+            if (subida.almacenado != null && !calcularHash(subida.almacenado, posicion, largo).equals(esperado)) {
+                throw new BadRequestException("El bloque " + numero + " no coincide con el archivo declarado.");
+            }
+            subida.marcar(numero, true);
+        } finally {
+            subida.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Verifica el archivo armado, lo pasa al almacén y lo analiza.
+     *
+     * @throws BadRequestException si faltan bloques o el archivo no coincide con el SHA-256
+     *     declarado al iniciar
+     */
+    public ArchivoResponse completar(String id) throws IOException {
+        Subida subida = buscar(id);
+        Path ruta;
+        subida.lock.writeLock().lock();
+        try {
+            if (subida.cerrada) {
+                throw new NotFoundException("La subida ya se completó o expiró.");
+            }
+            List<Integer> faltantes = subida.faltantes();
+            if (!faltantes.isEmpty()) {
+                throw new BadRequestException("Faltan " + faltantes.size() + " bloque(s) por subir.");
+            }
+            subida.cerrada = true;
+            subidas.remove(id, subida);
+            ruta = subida.almacenado != null ? subida.almacenado : almacenar(subida);
+        } finally {
+            subida.lock.writeLock().unlock();
+        }
+        String hash = ruta.getFileName().toString().replace(".dxf", "");
+        logger.info("Subida {} completa: {} ({} bytes)", id, hash, subida.tamanio);
+        return archivoService.analizar(ruta, hash, subida.nombre);
+    }
+
+    /**
+     * Cierra el temporal, calcula su SHA-256 y lo mueve al almacén; si ese contenido ya estaba,
+     * se queda con el existente.
+     */
+    private Path almacenar(Subida subida) throws IOException {
+        try {
+            subida.canal.close();
+            String hash = calcularHash(subida.temporal);
+            if (subida.esperado != null && !subida.esperado.equals(hash)) {
+                throw new BadRequestException("El archivo armado no coincide con el SHA-256 declarado. Volvé a subirlo.");
+            }
+            Path destino = rutaAlmacen(hash);
+            Files.createDirectories(destino.getParent());
+            if (Files.isRegularFile(destino)) {
+                Files.setLastModifiedTime(destino, FileTime.fromMillis(System.currentTimeMillis()));
+            } else {
+                Files.move(subida.temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return destino;
+        } finally {
+            Files.deleteIfExists(subida.temporal);
+        }
+    }
+
+    private static String calcularHash(Path archivo) throws IOException {
+        return calcularHash(archivo, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * SHA-256 de largo bytes de archivo desde posicion (o hasta el final, si es más corto).
+     */
+    private static String calcularHash(Path archivo, long posicion, long largo) throws IOException {
+        MessageDigest digest = sha256();
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANIO_LECTURA);
+            long restantes = largo;
+            while (restantes > 0) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), restantes));
+                int leidos = canal.read(buffer, posicion);
+                if (leidos == -1) {
+                    break;
+                }
+                buffer.flip();
+                digest.update(buffer);
+                posicion += leidos;
+                restantes -= leidos;
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private Subida buscar(String id) {
+        if (id == null || !ID_PATTERN.matcher(id).matches()) {
+            throw new BadRequestException("Subida inválida.");
+        }
+        Subida subida = subidas.get(id);
+        if (subida == null) {
+            throw new NotFoundException("La subida no existe o expiró. Volvé a empezarla.");
+        }
+        subida.ultimoUso = System.currentTimeMillis();
+        return subida;
+    }
+
+    private SubidaResponse estado(Subida subida) {
+        return new SubidaResponse(subida.id, tamanioBloque, subida.bloques, subida.faltantes());
+    }
+
+    /**
+     * Descarta las subidas abandonadas y lo que lleva más de retencion-horas sin usarse en el
+     * almacén. Corre a lo sumo cada INTERVALO_LIMPIEZA_MS.
+     */
+    private void limpiar() {
+        long ahora = System.currentTimeMillis();
+        long proxima = proximaLimpieza.get();
+        if (ahora < proxima || !proximaLimpieza.compareAndSet(proxima, ahora + INTERVALO_LIMPIEZA_MS)) {
+            return;
+        }
+        for (Subida subida : subidas.values()) {
+            if (ahora - subida.ultimoUso > expiracionMs && subida.lock.writeLock().tryLock()) {
+                try {
+                    if (subidas.remove(subida.id, subida)) {
+                        subida.cerrada = true;
+                        descartar(subida);
+                        logger.info("Subida {} expirada", subida.id);
+                    }
+                } finally {
+                    subida.lock.writeLock().unlock();
+                }
+            }
+        }
+        if (!Files.isDirectory(almacen)) {
+            return;
+        }
+        try (Stream<Path> archivos = Files.walk(almacen, 3)) {
+            archivos.filter(Files::isRegularFile).forEach(archivo -> {
+                try {
+                    if (ahora - Files.getLastModifiedTime(archivo).toMillis() > retencionMs) {
+                        Files.deleteIfExists(archivo);
+                    }
+                } catch (IOException e) {
+                    logger.debug("No se pudo limpiar {}", archivo, e);
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("No se pudo recorrer el almacén {}", almacen, e);
+        }
+    }
+
+    private void descartar(Subida subida) {
+        if (subida.temporal == null) {
+            return;
+        }
+        try {
+            subida.canal.close();
+            Files.deleteIfExists(subida.temporal);
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar el temporal {}", subida.temporal, e);
+        }
+    }
+
+    private Path rutaAlmacen(String hash) {
+        return almacen.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + ".dxf");
+    }
+
+    private String nuevoId() {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    private static String normalizarSha256(String valor, String error) {
+        String hash = valor == null ? "" : valor.trim().toLowerCase();
+        if (!SHA256_PATTERN.matcher(hash).matches()) {
+            throw new BadRequestException(error);
+        }
+        return hash;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Estado de una subida. Los bloques se escriben con el lock de lectura (pueden llegar
+     * varios a la vez, cada uno en su posición) y completar o descartar toman el de escritura.
+     */
+    private static final class Subida {
+
+        private final String id;
+        private final String nombre;
+        private final long tamanio;
+        private final int bloques;
+        private final String esperado;
+        private final BitSet recibidos;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private Path temporal;
+        private FileChannel canal;
+        private Path almacenado;
+        private volatile boolean cerrada;
+        private volatile long ultimoUso = System.currentTimeMillis();
+
+        Subida(String id, String nombre, long tamanio, int bloques, String esperado) {
+            this.id = id;
+            this.nombre = nombre;
+            this.tamanio = tamanio;
+            this.bloques = bloques;
+            this.esperado = esperado;
+            this.recibidos = new BitSet(bloques);
+        }
+
+        synchronized void marcar(int numero, boolean recibido) {
+            recibidos.set(numero, recibido);
+        }
+
+        synchronized List<Integer> faltantes() {
+            List<Integer> faltantes = new ArrayList<>();
+            for (int i = recibidos.nextClearBit(0); i < bloques; i = recibidos.nextClearBit(i + 1)) {
+                faltantes.add(i);
+            }
+            return faltantes;
+        }
+
+    }
+
+}
@@ -0,0 +1,250 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.service;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.lasercut.laser_cut_back.exception.BadRequestException;
+
+/**
+ * Pasa los archivos subidos a un temporal propio antes de analizarlos.
+ *
+ * El multipart se lee de a bloques de 64 KB que se escriben en el temporal y alimentan el
+ * SHA-256 en la misma pasada, así el archivo se lee una sola vez y el heap que ocupa cada
+ * subida no depende de su tamaño. Después el parser lo lee mapeado en memoria (ver
+ * DxfParser.analizar(Path)).
+ *
+ * Además de .dxf se aceptan .dxf.gz y .zip con un único .dxf adentro (el formato se reconoce
+ * por los primeros bytes). Se descomprimen en la misma pasada, así que el temporal y el hash
+ * son los del DXF: el mismo dibujo comprimido o no comparte el análisis en caché. Contra las
+ * bombas de compresión se limitan el tamaño descomprimido y la relación entre lo
+ * descomprimido y lo leído.
+ *
+ * El tamaño máximo se controla contra lo declarado en el multipart y otra vez contra lo que
+ * realmente se copia. Spring tiene su propio límite (spring.servlet.multipart.max-file-size),
+ * que tiene que ser al menos este.
+ *
+ * Configuración opcional en application.properties:
+ *   archivo.subidas.dir=${java.io.tmpdir}/laser-cut/subidas
+ *   archivo.subidas.maximo-mb=50
+ *   archivo.subidas.maximo-descomprimido-mb=200
+ *   archivo.subidas.maxima-relacion=100
+ */
+@Service
+public class SubidaService {
+
+    private static final int TAMANIO_BLOQUE = 64 * 1024;
+
+    /** Por debajo de esto no se controla la relación: un DXF chico y repetitivo comprime mucho. */
+    private static final long MINIMO_CONTROL_RELACION = 1024 * 1024;
+
+    private final Path directorio;
+    private final long maximoBytes;
+    private final long maximoDescomprimidoBytes;
+    private final long maximaRelacion;
+
+    public SubidaService(
+            @Value("${archivo.subidas.dir:${java.io.tmpdir}/laser-cut/subidas}") String directorio,
+            @Value("${archivo.subidas.maximo-mb:50}") long maximoMb,
+            @Value("${archivo.subidas.maximo-descomprimido-mb:200}") long maximoDescomprimidoMb,
+            @Value("${archivo.subidas.maxima-relacion:100}") long maximaRelacion) {
+        this.directorio = Paths.get(directorio);
+        this.maximoBytes = maximoMb * 1024 * 1024;
+        this.maximoDescomprimidoBytes = maximoDescomprimidoMb * 1024 * 1024;
+        this.maximaRelacion = maximaRelacion;
+    }
+
+    /**
+     * Si el nombre es de un formato aceptado: .dxf, .dxf.gz o .zip.
+     */
+    public static boolean isNombreAceptado(String nombre) {
+        if (nombre == null) {
+            return false;
+        }
+        String minusculas = nombre.toLowerCase();
+        return minusculas.endsWith(".dxf") || minusculas.endsWith(".dxf.gz") || minusculas.endsWith(".zip");
+    }
+
+    /**
+     * Si el archivo en disco está comprimido (gzip o zip), según sus primeros bytes.
+     */
+    public static boolean isComprimido(Path archivo) throws IOException {
+        try (InputStream is = Files.newInputStream(archivo)) {
+            byte[] cabecera = is.readNBytes(4);
+            return esGzip(cabecera) || esZip(cabecera);
+        }
+    }
+
+    /**
+     * Copia el archivo a disco, descomprimido si hace falta. Quien lo recibe tiene que
+     * cerrarlo para borrar el temporal.
+     *
+     * @throws BadRequestException si supera el tamaño máximo o está mal comprimido
+     */
+    public ArchivoSubido guardar(MultipartFile archivo) throws IOException {
+        if (archivo.getSize() > maximoBytes) {
+            throw excedido();
+        }
+        try (InputStream is = archivo.getInputStream()) {
+            return guardar(is);
+        }
+    }
+
+    /**
+     * Igual que {@link #guardar(MultipartFile)}, desde un stream que no se cierra.
+     */
+    public ArchivoSubido guardar(InputStream entrada) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+
+        Files.createDirectories(directorio);
+        Path temporal = Files.createTempFile(directorio, "subida-", ".dxf");
+        long copiados = 0;
+        Contador leidosComprimidos = new Contador(entrada);
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+            BufferedInputStream original = new BufferedInputStream(leidosComprimidos, TAMANIO_BLOQUE);
+            InputStream is = descomprimir(original);
+            boolean comprimido = is != null;
+            if (!comprimido) {
+                is = original;
+            }
+            byte[] bloque = new byte[TAMANIO_BLOQUE];
+            ByteBuffer escritura = ByteBuffer.wrap(bloque);
+            int leidos;
+            while ((leidos = is.read(bloque)) != -1) {
+                copiados += leidos;
+                if (leidosComprimidos.cantidad > maximoBytes) {
+                    throw excedido();
+                }
+                if (comprimido) {
+                    controlarDescompresion(copiados, leidosComprimidos.cantidad);
+                }
+                digest.update(bloque, 0, leidos);
+                escritura.clear().limit(leidos);
+                while (escritura.hasRemaining()) {
+                    canal.write(escritura);
+                }
+            }
+            if (is instanceof ZipInputStream zip && zip.getNextEntry() != null) {
+                throw new BadRequestException("El .zip debe contener un solo archivo .dxf.");
+            }
+        } catch (ZipException | EOFException e) {
+            Files.deleteIfExists(temporal);
+            throw new BadRequestException("El archivo comprimido está dañado o incompleto.");
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+        return new ArchivoSubido(temporal, HexFormat.of().formatHex(digest.digest()), copiados);
+    }
+
+    /**
+     * Stream descomprimido si la entrada es gzip o zip (posicionado en su único .dxf), o null
+     * si no está comprimida; en ese caso hay que seguir leyendo de la misma entrada, que
+     * conserva en su buffer los bytes de la cabecera.
+     */
+    private static InputStream descomprimir(BufferedInputStream entrada) throws IOException {
+        entrada.mark(4);
+        byte[] cabecera = entrada.readNBytes(4);
+        entrada.reset();
+        if (esGzip(cabecera)) {
+            return new GZIPInputStream(entrada, TAMANIO_BLOQUE);
+        }
+        if (!esZip(cabecera)) {
+            return null;
+        }
+        ZipInputStream zip = new ZipInputStream(entrada);
+        ZipEntry entrada0 = zip.getNextEntry();
+        while (entrada0 != null && entrada0.isDirectory()) {
+            entrada0 = zip.getNextEntry();
+        }
+        if (entrada0 == null || !entrada0.getName().toLowerCase().endsWith(".dxf")) {
+            throw new BadRequestException("El .zip debe contener un solo archivo .dxf.");
+        }
+        return zip;
+    }
+
+    private void controlarDescompresion(long descomprimidos, long comprimidos) {
+        if (descomprimidos > maximoDescomprimidoBytes) {
+            throw new BadRequestException("El archivo descomprimido supera el tamaño máximo de "
+                + maximoDescomprimidoBytes / (1024 * 1024) + " MB.");
+        }
+        if (descomprimidos > MINIMO_CONTROL_RELACION && descomprimidos > comprimidos * maximaRelacion) {
+            throw new BadRequestException("El archivo comprimido no es válido (relación de compresión sospechosa).");
+        }
+    }
+
+    private static boolean esGzip(byte[] cabecera) {
+        return cabecera.length >= 2 && (cabecera[0] & 0xFF) == 0x1F && (cabecera[1] & 0xFF) == 0x8B;
+    }
+
+    private static boolean esZip(byte[] cabecera) {
+        return cabecera.length >= 4 && cabecera[0] == 'P' && cabecera[1] == 'K' && cabecera[2] == 3 && cabecera[3] == 4;
+    }
+
+    private BadRequestException excedido() {
+        return new BadRequestException("El archivo supera el tamaño máximo de " + maximoBytes / (1024 * 1024) + " MB.");
+    }
+
+    /**
+     * Cuenta los bytes leídos del archivo tal como llegó, para los límites sobre lo comprimido.
+     */
+    private static final class Contador extends FilterInputStream {
+
+        private long cantidad;
+
+        Contador(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                cantidad++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int leidos = super.read(b, off, len);
+            if (leidos > 0) {
+                cantidad += leidos;
+            }
+            return leidos;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long salteados = super.skip(n);
+            cantidad += salteados;
+            return salteados;
+        }
+
+    }
+
+}
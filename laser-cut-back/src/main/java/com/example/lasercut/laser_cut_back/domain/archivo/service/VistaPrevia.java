@@ -0,0 +1,120 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * SVG de la vista previa guardado ya comprimido con gzip, que es como lo pide casi cualquier
+ * navegador; para los que no aceptan gzip se descomprime al vuelo.
+ *
+ * No se ofrece br: el JDK no trae un compresor Brotli y sumar una dependencia nativa solo
+ * para esto no se justifica; un proxy delante puede agregarlo si hace falta.
+ *
+ * El ETag es un hash del SVG, así que es fuerte y no cambia mientras no cambie el dibujo.
+ * Una vista previa degradada (solo contornos o la caja, porque el dibujo no entró en el
+ * presupuesto) no se debe guardar como definitiva.
+ */
+public class VistaPrevia {
+
+    private final byte[] svgGzip;
+    private final int tamanioSvg;
+    private final String etag;
+    private final boolean degradada;
+
+    private VistaPrevia(byte[] svgGzip, int tamanioSvg, String etag, boolean degradada) {
+        this.svgGzip = svgGzip;
+        this.tamanioSvg = tamanioSvg;
+        this.etag = etag;
+        this.degradada = degradada;
+    }
+
+    public static VistaPrevia de(byte[] svg, boolean degradada) {
+        ByteArrayOutputStream comprimido = new ByteArrayOutputStream(Math.max(512, svg.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(comprimido, 8192)) {
+            gzip.write(svg);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+        String etag = HexFormat.of().formatHex(digest.digest(svg), 0, 16);
+        return new VistaPrevia(comprimido.toByteArray(), svg.length, etag, degradada);
+    }
+
+    /**
+     * Si el cliente acepta gzip según su Accept-Encoding, respetando q=0 ("gzip;q=0" o
+     * "*;q=0" sin mencionar gzip lo rechazan).
+     */
+    public static boolean aceptaGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean comodin = null;
+        for (String parte : acceptEncoding.split(",")) {
+            String[] campos = parte.split(";");
+            String codificacion = campos[0].trim().toLowerCase();
+            if (!codificacion.equals("gzip") && !codificacion.equals("x-gzip") && !codificacion.equals("*")) {
+                continue;
+            }
+            boolean aceptada = true;
+            for (int i = 1; i < campos.length; i++) {
+                String parametro = campos[i].trim().toLowerCase();
+                if (parametro.startsWith("q=")) {
+                    try {
+                        aceptada = Double.parseDouble(parametro.substring(2).trim()) > 0;
+                    } catch (NumberFormatException e) {
+                        aceptada = false;
+                    }
+                }
+            }
+            if (!codificacion.equals("*")) {
+                return aceptada;
+            }
+            comodin = aceptada;
+        }
+        return Boolean.TRUE.equals(comodin);
+    }
+
+    public byte[] getSvgGzip() {
+        return svgGzip;
+    }
+
+    public byte[] getSvg() {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(svgGzip))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int getTamanioSvg() {
+        return tamanioSvg;
+    }
+
+    /**
+     * Hash del SVG sin comillas; la variante comprimida usa el mismo con el sufijo -gzip.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    public boolean isDegradada() {
+        return degradada;
+    }
+
+    public long getTamanioBytes() {
+        return svgGzip.length;
+    }
+
+}
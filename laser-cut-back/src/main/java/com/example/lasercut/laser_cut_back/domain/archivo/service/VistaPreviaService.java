@@ -0,0 +1,106 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.lasercut.laser_cut_back.exception.ServiceUnavailableException;
+import com.example.lasercut.laser_cut_back.shared.util.DxfPresupuesto;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pool propio para generar vistas previas, geometría binaria y mallas 3D fuera de los hilos
+ * que atienden pedidos HTTP: los endpoints de /api/previews devuelven un CompletableFuture y
+ * el hilo del servidor queda libre mientras se genera.
+ *
+ * La cola es acotada; si se llena, el pedido se rechaza con 503 y Retry-After en lugar de
+ * acumular trabajo que el cliente probablemente ya abandonó.
+ *
+ * Cada generación tiene además un presupuesto de tiempo y de memoria (ver
+ * {@link DxfPresupuesto}); un dibujo que no entra se sirve degradado en lugar de ocupar un
+ * hilo y el heap indefinidamente. Las medidas y la cotización no dependen de esto.
+ *
+ * Configuración opcional en application.properties:
+ *   archivo.vistas-previas.hilos=2
+ *   archivo.vistas-previas.cola=128
+ *   archivo.vistas-previas.limite-ms=5000
+ *   archivo.vistas-previas.limite-mb=64
+ */
+@Service
+public class VistaPreviaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VistaPreviaService.class);
+
+    private final ThreadPoolExecutor executor;
+    private final DxfPresupuesto presupuesto;
+
+    public VistaPreviaService(
+            @Value("${archivo.vistas-previas.hilos:2}") int hilos,
+            @Value("${archivo.vistas-previas.cola:128}") int cola,
+            @Value("${archivo.vistas-previas.limite-ms:5000}") long limiteMs,
+            @Value("${archivo.vistas-previas.limite-mb:64}") long limiteMb) {
+        this.presupuesto = new DxfPresupuesto(limiteMs, limiteMb * 1024 * 1024);
+        AtomicInteger hilo = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(cola), r -> {
+            Thread t = new Thread(r, "vistas-previas-" + hilo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Presupuesto de cada vista previa o geometría binaria.
+     */
+    public DxfPresupuesto getPresupuesto() {
+        return presupuesto;
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Ejecuta la generación en el pool.
+     *
+     * @throws ServiceUnavailableException si la cola está llena
+     */
+    public <T> CompletableFuture<T> ejecutar(Supplier<T> generacion) {
+        try {
+            return CompletableFuture.supplyAsync(generacion, executor);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Cola de vistas previas llena ({} pendientes)", executor.getQueue().size());
+            throw new ServiceUnavailableException("El servidor está ocupado generando vistas previas. Reintentá en unos segundos.");
+        }
+    }
+
+    /**
+     * Como {@link #ejecutar}, pero si la cola está llena no hace nada: para adelantar trabajo
+     * que igual se va a pedir después.
+     */
+    public void adelantar(Runnable generacion) {
+        try {
+            executor.execute(() -> {
+                try {
+                    generacion.run();
+                } catch (RuntimeException e) {
+                    logger.debug("No se pudo adelantar la vista previa", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Cola de vistas previas llena, no se adelanta");
+        }
+    }
+
+}
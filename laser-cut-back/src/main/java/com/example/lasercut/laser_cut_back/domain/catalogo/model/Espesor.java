@@ -28,6 +28,14 @@ public class Espesor {
     @Column(name = "precio_extra_por_m2", nullable = false)
     private Double precioExtraPorM2 = 0.0;
 
+    /** Velocidad de corte en mm/min; si es null se estima a partir del espesor. */
+    @Column(name = "velocidad_corte_mm_min")
+    private Double velocidadCorteMmMin;
+
+    /** Tiempo de perforación en segundos; si es null se estima a partir del espesor. */
+    @Column(name = "tiempo_perforacion_seg")
+    private Double tiempoPerforacionSeg;
+
     @ManyToOne
     @JoinColumn(name = "material_id", nullable = false)
     private Material material;
@@ -70,6 +78,22 @@ public class Espesor {
         this.precioExtraPorM2 = precioExtraPorM2;
     }
 
+    public Double getVelocidadCorteMmMin() {
+        return velocidadCorteMmMin;
+    }
+
+    public void setVelocidadCorteMmMin(Double velocidadCorteMmMin) {
+        this.velocidadCorteMmMin = velocidadCorteMmMin;
+    }
+
+    public Double getTiempoPerforacionSeg() {
+        return tiempoPerforacionSeg;
+    }
+
+    public void setTiempoPerforacionSeg(Double tiempoPerforacionSeg) {
+        this.tiempoPerforacionSeg = tiempoPerforacionSeg;
+    }
+
     public Material getMaterial() {
         return material;
     }
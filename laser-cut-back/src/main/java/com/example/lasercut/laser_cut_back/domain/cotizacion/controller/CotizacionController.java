@@ -1,6 +1,7 @@
 package com.example.lasercut.laser_cut_back.domain.cotizacion.controller;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -11,6 +12,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.example.lasercut.laser_cut_back.domain.cotizacion.dto.CotizacionResponse;
+import com.example.lasercut.laser_cut_back.domain.cotizacion.dto.MatrizPreciosResponse;
 import com.example.lasercut.laser_cut_back.domain.cotizacion.service.CotizacionService;
 
 /**
@@ -38,15 +40,17 @@ public class CotizacionController {
 
     @PostMapping(path = "/cotizacion", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<CotizacionResponse> cotizar(
-            @RequestParam MultipartFile archivo,
+            @RequestParam(required = false) MultipartFile archivo,
+            @RequestParam(required = false) String token,
             @RequestParam double espesor,
             @RequestParam String material,
+            @RequestParam(required = false) String terminacion,
             @RequestParam int cantidad,
-            @RequestParam String unidad
+            @RequestParam(required = false) String unidad
             // TODO: Agregar cuando se implemente autenticación obligatoria:
             // @Authentication Authentication auth
     ) throws IOException {
-        CotizacionResponse resp = cotizacionService.calcular(archivo, espesor, material, cantidad, unidad);
+        CotizacionResponse resp = cotizacionService.calcular(archivo, token, espesor, material, terminacion, cantidad, unidad);
         
         // TODO: PREPARACIÓN FUTURA - Vincular cotización al usuario
         // if (auth != null) {
@@ -62,5 +66,20 @@ public class CotizacionController {
         
         return ResponseEntity.ok(resp);
     }
-    
+
+    /**
+     * Precios de una pieza para todos los espesores y terminaciones de uno o más materiales,
+     * para que la interfaz pueda mostrar la grilla completa sin volver a cotizar por cada cambio.
+     */
+    @PostMapping(path = "/cotizacion/matriz", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<MatrizPreciosResponse> matriz(
+            @RequestParam(required = false) MultipartFile archivo,
+            @RequestParam(required = false) String token,
+            @RequestParam(required = false) List<String> material,
+            @RequestParam(defaultValue = "1") int cantidad,
+            @RequestParam(required = false) String unidad
+    ) throws IOException {
+        return ResponseEntity.ok(cotizacionService.calcularMatriz(archivo, token, material, cantidad, unidad));
+    }
+
 }
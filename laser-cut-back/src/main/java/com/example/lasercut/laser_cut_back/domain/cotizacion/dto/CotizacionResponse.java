@@ -3,6 +3,7 @@ package com.example.lasercut.laser_cut_back.domain.cotizacion.dto;
 public class CotizacionResponse {
 
     private String material;
+    private String terminacion;
     private double ancho;
     private double alto;
     private double espesor;
@@ -11,6 +12,13 @@ public class CotizacionResponse {
     private int cantidad;
     private String unidad;
     private double precioTotal;
+    private double areaNeta;
+    private double longitudCorte;
+    private int perforaciones;
+    private int hojas;
+    private String formatoHoja;
+    private double aprovechamiento;
+    private double tiempoCorteSegundos;
 
     public CotizacionResponse() {
     }
@@ -35,6 +43,14 @@ public class CotizacionResponse {
         this.material = material;
     }
 
+    public String getTerminacion() {
+        return terminacion;
+    }
+
+    public void setTerminacion(String terminacion) {
+        this.terminacion = terminacion;
+    }
+
     public double getAncho() {
         return ancho;
     }
@@ -98,5 +114,61 @@ public class CotizacionResponse {
     public void setPrecioTotal(double precioTotal) {
         this.precioTotal = precioTotal;
     }
-    
+
+    public double getAreaNeta() {
+        return areaNeta;
+    }
+
+    public void setAreaNeta(double areaNeta) {
+        this.areaNeta = areaNeta;
+    }
+
+    public double getLongitudCorte() {
+        return longitudCorte;
+    }
+
+    public void setLongitudCorte(double longitudCorte) {
+        this.longitudCorte = longitudCorte;
+    }
+
+    public int getPerforaciones() {
+        return perforaciones;
+    }
+
+    public void setPerforaciones(int perforaciones) {
+        this.perforaciones = perforaciones;
+    }
+
+    public int getHojas() {
+        return hojas;
+    }
+
+    public void setHojas(int hojas) {
+        this.hojas = hojas;
+    }
+
+    public String getFormatoHoja() {
+        return formatoHoja;
+    }
+
+    public void setFormatoHoja(String formatoHoja) {
+        this.formatoHoja = formatoHoja;
+    }
+
+    public double getAprovechamiento() {
+        return aprovechamiento;
+    }
+
+    public void setAprovechamiento(double aprovechamiento) {
+        this.aprovechamiento = aprovechamiento;
+    }
+
+    public double getTiempoCorteSegundos() {
+        return tiempoCorteSegundos;
+    }
+
+    public void setTiempoCorteSegundos(double tiempoCorteSegundos) {
+        this.tiempoCorteSegundos = tiempoCorteSegundos;
+    }
+
 }
@@ -0,0 +1,87 @@
+package com.example.lasercut.laser_cut_back.domain.cotizacion.dto;
+
+import java.util.List;
+
+/**
+ * Precios de una misma pieza para todas las combinaciones de espesor y terminación
+ * de los materiales pedidos.
+ */
+public class MatrizPreciosResponse {
+
+    private double ancho;
+    private double alto;
+    private double areaNeta;
+    private double longitudCorte;
+    private int perforaciones;
+    private int cantidad;
+    private String unidad;
+    private List<PrecioCombinacionDTO> precios;
+
+    public MatrizPreciosResponse() {
+    }
+
+    public double getAncho() {
+        return ancho;
+    }
+
+    public void setAncho(double ancho) {
+        this.ancho = ancho;
+    }
+
+    public double getAlto() {
+        return alto;
+    }
+
+    public void setAlto(double alto) {
+        this.alto = alto;
+    }
+
+    public double getAreaNeta() {
+        return areaNeta;
+    }
+
+    public void setAreaNeta(double areaNeta) {
+        this.areaNeta = areaNeta;
+    }
+
+    public double getLongitudCorte() {
+        return longitudCorte;
+    }
+
+    public void setLongitudCorte(double longitudCorte) {
+        this.longitudCorte = longitudCorte;
+    }
+
+    public int getPerforaciones() {
+        return perforaciones;
+    }
+
+    public void setPerforaciones(int perforaciones) {
+        this.perforaciones = perforaciones;
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(int cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public String getUnidad() {
+        return unidad;
+    }
+
+    public void setUnidad(String unidad) {
+        this.unidad = unidad;
+    }
+
+    public List<PrecioCombinacionDTO> getPrecios() {
+        return precios;
+    }
+
+    public void setPrecios(List<PrecioCombinacionDTO> precios) {
+        this.precios = precios;
+    }
+
+}
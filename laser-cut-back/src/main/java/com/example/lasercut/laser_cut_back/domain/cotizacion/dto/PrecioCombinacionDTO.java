@@ -0,0 +1,99 @@
+package com.example.lasercut.laser_cut_back.domain.cotizacion.dto;
+
+public class PrecioCombinacionDTO {
+
+    private Long materialId;
+    private String material;
+    private Long espesorId;
+    private double espesorMm;
+    private Long terminacionId;
+    private String terminacion;
+    private double peso;
+    private double precioUnitario;
+    private double precioTotal;
+    private int hojas;
+
+    public PrecioCombinacionDTO() {
+    }
+
+    public Long getMaterialId() {
+        return materialId;
+    }
+
+    public void setMaterialId(Long materialId) {
+        this.materialId = materialId;
+    }
+
+    public String getMaterial() {
+        return material;
+    }
+
+    public void setMaterial(String material) {
+        this.material = material;
+    }
+
+    public Long getEspesorId() {
+        return espesorId;
+    }
+
+    public void setEspesorId(Long espesorId) {
+        this.espesorId = espesorId;
+    }
+
+    public double getEspesorMm() {
+        return espesorMm;
+    }
+
+    public void setEspesorMm(double espesorMm) {
+        this.espesorMm = espesorMm;
+    }
+
+    public Long getTerminacionId() {
+        return terminacionId;
+    }
+
+    public void setTerminacionId(Long terminacionId) {
+        this.terminacionId = terminacionId;
+    }
+
+    public String getTerminacion() {
+        return terminacion;
+    }
+
+    public void setTerminacion(String terminacion) {
+        this.terminacion = terminacion;
+    }
+
+    public double getPeso() {
+        return peso;
+    }
+
+    public void setPeso(double peso) {
+        this.peso = peso;
+    }
+
+    public double getPrecioUnitario() {
+        return precioUnitario;
+    }
+
+    public void setPrecioUnitario(double precioUnitario) {
+        this.precioUnitario = precioUnitario;
+    }
+
+    public double getPrecioTotal() {
+        return precioTotal;
+    }
+
+    public void setPrecioTotal(double precioTotal) {
+        this.precioTotal = precioTotal;
+    }
+
+    public int getHojas() {
+        return hojas;
+    }
+
+    public void setHojas(int hojas) {
+        this.hojas = hojas;
+    }
+
+}
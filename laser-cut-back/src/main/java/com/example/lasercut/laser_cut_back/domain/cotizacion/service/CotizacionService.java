@@ -1,60 +1,101 @@
 package com.example.lasercut.laser_cut_back.domain.cotizacion.service;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.lasercut.laser_cut_back.domain.archivo.service.ArchivoAnalizado;
+import com.example.lasercut.laser_cut_back.domain.archivo.service.ArchivoService;
 import com.example.lasercut.laser_cut_back.domain.cotizacion.dto.CotizacionResponse;
-import com.example.lasercut.laser_cut_back.domain.catalogo.repository.MaterialRepository;
+import com.example.lasercut.laser_cut_back.domain.cotizacion.dto.MatrizPreciosResponse;
+import com.example.lasercut.laser_cut_back.domain.cotizacion.dto.PrecioCombinacionDTO;
+import com.example.lasercut.laser_cut_back.domain.cotizacion.service.TablaPrecios.EspesorPrecio;
+import com.example.lasercut.laser_cut_back.domain.cotizacion.service.TablaPrecios.MaterialPrecio;
+import com.example.lasercut.laser_cut_back.domain.cotizacion.service.TablaPrecios.TerminacionPrecio;
 import com.example.lasercut.laser_cut_back.exception.BadRequestException;
-import com.example.lasercut.laser_cut_back.shared.util.DxfParser;
+import com.example.lasercut.laser_cut_back.shared.util.DxfAnalysis;
+import com.example.lasercut.laser_cut_back.shared.util.DxfUnidad;
 
 @Service
 public class CotizacionService {
 
-    private final MaterialRepository materialRepository;
+    private final TablaPreciosService tablaPreciosService;
+    private final ArchivoService archivoService;
+    private final MachineTimeEstimator machineTimeEstimator;
 
     private static final Logger logger = LoggerFactory.getLogger(CotizacionService.class);
 
-    private static final double FACTOR_DENSIDAD = 8.0;
-    private static final double PRECIO_POR_KG = 5000.0;
-    private static final String MM = "mm";
-    private static final String INCH = "inch";
+    /** Usar las unidades declaradas en el DXF; si no declara ninguna, milímetros. */
+    private static final String AUTO = "auto";
 
-    public CotizacionService(MaterialRepository materialRepository) {
-        this.materialRepository = materialRepository;
+    @Value("${cotizacion.cantidad-maxima:10000}")
+    private int cantidadMaxima;
+
+    public CotizacionService(TablaPreciosService tablaPreciosService, ArchivoService archivoService,
+            MachineTimeEstimator machineTimeEstimator) {
+        this.tablaPreciosService = tablaPreciosService;
+        this.archivoService = archivoService;
+        this.machineTimeEstimator = machineTimeEstimator;
     }
-    
-    private void validateInputs(MultipartFile archivo, double espesorMm, String material, int cantidad) {
-        if (archivo == null || archivo.isEmpty()) {
-            throw new BadRequestException("El archivo DXF no puede estar vacío.");
+
+    /**
+     * Medidas de la pieza ya pasadas a milímetros.
+     */
+    private static final class Pieza {
+        private DxfUnidad unidad;
+        private double ancho;
+        private double alto;
+        private double areaNeta;
+        private double longitudCorte;
+    }
+
+    private void validateCantidad(int cantidad) {
+        if (cantidad <= 0) {
+            throw new BadRequestException("La cantidad debe ser mayor que cero.");
         }
-        String name = archivo.getOriginalFilename();
-        if (name == null || !name.toLowerCase().endsWith(".dxf")) {
-            throw new BadRequestException("El archivo debe ser un .dxf.");
+        if (cantidad > cantidadMaxima) {
+            throw new BadRequestException("La cantidad no debe ser mayor que " + cantidadMaxima + ".");
         }
+    }
+
+    private EspesorPrecio validateInputs(double espesorMm, String material, int cantidad) {
         if (espesorMm <= 0) {
             throw new BadRequestException("El espesor debe ser mayor que cero.");
         }
-        if (cantidad <= 0) {
-            throw new BadRequestException("La cantidad debe ser mayor que cero.");
-        }
-        if (cantidad > 30) {
-            throw new BadRequestException("La cantidad no debe ser mayor que treinta.");
-        }
+        validateCantidad(cantidad);
         if (material == null) {
             throw new BadRequestException("El material es requerido.");
         }
-        if (materialRepository.findByNombreIgnoreCase(material.trim().toLowerCase()).isEmpty())
-        {
+        MaterialPrecio materialPrecio = tablaPreciosService.getTabla().getMaterial(material);
+        if (materialPrecio == null) {
             throw new BadRequestException("Material no soportado");
         }
+        EspesorPrecio espesorPrecio = materialPrecio.getEspesor(espesorMm);
+        if (espesorPrecio == null) {
+            throw new BadRequestException("Espesor no disponible para el material seleccionado.");
+        }
+        return espesorPrecio;
+    }
+
+    private TerminacionPrecio validateTerminacion(EspesorPrecio espesor, String terminacion) {
+        if (terminacion == null || terminacion.isBlank()) {
+            return null;
+        }
+        TerminacionPrecio terminacionPrecio = espesor.getTerminacion(terminacion);
+        if (terminacionPrecio == null) {
+            throw new BadRequestException("Terminación no disponible para el espesor seleccionado.");
+        }
+        return terminacionPrecio;
     }
 
     private double round(double v, int decimals) {
@@ -63,45 +104,207 @@ public class CotizacionService {
         return bd.doubleValue();
     }
 
-    public CotizacionResponse calcular(MultipartFile archivo, double espesorMm, String material, int cantidad, String unidad) throws IOException {
-        validateInputs(archivo, espesorMm, material, cantidad);
+    /**
+     * Cotiza a partir del token de un archivo ya analizado o, si no viene token, del archivo
+     * subido. En ambos casos el DXF se parsea a lo sumo una vez por contenido.
+     */
+    public CotizacionResponse calcular(MultipartFile archivo, String token, double espesorMm, String material, String terminacion, int cantidad, String unidad) throws IOException {
+        EspesorPrecio espesor = validateInputs(espesorMm, material, cantidad);
+        TerminacionPrecio terminacionPrecio = validateTerminacion(espesor, terminacion);
 
-        try (InputStream dimensionsStream = archivo.getInputStream()) {
-            double[] wh = DxfParser.getWidthHeightMillimeters(dimensionsStream);
-            double ancho = wh[0];
-            double alto = wh[1];
+        return cotizar(obtenerAnalisis(archivo, token), espesor, terminacionPrecio, material, cantidad, unidad);
+    }
 
-            if (INCH.equalsIgnoreCase(unidad)) {
-                ancho *= 10;
-                alto *= 10;
-            } else if (!MM.equalsIgnoreCase(unidad)) {
-                throw new BadRequestException("Unidad no soportada. Opciones válidas: 'mm' o 'inch'.");
+    /**
+     * Cotiza sobre un DXF ya analizado, sin volver a leer el archivo.
+     */
+    public CotizacionResponse calcular(DxfAnalysis analisis, double espesorMm, String material, String terminacion, int cantidad, String unidad) {
+        EspesorPrecio espesor = validateInputs(espesorMm, material, cantidad);
+        return cotizar(analisis, espesor, validateTerminacion(espesor, terminacion), material, cantidad, unidad);
+    }
+
+    /**
+     * Precios de la pieza para todas las combinaciones de espesor y terminación de los materiales
+     * pedidos (todos si no se indica ninguno). La geometría se mide una sola vez y cada celda
+     * de la matriz es una multiplicación sobre la tabla de precios.
+     */
+    public MatrizPreciosResponse calcularMatriz(MultipartFile archivo, String token, List<String> materiales, int cantidad, String unidad) throws IOException {
+        validateCantidad(cantidad);
+        TablaPrecios tabla = tablaPreciosService.getTabla();
+        List<MaterialPrecio> seleccion;
+        if (materiales == null || materiales.isEmpty()) {
+            seleccion = tabla.getMateriales();
+        } else {
+            seleccion = new ArrayList<>(materiales.size());
+            for (String nombre : materiales) {
+                MaterialPrecio materialPrecio = tabla.getMaterial(nombre);
+                if (materialPrecio == null) {
+                    throw new BadRequestException("Material no soportado: " + nombre);
+                }
+                seleccion.add(materialPrecio);
             }
+        }
+
+        DxfAnalysis analisis = obtenerAnalisis(archivo, token);
+        Pieza pieza = medir(analisis, unidad);
 
-            double peso = (ancho * alto * espesorMm * FACTOR_DENSIDAD) / 1_000_000.0;
-            double precioUnitario = peso * PRECIO_POR_KG;
-            double precioTotal = precioUnitario * cantidad;
-
-            peso = round(peso, 4);
-            precioUnitario = round(precioUnitario, 2);
-            precioTotal = round(precioTotal, 2);
-
-            CotizacionResponse resp = new CotizacionResponse();
-            resp.setMaterial(material);
-            resp.setAncho(round(ancho, 2));
-            resp.setAlto(round(alto, 2));
-            resp.setEspesor(round(espesorMm, 2));
-            resp.setPeso(peso);
-            resp.setPrecioUnitario(precioUnitario);
-            resp.setCantidad(cantidad);
-            resp.setUnidad(unidad);
-            resp.setPrecioTotal(precioTotal);
-
-            logger.info("Cotización calculada: material={}, ancho={}mm, alto={}mm, espesor={}mm, peso={}kg, precioUnitario={}, cantidad={}, unidad={}, precioTotal={}",
-                material, ancho, alto, espesorMm, peso, precioUnitario, cantidad, unidad, precioTotal);
-
-            return resp;
+        // El anidado solo depende de la separación entre piezas, que se repite entre espesores finos
+        Map<Double, SheetNester.Resultado> anidados = new HashMap<>();
+        List<PrecioCombinacionDTO> precios = new ArrayList<>();
+        for (MaterialPrecio material : seleccion) {
+            for (EspesorPrecio espesor : material.getEspesores()) {
+                SheetNester.Resultado anidado = anidados.computeIfAbsent(espesor.getSeparacionMm(),
+                    k -> anidar(pieza, espesor, cantidad));
+                double peso = round(espesor.peso(pieza.areaNeta), 4);
+                if (espesor.getTerminaciones().isEmpty()) {
+                    precios.add(combinacion(material, espesor, null, peso, pieza.areaNeta, anidado, cantidad));
+                }
+                for (TerminacionPrecio terminacion : espesor.getTerminaciones()) {
+                    precios.add(combinacion(material, espesor, terminacion, peso, pieza.areaNeta, anidado, cantidad));
+                }
+            }
         }
+
+        MatrizPreciosResponse resp = new MatrizPreciosResponse();
+        resp.setAncho(round(pieza.ancho, 2));
+        resp.setAlto(round(pieza.alto, 2));
+        resp.setAreaNeta(round(pieza.areaNeta, 2));
+        resp.setLongitudCorte(round(pieza.longitudCorte, 2));
+        resp.setPerforaciones(analisis.getPerforaciones());
+        resp.setCantidad(cantidad);
+        resp.setUnidad(pieza.unidad.getNombre());
+        resp.setPrecios(precios);
+
+        logger.info("Matriz de precios calculada: {} material(es), {} combinación(es), area={}mm2",
+            seleccion.size(), precios.size(), pieza.areaNeta);
+
+        return resp;
+    }
+
+    private PrecioCombinacionDTO combinacion(MaterialPrecio material, EspesorPrecio espesor, TerminacionPrecio terminacion,
+            double peso, double areaNeta, SheetNester.Resultado anidado, int cantidad) {
+        double precioTotal = espesor.precioLote(anidado.getAreaConsumida(), areaNeta * cantidad, terminacion);
+        double precioUnitario = precioTotal / cantidad;
+        PrecioCombinacionDTO dto = new PrecioCombinacionDTO();
+        dto.setMaterialId(material.getId());
+        dto.setMaterial(material.getNombre());
+        dto.setEspesorId(espesor.getId());
+        dto.setEspesorMm(espesor.getEspesorMm());
+        if (terminacion != null) {
+            dto.setTerminacionId(terminacion.getId());
+            dto.setTerminacion(terminacion.getNombre());
+        }
+        dto.setPeso(peso);
+        dto.setPrecioUnitario(round(precioUnitario, 2));
+        dto.setPrecioTotal(round(precioTotal, 2));
+        dto.setHojas(anidado.getHojas());
+        return dto;
+    }
+
+    /**
+     * Anida las copias en cada formato de hoja del espesor y se queda con el que menos chapa consume.
+     */
+    private SheetNester.Resultado anidar(Pieza pieza, EspesorPrecio espesor, int cantidad) {
+        SheetNester.Resultado mejor = null;
+        for (int f = 0; f < espesor.getCantidadFormatosHoja(); f++) {
+            SheetNester.Resultado resultado = SheetNester.anidar(pieza.ancho, pieza.alto, cantidad,
+                espesor.getHojaAncho(f), espesor.getHojaAlto(f), espesor.getMargenHojaMm(), espesor.getSeparacionMm());
+            if (resultado != null && (mejor == null || resultado.getAreaConsumida() < mejor.getAreaConsumida())) {
+                mejor = resultado;
+            }
+        }
+        if (mejor == null) {
+            throw new BadRequestException("La pieza no entra en ninguna de las hojas estándar.");
+        }
+        return mejor;
+    }
+
+    private static String formato(SheetNester.Resultado anidado) {
+        return Math.round(anidado.getHojaAncho()) + "x" + Math.round(anidado.getHojaAlto());
+    }
+
+    private DxfAnalysis obtenerAnalisis(MultipartFile archivo, String token) throws IOException {
+        ArchivoAnalizado analizado = token != null && !token.isBlank()
+            ? archivoService.obtenerPorToken(token)
+            : archivoService.obtenerAnalisis(archivo);
+        return analizado.getAnalisis();
+    }
+
+    /**
+     * Pasa las medidas a milímetros. La unidad que elige el cliente manda; sin unidad (o con
+     * "auto") se usa la que declara la cabecera del DXF.
+     */
+    private Pieza medir(DxfAnalysis analisis, String unidad) {
+        DxfUnidad u;
+        if (unidad == null || unidad.isBlank() || AUTO.equalsIgnoreCase(unidad.trim())) {
+            u = analisis.getUnidad() != null ? analisis.getUnidad() : DxfUnidad.MM;
+        } else {
+            u = DxfUnidad.desdeNombre(unidad);
+            if (u == null) {
+                throw new BadRequestException("Unidad no soportada. Opciones válidas: 'mm', 'cm', 'm', 'inch', 'ft' o 'auto'.");
+            }
+        }
+        double factor = u.getMilimetros();
+
+        Pieza pieza = new Pieza();
+        pieza.unidad = u;
+        pieza.ancho = analisis.getAncho() * factor;
+        pieza.alto = analisis.getAlto() * factor;
+        pieza.longitudCorte = analisis.getLongitudCorte() * factor;
+        pieza.areaNeta = analisis.getAreaNeta() * factor * factor;
+        return pieza;
+    }
+
+    /**
+     * Solo aritmética sobre la tabla de precios ya compilada: no consulta la base.
+     */
+    private CotizacionResponse cotizar(DxfAnalysis analisis, EspesorPrecio espesor, TerminacionPrecio terminacion,
+            String material, int cantidad, String unidad) {
+        double espesorMm = espesor.getEspesorMm();
+        Pieza pieza = medir(analisis, unidad);
+        double ancho = pieza.ancho;
+        double alto = pieza.alto;
+        double longitudCorte = pieza.longitudCorte;
+        double areaNeta = pieza.areaNeta;
+
+        // Se pesa el material real de la pieza (sin los agujeros), no el rectángulo que la contiene;
+        // el material se cobra por la chapa que consumen todas las copias anidadas en hojas estándar
+        SheetNester.Resultado anidado = anidar(pieza, espesor, cantidad);
+        double peso = espesor.peso(areaNeta);
+        double precioTotal = espesor.precioLote(anidado.getAreaConsumida(), areaNeta * cantidad, terminacion);
+        double precioUnitario = precioTotal / cantidad;
+        double aprovechamiento = areaNeta * cantidad / anidado.getAreaConsumida();
+        double tiempoCorte = machineTimeEstimator.estimarSegundos(espesor, longitudCorte * cantidad,
+            (long) analisis.getPerforaciones() * cantidad, anidado.getAreaConsumida());
+
+        peso = round(peso, 4);
+        precioUnitario = round(precioUnitario, 2);
+        precioTotal = round(precioTotal, 2);
+
+        CotizacionResponse resp = new CotizacionResponse();
+        resp.setMaterial(material);
+        resp.setTerminacion(terminacion == null ? null : terminacion.getNombre());
+        resp.setAncho(round(ancho, 2));
+        resp.setAlto(round(alto, 2));
+        resp.setEspesor(round(espesorMm, 2));
+        resp.setPeso(peso);
+        resp.setPrecioUnitario(precioUnitario);
+        resp.setCantidad(cantidad);
+        resp.setUnidad(pieza.unidad.getNombre());
+        resp.setPrecioTotal(precioTotal);
+        resp.setAreaNeta(round(areaNeta, 2));
+        resp.setLongitudCorte(round(longitudCorte, 2));
+        resp.setPerforaciones(analisis.getPerforaciones());
+        resp.setHojas(anidado.getHojas());
+        resp.setFormatoHoja(formato(anidado));
+        resp.setAprovechamiento(round(aprovechamiento * 100, 1));
+        resp.setTiempoCorteSegundos(round(tiempoCorte, 1));
+
+        logger.info("Cotización calculada: material={}, ancho={}mm, alto={}mm, area={}mm2, espesor={}mm, peso={}kg, corte={}mm, perforaciones={}, hojas={} de {}, tiempoCorte={}s, precioUnitario={}, cantidad={}, unidad={}, precioTotal={}",
+            material, ancho, alto, areaNeta, espesorMm, peso, longitudCorte, analisis.getPerforaciones(),
+            anidado.getHojas(), formato(anidado), tiempoCorte, precioUnitario, cantidad, pieza.unidad.getNombre(), precioTotal);
+
+        return resp;
     }
     
 }
@@ -0,0 +1,42 @@
+package com.example.lasercut.laser_cut_back.domain.cotizacion.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.lasercut.laser_cut_back.domain.cotizacion.service.TablaPrecios.EspesorPrecio;
+
+/**
+ * Estima el tiempo de máquina de un lote: corte a la velocidad del espesor, una perforación
+ * por contorno y los desplazamientos en vacío entre perforaciones.
+ *
+ * Las velocidades y tiempos de perforación ya vienen compilados en la {@link TablaPrecios}
+ * (un acceso por espesor). El recorrido en vacío se estima con la longitud esperada de un
+ * recorrido que visita n puntos repartidos en un área A, ≈ 0,7124·√(n·A).
+ *
+ * Configuración opcional en application.properties:
+ *   cotizacion.maquina.velocidad-rapida-mm-min=60000
+ */
+@Service
+public class MachineTimeEstimator {
+
+    private static final double CONSTANTE_RECORRIDO = 0.7124;
+
+    @Value("${cotizacion.maquina.velocidad-rapida-mm-min:60000}")
+    private double velocidadRapidaMmMin;
+
+    /**
+     * Segundos de máquina para cortar el lote.
+     *
+     * @param longitudCorteMm longitud total de corte del lote
+     * @param perforaciones   perforaciones totales del lote
+     * @param areaRecorridaMm2 superficie de chapa sobre la que se reparten las perforaciones
+     */
+    public double estimarSegundos(EspesorPrecio espesor, double longitudCorteMm, long perforaciones, double areaRecorridaMm2) {
+        double corte = longitudCorteMm / espesor.getVelocidadCorteMmS();
+        double perforacion = perforaciones * espesor.getTiempoPerforacionS();
+        double recorrido = CONSTANTE_RECORRIDO * Math.sqrt((double) perforaciones * areaRecorridaMm2);
+        double rapido = recorrido / (velocidadRapidaMmMin / 60.0);
+        return corte + perforacion + rapido;
+    }
+
+}
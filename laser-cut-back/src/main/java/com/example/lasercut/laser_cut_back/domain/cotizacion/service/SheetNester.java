@@ -0,0 +1,263 @@
+package com.example.lasercut.laser_cut_back.domain.cotizacion.service;
+
+import java.util.Arrays;
+
+/**
+ * Acomoda N copias del rectángulo de una pieza en hojas estándar con el algoritmo skyline
+ * (bottom-left): la hoja se llena de abajo hacia arriba manteniendo el perfil superior de lo
+ * ya colocado como una lista de segmentos horizontales, y cada copia va donde su borde
+ * superior queda más bajo, probando también la pieza girada 90°.
+ *
+ * Como todas las copias son iguales, alcanza con llenar una hoja: todas las hojas completas
+ * quedan iguales y solo la última cambia, así que el costo depende de las piezas que entran
+ * en una hoja y no de la cantidad pedida.
+ */
+public final class SheetNester {
+
+    private SheetNester() {
+    }
+
+    /**
+     * Resultado del anidado para un formato de hoja.
+     */
+    public static final class Resultado {
+
+        private final double hojaAncho;
+        private final double hojaAlto;
+        private final int hojas;
+        private final int piezasPorHoja;
+        private final double areaConsumida;
+
+        private Resultado(double hojaAncho, double hojaAlto, int hojas, int piezasPorHoja, double areaConsumida) {
+            this.hojaAncho = hojaAncho;
+            this.hojaAlto = hojaAlto;
+            this.hojas = hojas;
+            this.piezasPorHoja = piezasPorHoja;
+            this.areaConsumida = areaConsumida;
+        }
+
+        public double getHojaAncho() {
+            return hojaAncho;
+        }
+
+        public double getHojaAlto() {
+            return hojaAlto;
+        }
+
+        /**
+         * Hojas que se empiezan a cortar, contando la última aunque quede incompleta.
+         */
+        public int getHojas() {
+            return hojas;
+        }
+
+        public int getPiezasPorHoja() {
+            return piezasPorHoja;
+        }
+
+        /**
+         * Superficie de chapa consumida (mm²): las hojas completas más el rectángulo ocupado en la
+         * última; el resto de esa hoja queda como retazo para otros trabajos.
+         */
+        public double getAreaConsumida() {
+            return areaConsumida;
+        }
+
+    }
+
+    /**
+     * Anida la cantidad pedida en hojas de hojaAncho × hojaAlto.
+     *
+     * @param margen     borde de la hoja que no se usa (mm)
+     * @param separacion distancia mínima entre piezas, que cubre el kerf (mm)
+     * @return null si la pieza no entra en la hoja en ninguna orientación
+     */
+    public static Resultado anidar(double piezaAncho, double piezaAlto, int cantidad,
+            double hojaAncho, double hojaAlto, double margen, double separacion) {
+        // Cada pieza reserva la separación a su derecha y arriba; el área útil suma una
+        // separación para que la última fila y columna puedan llegar al borde.
+        double w = piezaAncho + separacion;
+        double h = piezaAlto + separacion;
+        double utilAncho = hojaAncho - 2 * margen + separacion;
+        double utilAlto = hojaAlto - 2 * margen + separacion;
+        boolean entra = (w <= utilAncho && h <= utilAlto) || (h <= utilAncho && w <= utilAlto);
+        if (!entra || cantidad <= 0) {
+            return null;
+        }
+
+        Skyline skyline = new Skyline(utilAncho, utilAlto);
+        // Rectángulo ocupado después de colocar i piezas, para medir la última hoja
+        double[] anchoTras = new double[Math.min(cantidad, 1024) + 1];
+        double[] alturaTras = new double[anchoTras.length];
+        int colocadas = 0;
+        while (colocadas < cantidad && skyline.colocar(w, h)) {
+            colocadas++;
+            if (colocadas == alturaTras.length) {
+                int largo = Math.min(cantidad, alturaTras.length * 2) + 1;
+                anchoTras = Arrays.copyOf(anchoTras, largo);
+                alturaTras = Arrays.copyOf(alturaTras, largo);
+            }
+            anchoTras[colocadas] = skyline.anchoMaximo;
+            alturaTras[colocadas] = skyline.alturaMaxima;
+        }
+
+        // Una grilla uniforme es el piso: si rinde más que el skyline, se usa para las hojas completas
+        int porHoja = colocadas;
+        if (colocadas < cantidad) {
+            porHoja = Math.max(porHoja, Math.max(grilla(w, h, utilAncho, utilAlto), grilla(h, w, utilAncho, utilAlto)));
+        }
+
+        // Si todo entró en una hoja no se sabe cuántas más entrarían: se mide como última hoja
+        int hojasCompletas = colocadas == cantidad ? 0 : cantidad / porHoja;
+        int resto = cantidad - hojasCompletas * porHoja;
+        double areaHoja = hojaAncho * hojaAlto;
+        double area = hojasCompletas * areaHoja;
+        int hojas = hojasCompletas;
+        if (resto > 0) {
+            // Si el resto supera lo que rindió el skyline (la grilla rinde más) se cobra la hoja entera
+            if (resto <= colocadas) {
+                area += Math.min(hojaAncho, 2 * margen + anchoTras[resto] - separacion)
+                    * Math.min(hojaAlto, 2 * margen + alturaTras[resto] - separacion);
+            } else {
+                area += areaHoja;
+            }
+            hojas++;
+        }
+        return new Resultado(hojaAncho, hojaAlto, hojas, porHoja, area);
+    }
+
+    private static int grilla(double w, double h, double ancho, double alto) {
+        return (int) Math.floor(ancho / w) * (int) Math.floor(alto / h);
+    }
+
+    /**
+     * Perfil superior de lo colocado: segmentos [x, x + ancho) a la altura y, ordenados por x.
+     */
+    private static final class Skyline {
+
+        private static final double EPS = 1e-9;
+
+        private final double ancho;
+        private final double alto;
+        private double[] xs = new double[16];
+        private double[] ys = new double[16];
+        private double[] anchos = new double[16];
+        private int segmentos;
+        private double alturaMaxima;
+        private double anchoMaximo;
+
+        Skyline(double ancho, double alto) {
+            this.ancho = ancho;
+            this.alto = alto;
+            xs[0] = 0;
+            ys[0] = 0;
+            anchos[0] = ancho;
+            segmentos = 1;
+        }
+
+        /**
+         * Coloca un rectángulo w × h (o girado) en la posición más baja; false si ya no entra.
+         */
+        boolean colocar(double w, double h) {
+            int mejorIndice = -1;
+            double mejorTope = Double.POSITIVE_INFINITY;
+            double mejorX = 0;
+            double mejorY = 0;
+            double mejorW = 0;
+            double mejorH = 0;
+            for (int giro = 0; giro < 2; giro++) {
+                double rw = giro == 0 ? w : h;
+                double rh = giro == 0 ? h : w;
+                for (int i = 0; i < segmentos; i++) {
+                    double y = apoyo(i, rw);
+                    if (y < 0 || y + rh > alto + EPS) {
+                        continue;
+                    }
+                    double tope = y + rh;
+                    if (tope < mejorTope - EPS || (Math.abs(tope - mejorTope) <= EPS && xs[i] < mejorX)) {
+                        mejorIndice = i;
+                        mejorTope = tope;
+                        mejorX = xs[i];
+                        mejorY = y;
+                        mejorW = rw;
+                        mejorH = rh;
+                    }
+                }
+            }
+            if (mejorIndice < 0) {
+                return false;
+            }
+            agregar(mejorIndice, mejorX, mejorY + mejorH, mejorW);
+            alturaMaxima = Math.max(alturaMaxima, mejorY + mejorH);
+            anchoMaximo = Math.max(anchoMaximo, mejorX + mejorW);
+            return true;
+        }
+
+        /**
+         * Altura a la que apoyaría un rectángulo de ancho w empezando en el segmento i,
+         * o -1 si se sale de la hoja por la derecha.
+         */
+        private double apoyo(int i, double w) {
+            if (xs[i] + w > ancho + EPS) {
+                return -1;
+            }
+            double y = 0;
+            double restante = w;
+            for (int j = i; j < segmentos && restante > EPS; j++) {
+                y = Math.max(y, ys[j]);
+                restante -= anchos[j];
+            }
+            return y;
+        }
+
+        private void agregar(int i, double x, double y, double w) {
+            // Recorta o elimina los segmentos que quedan debajo del nuevo
+            double fin = x + w;
+            int j = i;
+            while (j < segmentos && xs[j] < fin - EPS) {
+                double finSegmento = xs[j] + anchos[j];
+                if (finSegmento <= fin + EPS) {
+                    j++;
+                } else {
+                    anchos[j] = finSegmento - fin;
+                    xs[j] = fin;
+                    break;
+                }
+            }
+            int eliminados = j - i;
+            int delta = 1 - eliminados;
+            if (delta > 0 && segmentos + delta > xs.length) {
+                xs = Arrays.copyOf(xs, xs.length * 2);
+                ys = Arrays.copyOf(ys, ys.length * 2);
+                anchos = Arrays.copyOf(anchos, anchos.length * 2);
+            }
+            if (delta != 0) {
+                System.arraycopy(xs, j, xs, j + delta, segmentos - j);
+                System.arraycopy(ys, j, ys, j + delta, segmentos - j);
+                System.arraycopy(anchos, j, anchos, j + delta, segmentos - j);
+                segmentos += delta;
+            }
+            xs[i] = x;
+            ys[i] = y;
+            anchos[i] = w;
+            fusionar();
+        }
+
+        private void fusionar() {
+            int k = 0;
+            for (int i = 1; i < segmentos; i++) {
+                if (Math.abs(ys[i] - ys[k]) <= EPS) {
+                    anchos[k] += anchos[i];
+                } else {
+                    k++;
+                    xs[k] = xs[i];
+                    ys[k] = ys[i];
+                    anchos[k] = anchos[i];
+                }
+            }
+            segmentos = k + 1;
+        }
+
+    }
+
+}
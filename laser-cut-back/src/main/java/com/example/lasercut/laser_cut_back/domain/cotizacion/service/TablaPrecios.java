@@ -0,0 +1,307 @@
+package com.example.lasercut.laser_cut_back.domain.cotizacion.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.lasercut.laser_cut_back.domain.catalogo.model.Espesor;
+import com.example.lasercut.laser_cut_back.domain.catalogo.model.Material;
+import com.example.lasercut.laser_cut_back.domain.catalogo.model.Terminacion;
+
+/**
+ * Precios del catálogo compilados a coeficientes por mm² de pieza.
+ *
+ * Es inmutable: cuando cambia el catálogo se compila una tabla nueva y se reemplaza la
+ * referencia entera (ver {@link TablaPreciosService}), así una cotización en curso nunca ve
+ * una mezcla de precios viejos y nuevos. Cotizar con la tabla es solo aritmética.
+ *
+ * Cada espesor lleva también los formatos de hoja y la separación entre piezas que usa
+ * {@link SheetNester} para calcular la chapa consumida, y la velocidad de corte y el tiempo
+ * de perforación que usa {@link MachineTimeEstimator}.
+ */
+public final class TablaPrecios {
+
+    private static final double MM2_POR_M2 = 1_000_000.0;
+    /** g/cm³ · mm³ → kg */
+    private static final double KG_POR_G_CM3_MM3 = 1.0 / 1_000_000.0;
+    private static final double TOLERANCIA_ESPESOR_MM = 0.001;
+
+    // Valores de referencia para espesores sin velocidad o perforación cargadas en el catálogo
+    // (láser de fibra sobre acero): v ≈ 10 m/min · t^-0.8, perforación ≈ 0,2 s + 0,15 s/mm
+    private static final double VELOCIDAD_REFERENCIA_MM_MIN = 10_000.0;
+    private static final double EXPONENTE_VELOCIDAD = 0.8;
+    private static final double VELOCIDAD_MINIMA_MM_MIN = 300.0;
+    private static final double PERFORACION_BASE_S = 0.2;
+    private static final double PERFORACION_POR_MM_S = 0.15;
+
+    private final Map<Long, MaterialPrecio> materialesPorId;
+    private final Map<String, MaterialPrecio> materialesPorNombre;
+    private final Map<Long, EspesorPrecio> espesoresPorId;
+    private final Map<Long, TerminacionPrecio> terminacionesPorId;
+    private final List<MaterialPrecio> materiales;
+
+    private TablaPrecios(List<MaterialPrecio> materiales) {
+        Map<Long, MaterialPrecio> porId = new HashMap<>();
+        Map<String, MaterialPrecio> porNombre = new HashMap<>();
+        Map<Long, EspesorPrecio> espesores = new HashMap<>();
+        Map<Long, TerminacionPrecio> terminaciones = new HashMap<>();
+        for (MaterialPrecio m : materiales) {
+            porId.put(m.id, m);
+            porNombre.put(clave(m.nombre), m);
+            for (EspesorPrecio e : m.espesores) {
+                espesores.put(e.id, e);
+                for (TerminacionPrecio t : e.terminaciones) {
+                    terminaciones.put(t.id, t);
+                }
+            }
+        }
+        this.materiales = Collections.unmodifiableList(materiales);
+        this.materialesPorId = Map.copyOf(porId);
+        this.materialesPorNombre = Map.copyOf(porNombre);
+        this.espesoresPorId = Map.copyOf(espesores);
+        this.terminacionesPorId = Map.copyOf(terminaciones);
+    }
+
+    /**
+     * Compila la tabla a partir de las entidades del catálogo (con espesores y terminaciones cargados).
+     *
+     * @param formatosHoja        hojas estándar como pares {ancho, alto} en mm
+     * @param margenHojaMm        borde de la hoja que no se aprovecha
+     * @param separacionMinimaMm  separación mínima entre piezas; en chapas más gruesas se usa el espesor
+     */
+    public static TablaPrecios compilar(List<Material> catalogo, double[][] formatosHoja, double margenHojaMm,
+            double separacionMinimaMm) {
+        List<MaterialPrecio> materiales = new ArrayList<>(catalogo.size());
+        for (Material material : catalogo) {
+            List<EspesorPrecio> espesores = new ArrayList<>();
+            for (Espesor espesor : material.getEspesores()) {
+                List<TerminacionPrecio> terminaciones = new ArrayList<>();
+                for (Terminacion terminacion : espesor.getTerminaciones()) {
+                    terminaciones.add(new TerminacionPrecio(terminacion.getId(), terminacion.getNombre(),
+                        valor(terminacion.getPrecioExtraPorM2()) / MM2_POR_M2));
+                }
+                terminaciones.sort(Comparator.comparing(TerminacionPrecio::getNombre, String.CASE_INSENSITIVE_ORDER));
+
+                double espesorMm = valor(espesor.getEspesorMm());
+                double kgPorMm2 = espesorMm * material.getDensidad() * KG_POR_G_CM3_MM3;
+                double velocidadMmMin = espesor.getVelocidadCorteMmMin() != null
+                    ? espesor.getVelocidadCorteMmMin()
+                    : Math.max(VELOCIDAD_MINIMA_MM_MIN, VELOCIDAD_REFERENCIA_MM_MIN / Math.pow(Math.max(espesorMm, 0.1), EXPONENTE_VELOCIDAD));
+                double perforacionS = espesor.getTiempoPerforacionSeg() != null
+                    ? espesor.getTiempoPerforacionSeg()
+                    : PERFORACION_BASE_S + PERFORACION_POR_MM_S * espesorMm;
+                espesores.add(new EspesorPrecio(espesor.getId(), material.getId(), espesorMm, kgPorMm2,
+                    kgPorMm2 * material.getPrecioPorKg(), valor(espesor.getPrecioExtraPorM2()) / MM2_POR_M2,
+                    List.copyOf(terminaciones), formatosHoja, margenHojaMm, Math.max(separacionMinimaMm, espesorMm),
+                    velocidadMmMin / 60.0, perforacionS));
+            }
+            espesores.sort(Comparator.comparingDouble(EspesorPrecio::getEspesorMm));
+            materiales.add(new MaterialPrecio(material.getId(), material.getNombre(), List.copyOf(espesores)));
+        }
+        materiales.sort(Comparator.comparing(MaterialPrecio::getNombre, String.CASE_INSENSITIVE_ORDER));
+        return new TablaPrecios(materiales);
+    }
+
+    public List<MaterialPrecio> getMateriales() {
+        return materiales;
+    }
+
+    public MaterialPrecio getMaterial(Long id) {
+        return materialesPorId.get(id);
+    }
+
+    public MaterialPrecio getMaterial(String nombre) {
+        return nombre == null ? null : materialesPorNombre.get(clave(nombre));
+    }
+
+    public EspesorPrecio getEspesor(Long id) {
+        return espesoresPorId.get(id);
+    }
+
+    public TerminacionPrecio getTerminacion(Long id) {
+        return terminacionesPorId.get(id);
+    }
+
+    private static String clave(String nombre) {
+        return nombre.trim().toLowerCase();
+    }
+
+    private static double valor(Double v) {
+        return v == null ? 0.0 : v;
+    }
+
+    public static final class MaterialPrecio {
+
+        private final Long id;
+        private final String nombre;
+        private final List<EspesorPrecio> espesores;
+
+        private MaterialPrecio(Long id, String nombre, List<EspesorPrecio> espesores) {
+            this.id = id;
+            this.nombre = nombre;
+            this.espesores = espesores;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+
+        public List<EspesorPrecio> getEspesores() {
+            return espesores;
+        }
+
+        public EspesorPrecio getEspesor(double espesorMm) {
+            for (EspesorPrecio e : espesores) {
+                if (Math.abs(e.espesorMm - espesorMm) <= TOLERANCIA_ESPESOR_MM) {
+                    return e;
+                }
+            }
+            return null;
+        }
+
+    }
+
+    public static final class EspesorPrecio {
+
+        private final Long id;
+        private final Long materialId;
+        private final double espesorMm;
+        private final double kgPorMm2;
+        private final double materialPorMm2;
+        private final double extraPorMm2;
+        private final List<TerminacionPrecio> terminaciones;
+        private final double[][] formatosHoja;
+        private final double margenHojaMm;
+        private final double separacionMm;
+        private final double velocidadCorteMmS;
+        private final double tiempoPerforacionS;
+
+        private EspesorPrecio(Long id, Long materialId, double espesorMm, double kgPorMm2, double materialPorMm2,
+                double extraPorMm2, List<TerminacionPrecio> terminaciones, double[][] formatosHoja,
+                double margenHojaMm, double separacionMm, double velocidadCorteMmS, double tiempoPerforacionS) {
+            this.id = id;
+            this.materialId = materialId;
+            this.espesorMm = espesorMm;
+            this.kgPorMm2 = kgPorMm2;
+            this.materialPorMm2 = materialPorMm2;
+            this.extraPorMm2 = extraPorMm2;
+            this.terminaciones = terminaciones;
+            this.formatosHoja = formatosHoja;
+            this.margenHojaMm = margenHojaMm;
+            this.separacionMm = separacionMm;
+            this.velocidadCorteMmS = velocidadCorteMmS;
+            this.tiempoPerforacionS = tiempoPerforacionS;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public Long getMaterialId() {
+            return materialId;
+        }
+
+        public double getEspesorMm() {
+            return espesorMm;
+        }
+
+        public List<TerminacionPrecio> getTerminaciones() {
+            return terminaciones;
+        }
+
+        public TerminacionPrecio getTerminacion(String nombre) {
+            for (TerminacionPrecio t : terminaciones) {
+                if (t.nombre.equalsIgnoreCase(nombre.trim())) {
+                    return t;
+                }
+            }
+            return null;
+        }
+
+        public int getCantidadFormatosHoja() {
+            return formatosHoja.length;
+        }
+
+        public double getHojaAncho(int formato) {
+            return formatosHoja[formato][0];
+        }
+
+        public double getHojaAlto(int formato) {
+            return formatosHoja[formato][1];
+        }
+
+        public double getMargenHojaMm() {
+            return margenHojaMm;
+        }
+
+        /**
+         * Separación entre piezas al anidar: cubre el kerf y crece con el espesor.
+         */
+        public double getSeparacionMm() {
+            return separacionMm;
+        }
+
+        public double getVelocidadCorteMmS() {
+            return velocidadCorteMmS;
+        }
+
+        public double getTiempoPerforacionS() {
+            return tiempoPerforacionS;
+        }
+
+        /**
+         * Peso en kg de una pieza con el área neta dada (mm²).
+         */
+        public double peso(double areaMm2) {
+            return areaMm2 * kgPorMm2;
+        }
+
+        /**
+         * Precio de material de una pieza: kilos por precio del material, más el extra del
+         * espesor y el de la terminación (puede ser null) por superficie.
+         */
+        public double precio(double areaMm2, TerminacionPrecio terminacion) {
+            return precioLote(areaMm2, areaMm2, terminacion);
+        }
+
+        /**
+         * Precio de un lote: el material se cobra por la chapa consumida al anidar y los extras
+         * de espesor y terminación por la superficie de las piezas.
+         */
+        public double precioLote(double areaChapaMm2, double areaPiezasMm2, TerminacionPrecio terminacion) {
+            double extra = terminacion == null ? extraPorMm2 : extraPorMm2 + terminacion.extraPorMm2;
+            return areaChapaMm2 * materialPorMm2 + areaPiezasMm2 * extra;
+        }
+
+    }
+
+    public static final class TerminacionPrecio {
+
+        private final Long id;
+        private final String nombre;
+        private final double extraPorMm2;
+
+        private TerminacionPrecio(Long id, String nombre, double extraPorMm2) {
+            this.id = id;
+            this.nombre = nombre;
+            this.extraPorMm2 = extraPorMm2;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+
+    }
+
+}
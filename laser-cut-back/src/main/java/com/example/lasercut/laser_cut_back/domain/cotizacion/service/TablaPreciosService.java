@@ -0,0 +1,115 @@
+package com.example.lasercut.laser_cut_back.domain.cotizacion.service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.lasercut.laser_cut_back.domain.catalogo.repository.MaterialRepository;
+
+/**
+ * Mantiene la {@link TablaPrecios} vigente.
+ *
+ * La tabla se compila la primera vez que se pide y se vuelve a compilar cuando vence
+ * (o cuando alguien llama a {@link #recompilar()} después de modificar el catálogo).
+ * Mientras se compila la nueva, las cotizaciones siguen usando la anterior; el cambio
+ * es un solo reemplazo de referencia.
+ *
+ * Configuración opcional en application.properties:
+ *   cotizacion.precios.vigencia-minutos=5
+ *   cotizacion.hojas.formatos=1220x2440,1500x3000
+ *   cotizacion.hojas.margen-mm=10
+ *   cotizacion.hojas.separacion-minima-mm=2
+ */
+@Service
+public class TablaPreciosService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TablaPreciosService.class);
+
+    private final MaterialRepository materialRepository;
+
+    @Value("${cotizacion.precios.vigencia-minutos:5}")
+    private long vigenciaMinutos;
+
+    @Value("${cotizacion.hojas.formatos:1220x2440,1500x3000}")
+    private String formatosHoja;
+
+    @Value("${cotizacion.hojas.margen-mm:10}")
+    private double margenHojaMm;
+
+    @Value("${cotizacion.hojas.separacion-minima-mm:2}")
+    private double separacionMinimaMm;
+
+    private volatile TablaPrecios tabla;
+    private volatile LocalDateTime vencimiento;
+    private final AtomicBoolean refrescando = new AtomicBoolean();
+
+    public TablaPreciosService(MaterialRepository materialRepository) {
+        this.materialRepository = materialRepository;
+    }
+
+    public TablaPrecios getTabla() {
+        TablaPrecios actual = tabla;
+        if (actual == null) {
+            return compilarInicial();
+        }
+        if (LocalDateTime.now().isAfter(vencimiento)) {
+            refrescarSiVencida();
+        }
+        return tabla;
+    }
+
+    /**
+     * Compila la tabla desde la base y la publica.
+     */
+    public synchronized TablaPrecios recompilar() {
+        TablaPrecios nueva = TablaPrecios.compilar(materialRepository.findAllWithRelations(),
+            parsearFormatos(formatosHoja), margenHojaMm, separacionMinimaMm);
+        vencimiento = LocalDateTime.now().plusMinutes(vigenciaMinutos);
+        tabla = nueva;
+        logger.info("Tabla de precios compilada: {} material(es)", nueva.getMateriales().size());
+        return nueva;
+    }
+
+    private synchronized TablaPrecios compilarInicial() {
+        return tabla != null ? tabla : recompilar();
+    }
+
+    /**
+     * Solo un hilo recompila; el resto sigue con la tabla anterior sin esperar.
+     */
+    private void refrescarSiVencida() {
+        if (!refrescando.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            recompilar();
+        } catch (RuntimeException e) {
+            // Si la base no responde se sigue cotizando con la tabla anterior
+            vencimiento = LocalDateTime.now().plusMinutes(1);
+            logger.warn("No se pudo recompilar la tabla de precios, se mantiene la anterior", e);
+        } finally {
+            refrescando.set(false);
+        }
+    }
+
+    /**
+     * Convierte "1220x2440,1500x3000" en pares {ancho, alto}.
+     */
+    private static double[][] parsearFormatos(String formatos) {
+        String[] partes = formatos.split(",");
+        double[][] resultado = new double[partes.length][];
+        for (int i = 0; i < partes.length; i++) {
+            String[] medidas = partes[i].trim().toLowerCase().split("x");
+            if (medidas.length != 2) {
+                throw new IllegalStateException("Formato de hoja inválido: " + partes[i]);
+            }
+            resultado[i] = new double[]{Double.parseDouble(medidas[0].trim()), Double.parseDouble(medidas[1].trim())};
+        }
+        return resultado;
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.example.lasercut.laser_cut_back.exception;
+
+/**
+ * El análisis de un DXF se cortó por tiempo o porque se interrumpió el hilo. Al cliente le
+ * llega como cualquier rechazo, pero no depende solo del contenido del archivo (con menos
+ * carga puede terminar), así que no se guarda como rechazo en la caché de análisis.
+ */
+public class AnalisisInterrumpidoException extends BadRequestException {
+
+    public AnalisisInterrumpidoException(String message) {
+        super(message);
+    }
+
+}
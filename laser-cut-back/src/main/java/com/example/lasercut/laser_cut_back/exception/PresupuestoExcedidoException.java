@@ -0,0 +1,13 @@
+package com.example.lasercut.laser_cut_back.exception;
+
+/**
+ * La generación de una vista previa superó el tiempo o la memoria asignados. No llega al
+ * cliente: quien la genera la atrapa y sirve una versión más liviana.
+ */
+public class PresupuestoExcedidoException extends PreviewGenerationException {
+
+    public PresupuestoExcedidoException(String message) {
+        super(message, null);
+    }
+
+}
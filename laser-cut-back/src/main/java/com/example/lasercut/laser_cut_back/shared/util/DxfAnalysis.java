@@ -0,0 +1,109 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+/**
+ * Resultado de leer un DXF una sola vez: medidas, conteos y la geometría ya expandida,
+ * que después consumen la cotización y la vista previa sin volver a parsear los bytes.
+ */
+public class DxfAnalysis {
+
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+    private final int entidades;
+    private final int primitivas;
+    private final double longitudCorte;
+    private final DxfContours contornos;
+    private final DxfGeometry geometria;
+    private final DxfCabecera cabecera;
+
+    DxfAnalysis(DxfBounds bounds, DxfCutMetrics metricas, DxfContours contornos, int entidades, DxfGeometry geometria,
+            DxfCabecera cabecera) {
+        this.minX = bounds.getMinX();
+        this.minY = bounds.getMinY();
+        this.maxX = bounds.getMaxX();
+        this.maxY = bounds.getMaxY();
+        this.entidades = entidades;
+        this.primitivas = bounds.getPrimitivas();
+        this.longitudCorte = metricas.getLongitudCorte();
+        this.contornos = contornos;
+        this.geometria = geometria;
+        this.cabecera = cabecera;
+    }
+
+    public double getAncho() {
+        return Math.abs(maxX - minX);
+    }
+
+    public double getAlto() {
+        return Math.abs(maxY - minY);
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    public int getEntidades() {
+        return entidades;
+    }
+
+    public int getPrimitivas() {
+        return primitivas;
+    }
+
+    /**
+     * Longitud total de corte en unidades del dibujo.
+     */
+    public double getLongitudCorte() {
+        return longitudCorte;
+    }
+
+    /**
+     * Cantidad de perforaciones del láser, según los contornos reconstruidos.
+     */
+    public int getPerforaciones() {
+        return contornos.getPerforaciones();
+    }
+
+    /**
+     * Área neta de material (contornos exteriores menos agujeros), en unidades del dibujo al cuadrado.
+     */
+    public double getAreaNeta() {
+        return contornos.getAreaNeta();
+    }
+
+    public DxfContours getContornos() {
+        return contornos;
+    }
+
+    public DxfGeometry getGeometria() {
+        return geometria;
+    }
+
+    /**
+     * Unidades declaradas en la cabecera del DXF; null si el dibujo no las declara.
+     */
+    public DxfUnidad getUnidad() {
+        return cabecera.getUnidad();
+    }
+
+    /**
+     * Versión de AutoCAD del archivo ($ACADVER); null si no viene.
+     */
+    public String getVersion() {
+        return cabecera.getVersion();
+    }
+
+}
@@ -0,0 +1,294 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+/**
+ * Lector de pares código de grupo / valor de un DXF binario.
+ *
+ * Después del centinela ("AutoCAD Binary DXF" + CR LF SUB NUL) cada par es el código (2 bytes
+ * little-endian desde R13; 1 byte en R12, con 255 como escape a 2 bytes) seguido del valor en
+ * el formato que corresponde al código: texto terminado en NUL, double de 8 bytes, enteros de
+ * 1, 2, 4 u 8 bytes, o un bloque binario con su largo en el primer byte. Los números ya vienen
+ * en binario, así que no hay nada que convertir desde texto.
+ *
+ * Como {@link DxfTokenizer}, lee de un InputStream o de un ByteBuffer copiando a un buffer
+ * propio de a bloques, y reutiliza el buffer del valor entre pares.
+ */
+public class DxfBinaryTokenizer implements DxfPares {
+
+    private static final int TAMANIO_BUFFER = 64 * 1024;
+    private static final int MAX_LARGO_CADENA = 64 * 1024;
+    private static final int ESCAPE_CODIGO_R12 = 255;
+
+    private static final int CADENA = 0;
+    private static final int DOUBLE = 1;
+    private static final int ENTERO = 2;
+    private static final int BLOQUE = 3;
+
+    private final InputStream in;
+    private final ByteBuffer datos;
+    private final byte[] buffer = new byte[TAMANIO_BUFFER];
+    private int pos;
+    private int limite;
+
+    private boolean iniciado;
+    private boolean codigosDeUnByte;
+
+    private int codigo;
+    private int tipo;
+    private double valorDouble;
+    private long valorEntero;
+    private byte[] valor = new byte[256];
+    private int largoValor;
+
+    public DxfBinaryTokenizer(InputStream in) {
+        this.in = in;
+        this.datos = null;
+    }
+
+    public DxfBinaryTokenizer(ByteBuffer datos) {
+        this.in = null;
+        this.datos = datos;
+    }
+
+    @Override
+    public boolean siguiente() throws IOException {
+        if (!iniciado) {
+            iniciar();
+        }
+        if (pos == limite && !llenarBuffer()) {
+            return false;
+        }
+        codigo = leerCodigo();
+        leerValor();
+        return true;
+    }
+
+    @Override
+    public int codigo() {
+        return codigo;
+    }
+
+    @Override
+    public boolean valorEs(String texto) {
+        if (tipo != CADENA || texto.length() != largoValor) {
+            return false;
+        }
+        for (int i = 0; i < largoValor; i++) {
+            if (valor[i] != (byte) texto.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String valorString() {
+        return switch (tipo) {
+            case DOUBLE -> Double.toString(valorDouble);
+            case ENTERO -> Long.toString(valorEntero);
+            // Como se escribe en un DXF ASCII
+            case BLOQUE -> HexFormat.of().withUpperCase().formatHex(valor, 0, largoValor);
+            default -> new String(valor, 0, largoValor, StandardCharsets.UTF_8);
+        };
+    }
+
+    @Override
+    public int valorInt() throws IOException {
+        return switch (tipo) {
+            case ENTERO -> (int) valorEntero;
+            case DOUBLE -> (int) valorDouble;
+            default -> (int) parsear();
+        };
+    }
+
+    @Override
+    public double valorDouble() throws IOException {
+        return switch (tipo) {
+            case DOUBLE -> DxfPares.verificarValor(valorDouble, codigo);
+            case ENTERO -> valorEntero;
+            default -> DxfPares.verificarValor(parsear(), codigo);
+        };
+    }
+
+    /**
+     * Un código que trae texto donde se esperaba un número; no debería pasar en un archivo
+     * bien formado.
+     */
+    private double parsear() throws IOException {
+        String texto = new String(valor, 0, largoValor, StandardCharsets.ISO_8859_1).trim();
+        try {
+            return Double.parseDouble(texto);
+        } catch (NumberFormatException e) {
+            throw new IOException("Valor numérico inválido '" + texto + "' para el código " + codigo + " del DXF binario");
+        }
+    }
+
+    /**
+     * Saltea el centinela y mira el primer par para saber de qué ancho son los códigos: el
+     * 0 de SECTION ocupa un byte en R12 y dos desde R13; un comentario 999 al principio solo
+     * puede empezar con 255 si los códigos son de un byte.
+     */
+    private void iniciar() throws IOException {
+        iniciado = true;
+        byte[] centinela = DxfCabecera.CENTINELA_BINARIO;
+        asegurar(centinela.length + 2);
+        for (int i = 0; i < centinela.length; i++) {
+            if (buffer[pos + i] != centinela[i]) {
+                throw new IOException("El archivo no es un DXF binario.");
+            }
+        }
+        pos += centinela.length;
+        codigosDeUnByte = (buffer[pos] & 0xFF) == ESCAPE_CODIGO_R12 || (buffer[pos] == 0 && buffer[pos + 1] != 0);
+    }
+
+    private int leerCodigo() throws IOException {
+        if (codigosDeUnByte) {
+            int b = (int) leerLittleEndian(1) & 0xFF;
+            return b == ESCAPE_CODIGO_R12 ? (int) leerLittleEndian(2) & 0xFFFF : b;
+        }
+        return (int) leerLittleEndian(2) & 0xFFFF;
+    }
+
+    private void leerValor() throws IOException {
+        largoValor = 0;
+        int bytes = bytesEntero(codigo);
+        if (bytes > 0) {
+            tipo = ENTERO;
+            valorEntero = leerLittleEndian(bytes);
+        } else if (esDouble(codigo)) {
+            tipo = DOUBLE;
+            valorDouble = Double.longBitsToDouble(leerLittleEndian(8));
+        } else if ((codigo >= 310 && codigo <= 319) || codigo == 1004) {
+            tipo = BLOQUE;
+            int largo = (int) leerLittleEndian(1) & 0xFF;
+            asegurar(largo);
+            guardarValor(largo);
+        } else {
+            tipo = CADENA;
+            leerCadena();
+        }
+    }
+
+    /**
+     * Ancho de los códigos enteros; 0 si el código no es entero.
+     */
+    private static int bytesEntero(int codigo) {
+        if ((codigo >= 60 && codigo <= 79) || (codigo >= 170 && codigo <= 179) || (codigo >= 270 && codigo <= 289)
+                || (codigo >= 370 && codigo <= 389) || (codigo >= 400 && codigo <= 409)
+                || (codigo >= 1060 && codigo <= 1070)) {
+            return 2;
+        }
+        if ((codigo >= 90 && codigo <= 99) || (codigo >= 420 && codigo <= 429) || (codigo >= 440 && codigo <= 459)
+                || codigo == 1071) {
+            return 4;
+        }
+        if (codigo >= 160 && codigo <= 169) {
+            return 8;
+        }
+        if (codigo >= 290 && codigo <= 299) {
+            return 1;
+        }
+        return 0;
+    }
+
+    private static boolean esDouble(int codigo) {
+        return (codigo >= 10 && codigo <= 59) || (codigo >= 110 && codigo <= 149) || (codigo >= 210 && codigo <= 239)
+            || (codigo >= 460 && codigo <= 469) || (codigo >= 1010 && codigo <= 1059);
+    }
+
+    /**
+     * Lee little-endian con signo (un entero de 2 bytes negativo queda negativo).
+     */
+    private long leerLittleEndian(int bytes) throws IOException {
+        asegurar(bytes);
+        long v = buffer[pos + bytes - 1];
+        for (int i = bytes - 2; i >= 0; i--) {
+            v = (v << 8) | (buffer[pos + i] & 0xFF);
+        }
+        pos += bytes;
+        return v;
+    }
+
+    private void leerCadena() throws IOException {
+        while (true) {
+            if (pos == limite && !llenarBuffer()) {
+                throw new IOException("Fin de archivo inesperado en un texto del DXF binario (código " + codigo + ")");
+            }
+            int inicio = pos;
+            while (pos < limite && buffer[pos] != 0) {
+                pos++;
+            }
+            int largo = pos - inicio;
+            if (largoValor + largo > MAX_LARGO_CADENA) {
+                throw new IOException("Texto demasiado largo en el DXF binario (código " + codigo + ")");
+            }
+            pos = inicio;
+            guardarValor(largo);
+            if (pos < limite) {
+                // El NUL que cierra el texto
+                pos++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Agrega al valor los próximos largo bytes del buffer, que ya tienen que estar cargados.
+     */
+    private void guardarValor(int largo) {
+        if (largoValor + largo > valor.length) {
+            byte[] nuevo = new byte[Math.max(valor.length * 2, largoValor + largo)];
+            System.arraycopy(valor, 0, nuevo, 0, largoValor);
+            valor = nuevo;
+        }
+        System.arraycopy(buffer, pos, valor, largoValor, largo);
+        largoValor += largo;
+        pos += largo;
+    }
+
+    /**
+     * Deja al menos n bytes cargados a partir de pos, corriendo lo pendiente al principio.
+     */
+    private void asegurar(int n) throws IOException {
+        if (limite - pos >= n) {
+            return;
+        }
+        int pendiente = limite - pos;
+        System.arraycopy(buffer, pos, buffer, 0, pendiente);
+        pos = 0;
+        limite = pendiente;
+        while (limite < n) {
+            int leidos = leer(limite);
+            if (leidos <= 0) {
+                throw new IOException("Fin de archivo inesperado en el DXF binario (código " + codigo + ")");
+            }
+            limite += leidos;
+        }
+    }
+
+    private boolean llenarBuffer() throws IOException {
+        pos = 0;
+        limite = 0;
+        int leidos = leer(0);
+        if (leidos <= 0) {
+            return false;
+        }
+        limite = leidos;
+        return true;
+    }
+
+    private int leer(int desde) throws IOException {
+        if (datos != null) {
+            int leidos = Math.min(datos.remaining(), buffer.length - desde);
+            datos.get(buffer, desde, leidos);
+            return leidos;
+        }
+        return in.read(buffer, desde, buffer.length - desde);
+    }
+
+}
@@ -0,0 +1,328 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.util.Arrays;
+
+import com.example.lasercut.laser_cut_back.exception.PresupuestoExcedidoException;
+import com.example.lasercut.laser_cut_back.exception.PreviewGenerationException;
+import com.example.lasercut.laser_cut_back.shared.util.DxfPreviewGenerator.Detalle;
+
+/**
+ * Escribe la geometría de un {@link DxfAnalysis} en un formato binario compacto, para que el
+ * visor la dibuje en un canvas sin pasar por el DOM del SVG.
+ *
+ * Es el mismo recorrido que {@link DxfSvgWriter} (ver {@link DxfPathWriter}): mismos
+ * contornos, misma grilla y misma simplificación por nivel, pero con enteros en varint en lugar
+ * de texto. Todo es little endian; los enteros con signo van en zigzag (0, -1, 1, -2, … → 0,
+ * 1, 2, 3, …) y después en varint de 7 bits por byte.
+ *
+ * <pre>
+ * Cabecera
+ *   "LCG" y la versión (1)          4 bytes
+ *   mantisa (u8), exponente (i8)    paso de la grilla = mantisa · 10^exponente mm
+ *   minX, minY, maxX, maxY          float64, caja del dibujo en mm
+ *   origenX, origenY                float64, punto (0, 0) de la grilla en mm
+ * Tabla de contornos
+ *   cantidad                        varint
+ *   por contorno                    banderas (u8), cantidad de tramos (varint)
+ * Tabla de tipos de tramo, en corridas
+ *   cantidad de corridas            varint
+ *   por corrida                     tipo (u8), repeticiones (varint)
+ * Datos, por contorno: el inicio y después cada tramo, relativos a la pluma
+ *   inicio                          dx, dy
+ *   RECTA (0)                       dx, dy
+ *   ARCO (1 a 4)                    dx, dy, radio
+ *   ELIPSE (5 a 8)                  dx, dy, rx, ry (varint sin signo), rotación (milésimas de grado)
+ *   CIRCULO (9, 10)                 dx, dy hasta el punto opuesto; la pluma vuelve adonde estaba
+ * </pre>
+ *
+ * Banderas: {@link #NUEVA_PIEZA} marca el primer contorno de cada pieza (con fill-rule
+ * evenodd, la pieza son los contornos que siguen hasta la próxima, en el orden de los lazos:
+ * el exterior no va necesariamente primero) y ahí la pluma vuelve
+ * a (0, 0); {@link #CERRADO} indica que al terminar se vuelve al inicio del contorno, y la
+ * pluma queda ahí; {@link #PRINCIPAL} marca la pieza más grande. En los arcos y elipses el
+ * tipo suma 2 si es el arco mayor y 1 si va en sentido antihorario, como las banderas del
+ * comando a de SVG; en los círculos, 1 si es antihorario. Dos medias vueltas seguidas del mismo
+ * radio (así salen los círculos y agujeros del recorrido) se escriben como un solo círculo.
+ * Y crece hacia arriba, como en el DXF.
+ */
+public class DxfBinaryWriter extends DxfPathWriter {
+
+    public static final int VERSION = 1;
+
+    public static final int NUEVA_PIEZA = 1;
+    public static final int CERRADO = 2;
+    public static final int PRINCIPAL = 4;
+
+    public static final int RECTA = 0;
+    public static final int ARCO = 1;
+    public static final int ELIPSE = 5;
+    public static final int CIRCULO = 9;
+    public static final int RECTA_PREDICHA = 11;
+
+    private static final int CABECERA = 4 + 2 + 6 * 8;
+
+    private final Bytes contornos = new Bytes(256);
+    private final Bytes tipos = new Bytes(64);
+    private final Bytes datos;
+    private int cantidadContornos;
+    private int corridas;
+
+    // Contorno en curso
+    private boolean contornoAbierto;
+    private int banderas;
+    private int tramos;
+    private int banderasTrazo;
+    private boolean primeroDelTrazo;
+
+    // Última recta del contorno, para predecir la siguiente
+    private boolean hayRecta;
+    private long rectaDx;
+    private long rectaDy;
+
+    // Arco circular retenido por si la media vuelta siguiente lo completa
+    private boolean arcoPendiente;
+    private long arcoRadio;
+    private boolean arcoGrande;
+    private boolean arcoAntihorario;
+    private long arcoDx;
+    private long arcoDy;
+
+    // Corrida de tipos en curso
+    private int tipo = -1;
+    private int repeticiones;
+
+    private DxfBinaryWriter(DxfAnalysis analisis, int pixeles, DxfPresupuesto.Control control, Detalle detalle) {
+        super(analisis, pixeles, control);
+        this.datos = new Bytes(detalle == Detalle.CAJA ? 64 : control.acotar(Math.min(analisis.getPrimitivas(), 1 << 24) * 8L + 64));
+    }
+
+    /**
+     * Escribe la geometría completa; con pixeles &gt; 0, simplificada para verse a ese ancho
+     * (el lado mayor del dibujo), igual que {@link DxfSvgWriter#escribir(DxfAnalysis, int)}.
+     *
+     * @throws PreviewGenerationException si alguna coordenada no es un número finito
+     */
+    public static byte[] escribir(DxfAnalysis analisis, int pixeles) {
+        return escribir(analisis, pixeles, DxfPresupuesto.SIN_LIMITE, Detalle.COMPLETO);
+    }
+
+    /**
+     * Igual, con el detalle pedido y dentro del presupuesto.
+     *
+     * @throws PresupuestoExcedidoException si se pasa de tiempo o de memoria
+     * @throws PreviewGenerationException si alguna coordenada no es un número finito
+     */
+    public static byte[] escribir(DxfAnalysis analisis, int pixeles, DxfPresupuesto presupuesto, Detalle detalle) {
+        DxfBinaryWriter writer = new DxfBinaryWriter(analisis, pixeles, presupuesto.iniciar(), detalle);
+        writer.recorrer(analisis, detalle);
+        writer.terminarCorrida();
+        if (writer.isValoresInvalidos()) {
+            throw new PreviewGenerationException("Geometría inválida (contiene NaN)", null);
+        }
+
+        Bytes salida = new Bytes(CABECERA + 10 + writer.contornos.largo + writer.tipos.largo + writer.datos.largo);
+        salida.u8('L');
+        salida.u8('C');
+        salida.u8('G');
+        salida.u8(VERSION);
+        salida.u8(writer.mantisa);
+        salida.u8(writer.exponente);
+        salida.float64(analisis.getMinX());
+        salida.float64(analisis.getMinY());
+        salida.float64(analisis.getMaxX());
+        salida.float64(analisis.getMaxY());
+        salida.float64(writer.origenX);
+        salida.float64(writer.origenY);
+        salida.varint(writer.cantidadContornos);
+        salida.agregar(writer.contornos);
+        salida.varint(writer.corridas);
+        salida.agregar(writer.tipos);
+        salida.agregar(writer.datos);
+        return Arrays.copyOf(salida.buf, salida.largo);
+    }
+
+    @Override
+    protected long getTamanioSalida() {
+        return contornos.largo + tipos.largo + datos.largo;
+    }
+
+    @Override
+    protected void abrirTrazo(boolean cerrada, boolean principal) {
+        banderasTrazo = (cerrada ? CERRADO : 0) | (principal ? PRINCIPAL : 0);
+        primeroDelTrazo = true;
+    }
+
+    @Override
+    protected void cerrarTrazo() {
+        descargarArco();
+        terminarContorno();
+    }
+
+    @Override
+    protected void escribirMovimiento(long dx, long dy) {
+        descargarArco();
+        terminarContorno();
+        banderas = banderasTrazo | (primeroDelTrazo ? NUEVA_PIEZA : 0);
+        primeroDelTrazo = false;
+        contornoAbierto = true;
+        hayRecta = false;
+        tramos = 0;
+        datos.zigzag(dx);
+        datos.zigzag(dy);
+    }
+
+    @Override
+    protected void empezarRectas() {
+    }
+
+    @Override
+    protected void escribirRecta(long dx, long dy, boolean primera) {
+        descargarArco();
+        if (hayRecta && largo(dx - rectaDx) + largo(dy - rectaDy) < largo(dx) + largo(dy)) {
+            tramo(RECTA_PREDICHA);
+            datos.zigzag(dx - rectaDx);
+            datos.zigzag(dy - rectaDy);
+        } else {
+            tramo(RECTA);
+            datos.zigzag(dx);
+            datos.zigzag(dy);
+        }
+        hayRecta = true;
+        rectaDx = dx;
+        rectaDy = dy;
+    }
+
+    /** Bytes del entero en zigzag y varint. */
+    private static int largo(long v) {
+        long z = (v << 1) ^ (v >> 63);
+        return Math.max(1, (64 - Long.numberOfLeadingZeros(z) + 6) / 7);
+    }
+
+    @Override
+    protected void escribirArco(long rx, long ry, double rotacion, boolean grande, boolean antihorario, long dx, long dy) {
+        boolean circular = rx == ry && rotacion == 0;
+        if (arcoPendiente && circular && rx == arcoRadio && !grande && !arcoGrande
+                && antihorario == arcoAntihorario && dx == -arcoDx && dy == -arcoDy
+                && Math.abs(Math.hypot(dx, dy) - 2.0 * rx) <= 2) {
+            arcoPendiente = false;
+            tramo(CIRCULO + (antihorario ? 1 : 0));
+            datos.zigzag(arcoDx);
+            datos.zigzag(arcoDy);
+            return;
+        }
+        descargarArco();
+        if (circular) {
+            arcoPendiente = true;
+            arcoRadio = rx;
+            arcoGrande = grande;
+            arcoAntihorario = antihorario;
+            arcoDx = dx;
+            arcoDy = dy;
+            return;
+        }
+        tramo(ELIPSE + (grande ? 2 : 0) + (antihorario ? 1 : 0));
+        datos.zigzag(dx);
+        datos.zigzag(dy);
+        datos.varint(rx);
+        datos.varint(ry);
+        datos.zigzag(Math.round(rotacion * 1000));
+    }
+
+    @Override
+    protected void escribirCierre() {
+        descargarArco();
+        terminarContorno();
+    }
+
+    private void descargarArco() {
+        if (!arcoPendiente) {
+            return;
+        }
+        arcoPendiente = false;
+        tramo(ARCO + (arcoGrande ? 2 : 0) + (arcoAntihorario ? 1 : 0));
+        datos.zigzag(arcoDx);
+        datos.zigzag(arcoDy);
+        datos.varint(arcoRadio);
+    }
+
+    private void tramo(int t) {
+        if (t != RECTA && t != RECTA_PREDICHA) {
+            hayRecta = false;
+        }
+        tramos++;
+        if (t != tipo) {
+            terminarCorrida();
+            tipo = t;
+        }
+        repeticiones++;
+    }
+
+    private void terminarCorrida() {
+        if (repeticiones > 0) {
+            tipos.u8(tipo);
+            tipos.varint(repeticiones);
+            corridas++;
+            repeticiones = 0;
+        }
+    }
+
+    private void terminarContorno() {
+        if (!contornoAbierto) {
+            return;
+        }
+        contornoAbierto = false;
+        contornos.u8(banderas);
+        contornos.varint(tramos);
+        cantidadContornos++;
+    }
+
+    private static final class Bytes {
+
+        private byte[] buf;
+        private int largo;
+
+        Bytes(int capacidad) {
+            buf = new byte[Math.max(16, capacidad)];
+        }
+
+        void u8(int v) {
+            asegurar(1);
+            buf[largo++] = (byte) v;
+        }
+
+        void varint(long v) {
+            asegurar(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[largo++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[largo++] = (byte) v;
+        }
+
+        void zigzag(long v) {
+            varint((v << 1) ^ (v >> 63));
+        }
+
+        void float64(double v) {
+            long bits = Double.doubleToLongBits(v);
+            asegurar(8);
+            for (int i = 0; i < 8; i++) {
+                buf[largo++] = (byte) (bits >>> (8 * i));
+            }
+        }
+
+        void agregar(Bytes otros) {
+            asegurar(otros.largo);
+            System.arraycopy(otros.buf, 0, buf, largo, otros.largo);
+            largo += otros.largo;
+        }
+
+        private void asegurar(int extra) {
+            if (largo + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, largo + extra));
+            }
+        }
+
+    }
+
+}
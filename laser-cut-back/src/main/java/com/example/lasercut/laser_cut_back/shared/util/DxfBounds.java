@@ -0,0 +1,153 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+/**
+ * Bounding box exacta de la geometría emitida por {@link DxfStreamReader}.
+ * Los arcos y elipses aportan sus extremos reales, no solo los puntos de inicio y fin.
+ */
+public class DxfBounds implements DxfEntityHandler {
+
+    private double minX = Double.POSITIVE_INFINITY;
+    private double minY = Double.POSITIVE_INFINITY;
+    private double maxX = Double.NEGATIVE_INFINITY;
+    private double maxY = Double.NEGATIVE_INFINITY;
+    private int primitivas;
+
+    private final double[] arcoTmp = new double[5];
+
+    /**
+     * Vuelve al estado inicial, para reutilizar la instancia al medir primitivas sueltas.
+     */
+    void reiniciar() {
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        maxX = Double.NEGATIVE_INFINITY;
+        maxY = Double.NEGATIVE_INFINITY;
+        primitivas = 0;
+    }
+
+    public boolean isVacio() {
+        return primitivas == 0 || !Double.isFinite(minX) || !Double.isFinite(maxX);
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    public double getAncho() {
+        return Math.abs(maxX - minX);
+    }
+
+    public double getAlto() {
+        return Math.abs(maxY - minY);
+    }
+
+    /**
+     * Cantidad de primitivas recibidas, contando las generadas al expandir bloques.
+     */
+    public int getPrimitivas() {
+        return primitivas;
+    }
+
+    @Override
+    public void linea(double x1, double y1, double x2, double y2) {
+        primitivas++;
+        punto(x1, y1);
+        punto(x2, y2);
+    }
+
+    @Override
+    public void arco(double cx, double cy, double radio, double anguloInicio, double anguloFin) {
+        primitivas++;
+        extenderArco(cx, cy, radio, anguloInicio, anguloFin);
+    }
+
+    @Override
+    public void circulo(double cx, double cy, double radio) {
+        primitivas++;
+        punto(cx - radio, cy - radio);
+        punto(cx + radio, cy + radio);
+    }
+
+    @Override
+    public void polilinea(double[] xs, double[] ys, double[] bulges, int n, boolean cerrada) {
+        primitivas++;
+        int tramos = cerrada ? n : n - 1;
+        for (int i = 0; i < n; i++) {
+            punto(xs[i], ys[i]);
+            if (i < tramos && bulges[i] != 0) {
+                int j = i + 1 == n ? 0 : i + 1;
+                if (DxfMath.arcoDeBulge(xs[i], ys[i], xs[j], ys[j], bulges[i], arcoTmp)) {
+                    extenderArco(arcoTmp[0], arcoTmp[1], arcoTmp[2], arcoTmp[3], arcoTmp[4]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void elipse(double cx, double cy, double ejeMayorX, double ejeMayorY, double ratio, double paramInicio, double paramFin) {
+        primitivas++;
+        double barrido = DxfMath.barridoRadianes(paramInicio, paramFin);
+        puntoElipse(cx, cy, ejeMayorX, ejeMayorY, ratio, paramInicio);
+        puntoElipse(cx, cy, ejeMayorX, ejeMayorY, ratio, paramInicio + barrido);
+        double tx = Math.atan2(-ratio * ejeMayorY, ejeMayorX);
+        double ty = Math.atan2(ratio * ejeMayorX, ejeMayorY);
+        for (int k = 0; k < 4; k++) {
+            double t = (k < 2 ? tx : ty) + (k % 2) * Math.PI;
+            double d = (t - paramInicio) % (2 * Math.PI);
+            if (d < 0) {
+                d += 2 * Math.PI;
+            }
+            if (d <= barrido) {
+                puntoElipse(cx, cy, ejeMayorX, ejeMayorY, ratio, t);
+            }
+        }
+    }
+
+    @Override
+    public void spline(double[] xs, double[] ys, int n, boolean cerrada) {
+        primitivas++;
+        for (int i = 0; i < n; i++) {
+            punto(xs[i], ys[i]);
+        }
+    }
+
+    private void extenderArco(double cx, double cy, double radio, double anguloInicio, double anguloFin) {
+        double barrido = DxfMath.barrido(anguloInicio, anguloFin);
+        double inicio = Math.toRadians(anguloInicio);
+        double fin = Math.toRadians(anguloInicio + barrido);
+        punto(cx + radio * Math.cos(inicio), cy + radio * Math.sin(inicio));
+        punto(cx + radio * Math.cos(fin), cy + radio * Math.sin(fin));
+        for (int cuadrante = 0; cuadrante < 4; cuadrante++) {
+            double angulo = cuadrante * 90.0;
+            if (DxfMath.anguloEnBarrido(angulo, anguloInicio, barrido)) {
+                punto(cx + radio * Math.cos(Math.toRadians(angulo)), cy + radio * Math.sin(Math.toRadians(angulo)));
+            }
+        }
+    }
+
+    private void puntoElipse(double cx, double cy, double mx, double my, double ratio, double t) {
+        double cos = Math.cos(t);
+        double sin = Math.sin(t);
+        punto(cx + mx * cos - ratio * my * sin, cy + my * cos + ratio * mx * sin);
+    }
+
+    private void punto(double x, double y) {
+        if (x < minX) minX = x;
+        if (x > maxX) maxX = x;
+        if (y < minY) minY = y;
+        if (y > maxY) maxY = y;
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.example.lasercut.laser_cut_back.exception.BadRequestException;
+
+/**
+ * Lectura previa de los primeros KB de un DXF, antes del parseo completo: confirma que el
+ * archivo empieza como un DXF, distingue binario de ASCII y toma de la sección HEADER la
+ * versión ($ACADVER) y las unidades ($INSUNITS, o $MEASUREMENT si el dibujo no las declara).
+ *
+ * Así un archivo que no es DXF se rechaza sin recorrerlo entero, y la cotización puede usar
+ * las unidades del dibujo en lugar de depender solo de lo que elige el cliente.
+ */
+public class DxfCabecera {
+
+    /** Cuánto se lee como máximo; la sección HEADER de un DXF de AutoCAD entra de sobra. */
+    public static final int TAMANIO = 64 * 1024;
+
+    static final byte[] CENTINELA_BINARIO = "AutoCAD Binary DXF\r\n\u001a\0".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int COMENTARIO = 999;
+    private static final int MEDIDA_IMPERIAL = 0;
+    private static final int MEDIDA_METRICA = 1;
+
+    private final boolean binario;
+    private final String version;
+    private final DxfUnidad unidad;
+
+    private DxfCabecera(boolean binario, String version, DxfUnidad unidad) {
+        this.binario = binario;
+        this.version = version;
+        this.unidad = unidad;
+    }
+
+    public boolean isBinario() {
+        return binario;
+    }
+
+    /**
+     * Valor de $ACADVER (AC1015 es AutoCAD 2000, AC1032 es 2018); null si no viene.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Unidades declaradas en la cabecera; null si no se declaran o no son de las aceptadas.
+     */
+    public DxfUnidad getUnidad() {
+        return unidad;
+    }
+
+    /**
+     * Lee la cabecera del comienzo del archivo; solo mira los primeros {@link #TAMANIO} bytes
+     * de inicio, sin moverlo.
+     *
+     * @throws BadRequestException si no empieza como un DXF
+     */
+    public static DxfCabecera leer(ByteBuffer inicio) {
+        ByteBuffer ventana = inicio.slice(inicio.position(), Math.min(inicio.remaining(), TAMANIO));
+        if (esBinario(ventana)) {
+            // Un valor binario cortado por la ventana da error al leerlo, no un valor a medias
+            return leerPares(new DxfBinaryTokenizer(ventana), true);
+        }
+        if (ventana.limit() == TAMANIO) {
+            // Se corta en el último salto de línea, para no leer un valor a medias
+            int fin = ventana.limit();
+            while (fin > 0 && ventana.get(fin - 1) != '\n') {
+                fin--;
+            }
+            ventana.limit(fin);
+        }
+        return leerPares(new DxfTokenizer(ventana), false);
+    }
+
+    private static boolean esBinario(ByteBuffer ventana) {
+        if (ventana.remaining() < CENTINELA_BINARIO.length) {
+            return false;
+        }
+        for (int i = 0; i < CENTINELA_BINARIO.length; i++) {
+            if (ventana.get(i) != CENTINELA_BINARIO[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static DxfCabecera leerPares(DxfPares tok, boolean binario) {
+        boolean hayPar;
+        try {
+            hayPar = tok.siguiente();
+            while (hayPar && tok.codigo() == COMENTARIO) {
+                hayPar = tok.siguiente();
+            }
+        } catch (IOException e) {
+            hayPar = false;
+        }
+        if (!hayPar || tok.codigo() != 0 || !tok.valorEs("SECTION")) {
+            throw new BadRequestException("El archivo no es un DXF válido.");
+        }
+
+        String version = null;
+        int insunits = 0;
+        int measurement = -1;
+        try {
+            if (!tok.siguiente() || tok.codigo() != 2 || !tok.valorEs("HEADER")) {
+                return new DxfCabecera(binario, null, null);
+            }
+            String variable = null;
+            while (tok.siguiente()) {
+                int codigo = tok.codigo();
+                if (codigo == 0) {
+                    // ENDSEC: las variables terminaron
+                    break;
+                }
+                if (codigo == 9) {
+                    variable = tok.valorString();
+                } else if ("$ACADVER".equals(variable) && codigo == 1) {
+                    version = tok.valorString();
+                } else if ("$INSUNITS".equals(variable) && codigo == 70) {
+                    insunits = tok.valorInt();
+                } else if ("$MEASUREMENT".equals(variable) && codigo == 70) {
+                    measurement = tok.valorInt();
+                }
+            }
+        } catch (IOException e) {
+            // Cabecera más larga que la ventana o mal formada: vale lo leído hasta ahí
+        }
+
+        DxfUnidad unidad = DxfUnidad.desdeInsunits(insunits);
+        if (unidad == null && insunits == 0) {
+            unidad = measurement == MEDIDA_IMPERIAL ? DxfUnidad.INCH
+                : measurement == MEDIDA_METRICA ? DxfUnidad.MM
+                : null;
+        }
+        return new DxfCabecera(binario, version, unidad);
+    }
+
+}
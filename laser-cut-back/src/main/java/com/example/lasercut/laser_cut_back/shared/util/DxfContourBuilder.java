@@ -0,0 +1,628 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.util.Arrays;
+
+import com.example.lasercut.laser_cut_back.exception.AnalisisInterrumpidoException;
+
+/**
+ * Reconstruye contornos uniendo los extremos de las primitivas abiertas.
+ *
+ * Las entidades cerradas (círculos, arcos de 360°, polilíneas y splines cerradas, elipses
+ * completas) ya son un lazo. Las abiertas se guardan como tramos con sus dos extremos y, al
+ * terminar la lectura, se unen los extremos que caen a menos de {@link #TOLERANCIA_MM} con una
+ * grilla hash: cada extremo solo se compara con los de su celda y las ocho vecinas, así que
+ * el costo esperado es lineal en la cantidad de tramos.
+ *
+ * Un grupo de tramos conectados es un lazo cerrado si todos sus nodos tienen grado par;
+ * si no, es una cadena abierta. Los nodos de grado 1 son extremos sueltos.
+ *
+ * Para el área, cada primitiva aporta su término de ½∮(x dy − y dx) recorrida del inicio al
+ * fin: la cuerda más el segmento circular o elíptico exacto, sin aproximar curvas.
+ *
+ * Las primitivas se numeran en el orden en que llegan (el mismo en que las graba
+ * {@link DxfGeometry}) y cada lazo guarda su recorrido como pasos primitiva/sentido, para que
+ * la vista previa pueda escribirlo como un único subpath cerrado.
+ *
+ * Para anidar los lazos (contorno exterior, agujeros, islas) se guarda además un punto sobre
+ * cada uno; un lazo queda dentro de otro si su bounding box entra en la del otro y ese punto
+ * cae adentro según {@link DxfLoopIndex}.
+ */
+public class DxfContourBuilder implements DxfEntityHandler {
+
+    /**
+     * Distancia máxima entre dos extremos para considerarlos el mismo punto, en milímetros;
+     * se pasa a unidades del dibujo con la unidad de la cabecera.
+     */
+    public static final double TOLERANCIA_MM = 0.01;
+
+    private static final long VACIO = Long.MIN_VALUE;
+
+    /** Representantes distintos por celda de la grilla de extremos. */
+    private static final int MAX_REPRESENTANTES = 8;
+
+    // Tramos abiertos: extremos 2t (inicio) y 2t+1 (fin), punto medio, área y bounding box de cada uno
+    private double[] extremosX = new double[128];
+    private double[] extremosY = new double[128];
+    private double[] tramoMuestra = new double[128];
+    private double[] tramoArea = new double[64];
+    private double[] tramoCaja = new double[256];
+    private int cantidadTramos;
+
+    // Lazos ya cerrados: área con signo, un punto sobre el lazo y bounding box (minX, minY, maxX, maxY)
+    private double[] lazoArea = new double[16];
+    private double[] lazoMuestra = new double[32];
+    private double[] lazoCaja = new double[64];
+    private int cantidadLazos;
+
+    // Recorrido de cada lazo: pasos (primitiva << 1 | invertido) en pasos[pasosDesde[l]..pasosDesde[l+1])
+    private int[] tramoPrimitiva = new int[64];
+    private int[] pasos = new int[64];
+    private int cantidadPasos;
+    private int[] pasosDesde = new int[17];
+    private int primitivas;
+    private int primitivaActual;
+    private double muestraX;
+    private double muestraY;
+
+    private double tolerancia = TOLERANCIA_MM;
+    private final DxfBounds caja = new DxfBounds();
+    private final double[] arcoTmp = new double[5];
+
+    @Override
+    public void linea(double x1, double y1, double x2, double y2) {
+        primitivaActual = primitivas++;
+        caja.reiniciar();
+        caja.linea(x1, y1, x2, y2);
+        muestra(0.5 * (x1 + x2), 0.5 * (y1 + y2));
+        agregarTramo(x1, y1, x2, y2, cuerda(x1, y1, x2, y2));
+    }
+
+    @Override
+    public void arco(double cx, double cy, double radio, double anguloInicio, double anguloFin) {
+        primitivaActual = primitivas++;
+        caja.reiniciar();
+        caja.arco(cx, cy, radio, anguloInicio, anguloFin);
+        double barrido = DxfMath.barrido(anguloInicio, anguloFin);
+        double medio = Math.toRadians(anguloInicio + barrido / 2);
+        muestra(cx + radio * Math.cos(medio), cy + radio * Math.sin(medio));
+        if (barrido >= 360.0) {
+            agregarLazo(Math.PI * radio * radio);
+            return;
+        }
+        double inicio = Math.toRadians(anguloInicio);
+        double fin = Math.toRadians(anguloInicio + barrido);
+        double x1 = cx + radio * Math.cos(inicio);
+        double y1 = cy + radio * Math.sin(inicio);
+        double x2 = cx + radio * Math.cos(fin);
+        double y2 = cy + radio * Math.sin(fin);
+        agregarTramo(x1, y1, x2, y2, cuerda(x1, y1, x2, y2) + segmento(radio * radio, Math.toRadians(barrido)));
+    }
+
+    @Override
+    public void circulo(double cx, double cy, double radio) {
+        primitivaActual = primitivas++;
+        caja.reiniciar();
+        caja.circulo(cx, cy, radio);
+        muestra(cx + radio, cy);
+        agregarLazo(Math.PI * radio * radio);
+    }
+
+    @Override
+    public void polilinea(double[] xs, double[] ys, double[] bulges, int n, boolean cerrada) {
+        primitivaActual = primitivas++;
+        if (n < 2) {
+            return;
+        }
+        caja.reiniciar();
+        caja.polilinea(xs, ys, bulges, n, cerrada);
+        // Punto medio del primer tramo, sobre el arco si tiene bulge (la flecha es bulge·cuerda/2)
+        muestra(0.5 * (xs[0] + xs[1]) + 0.5 * bulges[0] * (ys[1] - ys[0]),
+            0.5 * (ys[0] + ys[1]) - 0.5 * bulges[0] * (xs[1] - xs[0]));
+        double area = 0;
+        int tramos = cerrada ? n : n - 1;
+        for (int i = 0; i < tramos; i++) {
+            int j = i + 1 == n ? 0 : i + 1;
+            area += cuerda(xs[i], ys[i], xs[j], ys[j]);
+            if (bulges[i] != 0 && DxfMath.arcoDeBulge(xs[i], ys[i], xs[j], ys[j], bulges[i], arcoTmp)) {
+                // El bulge es la tangente de un cuarto del ángulo incluido, con signo según el sentido
+                area += segmento(arcoTmp[2] * arcoTmp[2], 4 * Math.atan(bulges[i]));
+            }
+        }
+        if (cerrada) {
+            agregarLazo(area);
+        } else {
+            agregarTramo(xs[0], ys[0], xs[n - 1], ys[n - 1], area);
+        }
+    }
+
+    @Override
+    public void elipse(double cx, double cy, double ejeMayorX, double ejeMayorY, double ratio, double paramInicio, double paramFin) {
+        primitivaActual = primitivas++;
+        caja.reiniciar();
+        caja.elipse(cx, cy, ejeMayorX, ejeMayorY, ratio, paramInicio, paramFin);
+        double barrido = DxfMath.barridoRadianes(paramInicio, paramFin);
+        double medio = paramInicio + barrido / 2;
+        muestra(cx + ejeMayorX * Math.cos(medio) - ratio * ejeMayorY * Math.sin(medio),
+            cy + ejeMayorY * Math.cos(medio) + ratio * ejeMayorX * Math.sin(medio));
+        // Imagen afín del círculo unitario: las áreas escalan por a·b
+        double ab = ratio * (ejeMayorX * ejeMayorX + ejeMayorY * ejeMayorY);
+        if (barrido >= 2 * Math.PI - 1e-9) {
+            agregarLazo(Math.PI * ab);
+            return;
+        }
+        double fin = paramInicio + barrido;
+        double x1 = cx + ejeMayorX * Math.cos(paramInicio) - ratio * ejeMayorY * Math.sin(paramInicio);
+        double y1 = cy + ejeMayorY * Math.cos(paramInicio) + ratio * ejeMayorX * Math.sin(paramInicio);
+        double x2 = cx + ejeMayorX * Math.cos(fin) - ratio * ejeMayorY * Math.sin(fin);
+        double y2 = cy + ejeMayorY * Math.cos(fin) + ratio * ejeMayorX * Math.sin(fin);
+        agregarTramo(x1, y1, x2, y2, cuerda(x1, y1, x2, y2) + segmento(ab, barrido));
+    }
+
+    @Override
+    public void spline(double[] xs, double[] ys, int n, boolean cerrada) {
+        primitivaActual = primitivas++;
+        if (n < 2) {
+            return;
+        }
+        caja.reiniciar();
+        caja.spline(xs, ys, n, cerrada);
+        muestra(0.5 * (xs[0] + xs[1]), 0.5 * (ys[0] + ys[1]));
+        double area = 0;
+        for (int i = 1; i < n; i++) {
+            area += cuerda(xs[i - 1], ys[i - 1], xs[i], ys[i]);
+        }
+        if (cerrada) {
+            agregarLazo(area + cuerda(xs[n - 1], ys[n - 1], xs[0], ys[0]));
+        } else {
+            agregarTramo(xs[0], ys[0], xs[n - 1], ys[n - 1], area);
+        }
+    }
+
+    /**
+     * Une los extremos, recorre los lazos y clasifica los grupos de tramos.
+     * Se llama una vez, al terminar la lectura, con la geometría que grabó las mismas
+     * primitivas (se usa para probar qué lazo contiene a cuál).
+     */
+    public DxfContours construir(DxfGeometry geometria) {
+        return construir(geometria, null, DxfLimites.SIN_LIMITE.iniciar());
+    }
+
+    /**
+     * Igual que {@link #construir(DxfGeometry)}, en las unidades del dibujo (null se toma como
+     * milímetros) y con el control de la lectura: un archivo chico puede llegar hasta acá y
+     * trabar el servidor uniendo o anidando lazos.
+     *
+     * @throws AnalisisInterrumpidoException si pasó el tiempo o se interrumpió el análisis
+     */
+    public DxfContours construir(DxfGeometry geometria, DxfUnidad unidad, DxfLimites.Control control) {
+        tolerancia = unidad == null ? TOLERANCIA_MM : TOLERANCIA_MM / unidad.getMilimetros();
+        int extremos = 2 * cantidadTramos;
+        int[] nodo = new int[extremos];
+        for (int i = 0; i < extremos; i++) {
+            nodo[i] = i;
+        }
+        unirCoincidentes(nodo, extremos, control);
+        for (int i = 0; i < extremos; i++) {
+            nodo[i] = raiz(nodo, i);
+        }
+
+        // Extremos agrupados por nodo (CSR): los de nodo k quedan en incidentes[desde[k]..desde[k+1])
+        int[] desde = new int[extremos + 1];
+        for (int i = 0; i < extremos; i++) {
+            desde[nodo[i] + 1]++;
+        }
+        for (int k = 0; k < extremos; k++) {
+            desde[k + 1] += desde[k];
+        }
+        int[] incidentes = new int[extremos];
+        int[] cursor = Arrays.copyOf(desde, extremos);
+        for (int i = 0; i < extremos; i++) {
+            incidentes[cursor[nodo[i]]++] = i;
+        }
+
+        // Grupos conectados: los nodos más la unión de los dos extremos de cada tramo
+        int[] grupo = Arrays.copyOf(nodo, extremos);
+        for (int t = 0; t < cantidadTramos; t++) {
+            unir(grupo, 2 * t, 2 * t + 1);
+        }
+        int[] imparesPorGrupo = new int[extremos];
+        int extremosSueltos = 0;
+        for (int k = 0; k < extremos; k++) {
+            int grado = desde[k + 1] - desde[k];
+            if ((grado & 1) != 0) {
+                imparesPorGrupo[raiz(grupo, k)]++;
+            }
+            if (grado == 1) {
+                extremosSueltos++;
+            }
+        }
+
+        int cadenasAbiertas = 0;
+        int perforacionesAbiertas = 0;
+        for (int k = 0; k < extremos; k++) {
+            if (nodo[k] == k && raiz(grupo, k) == k && imparesPorGrupo[k] > 0) {
+                cadenasAbiertas++;
+                // Un recorrido continuo cubre dos nodos impares
+                perforacionesAbiertas += imparesPorGrupo[k] / 2;
+            }
+        }
+
+        recorrerLazos(nodo, desde, incidentes, grupo, imparesPorGrupo, control);
+
+        int[] padre = new int[cantidadLazos];
+        int[] profundidad = anidar(padre, geometria, control);
+        int[] lazoDePrimitiva = new int[primitivas];
+        Arrays.fill(lazoDePrimitiva, -1);
+        for (int l = 0; l < cantidadLazos; l++) {
+            for (int k = pasosDesde[l]; k < pasosDesde[l + 1]; k++) {
+                lazoDePrimitiva[pasos[k] >> 1] = l;
+            }
+        }
+        double[] tamanios = new double[cantidadLazos];
+        for (int l = 0; l < cantidadLazos; l++) {
+            tamanios[l] = Math.max(lazoCaja[4 * l + 2] - lazoCaja[4 * l], lazoCaja[4 * l + 3] - lazoCaja[4 * l + 1]);
+        }
+        return new DxfContours(cantidadLazos, cadenasAbiertas, extremosSueltos,
+            cantidadLazos + perforacionesAbiertas, Arrays.copyOf(lazoArea, cantidadLazos), tamanios, profundidad, padre,
+            lazoDePrimitiva, Arrays.copyOf(pasos, cantidadPasos), Arrays.copyOf(pasosDesde, cantidadLazos + 1));
+    }
+
+    /**
+     * Recorre los grupos sin nodos impares siguiendo tramos no usados: como todos los nodos
+     * tienen grado par, el recorrido no se traba fuera de su punto de partida. Cada vez que
+     * vuelve a un nodo por el que ya pasó, los pasos desde esa visita forman un lazo y se sacan
+     * del recorrido, así dos contornos que se tocan en un vértice (un ocho) quedan como dos
+     * lazos y no como uno que se pisa a sí mismo.
+     */
+    private void recorrerLazos(int[] nodo, int[] desde, int[] incidentes, int[] grupo, int[] imparesPorGrupo,
+            DxfLimites.Control control) {
+        boolean[] usado = new boolean[cantidadTramos];
+        int[] cursor = Arrays.copyOf(desde, desde.length - 1);
+        // Recorrido en curso: extremo por el que se sale de cada tramo, y en qué paso se pasó por cada nodo
+        int[] recorrido = new int[16];
+        int[] pasoEnNodo = new int[cursor.length];
+        Arrays.fill(pasoEnNodo, -1);
+        for (int t = 0; t < cantidadTramos; t++) {
+            if (usado[t] || imparesPorGrupo[raiz(grupo, 2 * t)] > 0) {
+                continue;
+            }
+            int actual = nodo[2 * t];
+            pasoEnNodo[actual] = 0;
+            int largo = 0;
+            while (true) {
+                control.avanzar();
+                int salida = -1;
+                while (cursor[actual] < desde[actual + 1]) {
+                    int e = incidentes[cursor[actual]++];
+                    if (!usado[e >> 1]) {
+                        salida = e;
+                        break;
+                    }
+                }
+                if (salida < 0) {
+                    break;
+                }
+                usado[salida >> 1] = true;
+                if (largo == recorrido.length) {
+                    recorrido = Arrays.copyOf(recorrido, largo * 2);
+                }
+                recorrido[largo++] = salida;
+                actual = nodo[salida ^ 1];
+                int vuelta = pasoEnNodo[actual];
+                if (vuelta < 0) {
+                    pasoEnNodo[actual] = largo;
+                    continue;
+                }
+                for (int k = vuelta + 1; k < largo; k++) {
+                    pasoEnNodo[nodo[recorrido[k]]] = -1;
+                }
+                cerrarLazo(recorrido, vuelta, largo);
+                largo = vuelta;
+            }
+            pasoEnNodo[actual] = -1;
+        }
+    }
+
+    /**
+     * Pasa a lazo los tramos de recorrido[inicio..fin). Los que se recorren del fin al inicio
+     * aportan su área con el signo cambiado.
+     */
+    private void cerrarLazo(int[] recorrido, int inicio, int fin) {
+        int primero = recorrido[inicio] >> 1;
+        double area = 0;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int k = inicio; k < fin; k++) {
+            int u = recorrido[k] >> 1;
+            boolean desdeInicio = (recorrido[k] & 1) == 0;
+            agregarPaso(tramoPrimitiva[u], !desdeInicio);
+            area += desdeInicio ? tramoArea[u] : -tramoArea[u];
+            minX = Math.min(minX, tramoCaja[4 * u]);
+            minY = Math.min(minY, tramoCaja[4 * u + 1]);
+            maxX = Math.max(maxX, tramoCaja[4 * u + 2]);
+            maxY = Math.max(maxY, tramoCaja[4 * u + 3]);
+        }
+        agregarLazo(area, tramoMuestra[2 * primero], tramoMuestra[2 * primero + 1], minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Profundidad de cada lazo en el árbol de contención (0 = contorno exterior, 1 = agujero, ...).
+     * En padre queda el lazo que lo contiene directamente (-1 si es exterior).
+     *
+     * Los lazos se procesan de mayor a menor área y cada uno se anota en las celdas de una
+     * grilla que cubre su bounding box. El contenedor de un lazo tiene que cubrir la celda de
+     * su punto, y como cada celda lista primero a los más recientes (los más chicos), el
+     * primero que lo contiene es el padre.
+     */
+    private int[] anidar(int[] padreDe, DxfGeometry geometria, DxfLimites.Control control) {
+        DxfGeometry.Lector lector = geometria.lector();
+        DxfLoopIndex[] indices = new DxfLoopIndex[cantidadLazos];
+        int[] profundidad = new int[cantidadLazos];
+        if (cantidadLazos == 0) {
+            return profundidad;
+        }
+        Integer[] orden = new Integer[cantidadLazos];
+        for (int i = 0; i < cantidadLazos; i++) {
+            orden[i] = i;
+        }
+        Arrays.sort(orden, (a, b) -> Double.compare(Math.abs(lazoArea[b]), Math.abs(lazoArea[a])));
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < cantidadLazos; i++) {
+            minX = Math.min(minX, lazoCaja[4 * i]);
+            minY = Math.min(minY, lazoCaja[4 * i + 1]);
+            maxX = Math.max(maxX, lazoCaja[4 * i + 2]);
+            maxY = Math.max(maxY, lazoCaja[4 * i + 3]);
+        }
+        int lado = (int) Math.max(1, Math.min(1024, Math.ceil(Math.sqrt(cantidadLazos))));
+        double celdaAncho = Math.max((maxX - minX) / lado, Double.MIN_NORMAL);
+        double celdaAlto = Math.max((maxY - minY) / lado, Double.MIN_NORMAL);
+
+        // Listas por celda encadenadas en un pozo común
+        int[] primeroEnCelda = new int[lado * lado];
+        Arrays.fill(primeroEnCelda, -1);
+        int[] anotado = new int[Math.max(16, cantidadLazos)];
+        int[] siguiente = new int[anotado.length];
+        int anotaciones = 0;
+
+        for (int i : orden) {
+            int celda = celda(lazoMuestra[2 * i], minX, celdaAncho, lado) * lado
+                + celda(lazoMuestra[2 * i + 1], minY, celdaAlto, lado);
+            int padre = -1;
+            for (int k = primeroEnCelda[celda]; k >= 0; k = siguiente[k]) {
+                control.avanzar();
+                if (contiene(anotado[k], i, indices, lector, control)) {
+                    padre = anotado[k];
+                    break;
+                }
+            }
+            padreDe[i] = padre;
+            profundidad[i] = padre < 0 ? 0 : profundidad[padre] + 1;
+
+            int cx0 = celda(lazoCaja[4 * i], minX, celdaAncho, lado);
+            int cy0 = celda(lazoCaja[4 * i + 1], minY, celdaAlto, lado);
+            int cx1 = celda(lazoCaja[4 * i + 2], minX, celdaAncho, lado);
+            int cy1 = celda(lazoCaja[4 * i + 3], minY, celdaAlto, lado);
+            int nuevas = (cx1 - cx0 + 1) * (cy1 - cy0 + 1);
+            if (anotaciones + nuevas > anotado.length) {
+                int capacidad = Math.max(anotado.length * 2, anotaciones + nuevas);
+                anotado = Arrays.copyOf(anotado, capacidad);
+                siguiente = Arrays.copyOf(siguiente, capacidad);
+            }
+            for (int gx = cx0; gx <= cx1; gx++) {
+                for (int gy = cy0; gy <= cy1; gy++) {
+                    control.avanzar();
+                    int c = gx * lado + gy;
+                    anotado[anotaciones] = i;
+                    siguiente[anotaciones] = primeroEnCelda[c];
+                    primeroEnCelda[c] = anotaciones++;
+                }
+            }
+        }
+        return profundidad;
+    }
+
+    private static int celda(double v, double min, double ancho, int lado) {
+        return Math.max(0, Math.min(lado - 1, (int) ((v - min) / ancho)));
+    }
+
+    /**
+     * La bounding box descarta rápido la mayoría de los pares; solo si la del interior entra
+     * en la del exterior se arma (una vez por lazo) el índice de aristas del exterior y se
+     * prueba el punto del interior.
+     */
+    private boolean contiene(int exterior, int interior, DxfLoopIndex[] indices, DxfGeometry.Lector lector,
+            DxfLimites.Control control) {
+        double tol = tolerancia;
+        boolean enCaja = lazoCaja[4 * exterior] - tol <= lazoCaja[4 * interior]
+            && lazoCaja[4 * exterior + 1] - tol <= lazoCaja[4 * interior + 1]
+            && lazoCaja[4 * exterior + 2] + tol >= lazoCaja[4 * interior + 2]
+            && lazoCaja[4 * exterior + 3] + tol >= lazoCaja[4 * interior + 3];
+        if (!enCaja) {
+            return false;
+        }
+        DxfLoopIndex indice = indices[exterior];
+        if (indice == null) {
+            indice = new DxfLoopIndex(control);
+            for (int k = pasosDesde[exterior]; k < pasosDesde[exterior + 1]; k++) {
+                control.avanzar();
+                lector.emitir(pasos[k] >> 1, indice);
+            }
+            indice.indexar();
+            indices[exterior] = indice;
+        }
+        return indice.contiene(lazoMuestra[2 * interior], lazoMuestra[2 * interior + 1]);
+    }
+
+    /**
+     * Une los extremos a menos de la tolerancia. La grilla usa celdas del tamaño de la tolerancia
+     * guardadas en una tabla de direccionamiento abierto (clave = celda, valor = primer
+     * representante), con los representantes de la misma celda encadenados en siguiente[].
+     *
+     * Cada extremo se compara solo con los representantes de su celda y las ocho vecinas, no
+     * con todos los extremos que cayeron ahí: si coincide con uno de su celda se une a ese nodo
+     * y no se anota. En una celda del tamaño de la tolerancia caben pocos puntos a más de la
+     * tolerancia entre sí, así que miles de extremos amontonados en un punto no vuelven
+     * cuadrático el costo; igual se pone un tope de {@link #MAX_REPRESENTANTES} por celda, y
+     * pasado el tope el extremo se une al primero de la celda.
+     */
+    private void unirCoincidentes(int[] nodo, int extremos, DxfLimites.Control control) {
+        int capacidad = Integer.highestOneBit(Math.max(16, extremos * 2 - 1)) << 1;
+        long[] claves = new long[capacidad];
+        int[] primero = new int[capacidad];
+        int[] enCelda = new int[capacidad];
+        int[] siguiente = new int[extremos];
+        Arrays.fill(claves, VACIO);
+        double tol2 = tolerancia * tolerancia;
+
+        for (int i = 0; i < extremos; i++) {
+            control.avanzar();
+            double x = extremosX[i];
+            double y = extremosY[i];
+            long cx = (long) Math.floor(x / tolerancia);
+            long cy = (long) Math.floor(y / tolerancia);
+            boolean representado = false;
+            for (long dx = -1; dx <= 1; dx++) {
+                for (long dy = -1; dy <= 1; dy++) {
+                    int ranura = buscar(claves, celda(cx + dx, cy + dy));
+                    if (claves[ranura] == VACIO) {
+                        continue;
+                    }
+                    for (int j = primero[ranura]; j >= 0; j = siguiente[j]) {
+                        double ex = extremosX[j] - x;
+                        double ey = extremosY[j] - y;
+                        if (ex * ex + ey * ey <= tol2) {
+                            unir(nodo, i, j);
+                            representado |= dx == 0 && dy == 0;
+                        }
+                    }
+                }
+            }
+            int ranura = buscar(claves, celda(cx, cy));
+            if (claves[ranura] == VACIO) {
+                claves[ranura] = celda(cx, cy);
+                primero[ranura] = i;
+                enCelda[ranura] = 1;
+                siguiente[i] = -1;
+            } else if (representado) {
+                continue;
+            } else if (enCelda[ranura] == MAX_REPRESENTANTES) {
+                unir(nodo, i, primero[ranura]);
+            } else {
+                siguiente[i] = primero[ranura];
+                primero[ranura] = i;
+                enCelda[ranura]++;
+            }
+        }
+    }
+
+    private static long celda(long cx, long cy) {
+        return (cx << 32) ^ (cy & 0xFFFFFFFFL);
+    }
+
+    private static int buscar(long[] claves, long clave) {
+        int mascara = claves.length - 1;
+        long h = clave * 0x9E3779B97F4A7C15L;
+        int ranura = (int) (h ^ (h >>> 32)) & mascara;
+        while (claves[ranura] != VACIO && claves[ranura] != clave) {
+            ranura = (ranura + 1) & mascara;
+        }
+        return ranura;
+    }
+
+    private static int raiz(int[] padre, int i) {
+        while (padre[i] != i) {
+            padre[i] = padre[padre[i]];
+            i = padre[i];
+        }
+        return i;
+    }
+
+    private static void unir(int[] padre, int a, int b) {
+        int ra = raiz(padre, a);
+        int rb = raiz(padre, b);
+        if (ra != rb) {
+            // La raíz queda en el índice menor, así el recorrido por raíces es estable
+            if (ra < rb) {
+                padre[rb] = ra;
+            } else {
+                padre[ra] = rb;
+            }
+        }
+    }
+
+    /** Término de la cuerda en ½∮(x dy − y dx). */
+    private static double cuerda(double x1, double y1, double x2, double y2) {
+        return 0.5 * (x1 * y2 - x2 * y1);
+    }
+
+    /** Área con signo entre la cuerda y la curva: ½·k·(θ − sen θ), con k = r² o a·b. */
+    private static double segmento(double k, double barrido) {
+        return 0.5 * k * (barrido - Math.sin(barrido));
+    }
+
+    private void agregarTramo(double x1, double y1, double x2, double y2, double area) {
+        int i = 2 * cantidadTramos;
+        if (cantidadTramos == tramoArea.length) {
+            extremosX = Arrays.copyOf(extremosX, extremosX.length * 2);
+            extremosY = Arrays.copyOf(extremosY, extremosY.length * 2);
+            tramoArea = Arrays.copyOf(tramoArea, tramoArea.length * 2);
+            tramoCaja = Arrays.copyOf(tramoCaja, tramoCaja.length * 2);
+            tramoMuestra = Arrays.copyOf(tramoMuestra, tramoMuestra.length * 2);
+            tramoPrimitiva = Arrays.copyOf(tramoPrimitiva, tramoPrimitiva.length * 2);
+        }
+        extremosX[i] = x1;
+        extremosY[i] = y1;
+        extremosX[i + 1] = x2;
+        extremosY[i + 1] = y2;
+        tramoArea[cantidadTramos] = area;
+        tramoPrimitiva[cantidadTramos] = primitivaActual;
+        tramoMuestra[2 * cantidadTramos] = muestraX;
+        tramoMuestra[2 * cantidadTramos + 1] = muestraY;
+        tramoCaja[4 * cantidadTramos] = caja.getMinX();
+        tramoCaja[4 * cantidadTramos + 1] = caja.getMinY();
+        tramoCaja[4 * cantidadTramos + 2] = caja.getMaxX();
+        tramoCaja[4 * cantidadTramos + 3] = caja.getMaxY();
+        cantidadTramos++;
+    }
+
+    /**
+     * Lazo formado por una sola primitiva cerrada.
+     */
+    private void agregarLazo(double area) {
+        agregarPaso(primitivaActual, false);
+        agregarLazo(area, muestraX, muestraY, caja.getMinX(), caja.getMinY(), caja.getMaxX(), caja.getMaxY());
+    }
+
+    private void agregarLazo(double area, double mx, double my, double minX, double minY, double maxX, double maxY) {
+        if (cantidadLazos == lazoArea.length) {
+            lazoArea = Arrays.copyOf(lazoArea, lazoArea.length * 2);
+            lazoCaja = Arrays.copyOf(lazoCaja, lazoCaja.length * 2);
+            lazoMuestra = Arrays.copyOf(lazoMuestra, lazoMuestra.length * 2);
+            pasosDesde = Arrays.copyOf(pasosDesde, lazoArea.length + 1);
+        }
+        lazoArea[cantidadLazos] = area;
+        lazoMuestra[2 * cantidadLazos] = mx;
+        lazoMuestra[2 * cantidadLazos + 1] = my;
+        lazoCaja[4 * cantidadLazos] = minX;
+        lazoCaja[4 * cantidadLazos + 1] = minY;
+        lazoCaja[4 * cantidadLazos + 2] = maxX;
+        lazoCaja[4 * cantidadLazos + 3] = maxY;
+        cantidadLazos++;
+        pasosDesde[cantidadLazos] = cantidadPasos;
+    }
+
+    private void muestra(double x, double y) {
+        muestraX = x;
+        muestraY = y;
+    }
+
+    private void agregarPaso(int primitiva, boolean invertido) {
+        if (cantidadPasos == pasos.length) {
+            pasos = Arrays.copyOf(pasos, pasos.length * 2);
+        }
+        pasos[cantidadPasos++] = primitiva << 1 | (invertido ? 1 : 0);
+    }
+
+}
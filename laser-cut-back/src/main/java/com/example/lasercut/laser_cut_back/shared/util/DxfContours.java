@@ -0,0 +1,137 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+/**
+ * Resultado de {@link DxfContourBuilder}: cómo quedan armados los contornos del dibujo.
+ */
+public class DxfContours {
+
+    private final int lazosCerrados;
+    private final int cadenasAbiertas;
+    private final int extremosSueltos;
+    private final int perforaciones;
+    private final double[] areas;
+    private final double[] tamanios;
+    private final int[] profundidades;
+    private final int[] padres;
+    private final int[] lazoDePrimitiva;
+    private final int[] pasos;
+    private final int[] pasosDesde;
+
+    DxfContours(int lazosCerrados, int cadenasAbiertas, int extremosSueltos, int perforaciones,
+            double[] areas, double[] tamanios, int[] profundidades, int[] padres, int[] lazoDePrimitiva, int[] pasos, int[] pasosDesde) {
+        this.lazosCerrados = lazosCerrados;
+        this.cadenasAbiertas = cadenasAbiertas;
+        this.extremosSueltos = extremosSueltos;
+        this.perforaciones = perforaciones;
+        this.areas = areas;
+        this.tamanios = tamanios;
+        this.profundidades = profundidades;
+        this.padres = padres;
+        this.lazoDePrimitiva = lazoDePrimitiva;
+        this.pasos = pasos;
+        this.pasosDesde = pasosDesde;
+    }
+
+    public int getLazosCerrados() {
+        return lazosCerrados;
+    }
+
+    /**
+     * Grupos de tramos conectados que no llegan a cerrar (tienen algún nodo de grado impar).
+     */
+    public int getCadenasAbiertas() {
+        return cadenasAbiertas;
+    }
+
+    /**
+     * Extremos a los que no llega ningún otro tramo.
+     */
+    public int getExtremosSueltos() {
+        return extremosSueltos;
+    }
+
+    /**
+     * Perforaciones necesarias: una por lazo y una por cada recorrido de las cadenas abiertas.
+     */
+    public int getPerforaciones() {
+        return perforaciones;
+    }
+
+    /**
+     * Área neta de material: los lazos de profundidad par (contornos exteriores e islas)
+     * suman y los de profundidad impar (agujeros) restan.
+     */
+    public double getAreaNeta() {
+        double neta = 0;
+        for (int i = 0; i < areas.length; i++) {
+            double area = Math.abs(areas[i]);
+            neta += (profundidades[i] & 1) == 0 ? area : -area;
+        }
+        return Math.max(0, neta);
+    }
+
+    public boolean isCerrado() {
+        return cadenasAbiertas == 0;
+    }
+
+    public double getArea(int lazo) {
+        return Math.abs(areas[lazo]);
+    }
+
+    /**
+     * Lado mayor de la bounding box del lazo.
+     */
+    public double getTamanio(int lazo) {
+        return tamanios[lazo];
+    }
+
+    /**
+     * 0 para un contorno exterior, 1 para un agujero, 2 para una isla dentro de un agujero, etc.
+     */
+    public int getProfundidad(int lazo) {
+        return profundidades[lazo];
+    }
+
+    /**
+     * Lazo que contiene directamente al dado, o -1 si es un contorno exterior.
+     */
+    public int getPadre(int lazo) {
+        return padres[lazo];
+    }
+
+    /**
+     * Lazo al que pertenece la primitiva (en el orden de {@link DxfGeometry}), o -1 si queda en
+     * una cadena abierta.
+     */
+    int getLazo(int primitiva) {
+        return primitiva < lazoDePrimitiva.length ? lazoDePrimitiva[primitiva] : -1;
+    }
+
+    int getCantidadPrimitivas() {
+        return lazoDePrimitiva.length;
+    }
+
+    int getInicioPasos(int lazo) {
+        return pasosDesde[lazo];
+    }
+
+    int getFinPasos(int lazo) {
+        return pasosDesde[lazo + 1];
+    }
+
+    /**
+     * Paso k del recorrido de los lazos: primitiva &lt;&lt; 1, más 1 si se recorre del fin al inicio.
+     */
+    int getPaso(int k) {
+        return pasos[k];
+    }
+
+    /**
+     * Memoria aproximada de los arreglos, para acotar cachés.
+     */
+    public long getTamanioBytes() {
+        return (long) (areas.length + tamanios.length) * Double.BYTES
+            + (long) (profundidades.length + padres.length + lazoDePrimitiva.length + pasos.length + pasosDesde.length) * Integer.BYTES;
+    }
+
+}
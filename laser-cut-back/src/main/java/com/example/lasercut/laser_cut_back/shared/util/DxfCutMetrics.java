@@ -0,0 +1,93 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+/**
+ * Longitud total de corte de la geometría emitida por {@link DxfStreamReader}.
+ * Acumula en un primitivo, sin guardar nada por entidad. Las perforaciones salen de
+ * los contornos armados por {@link DxfContourBuilder}.
+ */
+public class DxfCutMetrics implements DxfEntityHandler {
+
+    private static final double DOS_PI = 2 * Math.PI;
+
+    private double longitud;
+
+    /**
+     * Longitud total de corte en unidades del dibujo.
+     */
+    public double getLongitudCorte() {
+        return longitud;
+    }
+
+    @Override
+    public void linea(double x1, double y1, double x2, double y2) {
+        longitud += Math.hypot(x2 - x1, y2 - y1);
+    }
+
+    @Override
+    public void arco(double cx, double cy, double radio, double anguloInicio, double anguloFin) {
+        longitud += radio * Math.toRadians(DxfMath.barrido(anguloInicio, anguloFin));
+    }
+
+    @Override
+    public void circulo(double cx, double cy, double radio) {
+        longitud += DOS_PI * radio;
+    }
+
+    @Override
+    public void polilinea(double[] xs, double[] ys, double[] bulges, int n, boolean cerrada) {
+        int tramos = cerrada ? n : n - 1;
+        for (int i = 0; i < tramos; i++) {
+            int j = i + 1 == n ? 0 : i + 1;
+            double cuerda = Math.hypot(xs[j] - xs[i], ys[j] - ys[i]);
+            double b = Math.abs(bulges[i]);
+            if (b == 0 || cuerda == 0) {
+                longitud += cuerda;
+            } else {
+                // radio = c(1+b²)/4b y ángulo incluido = 4·atan(b)
+                longitud += cuerda * (1 + b * b) / (4 * b) * 4 * Math.atan(b);
+            }
+        }
+    }
+
+    @Override
+    public void elipse(double cx, double cy, double ejeMayorX, double ejeMayorY, double ratio, double paramInicio, double paramFin) {
+        double barrido = DxfMath.barridoRadianes(paramInicio, paramFin);
+        if (barrido >= DOS_PI - 1e-9) {
+            barrido = DOS_PI;
+        }
+        double a = Math.sqrt(ejeMayorX * ejeMayorX + ejeMayorY * ejeMayorY);
+        double b = a * Math.abs(ratio);
+        longitud += longitudElipse(a, b, paramInicio, barrido);
+    }
+
+    @Override
+    public void spline(double[] xs, double[] ys, int n, boolean cerrada) {
+        for (int i = 1; i < n; i++) {
+            longitud += Math.hypot(xs[i] - xs[i - 1], ys[i] - ys[i - 1]);
+        }
+        if (cerrada && n > 1) {
+            longitud += Math.hypot(xs[0] - xs[n - 1], ys[0] - ys[n - 1]);
+        }
+    }
+
+    /**
+     * Integra |r'(t)| = sqrt(a²sen²t + b²cos²t) por Simpson compuesto; con un tramo cada
+     * 2,5° el error queda muy por debajo de la tolerancia de corte.
+     */
+    private static double longitudElipse(double a, double b, double t0, double barrido) {
+        int n = 2 * DxfMath.segmentos(barrido);
+        double h = barrido / n;
+        double suma = velocidadElipse(a, b, t0) + velocidadElipse(a, b, t0 + barrido);
+        for (int i = 1; i < n; i++) {
+            suma += (i % 2 == 0 ? 2 : 4) * velocidadElipse(a, b, t0 + i * h);
+        }
+        return suma * h / 3;
+    }
+
+    private static double velocidadElipse(double a, double b, double t) {
+        double s = a * Math.sin(t);
+        double c = b * Math.cos(t);
+        return Math.sqrt(s * s + c * c);
+    }
+
+}
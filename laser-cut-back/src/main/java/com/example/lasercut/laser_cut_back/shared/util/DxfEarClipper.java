@@ -0,0 +1,820 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.util.Arrays;
+
+import com.example.lasercut.laser_cut_back.exception.PresupuestoExcedidoException;
+
+/**
+ * Triangula un polígono con agujeros recortando orejas (el mismo esquema que earcut).
+ *
+ * Cada agujero se une al contorno exterior con un puente de ida y vuelta desde su punto más a
+ * la izquierda, así todo queda como un único anillo simple; después se van recortando
+ * triángulos convexos (orejas) que no contienen ningún otro vértice. En anillos grandes los
+ * vértices se ordenan además por curva Z, para que buscar vértices dentro de una oreja revise
+ * solo los cercanos. Si el anillo se traba (autointersecciones, puntos repetidos) se limpia, se
+ * resuelven las intersecciones locales y, como último recurso, se parte en dos por una diagonal.
+ *
+ * Con muchos agujeros, buscar cada puente recorriendo el anillo entero haría el costo
+ * cuadrático; mientras se unen los agujeros las aristas del anillo se reparten además en franjas
+ * horizontales (como en {@link DxfLoopIndex}) y cada búsqueda revisa solo las franjas que cruza.
+ *
+ * Los nodos del anillo viven en arreglos paralelos que se reutilizan entre polígonos; -1 hace
+ * de puntero nulo.
+ *
+ * Un anillo patológico puede hacer cuadrático el recorte, así que cada tantas vueltas se mira el
+ * presupuesto de la malla.
+ */
+final class DxfEarClipper {
+
+    private static final int NULO = -1;
+    /** Desde cuántos vértices conviene indexar por curva Z. */
+    private static final int MINIMO_INDICE_Z = 80;
+    /** Desde cuántos agujeros conviene indexar las aristas para buscar puentes. */
+    private static final int MINIMO_INDICE_PUENTES = 16;
+    private static final int PUNTOS_POR_FRANJA = 16;
+    private static final int MAXIMO_FRANJAS = 4096;
+    /** Cada cuántas vueltas del recorte se mira el presupuesto. */
+    private static final int INTERVALO_PRESUPUESTO = 4096;
+
+    // Nodos: índice del punto original, coordenadas, anillo doble y lista ordenada por z
+    private int[] indice = new int[256];
+    private double[] x = new double[256];
+    private double[] y = new double[256];
+    private int[] anterior = new int[256];
+    private int[] siguiente = new int[256];
+    private int[] z = new int[256];
+    private int[] anteriorZ = new int[256];
+    private int[] siguienteZ = new int[256];
+    private boolean[] steiner = new boolean[256];
+    private boolean[] quitado = new boolean[256];
+    private int nodos;
+
+    // Franjas de aristas: cada nodo p aparece en las franjas que cruza su arista p → siguiente.
+    // Cuando cambia el siguiente se vuelve a anotar; las anotaciones viejas sobran pero no molestan.
+    private boolean indexado;
+    private double franjaMinY;
+    private double franjaAlto;
+    private int franjas;
+    private int[][] franjaNodos = new int[0][];
+    private int[] franjaLargo = new int[0];
+
+    private int[] cola = new int[16];
+
+    private double minX;
+    private double minY;
+    private double inversoTamanio;
+
+    private int[] salida;
+    private int triangulos;
+
+    private final DxfPresupuesto.Control control;
+    private int vueltas;
+
+    DxfEarClipper(DxfPresupuesto.Control control) {
+        this.control = control;
+    }
+
+    /**
+     * Triangula el polígono formado por los puntos [inicio, fin) de xy (pares x, y): primero el
+     * contorno exterior y después los agujeros, que empiezan en los puntos indicados en
+     * inicioAgujeros. Los triángulos se agregan a destino como índices de punto en xy.
+     *
+     * @return el arreglo destino (puede haberse agrandado); la cantidad de índices escritos
+     *         queda en {@link #getIndices()}
+     */
+    int[] triangular(double[] xy, int inicio, int fin, int[] inicioAgujeros, int agujeros, int[] destino, int usados) {
+        nodos = 0;
+        salida = destino;
+        triangulos = usados;
+        int finExterior = agujeros > 0 ? inicioAgujeros[0] : fin;
+        int exterior = anillo(xy, inicio, finExterior, true);
+        if (exterior == NULO || siguiente[exterior] == anterior[exterior]) {
+            return salida;
+        }
+        if (agujeros > 0) {
+            if (agujeros >= MINIMO_INDICE_PUENTES) {
+                indexarAristas(xy, inicio, fin, exterior);
+            }
+            exterior = eliminarAgujeros(xy, inicioAgujeros, agujeros, fin, exterior);
+            indexado = false;
+        }
+        inversoTamanio = 0;
+        if (fin - inicio > MINIMO_INDICE_Z) {
+            minX = Double.POSITIVE_INFINITY;
+            minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            for (int i = inicio; i < finExterior; i++) {
+                minX = Math.min(minX, xy[2 * i]);
+                minY = Math.min(minY, xy[2 * i + 1]);
+                maxX = Math.max(maxX, xy[2 * i]);
+                maxY = Math.max(maxY, xy[2 * i + 1]);
+            }
+            double tamanio = Math.max(maxX - minX, maxY - minY);
+            inversoTamanio = tamanio != 0 ? 32767 / tamanio : 0;
+        }
+        recortar(exterior, 0);
+        return salida;
+    }
+
+    int getIndices() {
+        return triangulos;
+    }
+
+    // --- Armado del anillo ---
+
+    /**
+     * Enlaza los puntos [inicio, fin) como anillo; el exterior queda en sentido horario y los
+     * agujeros en antihorario, que es lo que espera el recorte.
+     */
+    private int anillo(double[] xy, int inicio, int fin, boolean horario) {
+        int ultimo = NULO;
+        if (horario == (areaFirmada(xy, inicio, fin) > 0)) {
+            for (int i = inicio; i < fin; i++) {
+                ultimo = insertar(i, xy[2 * i], xy[2 * i + 1], ultimo);
+            }
+        } else {
+            for (int i = fin - 1; i >= inicio; i--) {
+                ultimo = insertar(i, xy[2 * i], xy[2 * i + 1], ultimo);
+            }
+        }
+        if (ultimo != NULO && iguales(ultimo, siguiente[ultimo])) {
+            int s = siguiente[ultimo];
+            quitar(ultimo);
+            ultimo = s;
+        }
+        return ultimo;
+    }
+
+    /** Positiva si el anillo va en sentido horario (con y hacia arriba). */
+    private static double areaFirmada(double[] xy, int inicio, int fin) {
+        double suma = 0;
+        for (int i = inicio, j = fin - 1; i < fin; j = i++) {
+            suma += (xy[2 * j] - xy[2 * i]) * (xy[2 * i + 1] + xy[2 * j + 1]);
+        }
+        return suma;
+    }
+
+    private int eliminarAgujeros(double[] xy, int[] inicioAgujeros, int agujeros, int fin, int exterior) {
+        if (cola.length < agujeros) {
+            cola = new int[Math.max(agujeros, cola.length * 2)];
+        }
+        int n = 0;
+        for (int h = 0; h < agujeros; h++) {
+            int desde = inicioAgujeros[h];
+            int hasta = h + 1 < agujeros ? inicioAgujeros[h + 1] : fin;
+            int lista = anillo(xy, desde, hasta, false);
+            if (lista == NULO) {
+                continue;
+            }
+            if (lista == siguiente[lista]) {
+                steiner[lista] = true;
+            }
+            cola[n++] = masIzquierdo(lista);
+        }
+        // De izquierda a derecha: cada puente encuentra ya unidos los agujeros que tiene a la izquierda
+        ordenarPorX(n);
+        for (int h = 0; h < n; h++) {
+            exterior = eliminarAgujero(cola[h], exterior);
+        }
+        return exterior;
+    }
+
+    private void ordenarPorX(int n) {
+        Integer[] orden = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            orden[i] = cola[i];
+        }
+        Arrays.sort(orden, (a, b) -> Double.compare(x[a], x[b]));
+        for (int i = 0; i < n; i++) {
+            cola[i] = orden[i];
+        }
+    }
+
+    private int eliminarAgujero(int agujero, int exterior) {
+        int puente = indexado ? buscarPuenteIndexado(agujero) : buscarPuente(agujero, exterior);
+        if (puente == NULO) {
+            return exterior;
+        }
+        if (indexado) {
+            int p = agujero;
+            do {
+                anotar(p);
+                p = siguiente[p];
+            } while (p != agujero);
+        }
+        int vuelta = partir(puente, agujero);
+        filtrar(vuelta, siguiente[vuelta]);
+        return filtrar(puente, siguiente[puente]);
+    }
+
+    /**
+     * Vértice del exterior visible desde el punto más a la izquierda del agujero: el del borde
+     * más cercano que corta el rayo hacia la izquierda o, si hay vértices reflejos tapando,
+     * el de menor ángulo con el rayo.
+     */
+    private int buscarPuente(int agujero, int exterior) {
+        double hx = x[agujero];
+        double hy = y[agujero];
+        double qx = Double.NEGATIVE_INFINITY;
+        int m = NULO;
+        int p = exterior;
+        do {
+            int s = siguiente[p];
+            if (hy <= y[p] && hy >= y[s] && y[s] != y[p]) {
+                double cx = x[p] + (hy - y[p]) * (x[s] - x[p]) / (y[s] - y[p]);
+                if (cx <= hx && cx > qx) {
+                    qx = cx;
+                    m = x[p] < x[s] ? p : s;
+                    if (cx == hx) {
+                        return m;
+                    }
+                }
+            }
+            p = s;
+        } while (p != exterior);
+        if (m == NULO) {
+            return NULO;
+        }
+
+        int fin = m;
+        double mx = x[m];
+        double my = y[m];
+        double tanMin = Double.POSITIVE_INFINITY;
+        p = m;
+        do {
+            if (hx >= x[p] && x[p] >= mx && hx != x[p]
+                    && puntoEnTriangulo(hy < my ? hx : qx, hy, mx, my, hy < my ? qx : hx, hy, x[p], y[p])) {
+                double tan = Math.abs(hy - y[p]) / (hx - x[p]);
+                if (localmenteAdentro(p, agujero)
+                        && (tan < tanMin || (tan == tanMin && (x[p] > x[m] || (x[p] == x[m] && sectorContieneSector(m, p)))))) {
+                    m = p;
+                    tanMin = tan;
+                }
+            }
+            p = siguiente[p];
+        } while (p != fin);
+        return m;
+    }
+
+    /**
+     * {@link #buscarPuente(int, int)} mirando solo las aristas de las franjas que cruzan el
+     * rayo y el triángulo de búsqueda.
+     */
+    private int buscarPuenteIndexado(int agujero) {
+        double hx = x[agujero];
+        double hy = y[agujero];
+        double qx = Double.NEGATIVE_INFINITY;
+        int m = NULO;
+        int f = franja(hy);
+        for (int k = 0; k < franjaLargo[f]; k++) {
+            int p = franjaNodos[f][k];
+            if (quitado[p]) {
+                continue;
+            }
+            int s = siguiente[p];
+            if (hy <= y[p] && hy >= y[s] && y[s] != y[p]) {
+                double cx = x[p] + (hy - y[p]) * (x[s] - x[p]) / (y[s] - y[p]);
+                if (cx <= hx && cx > qx) {
+                    qx = cx;
+                    m = x[p] < x[s] ? p : s;
+                    if (cx == hx) {
+                        return m;
+                    }
+                }
+            }
+        }
+        if (m == NULO) {
+            return NULO;
+        }
+
+        double mx = x[m];
+        double my = y[m];
+        double tanMin = Double.POSITIVE_INFINITY;
+        int candidato = m;
+        for (f = franja(Math.min(hy, my)); f <= franja(Math.max(hy, my)); f++) {
+            for (int k = 0; k < franjaLargo[f]; k++) {
+                int p = franjaNodos[f][k];
+                if (quitado[p] || !(hx >= x[p] && x[p] >= mx && hx != x[p])
+                        || !puntoEnTriangulo(hy < my ? hx : qx, hy, mx, my, hy < my ? qx : hx, hy, x[p], y[p])) {
+                    continue;
+                }
+                double tan = Math.abs(hy - y[p]) / (hx - x[p]);
+                if (localmenteAdentro(p, agujero) && (tan < tanMin || (tan == tanMin
+                        && (x[p] > x[candidato] || (x[p] == x[candidato] && sectorContieneSector(candidato, p)))))) {
+                    candidato = p;
+                    tanMin = tan;
+                }
+            }
+        }
+        return candidato;
+    }
+
+    private void indexarAristas(double[] xy, int inicio, int fin, int exterior) {
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = inicio; i < fin; i++) {
+            minY = Math.min(minY, xy[2 * i + 1]);
+            maxY = Math.max(maxY, xy[2 * i + 1]);
+        }
+        franjas = Math.max(1, Math.min((fin - inicio) / PUNTOS_POR_FRANJA, MAXIMO_FRANJAS));
+        franjaMinY = minY;
+        franjaAlto = maxY > minY ? (maxY - minY) / franjas : 1;
+        if (franjaNodos.length < franjas) {
+            franjaNodos = Arrays.copyOf(franjaNodos, franjas);
+            franjaLargo = new int[franjas];
+        }
+        Arrays.fill(franjaLargo, 0, franjas, 0);
+        indexado = true;
+        int p = exterior;
+        do {
+            anotar(p);
+            p = siguiente[p];
+        } while (p != exterior);
+    }
+
+    /** Anota la arista p → siguiente en las franjas que cruza. */
+    private void anotar(int p) {
+        int s = siguiente[p];
+        int hasta = franja(Math.max(y[p], y[s]));
+        for (int f = franja(Math.min(y[p], y[s])); f <= hasta; f++) {
+            int[] lista = franjaNodos[f];
+            if (lista == null) {
+                lista = new int[16];
+                franjaNodos[f] = lista;
+            } else if (franjaLargo[f] == lista.length) {
+                lista = Arrays.copyOf(lista, lista.length * 2);
+                franjaNodos[f] = lista;
+            }
+            lista[franjaLargo[f]++] = p;
+        }
+    }
+
+    private int franja(double py) {
+        int f = (int) ((py - franjaMinY) / franjaAlto);
+        return Math.max(0, Math.min(franjas - 1, f));
+    }
+
+    private boolean sectorContieneSector(int m, int p) {
+        return area(anterior[m], m, anterior[p]) < 0 && area(siguiente[p], m, siguiente[m]) < 0;
+    }
+
+    private int masIzquierdo(int inicio) {
+        int p = inicio;
+        int izquierdo = inicio;
+        do {
+            if (x[p] < x[izquierdo] || (x[p] == x[izquierdo] && y[p] < y[izquierdo])) {
+                izquierdo = p;
+            }
+            p = siguiente[p];
+        } while (p != inicio);
+        return izquierdo;
+    }
+
+    // --- Recorte de orejas ---
+
+    private void recortar(int oreja, int pasada) {
+        if (oreja == NULO) {
+            return;
+        }
+        if (pasada == 0 && inversoTamanio != 0) {
+            indexarZ(oreja);
+        }
+        int parada = oreja;
+        while (anterior[oreja] != siguiente[oreja]) {
+            vuelta();
+            int a = anterior[oreja];
+            int c = siguiente[oreja];
+            if (inversoTamanio != 0 ? esOrejaIndexada(oreja) : esOreja(oreja)) {
+                agregarTriangulo(indice[a], indice[oreja], indice[c]);
+                quitar(oreja);
+                oreja = siguiente[c];
+                parada = oreja;
+                continue;
+            }
+            oreja = c;
+            if (oreja == parada) {
+                if (pasada == 0) {
+                    recortar(filtrar(oreja, NULO), 1);
+                } else if (pasada == 1) {
+                    recortar(curarIntersecciones(filtrar(oreja, NULO)), 2);
+                } else {
+                    partirYRecortar(oreja);
+                }
+                break;
+            }
+        }
+    }
+
+    private boolean esOreja(int oreja) {
+        int a = anterior[oreja];
+        int b = oreja;
+        int c = siguiente[oreja];
+        if (area(a, b, c) >= 0) {
+            return false;
+        }
+        double ax = x[a], ay = y[a], bx = x[b], by = y[b], cx = x[c], cy = y[c];
+        double x0 = Math.min(ax, Math.min(bx, cx)), y0 = Math.min(ay, Math.min(by, cy));
+        double x1 = Math.max(ax, Math.max(bx, cx)), y1 = Math.max(ay, Math.max(by, cy));
+        int p = siguiente[c];
+        while (p != a) {
+            if (x[p] >= x0 && x[p] <= x1 && y[p] >= y0 && y[p] <= y1
+                    && puntoEnTriangulo(ax, ay, bx, by, cx, cy, x[p], y[p])
+                    && area(anterior[p], p, siguiente[p]) >= 0) {
+                return false;
+            }
+            p = siguiente[p];
+        }
+        return true;
+    }
+
+    /**
+     * Como {@link #esOreja(int)}, pero recorre solo los vértices cuyo código z cae en el
+     * rectángulo de la oreja, hacia los dos lados de la lista ordenada.
+     */
+    private boolean esOrejaIndexada(int oreja) {
+        int a = anterior[oreja];
+        int b = oreja;
+        int c = siguiente[oreja];
+        if (area(a, b, c) >= 0) {
+            return false;
+        }
+        double ax = x[a], ay = y[a], bx = x[b], by = y[b], cx = x[c], cy = y[c];
+        double x0 = Math.min(ax, Math.min(bx, cx)), y0 = Math.min(ay, Math.min(by, cy));
+        double x1 = Math.max(ax, Math.max(bx, cx)), y1 = Math.max(ay, Math.max(by, cy));
+        int zMin = codigoZ(x0, y0);
+        int zMax = codigoZ(x1, y1);
+        int p = anteriorZ[oreja];
+        int n = siguienteZ[oreja];
+        while (p != NULO && z[p] >= zMin && n != NULO && z[n] <= zMax) {
+            if (bloquea(p, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy)) {
+                return false;
+            }
+            p = anteriorZ[p];
+            if (bloquea(n, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy)) {
+                return false;
+            }
+            n = siguienteZ[n];
+        }
+        while (p != NULO && z[p] >= zMin) {
+            if (bloquea(p, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy)) {
+                return false;
+            }
+            p = anteriorZ[p];
+        }
+        while (n != NULO && z[n] <= zMax) {
+            if (bloquea(n, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy)) {
+                return false;
+            }
+            n = siguienteZ[n];
+        }
+        return true;
+    }
+
+    private boolean bloquea(int p, int a, int c, double x0, double y0, double x1, double y1,
+            double ax, double ay, double bx, double by, double cx, double cy) {
+        return x[p] >= x0 && x[p] <= x1 && y[p] >= y0 && y[p] <= y1 && p != a && p != c
+            && puntoEnTriangulo(ax, ay, bx, by, cx, cy, x[p], y[p])
+            && area(anterior[p], p, siguiente[p]) >= 0;
+    }
+
+    /**
+     * Recorta los triángulos que forman dos vértices seguidos cuyos tramos vecinos se cruzan.
+     */
+    private int curarIntersecciones(int inicio) {
+        int p = inicio;
+        do {
+            int a = anterior[p];
+            int b = siguiente[siguiente[p]];
+            if (!iguales(a, b) && seCortan(a, p, siguiente[p], b) && localmenteAdentro(a, b) && localmenteAdentro(b, a)) {
+                agregarTriangulo(indice[a], indice[p], indice[b]);
+                quitar(siguiente[p]);
+                quitar(p);
+                p = b;
+                inicio = b;
+            }
+            p = siguiente[p];
+        } while (p != inicio);
+        return filtrar(p, NULO);
+    }
+
+    /**
+     * @throws PresupuestoExcedidoException si pasó el tiempo de la malla o se interrumpió el hilo
+     */
+    private void vuelta() {
+        if (++vueltas == INTERVALO_PRESUPUESTO) {
+            vueltas = 0;
+            control.verificar(0);
+        }
+    }
+
+    /**
+     * Último recurso: busca una diagonal válida, parte el anillo en dos y recorta cada mitad.
+     */
+    private void partirYRecortar(int inicio) {
+        int a = inicio;
+        do {
+            int b = siguiente[siguiente[a]];
+            while (b != anterior[a]) {
+                vuelta();
+                if (indice[a] != indice[b] && diagonalValida(a, b)) {
+                    int c = partir(a, b);
+                    a = filtrar(a, siguiente[a]);
+                    c = filtrar(c, siguiente[c]);
+                    recortar(a, 0);
+                    recortar(c, 0);
+                    return;
+                }
+                b = siguiente[b];
+            }
+            a = siguiente[a];
+        } while (a != inicio);
+    }
+
+    /**
+     * Quita puntos repetidos y vértices colineales; devuelve un nodo que sigue en el anillo.
+     */
+    private int filtrar(int inicio, int fin) {
+        if (inicio == NULO) {
+            return inicio;
+        }
+        if (fin == NULO) {
+            fin = inicio;
+        }
+        int p = inicio;
+        boolean otraVez;
+        do {
+            otraVez = false;
+            if (!steiner[p] && (iguales(p, siguiente[p]) || area(anterior[p], p, siguiente[p]) == 0)) {
+                int a = anterior[p];
+                quitar(p);
+                p = a;
+                fin = a;
+                if (p == siguiente[p]) {
+                    break;
+                }
+                otraVez = true;
+            } else {
+                p = siguiente[p];
+            }
+        } while (otraVez || p != fin);
+        return fin;
+    }
+
+    // --- Índice por curva Z ---
+
+    private void indexarZ(int inicio) {
+        int p = inicio;
+        do {
+            if (z[p] == 0) {
+                z[p] = codigoZ(x[p], y[p]);
+            }
+            anteriorZ[p] = anterior[p];
+            siguienteZ[p] = siguiente[p];
+            p = siguiente[p];
+        } while (p != inicio);
+        siguienteZ[anteriorZ[p]] = NULO;
+        anteriorZ[p] = NULO;
+        ordenarZ(p);
+    }
+
+    /**
+     * Merge sort de la lista enlazada por z (sin memoria extra).
+     */
+    private int ordenarZ(int lista) {
+        int tamanio = 1;
+        int fusiones;
+        do {
+            int p = lista;
+            lista = NULO;
+            int ultimo = NULO;
+            fusiones = 0;
+            while (p != NULO) {
+                fusiones++;
+                int q = p;
+                int tamanioP = 0;
+                for (int i = 0; i < tamanio; i++) {
+                    tamanioP++;
+                    q = siguienteZ[q];
+                    if (q == NULO) {
+                        break;
+                    }
+                }
+                int tamanioQ = tamanio;
+                while (tamanioP > 0 || (tamanioQ > 0 && q != NULO)) {
+                    int e;
+                    if (tamanioP != 0 && (tamanioQ == 0 || q == NULO || z[p] <= z[q])) {
+                        e = p;
+                        p = siguienteZ[p];
+                        tamanioP--;
+                    } else {
+                        e = q;
+                        q = siguienteZ[q];
+                        tamanioQ--;
+                    }
+                    if (ultimo != NULO) {
+                        siguienteZ[ultimo] = e;
+                    } else {
+                        lista = e;
+                    }
+                    anteriorZ[e] = ultimo;
+                    ultimo = e;
+                }
+                p = q;
+            }
+            siguienteZ[ultimo] = NULO;
+            tamanio *= 2;
+        } while (fusiones > 1);
+        return lista;
+    }
+
+    /** Intercala los bits de x e y (15 bits cada uno) para ordenar por curva Z. */
+    private int codigoZ(double px, double py) {
+        int ix = (int) ((px - minX) * inversoTamanio);
+        int iy = (int) ((py - minY) * inversoTamanio);
+        ix = (ix | (ix << 8)) & 0x00FF00FF;
+        ix = (ix | (ix << 4)) & 0x0F0F0F0F;
+        ix = (ix | (ix << 2)) & 0x33333333;
+        ix = (ix | (ix << 1)) & 0x55555555;
+        iy = (iy | (iy << 8)) & 0x00FF00FF;
+        iy = (iy | (iy << 4)) & 0x0F0F0F0F;
+        iy = (iy | (iy << 2)) & 0x33333333;
+        iy = (iy | (iy << 1)) & 0x55555555;
+        return ix | (iy << 1);
+    }
+
+    // --- Predicados ---
+
+    /** Doble del área firmada de pqr, con el signo cambiado: negativa si p, q, r giran en sentido antihorario. */
+    private double area(int p, int q, int r) {
+        return (y[q] - y[p]) * (x[r] - x[q]) - (x[q] - x[p]) * (y[r] - y[q]);
+    }
+
+    private boolean iguales(int p, int q) {
+        return x[p] == x[q] && y[p] == y[q];
+    }
+
+    private static boolean puntoEnTriangulo(double ax, double ay, double bx, double by, double cx, double cy,
+            double px, double py) {
+        return (cx - px) * (ay - py) >= (ax - px) * (cy - py)
+            && (ax - px) * (by - py) >= (bx - px) * (ay - py)
+            && (bx - px) * (cy - py) >= (cx - px) * (by - py);
+    }
+
+    private boolean diagonalValida(int a, int b) {
+        return indice[siguiente[a]] != indice[b] && indice[anterior[a]] != indice[b] && !cortaAlPoligono(a, b)
+            && (localmenteAdentro(a, b) && localmenteAdentro(b, a) && medioAdentro(a, b)
+                    && (area(anterior[a], a, anterior[b]) != 0 || area(a, anterior[b], b) != 0)
+                || iguales(a, b) && area(anterior[a], a, siguiente[a]) > 0 && area(anterior[b], b, siguiente[b]) > 0);
+    }
+
+    private boolean seCortan(int p1, int q1, int p2, int q2) {
+        int o1 = signo(area(p1, q1, p2));
+        int o2 = signo(area(p1, q1, q2));
+        int o3 = signo(area(p2, q2, p1));
+        int o4 = signo(area(p2, q2, q1));
+        if (o1 != o2 && o3 != o4) {
+            return true;
+        }
+        return (o1 == 0 && enSegmento(p1, p2, q1)) || (o2 == 0 && enSegmento(p1, q2, q1))
+            || (o3 == 0 && enSegmento(p2, p1, q2)) || (o4 == 0 && enSegmento(p2, q1, q2));
+    }
+
+    /** Para p, q, r colineales: si q cae dentro del rectángulo de pr. */
+    private boolean enSegmento(int p, int q, int r) {
+        return x[q] <= Math.max(x[p], x[r]) && x[q] >= Math.min(x[p], x[r])
+            && y[q] <= Math.max(y[p], y[r]) && y[q] >= Math.min(y[p], y[r]);
+    }
+
+    private static int signo(double v) {
+        return v > 0 ? 1 : v < 0 ? -1 : 0;
+    }
+
+    private boolean cortaAlPoligono(int a, int b) {
+        int p = a;
+        do {
+            int s = siguiente[p];
+            if (indice[p] != indice[a] && indice[s] != indice[a] && indice[p] != indice[b] && indice[s] != indice[b]
+                    && seCortan(p, s, a, b)) {
+                return true;
+            }
+            p = s;
+        } while (p != a);
+        return false;
+    }
+
+    /** Si la diagonal ab sale de a hacia el interior del polígono. */
+    private boolean localmenteAdentro(int a, int b) {
+        return area(anterior[a], a, siguiente[a]) < 0
+            ? area(a, b, siguiente[a]) >= 0 && area(a, anterior[a], b) >= 0
+            : area(a, b, anterior[a]) < 0 || area(a, siguiente[a], b) < 0;
+    }
+
+    private boolean medioAdentro(int a, int b) {
+        int p = a;
+        boolean adentro = false;
+        double px = (x[a] + x[b]) / 2;
+        double py = (y[a] + y[b]) / 2;
+        do {
+            int s = siguiente[p];
+            if ((y[p] > py) != (y[s] > py) && y[s] != y[p] && px < (x[s] - x[p]) * (py - y[p]) / (y[s] - y[p]) + x[p]) {
+                adentro = !adentro;
+            }
+            p = s;
+        } while (p != a);
+        return adentro;
+    }
+
+    // --- Nodos ---
+
+    /**
+     * Une a con b por una diagonal y separa el anillo en dos; devuelve la copia de b que
+     * queda en el segundo anillo.
+     */
+    private int partir(int a, int b) {
+        int a2 = nuevoNodo(indice[a], x[a], y[a]);
+        int b2 = nuevoNodo(indice[b], x[b], y[b]);
+        int an = siguiente[a];
+        int bp = anterior[b];
+        siguiente[a] = b;
+        anterior[b] = a;
+        siguiente[a2] = an;
+        anterior[an] = a2;
+        siguiente[b2] = a2;
+        anterior[a2] = b2;
+        siguiente[bp] = b2;
+        anterior[b2] = bp;
+        if (indexado) {
+            anotar(a);
+            anotar(a2);
+            anotar(b2);
+            anotar(bp);
+        }
+        return b2;
+    }
+
+    private int insertar(int i, double px, double py, int ultimo) {
+        int p = nuevoNodo(i, px, py);
+        if (ultimo == NULO) {
+            anterior[p] = p;
+            siguiente[p] = p;
+        } else {
+            siguiente[p] = siguiente[ultimo];
+            anterior[p] = ultimo;
+            anterior[siguiente[ultimo]] = p;
+            siguiente[ultimo] = p;
+        }
+        return p;
+    }
+
+    private void quitar(int p) {
+        anterior[siguiente[p]] = anterior[p];
+        siguiente[anterior[p]] = siguiente[p];
+        quitado[p] = true;
+        if (indexado) {
+            anotar(anterior[p]);
+        }
+        if (anteriorZ[p] != NULO) {
+            siguienteZ[anteriorZ[p]] = siguienteZ[p];
+        }
+        if (siguienteZ[p] != NULO) {
+            anteriorZ[siguienteZ[p]] = anteriorZ[p];
+        }
+    }
+
+    private int nuevoNodo(int i, double px, double py) {
+        if (nodos == indice.length) {
+            int n = nodos * 2;
+            indice = Arrays.copyOf(indice, n);
+            x = Arrays.copyOf(x, n);
+            y = Arrays.copyOf(y, n);
+            anterior = Arrays.copyOf(anterior, n);
+            siguiente = Arrays.copyOf(siguiente, n);
+            z = Arrays.copyOf(z, n);
+            anteriorZ = Arrays.copyOf(anteriorZ, n);
+            siguienteZ = Arrays.copyOf(siguienteZ, n);
+            steiner = Arrays.copyOf(steiner, n);
+            quitado = Arrays.copyOf(quitado, n);
+        }
+        int p = nodos++;
+        indice[p] = i;
+        x[p] = px;
+        y[p] = py;
+        z[p] = 0;
+        anteriorZ[p] = NULO;
+        siguienteZ[p] = NULO;
+        steiner[p] = false;
+        quitado[p] = false;
+        return p;
+    }
+
+    private void agregarTriangulo(int a, int b, int c) {
+        if (triangulos + 3 > salida.length) {
+            salida = Arrays.copyOf(salida, Math.max(salida.length * 2, triangulos + 3));
+        }
+        salida[triangulos++] = a;
+        salida[triangulos++] = b;
+        salida[triangulos++] = c;
+    }
+
+}
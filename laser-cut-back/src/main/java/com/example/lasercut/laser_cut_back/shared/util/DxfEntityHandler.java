@@ -0,0 +1,37 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+/**
+ * Receptor de la geometría que emite {@link DxfStreamReader}.
+ *
+ * Todas las coordenadas llegan en el sistema del dibujo (WCS), con los bloques ya expandidos.
+ * Los arreglos de polilíneas y splines son buffers reutilizados por el lector: solo son
+ * válidos durante la llamada y solo las primeras {@code n} posiciones.
+ */
+public interface DxfEntityHandler {
+
+    void linea(double x1, double y1, double x2, double y2);
+
+    /**
+     * Arco en sentido antihorario desde anguloInicio hasta anguloFin, en grados.
+     */
+    void arco(double cx, double cy, double radio, double anguloInicio, double anguloFin);
+
+    void circulo(double cx, double cy, double radio);
+
+    /**
+     * Polilínea con bulge por vértice (tangente de un cuarto del ángulo del tramo que sale de ese vértice).
+     */
+    void polilinea(double[] xs, double[] ys, double[] bulges, int n, boolean cerrada);
+
+    /**
+     * Elipse con eje mayor relativo al centro; el eje menor es el mayor rotado 90° y escalado por ratio.
+     * Los parámetros están en radianes y recorren la elipse en sentido antihorario.
+     */
+    void elipse(double cx, double cy, double ejeMayorX, double ejeMayorY, double ratio, double paramInicio, double paramFin);
+
+    /**
+     * Spline ya aproximada por puntos.
+     */
+    void spline(double[] xs, double[] ys, int n, boolean cerrada);
+
+}
@@ -0,0 +1,358 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Geometría grabada en arreglos primitivos, sin un objeto por entidad.
+ *
+ * Cada primitiva ocupa un código en {@code tipos} y sus valores consecutivos en {@code datos}.
+ * Se usa para guardar el contenido de los bloques (y volver a emitirlo con la transformación
+ * de cada INSERT que los referencia) y el dibujo ya expandido de {@link DxfAnalysis}.
+ */
+public class DxfGeometry implements DxfEntityHandler {
+
+    static final byte LINEA = 1;
+    static final byte ARCO = 2;
+    static final byte CIRCULO = 3;
+    static final byte POLILINEA = 4;
+    static final byte ELIPSE = 5;
+    static final byte SPLINE = 6;
+    static final byte INSERT = 7;
+
+    private byte[] tipos = new byte[64];
+    private int cantidadTipos;
+    private double[] datos = new double[256];
+    private int cantidadDatos;
+    private final List<String> nombresBloque = new ArrayList<>();
+
+    private double baseX;
+    private double baseY;
+
+    // Posición en datos de cada primitiva; se calcula la primera vez que se pide un lector
+    private volatile int[] posiciones;
+
+    public int getCantidadPrimitivas() {
+        return cantidadTipos;
+    }
+
+    public boolean isVacia() {
+        return cantidadTipos == 0;
+    }
+
+    /**
+     * Memoria aproximada que ocupan los arreglos grabados, para acotar cachés.
+     */
+    public long getTamanioBytes() {
+        return tipos.length + (long) datos.length * Double.BYTES;
+    }
+
+    double getBaseX() {
+        return baseX;
+    }
+
+    double getBaseY() {
+        return baseY;
+    }
+
+    void setBase(double baseX, double baseY) {
+        this.baseX = baseX;
+        this.baseY = baseY;
+    }
+
+    @Override
+    public void linea(double x1, double y1, double x2, double y2) {
+        agregarTipo(LINEA);
+        agregarDatos(x1, y1, x2, y2);
+    }
+
+    @Override
+    public void arco(double cx, double cy, double radio, double anguloInicio, double anguloFin) {
+        agregarTipo(ARCO);
+        asegurarDatos(5);
+        datos[cantidadDatos++] = cx;
+        datos[cantidadDatos++] = cy;
+        datos[cantidadDatos++] = radio;
+        datos[cantidadDatos++] = anguloInicio;
+        datos[cantidadDatos++] = anguloFin;
+    }
+
+    @Override
+    public void circulo(double cx, double cy, double radio) {
+        agregarTipo(CIRCULO);
+        asegurarDatos(3);
+        datos[cantidadDatos++] = cx;
+        datos[cantidadDatos++] = cy;
+        datos[cantidadDatos++] = radio;
+    }
+
+    @Override
+    public void polilinea(double[] pxs, double[] pys, double[] pbs, int n, boolean cerrada) {
+        agregarTipo(POLILINEA);
+        asegurarDatos(2 + 3 * n);
+        datos[cantidadDatos++] = n;
+        datos[cantidadDatos++] = cerrada ? 1 : 0;
+        for (int i = 0; i < n; i++) {
+            datos[cantidadDatos++] = pxs[i];
+            datos[cantidadDatos++] = pys[i];
+            datos[cantidadDatos++] = pbs[i];
+        }
+    }
+
+    @Override
+    public void elipse(double cx, double cy, double ejeMayorX, double ejeMayorY, double ratio, double paramInicio, double paramFin) {
+        agregarTipo(ELIPSE);
+        asegurarDatos(7);
+        datos[cantidadDatos++] = cx;
+        datos[cantidadDatos++] = cy;
+        datos[cantidadDatos++] = ejeMayorX;
+        datos[cantidadDatos++] = ejeMayorY;
+        datos[cantidadDatos++] = ratio;
+        datos[cantidadDatos++] = paramInicio;
+        datos[cantidadDatos++] = paramFin;
+    }
+
+    @Override
+    public void spline(double[] pxs, double[] pys, int n, boolean cerrada) {
+        agregarTipo(SPLINE);
+        asegurarDatos(2 + 2 * n);
+        datos[cantidadDatos++] = n;
+        datos[cantidadDatos++] = cerrada ? 1 : 0;
+        for (int i = 0; i < n; i++) {
+            datos[cantidadDatos++] = pxs[i];
+            datos[cantidadDatos++] = pys[i];
+        }
+    }
+
+    /**
+     * Referencia a otro bloque; se resuelve recién al reproducir, porque el bloque
+     * puede estar definido más adelante en la sección BLOCKS.
+     */
+    void insert(String nombreBloque, DxfTransform transform) {
+        agregarTipo(INSERT);
+        nombresBloque.add(nombreBloque);
+        asegurarDatos(7);
+        datos[cantidadDatos++] = nombresBloque.size() - 1;
+        datos[cantidadDatos++] = transform.a();
+        datos[cantidadDatos++] = transform.b();
+        datos[cantidadDatos++] = transform.c();
+        datos[cantidadDatos++] = transform.d();
+        datos[cantidadDatos++] = transform.e();
+        datos[cantidadDatos++] = transform.f();
+    }
+
+    /**
+     * Emite la geometría grabada tal cual hacia destino. Solo lee los arreglos, así que
+     * varias reproducciones pueden correr en paralelo sobre la misma geometría.
+     */
+    public void reproducir(DxfEntityHandler destino) {
+        try {
+            reproducir(destino, null, Map.of(), 0, DxfLimites.SIN_LIMITE.iniciar());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Emite la geometría grabada hacia destino. Con transform nulo se emite tal cual. Cada
+     * primitiva y cada INSERT resuelto cuentan como una entidad para los límites.
+     */
+    void reproducir(DxfEntityHandler destino, DxfTransform transform, Map<String, DxfGeometry> bloques,
+            int profundidad, DxfLimites.Control control) throws IOException {
+        Vertices tmp = new Vertices();
+        int p = 0;
+        for (int i = 0; i < cantidadTipos; i++) {
+            control.contar(1);
+            if (tipos[i] != INSERT) {
+                p = emitir(tipos[i], p, destino, transform, tmp);
+                continue;
+            }
+            String nombre = nombresBloque.get((int) datos[p]);
+            DxfGeometry bloque = bloques.get(nombre);
+            if (bloque == null || bloque == this) {
+                p += 7;
+                continue;
+            }
+            // La transformación grabada no incluye el punto base del bloque referenciado
+            double ta = datos[p + 1], tb = datos[p + 2], tc = datos[p + 3], td = datos[p + 4];
+            DxfTransform insercion = new DxfTransform(ta, tb, tc, td,
+                datos[p + 5] - (ta * bloque.baseX + tb * bloque.baseY),
+                datos[p + 6] - (tc * bloque.baseX + td * bloque.baseY));
+            p += 7;
+            if (profundidad >= control.getProfundidadBloques()) {
+                throw new IOException("Anidamiento de bloques demasiado profundo (máximo "
+                    + control.getProfundidadBloques() + " niveles).");
+            }
+            DxfTransform compuesta = transform == null ? insercion : transform.componer(insercion);
+            bloque.reproducir(destino, compuesta, bloques, profundidad + 1, control);
+        }
+    }
+
+    /**
+     * Acceso a las primitivas por índice, para emitirlas en otro orden que el grabado (por
+     * ejemplo, siguiendo el recorrido de los contornos). Solo para geometría ya expandida, sin
+     * INSERT. Cada lector tiene sus propios arreglos temporales: se usa desde un solo hilo.
+     */
+    Lector lector() {
+        int[] pos = posiciones;
+        if (pos == null) {
+            pos = new int[cantidadTipos];
+            int p = 0;
+            for (int i = 0; i < cantidadTipos; i++) {
+                pos[i] = p;
+                p += largo(tipos[i], p);
+            }
+            posiciones = pos;
+        }
+        return new Lector(pos);
+    }
+
+    final class Lector {
+
+        private final int[] posiciones;
+        private final Vertices tmp = new Vertices();
+
+        private Lector(int[] posiciones) {
+            this.posiciones = posiciones;
+        }
+
+        void emitir(int primitiva, DxfEntityHandler destino) {
+            DxfGeometry.this.emitir(tipos[primitiva], posiciones[primitiva], destino, null, tmp);
+        }
+
+    }
+
+    /**
+     * Cantidad de valores que ocupa en datos la primitiva que empieza en p.
+     */
+    private int largo(byte tipo, int p) {
+        return switch (tipo) {
+            case LINEA -> 4;
+            case ARCO -> 5;
+            case CIRCULO -> 3;
+            case POLILINEA -> 2 + 3 * (int) datos[p];
+            case ELIPSE -> 7;
+            case SPLINE -> 2 + 2 * (int) datos[p];
+            case INSERT -> 7;
+            default -> throw new IllegalStateException("Primitiva desconocida: " + tipo);
+        };
+    }
+
+    /**
+     * Emite la primitiva que empieza en p y devuelve la posición de la siguiente.
+     */
+    private int emitir(byte tipo, int p, DxfEntityHandler destino, DxfTransform transform, Vertices tmp) {
+        switch (tipo) {
+            case LINEA -> {
+                if (transform == null) {
+                    destino.linea(datos[p], datos[p + 1], datos[p + 2], datos[p + 3]);
+                } else {
+                    transform.linea(destino, datos[p], datos[p + 1], datos[p + 2], datos[p + 3]);
+                }
+                return p + 4;
+            }
+            case ARCO -> {
+                if (transform == null) {
+                    destino.arco(datos[p], datos[p + 1], datos[p + 2], datos[p + 3], datos[p + 4]);
+                } else {
+                    transform.arco(destino, datos[p], datos[p + 1], datos[p + 2], datos[p + 3], datos[p + 4]);
+                }
+                return p + 5;
+            }
+            case CIRCULO -> {
+                if (transform == null) {
+                    destino.circulo(datos[p], datos[p + 1], datos[p + 2]);
+                } else {
+                    transform.circulo(destino, datos[p], datos[p + 1], datos[p + 2]);
+                }
+                return p + 3;
+            }
+            case POLILINEA -> {
+                int n = (int) datos[p];
+                boolean cerrada = datos[p + 1] != 0;
+                p += 2;
+                tmp.asegurar(n);
+                for (int k = 0; k < n; k++) {
+                    tmp.xs[k] = datos[p++];
+                    tmp.ys[k] = datos[p++];
+                    tmp.bs[k] = datos[p++];
+                }
+                if (transform == null) {
+                    destino.polilinea(tmp.xs, tmp.ys, tmp.bs, n, cerrada);
+                } else {
+                    transform.polilinea(destino, tmp.xs, tmp.ys, tmp.bs, n, cerrada);
+                }
+                return p;
+            }
+            case ELIPSE -> {
+                if (transform == null) {
+                    destino.elipse(datos[p], datos[p + 1], datos[p + 2], datos[p + 3], datos[p + 4], datos[p + 5], datos[p + 6]);
+                } else {
+                    transform.elipse(destino, datos[p], datos[p + 1], datos[p + 2], datos[p + 3], datos[p + 4], datos[p + 5], datos[p + 6]);
+                }
+                return p + 7;
+            }
+            case SPLINE -> {
+                int n = (int) datos[p];
+                boolean cerrada = datos[p + 1] != 0;
+                p += 2;
+                tmp.asegurar(n);
+                for (int k = 0; k < n; k++) {
+                    tmp.xs[k] = datos[p++];
+                    tmp.ys[k] = datos[p++];
+                }
+                if (transform == null) {
+                    destino.spline(tmp.xs, tmp.ys, n, cerrada);
+                } else {
+                    transform.spline(destino, tmp.xs, tmp.ys, n, cerrada);
+                }
+                return p;
+            }
+            default -> throw new IllegalStateException("Primitiva desconocida: " + tipo);
+        }
+    }
+
+    /**
+     * Arreglos temporales para pasar los vértices de polilíneas y splines.
+     */
+    private static final class Vertices {
+
+        private double[] xs = new double[0];
+        private double[] ys = new double[0];
+        private double[] bs = new double[0];
+
+        void asegurar(int n) {
+            if (n > xs.length) {
+                xs = new double[n];
+                ys = new double[n];
+                bs = new double[n];
+            }
+        }
+
+    }
+
+    private void agregarTipo(byte tipo) {
+        if (cantidadTipos == tipos.length) {
+            tipos = Arrays.copyOf(tipos, tipos.length * 2);
+        }
+        tipos[cantidadTipos++] = tipo;
+    }
+
+    private void agregarDatos(double v1, double v2, double v3, double v4) {
+        asegurarDatos(4);
+        datos[cantidadDatos++] = v1;
+        datos[cantidadDatos++] = v2;
+        datos[cantidadDatos++] = v3;
+        datos[cantidadDatos++] = v4;
+    }
+
+    private void asegurarDatos(int extra) {
+        if (cantidadDatos + extra > datos.length) {
+            datos = Arrays.copyOf(datos, Math.max(datos.length * 2, cantidadDatos + extra));
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import com.example.lasercut.laser_cut_back.exception.AnalisisInterrumpidoException;
+import com.example.lasercut.laser_cut_back.exception.BadRequestException;
+
+/**
+ * Límites para leer un DXF, contra archivos armados para trabar el servidor: tamaño,
+ * cantidad de entidades, anidamiento de bloques y tiempo. El tiempo corre desde
+ * {@link #iniciar()}.
+ *
+ * Las entidades se cuentan como las lee el parser y, además, cada primitiva que sale de
+ * expandir un INSERT y cada copia de un arreglo de INSERT: un archivo chico con bloques
+ * anidados puede expandirse a millones de primitivas.
+ *
+ * Un límite &lt;= 0 no se controla, salvo la profundidad de bloques, que siempre tiene tope.
+ */
+public class DxfLimites {
+
+    public static final int PROFUNDIDAD_BLOQUES_PREDETERMINADA = 16;
+
+    public static final DxfLimites SIN_LIMITE = new DxfLimites(0, 0, PROFUNDIDAD_BLOQUES_PREDETERMINADA, 0);
+
+    /** Cada cuántas entidades o tokens se mira el reloj. */
+    private static final int INTERVALO_RELOJ = 4096;
+
+    private final long bytes;
+    private final long entidades;
+    private final int profundidadBloques;
+    private final long milisegundos;
+
+    public DxfLimites(long bytes, long entidades, int profundidadBloques, long milisegundos) {
+        this.bytes = bytes;
+        this.entidades = entidades;
+        this.profundidadBloques = profundidadBloques > 0 ? profundidadBloques : PROFUNDIDAD_BLOQUES_PREDETERMINADA;
+        this.milisegundos = milisegundos;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getEntidades() {
+        return entidades;
+    }
+
+    public int getProfundidadBloques() {
+        return profundidadBloques;
+    }
+
+    public long getMilisegundos() {
+        return milisegundos;
+    }
+
+    /**
+     * @throws BadRequestException si el archivo supera el tamaño máximo
+     */
+    public void verificarBytes(long leidos) {
+        if (bytes > 0 && leidos > bytes) {
+            throw new BadRequestException("El archivo DXF supera el tamaño máximo de "
+                + bytes / (1024 * 1024) + " MB.");
+        }
+    }
+
+    /**
+     * Empieza a contar el tiempo; cada lectura lleva su propio control.
+     */
+    public Control iniciar() {
+        return new Control(this, milisegundos > 0 ? System.nanoTime() + milisegundos * 1_000_000L : 0);
+    }
+
+    public static final class Control {
+
+        private final DxfLimites limites;
+        private final long vence;
+        private long entidades;
+        private int pasos;
+
+        private Control(DxfLimites limites, long vence) {
+            this.limites = limites;
+            this.vence = vence;
+        }
+
+        int getProfundidadBloques() {
+            return limites.profundidadBloques;
+        }
+
+        /**
+         * Suma entidades leídas o expandidas.
+         *
+         * @throws BadRequestException si se supera alguno de los límites
+         */
+        void contar(long cantidad) {
+            entidades += cantidad;
+            if (limites.entidades > 0 && entidades > limites.entidades) {
+                throw new BadRequestException("El archivo DXF supera el máximo de " + limites.entidades
+                    + " entidades (contando los bloques expandidos).");
+            }
+            avanzar();
+        }
+
+        /**
+         * Un paso de lectura o del análisis que la sigue (unir extremos, recorrer y anidar
+         * lazos); cada tantos pasos se mira el reloj y si el hilo fue interrumpido.
+         *
+         * @throws AnalisisInterrumpidoException si pasó el tiempo o se interrumpió la lectura
+         */
+        void avanzar() {
+            if (++pasos < INTERVALO_RELOJ) {
+                return;
+            }
+            pasos = 0;
+            if (vence != 0 && System.nanoTime() - vence > 0) {
+                throw new AnalisisInterrumpidoException("El archivo DXF tarda demasiado en procesarse (más de "
+                    + limites.milisegundos + " ms).");
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new AnalisisInterrumpidoException("Se interrumpió el procesamiento del archivo DXF.");
+            }
+        }
+
+    }
+
+}
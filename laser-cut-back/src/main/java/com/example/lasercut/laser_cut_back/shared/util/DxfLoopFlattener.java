@@ -0,0 +1,184 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.util.Arrays;
+
+/**
+ * Aproxima lazos cerrados por polígonos: recibe las primitivas de un lazo en el orden del
+ * recorrido (invertidas cuando corresponde) y acumula sus puntos en un único arreglo, un
+ * anillo detrás del otro.
+ *
+ * Las curvas se parten en tramos cuya flecha no supera la tolerancia, con un mínimo de ocho
+ * tramos por vuelta para que los agujeros chicos sigan viéndose redondos y como máximo el
+ * paso estándar de {@link DxfMath#segmentos(double)}.
+ */
+final class DxfLoopFlattener implements DxfEntityHandler {
+
+    private static final double PASO_MAXIMO = Math.PI / 4;
+
+    private final double tolerancia;
+    private double[] xy = new double[1024];
+    private int puntos;
+    private int inicioAnillo;
+    private boolean invertido;
+
+    DxfLoopFlattener(double tolerancia) {
+        this.tolerancia = tolerancia;
+    }
+
+    void empezarAnillo() {
+        inicioAnillo = puntos;
+    }
+
+    void setInvertido(boolean invertido) {
+        this.invertido = invertido;
+    }
+
+    /**
+     * Cierra el anillo en curso y lo deja en el sentido pedido. Si quedó degenerado (menos de
+     * tres puntos o sin área) se descarta y devuelve false.
+     */
+    boolean cerrarAnillo(boolean antihorario) {
+        if (puntos - inicioAnillo > 1 && xy[2 * (puntos - 1)] == xy[2 * inicioAnillo]
+                && xy[2 * (puntos - 1) + 1] == xy[2 * inicioAnillo + 1]) {
+            puntos--;
+        }
+        double area = 0;
+        for (int i = inicioAnillo, j = puntos - 1; i < puntos; j = i++) {
+            area += xy[2 * j] * xy[2 * i + 1] - xy[2 * i] * xy[2 * j + 1];
+        }
+        if (puntos - inicioAnillo < 3 || area == 0 || !Double.isFinite(area)) {
+            puntos = inicioAnillo;
+            return false;
+        }
+        if ((area > 0) != antihorario) {
+            for (int i = inicioAnillo, j = puntos - 1; i < j; i++, j--) {
+                double tx = xy[2 * i], ty = xy[2 * i + 1];
+                xy[2 * i] = xy[2 * j];
+                xy[2 * i + 1] = xy[2 * j + 1];
+                xy[2 * j] = tx;
+                xy[2 * j + 1] = ty;
+            }
+        }
+        return true;
+    }
+
+    double[] getXy() {
+        return xy;
+    }
+
+    int getPuntos() {
+        return puntos;
+    }
+
+    @Override
+    public void linea(double x1, double y1, double x2, double y2) {
+        if (invertido) {
+            punto(x2, y2);
+            punto(x1, y1);
+        } else {
+            punto(x1, y1);
+            punto(x2, y2);
+        }
+    }
+
+    @Override
+    public void arco(double cx, double cy, double radio, double anguloInicio, double anguloFin) {
+        curva(cx, cy, radio, 0, 1, Math.toRadians(anguloInicio), Math.toRadians(DxfMath.barrido(anguloInicio, anguloFin)));
+    }
+
+    @Override
+    public void circulo(double cx, double cy, double radio) {
+        curva(cx, cy, radio, 0, 1, 0, 2 * Math.PI);
+    }
+
+    @Override
+    public void polilinea(double[] xs, double[] ys, double[] bulges, int n, boolean cerrada) {
+        if (n < 2) {
+            return;
+        }
+        if (invertido) {
+            for (int i = n - 2; i >= 0; i--) {
+                tramoPolilinea(xs[i + 1], ys[i + 1], xs[i], ys[i], -bulges[i]);
+            }
+            return;
+        }
+        int tramos = cerrada ? n : n - 1;
+        for (int i = 0; i < tramos; i++) {
+            int j = i + 1 == n ? 0 : i + 1;
+            tramoPolilinea(xs[i], ys[i], xs[j], ys[j], bulges[i]);
+        }
+    }
+
+    @Override
+    public void elipse(double cx, double cy, double ejeMayorX, double ejeMayorY, double ratio, double paramInicio, double paramFin) {
+        curva(cx, cy, ejeMayorX, ejeMayorY, ratio, paramInicio, DxfMath.barridoRadianes(paramInicio, paramFin));
+    }
+
+    @Override
+    public void spline(double[] xs, double[] ys, int n, boolean cerrada) {
+        for (int k = 0; k < n; k++) {
+            int i = invertido ? n - 1 - k : k;
+            punto(xs[i], ys[i]);
+        }
+        if (cerrada && n > 1) {
+            punto(xs[invertido ? n - 1 : 0], ys[invertido ? n - 1 : 0]);
+        }
+    }
+
+    private void tramoPolilinea(double x1, double y1, double x2, double y2, double bulge) {
+        punto(x1, y1);
+        if (bulge != 0 && (x1 != x2 || y1 != y2)) {
+            // Centro sobre la mediatriz de la cuerda; el barrido tiene el signo del bulge
+            double barrido = 4 * Math.atan(bulge);
+            double k = (1 - bulge * bulge) / (4 * bulge);
+            double cx = (x1 + x2) / 2 - k * (y2 - y1);
+            double cy = (y1 + y2) / 2 + k * (x2 - x1);
+            double radio = Math.hypot(x1 - cx, y1 - cy);
+            double inicio = Math.atan2(y1 - cy, x1 - cx);
+            int n = tramos(radio, Math.abs(barrido));
+            for (int i = 1; i < n; i++) {
+                double t = inicio + barrido * i / n;
+                punto(cx + radio * Math.cos(t), cy + radio * Math.sin(t));
+            }
+        }
+        punto(x2, y2);
+    }
+
+    /**
+     * Arco de P(t) = C + (mx·cos t − ratio·my·sen t, my·cos t + ratio·mx·sen t), el mismo
+     * parámetro que usa {@link DxfLoopIndex}; con mx = r, my = 0 y ratio = 1 es un arco circular.
+     */
+    private void curva(double cx, double cy, double mx, double my, double ratio, double t0, double barrido) {
+        double radio = Math.hypot(mx, my) * Math.max(1, ratio);
+        int n = tramos(radio, barrido);
+        for (int k = 0; k <= n; k++) {
+            double t = t0 + barrido * (invertido ? n - k : k) / n;
+            double cos = Math.cos(t);
+            double sin = Math.sin(t);
+            punto(cx + mx * cos - ratio * my * sin, cy + my * cos + ratio * mx * sin);
+        }
+    }
+
+    private int tramos(double radio, double barrido) {
+        int minimo = Math.max(1, (int) Math.ceil(barrido / PASO_MAXIMO - 1e-9));
+        int maximo = DxfMath.segmentos(barrido);
+        if (radio <= tolerancia) {
+            return minimo;
+        }
+        double paso = 2 * Math.acos(1 - tolerancia / radio);
+        return Math.max(minimo, Math.min(maximo, (int) Math.ceil(barrido / paso)));
+    }
+
+    private void punto(double x, double y) {
+        if (puntos > inicioAnillo && xy[2 * (puntos - 1)] == x && xy[2 * (puntos - 1) + 1] == y) {
+            return;
+        }
+        if (2 * puntos + 2 > xy.length) {
+            xy = Arrays.copyOf(xy, xy.length * 2);
+        }
+        xy[2 * puntos] = x;
+        xy[2 * puntos + 1] = y;
+        puntos++;
+    }
+
+}
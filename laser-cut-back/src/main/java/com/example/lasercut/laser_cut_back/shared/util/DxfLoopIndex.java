@@ -0,0 +1,230 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.util.Arrays;
+
+/**
+ * Aristas de un lazo preparadas para preguntar si un punto queda adentro (regla par-impar):
+ * se cuentan los cruces de un rayo horizontal hacia +x con el contorno.
+ *
+ * Las curvas no se aproximan: arcos, tramos con bulge y elipses se guardan como arcos
+ * elípticos y se parten donde y deja de ser monótona, así cada pedazo corta la horizontal a lo
+ * sumo una vez y el punto de corte sale en forma cerrada. Como la regla solo mira si cada
+ * extremo queda por encima de la horizontal, el resultado no depende del sentido en que se
+ * recorre cada primitiva.
+ *
+ * Las aristas se reparten en franjas horizontales según su rango en y, de modo que una
+ * consulta solo revisa las que cruzan la franja del punto y no todo el contorno.
+ */
+final class DxfLoopIndex implements DxfEntityHandler {
+
+    private static final byte RECTA = 0;
+    private static final byte CURVA = 1;
+    private static final int VALORES = 7;
+
+    // Recta: x1, y1, x2, y2. Curva: cx, cy, mx, my, ratio, parámetro inicial, barrido (> 0).
+    private byte[] tipos = new byte[16];
+    private double[] valores = new double[16 * VALORES];
+    private double[] yMin = new double[16];
+    private double[] yMax = new double[16];
+    private int aristas;
+
+    private double franjaMinY;
+    private double franjaAlto;
+    private int[] franjaDesde;
+    private int[] franjaAristas;
+
+    private final double[] arcoTmp = new double[5];
+    private final DxfLimites.Control control;
+
+    /**
+     * @param control el de la lectura; armar las franjas y consultarlas cuenta como pasos
+     */
+    DxfLoopIndex(DxfLimites.Control control) {
+        this.control = control;
+    }
+
+    @Override
+    public void linea(double x1, double y1, double x2, double y2) {
+        recta(x1, y1, x2, y2);
+    }
+
+    @Override
+    public void arco(double cx, double cy, double radio, double anguloInicio, double anguloFin) {
+        curva(cx, cy, radio, 0, 1, Math.toRadians(anguloInicio), Math.toRadians(DxfMath.barrido(anguloInicio, anguloFin)));
+    }
+
+    @Override
+    public void circulo(double cx, double cy, double radio) {
+        curva(cx, cy, radio, 0, 1, 0, 2 * Math.PI);
+    }
+
+    @Override
+    public void polilinea(double[] xs, double[] ys, double[] bulges, int n, boolean cerrada) {
+        int tramos = cerrada ? n : n - 1;
+        for (int i = 0; i < tramos; i++) {
+            int j = i + 1 == n ? 0 : i + 1;
+            if (bulges[i] != 0 && DxfMath.arcoDeBulge(xs[i], ys[i], xs[j], ys[j], bulges[i], arcoTmp)) {
+                arco(arcoTmp[0], arcoTmp[1], arcoTmp[2], arcoTmp[3], arcoTmp[4]);
+            } else {
+                recta(xs[i], ys[i], xs[j], ys[j]);
+            }
+        }
+    }
+
+    @Override
+    public void elipse(double cx, double cy, double ejeMayorX, double ejeMayorY, double ratio, double paramInicio, double paramFin) {
+        curva(cx, cy, ejeMayorX, ejeMayorY, ratio, paramInicio, DxfMath.barridoRadianes(paramInicio, paramFin));
+    }
+
+    @Override
+    public void spline(double[] xs, double[] ys, int n, boolean cerrada) {
+        for (int i = 1; i < n; i++) {
+            recta(xs[i - 1], ys[i - 1], xs[i], ys[i]);
+        }
+        if (cerrada && n > 1) {
+            recta(xs[n - 1], ys[n - 1], xs[0], ys[0]);
+        }
+    }
+
+    /**
+     * Arma las franjas; se llama una vez, después de emitir todas las primitivas del lazo.
+     */
+    void indexar() {
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int a = 0; a < aristas; a++) {
+            minY = Math.min(minY, yMin[a]);
+            maxY = Math.max(maxY, yMax[a]);
+        }
+        int franjas = Math.max(1, Math.min(aristas / 2, 4096));
+        franjaMinY = minY;
+        franjaAlto = maxY > minY ? (maxY - minY) / franjas : 1;
+        franjaDesde = new int[franjas + 1];
+        for (int a = 0; a < aristas; a++) {
+            for (int f = franja(yMin[a]); f <= franja(yMax[a]); f++) {
+                control.avanzar();
+                franjaDesde[f + 1]++;
+            }
+        }
+        for (int f = 0; f < franjas; f++) {
+            franjaDesde[f + 1] += franjaDesde[f];
+        }
+        franjaAristas = new int[franjaDesde[franjas]];
+        int[] cursor = Arrays.copyOf(franjaDesde, franjas);
+        for (int a = 0; a < aristas; a++) {
+            for (int f = franja(yMin[a]); f <= franja(yMax[a]); f++) {
+                franjaAristas[cursor[f]++] = a;
+            }
+        }
+    }
+
+    /**
+     * Indica si (px, py) queda dentro del lazo.
+     */
+    boolean contiene(double px, double py) {
+        if (aristas == 0 || py < franjaMinY || py > franjaMinY + franjaAlto * (franjaDesde.length - 1)) {
+            return false;
+        }
+        int f = franja(py);
+        int cruces = 0;
+        for (int k = franjaDesde[f]; k < franjaDesde[f + 1]; k++) {
+            control.avanzar();
+            int a = franjaAristas[k];
+            if (py < yMin[a] || py > yMax[a]) {
+                continue;
+            }
+            int v = a * VALORES;
+            cruces += tipos[a] == RECTA
+                ? crucesRecta(px, py, valores[v], valores[v + 1], valores[v + 2], valores[v + 3])
+                : crucesCurva(px, py, valores[v], valores[v + 1], valores[v + 2], valores[v + 3],
+                    valores[v + 4], valores[v + 5], valores[v + 6]);
+        }
+        return (cruces & 1) != 0;
+    }
+
+    private int franja(double y) {
+        int f = (int) ((y - franjaMinY) / franjaAlto);
+        return Math.max(0, Math.min(franjaDesde.length - 2, f));
+    }
+
+    private static int crucesRecta(double px, double py, double x1, double y1, double x2, double y2) {
+        if ((y1 > py) == (y2 > py)) {
+            return 0;
+        }
+        double x = x1 + (py - y1) * (x2 - x1) / (y2 - y1);
+        return x > px ? 1 : 0;
+    }
+
+    /**
+     * Cruces con el arco P(t) = C + (mx·cos t − ratio·my·sen t, my·cos t + ratio·mx·sen t).
+     * Escrito así, y(t) = cy + R·sen(t + φ): los extremos en y están en t + φ = π/2 + kπ.
+     */
+    private static int crucesCurva(double px, double py, double cx, double cy, double mx, double my,
+            double ratio, double t0, double barrido) {
+        double rmx = ratio * mx;
+        double r = Math.hypot(my, rmx);
+        if (r == 0) {
+            return 0;
+        }
+        double phi = Math.atan2(my, rmx);
+        double cosPhi = Math.cos(phi);
+        double sinPhi = Math.sin(phi);
+        double s = Math.max(-1, Math.min(1, (py - cy) / r));
+        int cruces = 0;
+        double u = t0 + phi;
+        double fin = u + barrido;
+        while (u < fin) {
+            double corte = Math.min(fin, (Math.floor((u - Math.PI / 2) / Math.PI) + 1) * Math.PI + Math.PI / 2);
+            if (corte <= u) {
+                corte = Math.min(fin, u + Math.PI);
+            }
+            if ((cy + r * Math.sin(u) > py) != (cy + r * Math.sin(corte) > py)) {
+                // En el pedazo el coseno no cambia de signo: el del punto medio decide la raíz
+                double cu = Math.copySign(Math.sqrt(1 - s * s), Math.cos((u + corte) / 2));
+                double cosT = cu * cosPhi + s * sinPhi;
+                double sinT = s * cosPhi - cu * sinPhi;
+                if (cx + mx * cosT - ratio * my * sinT > px) {
+                    cruces++;
+                }
+            }
+            u = corte;
+        }
+        return cruces;
+    }
+
+    private void recta(double x1, double y1, double x2, double y2) {
+        int v = agregar(RECTA, Math.min(y1, y2), Math.max(y1, y2));
+        valores[v] = x1;
+        valores[v + 1] = y1;
+        valores[v + 2] = x2;
+        valores[v + 3] = y2;
+    }
+
+    private void curva(double cx, double cy, double mx, double my, double ratio, double t0, double barrido) {
+        // Rango en y sin buscar los extremos del arco: alcanza con el de la elipse completa
+        double r = Math.hypot(my, ratio * mx);
+        int v = agregar(CURVA, cy - r, cy + r);
+        valores[v] = cx;
+        valores[v + 1] = cy;
+        valores[v + 2] = mx;
+        valores[v + 3] = my;
+        valores[v + 4] = ratio;
+        // Con el parámetro en una vuelta, los pedazos de crucesCurva siempre avanzan
+        valores[v + 5] = t0 % (2 * Math.PI);
+        valores[v + 6] = barrido;
+    }
+
+    private int agregar(byte tipo, double minY, double maxY) {
+        if (aristas == tipos.length) {
+            tipos = Arrays.copyOf(tipos, aristas * 2);
+            valores = Arrays.copyOf(valores, aristas * 2 * VALORES);
+            yMin = Arrays.copyOf(yMin, aristas * 2);
+            yMax = Arrays.copyOf(yMax, aristas * 2);
+        }
+        tipos[aristas] = tipo;
+        yMin[aristas] = minY;
+        yMax[aristas] = maxY;
+        return aristas++ * VALORES;
+    }
+
+}
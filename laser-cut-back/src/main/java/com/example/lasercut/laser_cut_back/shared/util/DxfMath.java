@@ -0,0 +1,91 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+/**
+ * Cuentas geométricas compartidas por los receptores de {@link DxfEntityHandler}.
+ */
+public final class DxfMath {
+
+    /** Paso angular usado cuando hay que aproximar una curva por segmentos (5°). */
+    public static final double PASO_APROXIMACION = Math.toRadians(5.0);
+
+    private DxfMath() {
+    }
+
+    /**
+     * Barrido antihorario en grados entre dos ángulos, en el rango (0, 360].
+     * Ángulos iguales se interpretan como circunferencia completa.
+     */
+    public static double barrido(double anguloInicio, double anguloFin) {
+        double b = (anguloFin - anguloInicio) % 360.0;
+        if (b < 0) {
+            b += 360.0;
+        }
+        return b == 0 ? 360.0 : b;
+    }
+
+    /**
+     * Barrido antihorario en radianes entre dos parámetros de ELLIPSE, en el rango (0, 2π].
+     * Con el módulo, parámetros enormes no hacen dar vueltas sumando 2π. Un barrido de casi
+     * cero se toma como vuelta completa: es un 2π escrito con pocos decimales (0 a 6.2831853072).
+     */
+    public static double barridoRadianes(double inicio, double fin) {
+        double b = (fin - inicio) % (2 * Math.PI);
+        if (b < 0) {
+            b += 2 * Math.PI;
+        }
+        return b < 1e-6 ? 2 * Math.PI : b;
+    }
+
+    /**
+     * Indica si un ángulo (en grados) cae dentro del barrido antihorario que arranca en anguloInicio.
+     */
+    public static boolean anguloEnBarrido(double angulo, double anguloInicio, double barrido) {
+        double d = (angulo - anguloInicio) % 360.0;
+        if (d < 0) {
+            d += 360.0;
+        }
+        return d <= barrido;
+    }
+
+    /**
+     * Convierte el tramo de polilínea (x1,y1)-(x2,y2) con bulge a un arco antihorario.
+     * Escribe en destino: cx, cy, radio, anguloInicio y anguloFin (grados).
+     * Devuelve false si el tramo es recto o degenerado.
+     */
+    public static boolean arcoDeBulge(double x1, double y1, double x2, double y2, double bulge, double[] destino) {
+        if (bulge == 0) {
+            return false;
+        }
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double cuerda = Math.sqrt(dx * dx + dy * dy);
+        if (cuerda == 0) {
+            return false;
+        }
+        double k = (1 - bulge * bulge) / (4 * bulge);
+        double cx = (x1 + x2) / 2 - k * dy;
+        double cy = (y1 + y2) / 2 + k * dx;
+        double radio = cuerda * (1 + bulge * bulge) / (4 * Math.abs(bulge));
+        double a1 = Math.toDegrees(Math.atan2(y1 - cy, x1 - cx));
+        double a2 = Math.toDegrees(Math.atan2(y2 - cy, x2 - cx));
+        destino[0] = cx;
+        destino[1] = cy;
+        destino[2] = radio;
+        if (bulge > 0) {
+            destino[3] = a1;
+            destino[4] = a2;
+        } else {
+            destino[3] = a2;
+            destino[4] = a1;
+        }
+        return true;
+    }
+
+    /**
+     * Cantidad de segmentos para aproximar un barrido (en radianes) con el paso estándar.
+     */
+    public static int segmentos(double barridoRadianes) {
+        return Math.max(2, (int) Math.ceil(Math.abs(barridoRadianes) / PASO_APROXIMACION));
+    }
+
+}
@@ -0,0 +1,325 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.lasercut.laser_cut_back.exception.PresupuestoExcedidoException;
+import com.example.lasercut.laser_cut_back.exception.PreviewGenerationException;
+import com.example.lasercut.laser_cut_back.shared.util.DxfPreviewGenerator.Detalle;
+
+/**
+ * Caras de la pieza trianguladas en el plano, listas para extruir al espesor de la chapa.
+ *
+ * Cada contorno a profundidad par (el exterior de una pieza o una isla dentro de un agujero)
+ * se triangula junto con sus agujeros directos con {@link DxfEarClipper}; las curvas se
+ * aproximan antes con {@link DxfLoopFlattener}. Los exteriores quedan en sentido antihorario
+ * y los agujeros en horario, así las paredes se arman tramo a tramo con la normal hacia afuera.
+ *
+ * La triangulación no depende del espesor: se arma una vez por archivo y
+ * {@link #escribirGlb(double)} solo genera los vértices de las dos tapas y las paredes.
+ *
+ * Como la vista previa, se arma dentro de un {@link DxfPresupuesto}: si la pieza completa no
+ * entra se triangulan solo los contornos exteriores, sin agujeros, y si tampoco, la caja del
+ * dibujo (ver {@link Detalle}).
+ */
+public final class DxfMesh {
+
+    private static final Logger logger = LoggerFactory.getLogger(DxfMesh.class);
+
+    /** Flecha máxima al aproximar curvas, relativa al lado mayor del dibujo. */
+    private static final double TOLERANCIA_RELATIVA = 0.0005;
+    private static final double TOLERANCIA_MINIMA_MM = 0.001;
+    /** Tope de puntos de todos los anillos, para no armar mallas que el navegador no puede mostrar. */
+    private static final int MAXIMO_PUNTOS = 2_000_000;
+    /** Tope de agujeros × puntos de una pieza: unir cada agujero recorre el anillo completo. */
+    private static final long MAXIMO_COSTO_PUENTES = 1_000_000_000L;
+
+    private static final int GLB_MAGIA = 0x46546C67;
+    private static final int GLB_JSON = 0x4E4F534A;
+    private static final int GLB_BIN = 0x004E4942;
+    private static final int GL_FLOAT = 5126;
+    private static final int GL_UNSIGNED_SHORT = 5123;
+    private static final int GL_UNSIGNED_INT = 5125;
+    private static final int GL_ARRAY_BUFFER = 34962;
+    private static final int GL_ELEMENT_ARRAY_BUFFER = 34963;
+
+    // Puntos centrados en el rectángulo del dibujo; cada anillo es [anilloDesde[a], anilloDesde[a + 1])
+    private final float[] xy;
+    private final int puntos;
+    private final int[] anilloDesde;
+    private final int anillos;
+    private final int[] triangulos;
+    private final int indices;
+    private final Detalle detalle;
+
+    private DxfMesh(float[] xy, int puntos, int[] anilloDesde, int anillos, int[] triangulos, int indices, Detalle detalle) {
+        this.xy = xy;
+        this.puntos = puntos;
+        this.anilloDesde = anilloDesde;
+        this.anillos = anillos;
+        this.triangulos = triangulos;
+        this.indices = indices;
+        this.detalle = detalle;
+    }
+
+    /**
+     * Triangula las piezas cerradas del análisis.
+     */
+    public static DxfMesh triangular(DxfAnalysis analisis) {
+        return triangular(analisis, DxfPresupuesto.SIN_LIMITE);
+    }
+
+    /**
+     * Como {@link #triangular(DxfAnalysis)}, dentro del presupuesto: si no alcanza (o el dibujo
+     * tiene demasiado detalle para mostrarlo) se degrada como la vista previa.
+     *
+     * @throws PreviewGenerationException si el análisis no tiene geometría o ninguna pieza
+     *         cerrada deja caras para la malla
+     */
+    public static DxfMesh triangular(DxfAnalysis analisis, DxfPresupuesto presupuesto) {
+        if (analisis == null || analisis.getGeometria().isVacia()) {
+            throw new PreviewGenerationException("El documento DXF es nulo o no se pudo parsear.", null);
+        }
+        try {
+            return conCaras(triangular(analisis, presupuesto.iniciar(), Detalle.COMPLETO));
+        } catch (PresupuestoExcedidoException e) {
+            logger.warn("{} en la malla 3D ({} primitivas): se triangulan solo los contornos", e.getMessage(), analisis.getPrimitivas());
+        }
+        try {
+            return conCaras(triangular(analisis, presupuesto.iniciar(), Detalle.CONTORNOS));
+        } catch (PresupuestoExcedidoException e) {
+            logger.warn("{} en la malla 3D con solo los contornos: se arma la caja del dibujo", e.getMessage());
+        }
+        return caja(analisis);
+    }
+
+    /**
+     * Una malla sin triángulos dejaría accesores glTF con count 0, que los visores rechazan.
+     */
+    private static DxfMesh conCaras(DxfMesh malla) {
+        if (malla.indices == 0) {
+            throw new PreviewGenerationException("El dibujo no tiene piezas cerradas para armar la vista 3D.", null);
+        }
+        return malla;
+    }
+
+    private static DxfMesh triangular(DxfAnalysis analisis, DxfPresupuesto.Control control, Detalle detalle) {
+        boolean soloExteriores = detalle == Detalle.CONTORNOS;
+        DxfContours contornos = analisis.getContornos();
+        DxfGeometry.Lector lector = analisis.getGeometria().lector();
+        int lazos = contornos.getLazosCerrados();
+        double mayor = Math.max(analisis.getAncho(), analisis.getAlto());
+        DxfLoopFlattener aplanador = new DxfLoopFlattener(Math.max(mayor * TOLERANCIA_RELATIVA, TOLERANCIA_MINIMA_MM));
+
+        // Hijos directos de cada lazo (orden por conteo)
+        int[] hijosDesde = new int[lazos + 2];
+        for (int l = 0; l < lazos; l++) {
+            hijosDesde[contornos.getPadre(l) + 2]++;
+        }
+        for (int l = 0; l <= lazos; l++) {
+            hijosDesde[l + 1] += hijosDesde[l];
+        }
+        int[] hijos = new int[lazos];
+        int[] cursor = Arrays.copyOf(hijosDesde, lazos + 1);
+        for (int l = 0; l < lazos; l++) {
+            hijos[cursor[contornos.getPadre(l) + 1]++] = l;
+        }
+
+        DxfEarClipper clipper = new DxfEarClipper(control);
+        int[] anilloDesde = new int[Math.max(2, lazos + 1)];
+        int anillos = 0;
+        int[] agujeros = new int[16];
+        int[] triangulos = new int[1024];
+        int indices = 0;
+        for (int l = 0; l < lazos; l++) {
+            if (soloExteriores ? contornos.getProfundidad(l) != 0 : contornos.getProfundidad(l) % 2 != 0) {
+                continue;
+            }
+            int inicio = aplanador.getPuntos();
+            if (!agregarAnillo(aplanador, contornos, lector, l, true)) {
+                continue;
+            }
+            anilloDesde[anillos++] = inicio;
+            int cantidadAgujeros = 0;
+            for (int k = hijosDesde[l + 1]; !soloExteriores && k < hijosDesde[l + 2]; k++) {
+                int desde = aplanador.getPuntos();
+                if (agregarAnillo(aplanador, contornos, lector, hijos[k], false)) {
+                    if (cantidadAgujeros == agujeros.length) {
+                        agujeros = Arrays.copyOf(agujeros, cantidadAgujeros * 2);
+                    }
+                    agujeros[cantidadAgujeros++] = desde;
+                    anilloDesde[anillos++] = desde;
+                }
+            }
+            int fin = aplanador.getPuntos();
+            if (fin > MAXIMO_PUNTOS || (long) cantidadAgujeros * (fin - inicio) > MAXIMO_COSTO_PUENTES) {
+                throw new PresupuestoExcedidoException("El dibujo tiene demasiado detalle para la vista 3D");
+            }
+            triangulos = clipper.triangular(aplanador.getXy(), inicio, fin, agujeros, cantidadAgujeros, triangulos, indices);
+            indices = clipper.getIndices();
+            // Puntos en double y sus float, más los índices de las tapas
+            control.verificar(24L * aplanador.getPuntos() + 4L * indices);
+        }
+        int puntos = aplanador.getPuntos();
+        anilloDesde[anillos] = puntos;
+
+        // Centrado en el rectángulo del dibujo; en float alcanza una vez restado el origen
+        double[] origen = aplanador.getXy();
+        double cx = (analisis.getMinX() + analisis.getMaxX()) / 2;
+        double cy = (analisis.getMinY() + analisis.getMaxY()) / 2;
+        float[] xy = new float[2 * puntos];
+        for (int i = 0; i < puntos; i++) {
+            xy[2 * i] = (float) (origen[2 * i] - cx);
+            xy[2 * i + 1] = (float) (origen[2 * i + 1] - cy);
+        }
+        // Las tapas en sentido antihorario, como los exteriores
+        for (int t = 0; t < indices; t += 3) {
+            int a = triangulos[t], b = triangulos[t + 1], c = triangulos[t + 2];
+            double cruz = (origen[2 * b] - origen[2 * a]) * (origen[2 * c + 1] - origen[2 * a + 1])
+                - (origen[2 * b + 1] - origen[2 * a + 1]) * (origen[2 * c] - origen[2 * a]);
+            if (cruz < 0) {
+                triangulos[t + 1] = c;
+                triangulos[t + 2] = b;
+            }
+        }
+        return new DxfMesh(xy, puntos, anilloDesde, anillos, Arrays.copyOf(triangulos, indices), indices, detalle);
+    }
+
+    /**
+     * El rectángulo del dibujo, centrado, en sentido antihorario.
+     */
+    private static DxfMesh caja(DxfAnalysis analisis) {
+        float mx = (float) (analisis.getAncho() / 2);
+        float my = (float) (analisis.getAlto() / 2);
+        float[] xy = {-mx, -my, mx, -my, mx, my, -mx, my};
+        return new DxfMesh(xy, 4, new int[] {0, 4}, 1, new int[] {0, 1, 2, 0, 2, 3}, 6, Detalle.CAJA);
+    }
+
+    private static boolean agregarAnillo(DxfLoopFlattener aplanador, DxfContours contornos, DxfGeometry.Lector lector,
+            int lazo, boolean exterior) {
+        aplanador.empezarAnillo();
+        for (int p = contornos.getInicioPasos(lazo); p < contornos.getFinPasos(lazo); p++) {
+            int paso = contornos.getPaso(p);
+            aplanador.setInvertido((paso & 1) != 0);
+            lector.emitir(paso >> 1, aplanador);
+        }
+        return aplanador.cerrarAnillo(exterior);
+    }
+
+    public Detalle getDetalle() {
+        return detalle;
+    }
+
+    public boolean isDegradada() {
+        return detalle != Detalle.COMPLETO;
+    }
+
+    public int getVertices() {
+        return 2 * puntos;
+    }
+
+    public int getTriangulos() {
+        return (2 * indices + 6 * puntos) / 3;
+    }
+
+    public long getTamanioBytes() {
+        return 64 + 4L * xy.length + 4L * anilloDesde.length + 4L * triangulos.length;
+    }
+
+    /**
+     * Extruye las caras al espesor dado (mm) y escribe la malla como glTF binario (.glb): un
+     * único mesh con posiciones en float32 e índices de 16 o 32 bits, sin normales (el
+     * visor las calcula planas por cara). Unidades en mm, Y hacia arriba: la pieza queda
+     * apoyada en el plano XZ, centrada, con el DXF visto desde arriba.
+     */
+    public byte[] escribirGlb(double espesor) {
+        int vertices = 2 * puntos;
+        int cantidadIndices = 2 * indices + 6 * puntos;
+        boolean cortos = vertices <= 0xFFFF;
+        int bytesPosiciones = vertices * 12;
+        int bytesIndices = cantidadIndices * (cortos ? 2 : 4);
+        int bytesBin = bytesPosiciones + alinear(bytesIndices);
+
+        ByteBuffer bin = ByteBuffer.allocate(bytesBin).order(ByteOrder.LITTLE_ENDIAN);
+        float e = (float) espesor;
+        float minX = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        // Abajo los puntos 0..n-1 y arriba n..2n-1; el y del plano pasa a -Z
+        for (int capa = 0; capa < 2; capa++) {
+            for (int i = 0; i < puntos; i++) {
+                float x = xy[2 * i];
+                float z = -xy[2 * i + 1];
+                bin.putFloat(x).putFloat(capa == 0 ? 0f : e).putFloat(z);
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minZ = Math.min(minZ, z);
+                maxZ = Math.max(maxZ, z);
+            }
+        }
+        int n = puntos;
+        for (int t = 0; t < indices; t += 3) {
+            indice(bin, cortos, n + triangulos[t]);
+            indice(bin, cortos, n + triangulos[t + 1]);
+            indice(bin, cortos, n + triangulos[t + 2]);
+            indice(bin, cortos, triangulos[t]);
+            indice(bin, cortos, triangulos[t + 2]);
+            indice(bin, cortos, triangulos[t + 1]);
+        }
+        for (int a = 0; a < anillos; a++) {
+            for (int i = anilloDesde[a]; i < anilloDesde[a + 1]; i++) {
+                int j = i + 1 < anilloDesde[a + 1] ? i + 1 : anilloDesde[a];
+                indice(bin, cortos, i);
+                indice(bin, cortos, j);
+                indice(bin, cortos, n + j);
+                indice(bin, cortos, i);
+                indice(bin, cortos, n + j);
+                indice(bin, cortos, n + i);
+            }
+        }
+
+        String json = "{\"asset\":{\"version\":\"2.0\"},\"scene\":0,\"scenes\":[{\"nodes\":[0]}],"
+            + "\"nodes\":[{\"mesh\":0}],"
+            + "\"meshes\":[{\"primitives\":[{\"attributes\":{\"POSITION\":0},\"indices\":1,\"material\":0}]}],"
+            + "\"materials\":[{\"pbrMetallicRoughness\":{\"baseColorFactor\":[0.878,0.878,0.878,1],"
+            + "\"metallicFactor\":0.1,\"roughnessFactor\":0.6}}],"
+            + "\"buffers\":[{\"byteLength\":" + bytesBin + "}],"
+            + "\"bufferViews\":[{\"buffer\":0,\"byteOffset\":0,\"byteLength\":" + bytesPosiciones
+            + ",\"target\":" + GL_ARRAY_BUFFER + "},"
+            + "{\"buffer\":0,\"byteOffset\":" + bytesPosiciones + ",\"byteLength\":" + bytesIndices
+            + ",\"target\":" + GL_ELEMENT_ARRAY_BUFFER + "}],"
+            + "\"accessors\":[{\"bufferView\":0,\"componentType\":" + GL_FLOAT + ",\"count\":" + vertices
+            + ",\"type\":\"VEC3\",\"min\":[" + (puntos == 0 ? "0,0,0" : minX + ",0," + minZ)
+            + "],\"max\":[" + (puntos == 0 ? "0,0,0" : maxX + "," + e + "," + maxZ) + "]},"
+            + "{\"bufferView\":1,\"componentType\":" + (cortos ? GL_UNSIGNED_SHORT : GL_UNSIGNED_INT)
+            + ",\"count\":" + cantidadIndices + ",\"type\":\"SCALAR\"}]}";
+        byte[] jsonBytes = json.getBytes(StandardCharsets.US_ASCII);
+        int bytesJson = alinear(jsonBytes.length);
+
+        ByteBuffer glb = ByteBuffer.allocate(12 + 8 + bytesJson + 8 + bytesBin).order(ByteOrder.LITTLE_ENDIAN);
+        glb.putInt(GLB_MAGIA).putInt(2).putInt(glb.capacity());
+        glb.putInt(bytesJson).putInt(GLB_JSON).put(jsonBytes);
+        for (int i = jsonBytes.length; i < bytesJson; i++) {
+            glb.put((byte) ' ');
+        }
+        glb.putInt(bytesBin).putInt(GLB_BIN).put(bin.array());
+        return glb.array();
+    }
+
+    private static void indice(ByteBuffer bin, boolean cortos, int i) {
+        if (cortos) {
+            bin.putShort((short) i);
+        } else {
+            bin.putInt(i);
+        }
+    }
+
+    private static int alinear(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+
+}
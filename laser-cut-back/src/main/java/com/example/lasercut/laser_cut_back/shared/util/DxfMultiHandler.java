@@ -0,0 +1,56 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+/**
+ * Reenvía cada primitiva a varios receptores, para calcular todo en la misma pasada de lectura.
+ */
+public class DxfMultiHandler implements DxfEntityHandler {
+
+    private final DxfEntityHandler[] destinos;
+
+    public DxfMultiHandler(DxfEntityHandler... destinos) {
+        this.destinos = destinos;
+    }
+
+    @Override
+    public void linea(double x1, double y1, double x2, double y2) {
+        for (DxfEntityHandler destino : destinos) {
+            destino.linea(x1, y1, x2, y2);
+        }
+    }
+
+    @Override
+    public void arco(double cx, double cy, double radio, double anguloInicio, double anguloFin) {
+        for (DxfEntityHandler destino : destinos) {
+            destino.arco(cx, cy, radio, anguloInicio, anguloFin);
+        }
+    }
+
+    @Override
+    public void circulo(double cx, double cy, double radio) {
+        for (DxfEntityHandler destino : destinos) {
+            destino.circulo(cx, cy, radio);
+        }
+    }
+
+    @Override
+    public void polilinea(double[] xs, double[] ys, double[] bulges, int n, boolean cerrada) {
+        for (DxfEntityHandler destino : destinos) {
+            destino.polilinea(xs, ys, bulges, n, cerrada);
+        }
+    }
+
+    @Override
+    public void elipse(double cx, double cy, double ejeMayorX, double ejeMayorY, double ratio, double paramInicio, double paramFin) {
+        for (DxfEntityHandler destino : destinos) {
+            destino.elipse(cx, cy, ejeMayorX, ejeMayorY, ratio, paramInicio, paramFin);
+        }
+    }
+
+    @Override
+    public void spline(double[] xs, double[] ys, int n, boolean cerrada) {
+        for (DxfEntityHandler destino : destinos) {
+            destino.spline(xs, ys, n, cerrada);
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.io.IOException;
+
+import com.example.lasercut.laser_cut_back.exception.BadRequestException;
+
+/**
+ * Secuencia de pares código de grupo / valor de un DXF, sea ASCII ({@link DxfTokenizer}) o
+ * binario ({@link DxfBinaryTokenizer}). Los valores se leen del par actual sin crear objetos,
+ * salvo {@link #valorString()}.
+ */
+public interface DxfPares {
+
+    /**
+     * Magnitud máxima de un valor numérico (un millón de km en mm). Más allá solo hay archivos
+     * rotos o armados a propósito, y valores como 1e308 desbordan áreas y grillas.
+     */
+    double MAXIMO_VALOR = 1e12;
+
+    /**
+     * Avanza al siguiente par. Devuelve false al llegar al final.
+     */
+    boolean siguiente() throws IOException;
+
+    int codigo();
+
+    /**
+     * Compara el valor actual con un texto ASCII sin crear un String.
+     */
+    boolean valorEs(String texto);
+
+    String valorString();
+
+    int valorInt() throws IOException;
+
+    /**
+     * El valor actual como double.
+     *
+     * @throws BadRequestException si no es finito o supera {@link #MAXIMO_VALOR}
+     */
+    double valorDouble() throws IOException;
+
+    static double verificarValor(double valor, int codigo) {
+        if (!(Math.abs(valor) <= MAXIMO_VALOR)) {
+            throw new BadRequestException("El archivo DXF tiene un valor numérico inválido (código " + codigo + ").");
+        }
+        return valor;
+    }
+
+}
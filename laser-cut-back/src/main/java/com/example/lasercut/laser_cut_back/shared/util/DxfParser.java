@@ -1,99 +1,177 @@
 package com.example.lasercut.laser_cut_back.shared.util;
 
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
-import java.util.List;
-
-import org.kabeja.dxf.DXFArc;
-import org.kabeja.dxf.DXFDocument;
-import org.kabeja.dxf.DXFLayer;
-import org.kabeja.dxf.Bounds;
-import org.kabeja.dxf.DXFEntity;
-import org.kabeja.parser.Parser;
-import org.kabeja.parser.ParserBuilder;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.example.lasercut.laser_cut_back.exception.AnalisisInterrumpidoException;
 import com.example.lasercut.laser_cut_back.exception.BadRequestException;
 
 public class DxfParser {
 
     private static final Logger logger = LoggerFactory.getLogger(DxfParser.class);
 
-    private static void validarArcosCerrados(DXFDocument doc) {
-        final double TOLERANCIA_ANGULO = 0.01;
-        final double ANGULO_COMPLETO = 360.0;
-        final String ENTITY_TYPE_ARC = "ARC";
-
-        @SuppressWarnings("unchecked")
-        Iterator<DXFLayer> layerIterator = doc.getDXFLayerIterator();
-        int totalArcosAbiertos = 0;
-
-        while (layerIterator.hasNext()) {
-            DXFLayer layer = layerIterator.next();
-            
-            @SuppressWarnings("unchecked")
-            List<DXFEntity> entities = layer.getDXFEntities(ENTITY_TYPE_ARC);
-            
-            if (entities != null) {
-                for (DXFEntity entity : entities) {
-                    if (entity instanceof DXFArc) {
-                        DXFArc arc = (DXFArc) entity;
-                        double totalAngle = arc.getTotalAngle();
-                        
-                        if (Math.abs(totalAngle - ANGULO_COMPLETO) > TOLERANCIA_ANGULO) {
-                            totalArcosAbiertos++;
-                            logger.warn("Arco abierto detectado en capa '{}': ángulo total={}°", 
-                                layer.getName(), totalAngle);
-                        }
-                    }
-                }
-            }
-        }
-
-        if (totalArcosAbiertos > 0) {
-            String mensaje = "El archivo contiene arcos abiertos. Todos los arcos deben estar cerrados (360°).";
-            logger.error("Archivo DXF rechazado: {} arco(s) no cerrado(s) detectado(s)", totalArcosAbiertos);
+    private static void validarContornosCerrados(DxfContours contornos) {
+        if (!contornos.isCerrado()) {
+            String mensaje = "El archivo contiene contornos abiertos. Todos los contornos deben estar cerrados.";
+            logger.error("Archivo DXF rechazado: {} contorno(s) abierto(s), {} extremo(s) suelto(s)",
+                contornos.getCadenasAbiertas(), contornos.getExtremosSueltos());
             throw new BadRequestException(mensaje);
         }
 
-        logger.info("Validación de arcos cerrados completada: todos los arcos están cerrados correctamente.");
+        logger.info("Validación de contornos completada: {} lazo(s) cerrado(s).", contornos.getLazosCerrados());
     }
 
-    public static double[] getWidthHeightMillimeters(InputStream is) throws IOException {
-        try {
-            Parser parser = ParserBuilder.createDefaultParser();
-            parser.parse(is, "UTF-8");
+    /**
+     * Lee el DXF una sola vez: valida, calcula la bounding box y guarda la geometría expandida
+     * para que la vista previa y la cotización no tengan que volver a parsear los bytes.
+     * Antes mira solo el comienzo (ver {@link DxfCabecera}): si no es un DXF se rechaza sin
+     * leer el resto.
+     */
+    public static DxfAnalysis analizar(InputStream is) throws IOException {
+        return analizar(is, DxfLimites.SIN_LIMITE);
+    }
+
+    /**
+     * Igual que {@link #analizar(InputStream)}, cortando con BadRequestException si el archivo
+     * se pasa de alguno de los límites.
+     */
+    public static DxfAnalysis analizar(InputStream is, DxfLimites limites) throws IOException {
+        BufferedInputStream entrada = new BufferedInputStream(new Acotado(is, limites), DxfCabecera.TAMANIO);
+        entrada.mark(DxfCabecera.TAMANIO);
+        DxfCabecera cabecera = DxfCabecera.leer(ByteBuffer.wrap(entrada.readNBytes(DxfCabecera.TAMANIO)));
+        entrada.reset();
+        return analizar(limites, cabecera, reader -> reader.leer(cabecera.isBinario()
+            ? new DxfBinaryTokenizer(entrada) : new DxfTokenizer(entrada)));
+    }
 
-            DXFDocument doc = parser.getDocument();
-            if (doc == null) {
-                throw new BadRequestException("Kabeja no pudo leer el archivo DXF (documento nulo). Verifique que sea DXF R12 ASCII o R2000.");
+    /**
+     * Igual que {@link #analizar(InputStream)}, leyendo el archivo mapeado en memoria: los bytes
+     * quedan en la caché de páginas del sistema y no ocupan heap, sea cual sea el tamaño.
+     */
+    public static DxfAnalysis analizar(Path archivo) throws IOException {
+        return analizar(archivo, DxfLimites.SIN_LIMITE);
+    }
+
+    /**
+     * Igual que {@link #analizar(Path)}, dentro de los límites.
+     */
+    public static DxfAnalysis analizar(Path archivo, DxfLimites limites) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamanio = canal.size();
+            limites.verificarBytes(tamanio);
+            ByteBuffer inicio = ByteBuffer.allocate((int) Math.min(tamanio, DxfCabecera.TAMANIO));
+            canal.read(inicio, 0);
+            DxfCabecera cabecera = DxfCabecera.leer(inicio.flip());
+            if (tamanio > Integer.MAX_VALUE) {
+                InputStream entrada = Channels.newInputStream(canal);
+                return analizar(limites, cabecera, reader -> reader.leer(cabecera.isBinario()
+                    ? new DxfBinaryTokenizer(entrada) : new DxfTokenizer(entrada)));
             }
+            MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanio);
+            return analizar(limites, cabecera, reader -> reader.leer(cabecera.isBinario()
+                ? new DxfBinaryTokenizer(datos) : new DxfTokenizer(datos)));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Lectura {
+        void leer(DxfStreamReader reader) throws IOException;
+    }
+
+    /**
+     * Parseo completo, una vez que la cabecera confirmó que es un DXF (ASCII o binario).
+     */
+    private static DxfAnalysis analizar(DxfLimites limites, DxfCabecera cabecera, Lectura lectura) throws IOException {
+        try {
+            DxfBounds bounds = new DxfBounds();
+            DxfCutMetrics metricas = new DxfCutMetrics();
+            DxfContourBuilder contornos = new DxfContourBuilder();
+            DxfGeometry geometria = new DxfGeometry();
+            DxfStreamReader reader = new DxfStreamReader(new DxfMultiHandler(bounds, metricas, contornos, geometria), limites);
+            lectura.leer(reader);
 
-            validarArcosCerrados(doc);
+            DxfContours resultadoContornos = contornos.construir(geometria, cabecera.getUnidad(), reader.getControl());
+            validarContornosCerrados(resultadoContornos);
 
-            Bounds bounds = doc.getBounds();
-            if (bounds == null) {
+            if (bounds.isVacio()) {
                 throw new BadRequestException("No se pudo calcular el bounding box del DXF.");
             }
 
-            double width = Math.abs(bounds.getMaximumX() - bounds.getMinimumX());
-            double height = Math.abs(bounds.getMaximumY() - bounds.getMinimumY());
+            DxfAnalysis analisis = new DxfAnalysis(bounds, metricas, resultadoContornos, reader.getEntidades(), geometria,
+                cabecera);
+            double width = analisis.getAncho();
+            double height = analisis.getAlto();
 
             if (width == 0 || height == 0) {
                 throw new BadRequestException("Bounding box inválida (dimensión cero detectada).");
             }
 
-            logger.info("Bounding box DXF -> ancho={} mm, alto={} mm", width, height);
-            return new double[]{width, height};
+            logger.info("Bounding box DXF -> ancho={}, alto={}, corte={}, perforaciones={} ({} entidades, {} primitivas, versión {}, unidad {})",
+                width, height, analisis.getLongitudCorte(), analisis.getPerforaciones(),
+                analisis.getEntidades(), analisis.getPrimitivas(), cabecera.getVersion(),
+                cabecera.getUnidad() == null ? "no declarada" : cabecera.getUnidad().getNombre());
+            return analisis;
 
         } catch (BadRequestException e) {
             throw e;
         } catch (Exception e) {
-            logger.error("Error al parsear DXF con Kabeja", e);
+            if (Thread.currentThread().isInterrupted()) {
+                // Un canal cerrado por la interrupción no es un problema del archivo
+                throw new AnalisisInterrumpidoException("Se interrumpió el procesamiento del archivo DXF.");
+            }
+            logger.error("Error al leer el DXF", e);
             throw new BadRequestException("Error al procesar el archivo DXF: " + e.getMessage());
         }
     }
 
+    public static double[] getWidthHeightMillimeters(InputStream is) throws IOException {
+        DxfAnalysis analisis = analizar(is);
+        return new double[]{analisis.getAncho(), analisis.getAlto()};
+    }
+
+    /**
+     * Corta la lectura de un stream apenas supera el tamaño máximo, sin esperar a terminarlo.
+     */
+    private static final class Acotado extends FilterInputStream {
+
+        private final DxfLimites limites;
+        private long leidos;
+
+        Acotado(InputStream in, DxfLimites limites) {
+            super(in);
+            this.limites = limites;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                limites.verificarBytes(++leidos);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                leidos += n;
+                limites.verificarBytes(leidos);
+            }
+            return n;
+        }
+
+    }
+
 }
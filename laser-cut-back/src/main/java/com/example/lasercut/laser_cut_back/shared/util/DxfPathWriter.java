@@ -0,0 +1,539 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.util.Arrays;
+
+import com.example.lasercut.laser_cut_back.exception.PresupuestoExcedidoException;
+import com.example.lasercut.laser_cut_back.shared.util.DxfPreviewGenerator.Detalle;
+
+/**
+ * Recorrido común de las salidas 2D ({@link DxfSvgWriter}, {@link DxfBinaryWriter}): arma un
+ * trazo por pieza con un subtrazo por lazo, en el orden de {@link DxfContourBuilder}, y uno más
+ * con lo que no cierra.
+ *
+ * Las coordenadas se cuantizan a una grilla x = origenX + X·cuanto, con cuanto = mantisa ·
+ * 10^exponente (1, 2 o 5 × 10^k), y las subclases reciben diferencias enteras respecto del punto
+ * anterior: se calculan en la grilla, así el redondeo no se acumula a lo largo del contorno.
+ * Los tramos rectos seguidos se acumulan y, si hay tolerancia, se simplifican con
+ * Douglas-Peucker; los arcos más chatos que la tolerancia pasan a ser rectas y los lazos más
+ * chicos que dos pasos de la grilla se omiten.
+ *
+ * El recorrido controla cada tanto el {@link DxfPresupuesto}: si se pasa de tiempo o de
+ * memoria corta con {@link PresupuestoExcedidoException} y quien lo llamó decide qué servir.
+ */
+abstract class DxfPathWriter implements DxfEntityHandler {
+
+    static final int DECIMALES = 4;
+    static final double ESCALA_DECIMALES = 10_000.0;
+    static final double CUANTO_COMPLETO = 1.0 / ESCALA_DECIMALES;
+
+    /** Cada cuántos tramos se controla el presupuesto. */
+    private static final int MASCARA_CONTROL = 1023;
+
+    private final double[] arcoTmp = new double[5];
+    private boolean valoresInvalidos;
+    private final DxfPresupuesto.Control control;
+    private int tramosSinControl;
+
+    // Con tolerancia 0 no se simplifica nada
+    protected final double cuanto;
+    protected final int mantisa;
+    protected final int exponente;
+    private final double tolerancia;
+    private final double lazoMinimo;
+    protected double origenX;
+    protected double origenY;
+
+    // Estado del subtrazo en curso
+    private boolean nuevoSubpath;
+    private boolean invertido;
+    private long inicioX;
+    private long inicioY;
+
+    // Tramos rectos pendientes; el primero es el punto actual de la pluma
+    private long[] px = new long[256];
+    private long[] py = new long[256];
+    private int puntos;
+    private boolean[] conservar = new boolean[256];
+    private int[] pila = new int[64];
+
+    /**
+     * Grilla para ver el dibujo a pixeles de ancho (el lado mayor): el mayor 1, 2 o 5 × 10^k
+     * que no supera medio píxel. Con pixeles &lt;= 0 la grilla es la del detalle completo y no
+     * se simplifica.
+     */
+    protected DxfPathWriter(DxfAnalysis analisis, int pixeles, DxfPresupuesto.Control control) {
+        this.control = control;
+        double medioPixel = Math.max(analisis.getAncho(), analisis.getAlto()) / pixeles / 2;
+        if (pixeles > 0 && medioPixel > CUANTO_COMPLETO && Double.isFinite(medioPixel)) {
+            int e = (int) Math.floor(Math.log10(medioPixel));
+            double m = medioPixel / Math.pow(10, e);
+            this.mantisa = m >= 5 ? 5 : m >= 2 ? 2 : 1;
+            this.exponente = e;
+        } else {
+            this.mantisa = 1;
+            this.exponente = -DECIMALES;
+        }
+        this.cuanto = mantisa * Math.pow(10, exponente);
+        this.tolerancia = pixeles > 0 ? cuanto : 0;
+        // Un píxel es al menos dos pasos de la grilla
+        this.lazoMinimo = 2 * tolerancia;
+        this.origenX = Math.round(analisis.getMinX() * ESCALA_DECIMALES) / ESCALA_DECIMALES;
+        this.origenY = Math.round(analisis.getMinY() * ESCALA_DECIMALES) / ESCALA_DECIMALES;
+    }
+
+    /** Empieza el trazo de una pieza; cerrada es false para el de las primitivas sueltas. */
+    protected abstract void abrirTrazo(boolean cerrada, boolean principal);
+
+    protected abstract void cerrarTrazo();
+
+    /** Empieza un subtrazo en la pluma + (dx, dy). */
+    protected abstract void escribirMovimiento(long dx, long dy);
+
+    /** Antes de una serie de {@link #escribirRecta}. */
+    protected abstract void empezarRectas();
+
+    protected abstract void escribirRecta(long dx, long dy, boolean primera);
+
+    /** Arco hasta la pluma + (dx, dy); los radios van en pasos de la grilla. */
+    protected abstract void escribirArco(long rx, long ry, double rotacion, boolean grande, boolean antihorario, long dx, long dy);
+
+    /** Cierra el subtrazo; la pluma vuelve a su inicio. */
+    protected abstract void escribirCierre();
+
+    /** Bytes que ocupa la salida hasta ahora, para el control de memoria. */
+    protected abstract long getTamanioSalida();
+
+    protected boolean isValoresInvalidos() {
+        return valoresInvalidos;
+    }
+
+    /**
+     * Recorre el dibujo con el detalle pedido: todo, solo los contornos exteriores de las
+     * piezas, o un rectángulo con la caja del dibujo.
+     *
+     * @throws PresupuestoExcedidoException si se pasa del presupuesto
+     */
+    protected void recorrer(DxfAnalysis analisis, Detalle detalle) {
+        if (detalle == Detalle.CAJA) {
+            recorrerCaja(analisis);
+        } else {
+            recorrer(analisis.getContornos(), analisis.getGeometria(), detalle == Detalle.CONTORNOS);
+            control.verificarMemoria(getTamanioSalida());
+        }
+    }
+
+    /**
+     * Un trazo por contorno exterior con todos los lazos que contiene, y uno más con las
+     * primitivas que no forman parte de ningún lazo. Con soloExteriores, cada trazo lleva solo
+     * el contorno exterior y lo que no cierra se omite.
+     */
+    private void recorrer(DxfContours contornos, DxfGeometry geometria, boolean soloExteriores) {
+        DxfGeometry.Lector lector = geometria.lector();
+        int lazos = contornos.getLazosCerrados();
+
+        // Lazos agrupados por el contorno exterior que los contiene (orden por conteo)
+        int[] exterior = new int[lazos];
+        int[] desde = new int[lazos + 1];
+        int principal = -1;
+        for (int l = 0; l < lazos; l++) {
+            int r = l;
+            while (contornos.getPadre(r) >= 0) {
+                r = contornos.getPadre(r);
+            }
+            exterior[l] = r;
+            desde[r + 1]++;
+            if (r == l && (principal < 0 || contornos.getArea(l) > contornos.getArea(principal))) {
+                principal = l;
+            }
+        }
+        for (int r = 0; r < lazos; r++) {
+            desde[r + 1] += desde[r];
+        }
+        int[] orden = new int[lazos];
+        int[] cursor = Arrays.copyOf(desde, lazos);
+        for (int l = 0; l < lazos; l++) {
+            orden[cursor[exterior[l]]++] = l;
+        }
+
+        for (int r = 0; r < lazos; r++) {
+            if (desde[r] == desde[r + 1] || (r != principal && contornos.getTamanio(r) < lazoMinimo)) {
+                continue;
+            }
+            empezarTrazo(true, r == principal);
+            for (int k = desde[r]; k < desde[r + 1]; k++) {
+                int lazo = orden[k];
+                if ((lazo != principal && contornos.getTamanio(lazo) < lazoMinimo) || (soloExteriores && lazo != r)) {
+                    continue;
+                }
+                nuevoSubpath = true;
+                for (int p = contornos.getInicioPasos(lazo); p < contornos.getFinPasos(lazo); p++) {
+                    int paso = contornos.getPaso(p);
+                    invertido = (paso & 1) != 0;
+                    lector.emitir(paso >> 1, this);
+                    controlar();
+                }
+                cerrarSubpath();
+            }
+            cerrarTrazo();
+        }
+        if (soloExteriores) {
+            return;
+        }
+
+        boolean abierto = false;
+        invertido = false;
+        for (int i = 0; i < geometria.getCantidadPrimitivas(); i++) {
+            if (contornos.getLazo(i) >= 0) {
+                continue;
+            }
+            if (!abierto) {
+                empezarTrazo(false, false);
+                abierto = true;
+            }
+            nuevoSubpath = true;
+            lector.emitir(i, this);
+            controlar();
+        }
+        if (abierto) {
+            descargar();
+            cerrarTrazo();
+        }
+    }
+
+    /**
+     * Un único contorno cerrado con la caja del dibujo; no depende del tamaño de la geometría.
+     */
+    private void recorrerCaja(DxfAnalysis analisis) {
+        empezarTrazo(true, true);
+        invertido = false;
+        nuevoSubpath = true;
+        desde(analisis.getMinX(), analisis.getMinY());
+        hasta(analisis.getMaxX(), analisis.getMinY());
+        hasta(analisis.getMaxX(), analisis.getMaxY());
+        hasta(analisis.getMinX(), analisis.getMaxY());
+        cerrarSubpath();
+        cerrarTrazo();
+    }
+
+    /**
+     * Cuenta un tramo y, cada tanto, controla el presupuesto con lo que ocupan la salida y
+     * los tramos pendientes.
+     */
+    private void controlar() {
+        if ((++tramosSinControl & MASCARA_CONTROL) == 0) {
+            control.verificar(getTamanioSalida() + 16L * px.length);
+        }
+    }
+
+    private void empezarTrazo(boolean cerrada, boolean principal) {
+        abrirTrazo(cerrada, principal);
+        // La pluma arranca en el origen de la grilla
+        px[0] = 0;
+        py[0] = 0;
+        puntos = 1;
+    }
+
+    // Cada primitiva continúa el subtrazo en curso (o lo empieza) y, si está invertida, se
+    // recorre del fin al inicio.
+
+    @Override
+    public void linea(double x1, double y1, double x2, double y2) {
+        if (invertido) {
+            desde(x2, y2);
+            hasta(x1, y1);
+        } else {
+            desde(x1, y1);
+            hasta(x2, y2);
+        }
+    }
+
+    @Override
+    public void arco(double cx, double cy, double radio, double anguloInicio, double anguloFin) {
+        double barrido = DxfMath.barrido(anguloInicio, anguloFin);
+        double inicio = Math.toRadians(anguloInicio);
+        if (barrido >= 360.0) {
+            double medio = inicio + Math.PI;
+            desde(cx + radio * Math.cos(inicio), cy + radio * Math.sin(inicio));
+            tramoArco(radio, radio, 0, false, true, Math.PI, cx + radio * Math.cos(medio), cy + radio * Math.sin(medio));
+            tramoArco(radio, radio, 0, false, true, Math.PI, cx + radio * Math.cos(inicio), cy + radio * Math.sin(inicio));
+            return;
+        }
+        double fin = Math.toRadians(anguloInicio + barrido);
+        double x1 = cx + radio * Math.cos(inicio), y1 = cy + radio * Math.sin(inicio);
+        double x2 = cx + radio * Math.cos(fin), y2 = cy + radio * Math.sin(fin);
+        double rad = Math.toRadians(barrido);
+        if (invertido) {
+            desde(x2, y2);
+            tramoArco(radio, radio, 0, barrido > 180.0, false, rad, x1, y1);
+        } else {
+            desde(x1, y1);
+            tramoArco(radio, radio, 0, barrido > 180.0, true, rad, x2, y2);
+        }
+    }
+
+    @Override
+    public void circulo(double cx, double cy, double radio) {
+        desde(cx + radio, cy);
+        tramoArco(radio, radio, 0, false, true, Math.PI, cx - radio, cy);
+        tramoArco(radio, radio, 0, false, true, Math.PI, cx + radio, cy);
+    }
+
+    @Override
+    public void polilinea(double[] xs, double[] ys, double[] bulges, int n, boolean cerrada) {
+        if (n < 2) {
+            return;
+        }
+        if (invertido) {
+            // Solo las abiertas se recorren al revés: cada tramo va de i+1 a i con el bulge opuesto
+            desde(xs[n - 1], ys[n - 1]);
+            for (int i = n - 2; i >= 0; i--) {
+                tramoPolilinea(xs[i + 1], ys[i + 1], xs[i], ys[i], -bulges[i], false);
+            }
+            return;
+        }
+        desde(xs[0], ys[0]);
+        int tramos = cerrada ? n : n - 1;
+        for (int i = 0; i < tramos; i++) {
+            int j = i + 1 == n ? 0 : i + 1;
+            // El tramo recto de cierre lo dibuja el cierre del subtrazo
+            tramoPolilinea(xs[i], ys[i], xs[j], ys[j], bulges[i], j == 0);
+        }
+    }
+
+    private void tramoPolilinea(double x1, double y1, double x2, double y2, double bulge, boolean cierre) {
+        if (bulge != 0 && DxfMath.arcoDeBulge(x1, y1, x2, y2, bulge, arcoTmp)) {
+            tramoArco(arcoTmp[2], arcoTmp[2], 0, Math.abs(bulge) > 1, bulge > 0, 4 * Math.atan(Math.abs(bulge)), x2, y2);
+        } else if (!cierre) {
+            hasta(x2, y2);
+        }
+    }
+
+    @Override
+    public void elipse(double cx, double cy, double ejeMayorX, double ejeMayorY, double ratio, double paramInicio, double paramFin) {
+        double rx = Math.sqrt(ejeMayorX * ejeMayorX + ejeMayorY * ejeMayorY);
+        double ry = rx * ratio;
+        double rotacion = Math.toDegrees(Math.atan2(ejeMayorY, ejeMayorX));
+        double barrido = DxfMath.barridoRadianes(paramInicio, paramFin);
+        if (barrido >= 2 * Math.PI - 1e-9) {
+            desde(puntoElipseX(cx, ejeMayorX, ejeMayorY, ratio, paramInicio), puntoElipseY(cy, ejeMayorX, ejeMayorY, ratio, paramInicio));
+            double medio = paramInicio + Math.PI;
+            tramoArco(rx, ry, rotacion, false, true, Math.PI,
+                puntoElipseX(cx, ejeMayorX, ejeMayorY, ratio, medio), puntoElipseY(cy, ejeMayorX, ejeMayorY, ratio, medio));
+            tramoArco(rx, ry, rotacion, false, true, Math.PI,
+                puntoElipseX(cx, ejeMayorX, ejeMayorY, ratio, paramInicio), puntoElipseY(cy, ejeMayorX, ejeMayorY, ratio, paramInicio));
+            return;
+        }
+        double desdeParam = invertido ? paramInicio + barrido : paramInicio;
+        double hastaParam = invertido ? paramInicio : paramInicio + barrido;
+        desde(puntoElipseX(cx, ejeMayorX, ejeMayorY, ratio, desdeParam), puntoElipseY(cy, ejeMayorX, ejeMayorY, ratio, desdeParam));
+        tramoArco(rx, ry, rotacion, barrido > Math.PI, !invertido, barrido,
+            puntoElipseX(cx, ejeMayorX, ejeMayorY, ratio, hastaParam), puntoElipseY(cy, ejeMayorX, ejeMayorY, ratio, hastaParam));
+    }
+
+    @Override
+    public void spline(double[] xs, double[] ys, int n, boolean cerrada) {
+        if (n < 2) {
+            return;
+        }
+        if (invertido) {
+            desde(xs[n - 1], ys[n - 1]);
+            for (int i = n - 2; i >= 0; i--) {
+                hasta(xs[i], ys[i]);
+            }
+            return;
+        }
+        desde(xs[0], ys[0]);
+        for (int i = 1; i < n; i++) {
+            hasta(xs[i], ys[i]);
+        }
+    }
+
+    /**
+     * Empieza un subtrazo en (x, y) si hace falta; si no, la primitiva sigue desde donde
+     * terminó la anterior del lazo (a menos de la tolerancia de unión).
+     */
+    private void desde(double x, double y) {
+        if (!nuevoSubpath) {
+            return;
+        }
+        nuevoSubpath = false;
+        descargar();
+        long gx = grillaX(x);
+        long gy = grillaY(y);
+        // Relativo a la pluma: después de un cierre es el inicio del subtrazo anterior
+        escribirMovimiento(gx - px[0], gy - py[0]);
+        inicioX = gx;
+        inicioY = gy;
+        px[0] = gx;
+        py[0] = gy;
+        puntos = 1;
+    }
+
+    /**
+     * Agrega un tramo recto. Los puntos repetidos en la grilla se descartan y los colineales
+     * en el mismo sentido se fusionan con el tramo anterior.
+     */
+    private void hasta(double x, double y) {
+        controlar();
+        long gx = grillaX(x);
+        long gy = grillaY(y);
+        long ux = px[puntos - 1];
+        long uy = py[puntos - 1];
+        if (gx == ux && gy == uy) {
+            return;
+        }
+        if (puntos >= 2) {
+            long ax = ux - px[puntos - 2], ay = uy - py[puntos - 2];
+            long bx = gx - ux, by = gy - uy;
+            if ((double) ax * by == (double) ay * bx && (double) ax * bx + (double) ay * by > 0) {
+                px[puntos - 1] = gx;
+                py[puntos - 1] = gy;
+                return;
+            }
+        }
+        if (puntos == px.length) {
+            px = Arrays.copyOf(px, puntos * 2);
+            py = Arrays.copyOf(py, puntos * 2);
+        }
+        px[puntos] = gx;
+        py[puntos] = gy;
+        puntos++;
+    }
+
+    /**
+     * Arco hasta (x, y). Si su flecha no llega a la tolerancia se toma como recta y entra
+     * en la simplificación de los tramos rectos.
+     */
+    private void tramoArco(double rx, double ry, double rotacion, boolean grande, boolean antihorario,
+            double barrido, double x, double y) {
+        double flecha = Math.max(rx, ry) * (1 - Math.cos(Math.min(Math.abs(barrido), Math.PI) / 2));
+        if (flecha < tolerancia) {
+            hasta(x, y);
+            return;
+        }
+        descargar();
+        long gx = grillaX(x);
+        long gy = grillaY(y);
+        escribirArco(Math.max(1, Math.round(rx / cuanto)), Math.max(1, Math.round(ry / cuanto)), rotacion,
+            grande, antihorario, gx - px[0], gy - py[0]);
+        px[0] = gx;
+        py[0] = gy;
+    }
+
+    private void cerrarSubpath() {
+        // El último punto, si coincide con el inicio, lo dibuja el cierre
+        if (puntos >= 2 && px[puntos - 1] == inicioX && py[puntos - 1] == inicioY) {
+            puntos--;
+        }
+        descargar();
+        escribirCierre();
+        px[0] = inicioX;
+        py[0] = inicioY;
+    }
+
+    /**
+     * Entrega los tramos rectos pendientes, simplificados con Douglas-Peucker si hay tolerancia.
+     */
+    private void descargar() {
+        if (puntos < 2) {
+            return;
+        }
+        if (conservar.length < puntos) {
+            conservar = new boolean[px.length];
+        }
+        if (tolerancia > 0 && puntos > 2) {
+            douglasPeucker();
+        } else {
+            Arrays.fill(conservar, 0, puntos, true);
+        }
+        long ux = px[0];
+        long uy = py[0];
+        empezarRectas();
+        boolean primera = true;
+        for (int i = 1; i < puntos; i++) {
+            if (!conservar[i]) {
+                continue;
+            }
+            escribirRecta(px[i] - ux, py[i] - uy, primera);
+            ux = px[i];
+            uy = py[i];
+            primera = false;
+        }
+        px[0] = ux;
+        py[0] = uy;
+        puntos = 1;
+    }
+
+    /**
+     * Marca en conservar los puntos que quedan; la tolerancia en la grilla es de un paso.
+     */
+    private void douglasPeucker() {
+        Arrays.fill(conservar, 0, puntos, false);
+        conservar[0] = true;
+        conservar[puntos - 1] = true;
+        double tol = tolerancia / cuanto;
+        int tope = 0;
+        pila = asegurarPila(pila, 2);
+        pila[tope++] = 0;
+        pila[tope++] = puntos - 1;
+        while (tope > 0) {
+            int b = pila[--tope];
+            int a = pila[--tope];
+            double ax = px[a], ay = py[a];
+            double dx = px[b] - ax, dy = py[b] - ay;
+            double largo2 = dx * dx + dy * dy;
+            int peor = -1;
+            double peorDistancia = largo2 > 0 ? tol * tol * largo2 : tol * tol;
+            for (int i = a + 1; i < b; i++) {
+                double ex = px[i] - ax, ey = py[i] - ay;
+                // Distancia a la recta por a y b, escalada por |ab|²; si a = b, al punto a
+                double d = largo2 > 0 ? (dx * ey - dy * ex) * (dx * ey - dy * ex) : ex * ex + ey * ey;
+                if (d > peorDistancia) {
+                    peorDistancia = d;
+                    peor = i;
+                }
+            }
+            if (peor >= 0) {
+                conservar[peor] = true;
+                pila = asegurarPila(pila, tope + 4);
+                pila[tope++] = a;
+                pila[tope++] = peor;
+                pila[tope++] = peor;
+                pila[tope++] = b;
+            }
+        }
+    }
+
+    private static int[] asegurarPila(int[] pila, int largo) {
+        return largo <= pila.length ? pila : Arrays.copyOf(pila, Math.max(pila.length * 2, largo));
+    }
+
+    private long grillaX(double x) {
+        if (!Double.isFinite(x)) {
+            valoresInvalidos = true;
+            return 0;
+        }
+        return Math.round((x - origenX) / cuanto);
+    }
+
+    private long grillaY(double y) {
+        if (!Double.isFinite(y)) {
+            valoresInvalidos = true;
+            return 0;
+        }
+        return Math.round((y - origenY) / cuanto);
+    }
+
+    protected void marcarInvalido() {
+        valoresInvalidos = true;
+    }
+
+    private static double puntoElipseX(double cx, double mx, double my, double ratio, double t) {
+        return cx + mx * Math.cos(t) - ratio * my * Math.sin(t);
+    }
+
+    private static double puntoElipseY(double cy, double mx, double my, double ratio, double t) {
+        return cy + my * Math.cos(t) + ratio * mx * Math.sin(t);
+    }
+
+}
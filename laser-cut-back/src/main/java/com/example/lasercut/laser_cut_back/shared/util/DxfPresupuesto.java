@@ -0,0 +1,81 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import com.example.lasercut.laser_cut_back.exception.PresupuestoExcedidoException;
+
+/**
+ * Límites de tiempo y memoria para escribir una vista previa. El tiempo corre desde
+ * {@link #iniciar()}; la memoria es la que va ocupando la salida del writer.
+ *
+ * Un límite &lt;= 0 no se controla.
+ */
+public class DxfPresupuesto {
+
+    public static final DxfPresupuesto SIN_LIMITE = new DxfPresupuesto(0, 0);
+
+    private final long milisegundos;
+    private final long bytes;
+
+    public DxfPresupuesto(long milisegundos, long bytes) {
+        this.milisegundos = milisegundos;
+        this.bytes = bytes;
+    }
+
+    public long getMilisegundos() {
+        return milisegundos;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Empieza a contar el tiempo; cada vista previa lleva su propio control.
+     */
+    public Control iniciar() {
+        return new Control(this, milisegundos > 0 ? System.nanoTime() + milisegundos * 1_000_000L : 0);
+    }
+
+    public static final class Control {
+
+        private final DxfPresupuesto presupuesto;
+        private final long vence;
+
+        private Control(DxfPresupuesto presupuesto, long vence) {
+            this.presupuesto = presupuesto;
+            this.vence = vence;
+        }
+
+        /**
+         * Tamaño inicial razonable para un buffer de salida: lo estimado, sin pasar el límite.
+         */
+        int acotar(long estimado) {
+            long tope = presupuesto.bytes > 0 ? Math.min(estimado, presupuesto.bytes) : estimado;
+            return (int) Math.min(tope, Integer.MAX_VALUE - 16);
+        }
+
+        /**
+         * @throws PresupuestoExcedidoException si pasó el tiempo, se superó la memoria o se
+         *     interrumpió el hilo
+         */
+        void verificar(long bytesOcupados) {
+            verificarMemoria(bytesOcupados);
+            if (vence != 0 && System.nanoTime() - vence > 0) {
+                throw new PresupuestoExcedidoException("La vista previa supera los " + presupuesto.milisegundos + " ms");
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new PresupuestoExcedidoException("Generación de la vista previa interrumpida");
+            }
+        }
+
+        /**
+         * Solo la memoria: para la salida ya terminada, que no tiene sentido tirar por tiempo.
+         */
+        void verificarMemoria(long bytesOcupados) {
+            if (presupuesto.bytes > 0 && bytesOcupados > presupuesto.bytes) {
+                throw new PresupuestoExcedidoException("La vista previa supera los " + presupuesto.bytes + " bytes");
+            }
+        }
+
+    }
+
+}
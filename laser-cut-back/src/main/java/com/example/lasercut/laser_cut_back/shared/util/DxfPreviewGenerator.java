@@ -1,178 +1,136 @@
 package com.example.lasercut.laser_cut_back.shared.util;
 
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Base64;
-import java.util.HashMap;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.sax.SAXTransformerFactory;
-import javax.xml.transform.sax.TransformerHandler;
-import javax.xml.transform.stream.StreamResult;
-
-import org.kabeja.dxf.DXFDocument;
-import org.kabeja.parser.Parser;
-import org.kabeja.parser.ParserBuilder;
-import org.kabeja.svg.SVGGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.example.lasercut.laser_cut_back.exception.PresupuestoExcedidoException;
 import com.example.lasercut.laser_cut_back.exception.PreviewGenerationException;
 
 public class DxfPreviewGenerator {
 
     private static final Logger logger = LoggerFactory.getLogger(DxfPreviewGenerator.class);
 
-    private static final String PIEZA_CLASS = "pieza-principal";
-    private static final String PIEZA_FILL = "#e0e0e0";
-    private static final String CIRCLE_FILL = "#ffffff";
-    private static final String FILL_RULE = "evenodd";
-    private static final String SVG_TAG = "<svg";
+    /**
+     * Ancho en píxeles para el que se simplifica cada nivel de detalle; 0 es el dibujo completo.
+     * El cliente pide primero el nivel más bajo y el siguiente al hacer zoom.
+     */
+    private static final int[] PIXELES_POR_NIVEL = {512, 2048, 0};
 
-    private static final String STYLE_BLOCK = "<style>." + PIEZA_CLASS + "{fill:" + PIEZA_FILL + ";fill-rule:" + FILL_RULE + "} circle{fill:" + CIRCLE_FILL + "}</style>";
+    public static final int NIVEL_COMPLETO = PIXELES_POR_NIVEL.length - 1;
 
-    private static final Pattern PATH_PATTERN = Pattern.compile("<path\\b[^>]*>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-    private static final Pattern D_ATTR_PATTERN = Pattern.compile("\\bd\\s*=\\s*\"([^\"]+)\"", Pattern.CASE_INSENSITIVE);
-    private static final Pattern NUM_PATTERN = Pattern.compile("[-+]?(?:\\d*\\.\\d+|\\d+)(?:[eE][-+]?\\d+)?");
-    private static final Pattern CLASS_ATTR_PATTERN = Pattern.compile("\\bclass\\s*=\\s*\"([^\"]*)\"", Pattern.CASE_INSENSITIVE);
-    private static final String PATH_OPEN_REGEX = "<path\\b";
-
-    private static class MatchInfo {
-        int start, end;
-        String tag;
-        MatchInfo(int s, int e, String t) { start = s; end = e; tag = t; }
+    /**
+     * Qué tanto del dibujo entra en la salida. Si el dibujo completo no entra en el presupuesto
+     * se baja a los contornos exteriores de las piezas y, si tampoco, a la caja del dibujo.
+     */
+    public enum Detalle {
+        COMPLETO, CONTORNOS, CAJA
     }
 
-    private static String marcarPathExterior(String svg, String className) {
-        try {
-            Matcher m = PATH_PATTERN.matcher(svg);
-
-            List<MatchInfo> matches = new ArrayList<>();
-            double bestArea = -1.0;
-            int bestIndex = -1;
-
-            int idx = 0;
-            while (m.find()) {
-                String tag = m.group();
-                double area = areaAproxDePath(tag);
-                matches.add(new MatchInfo(m.start(), m.end(), tag));
-                if (area > bestArea) {
-                    bestArea = area;
-                    bestIndex = idx;
-                }
-                idx++;
-            }
+    /**
+     * Salida de un writer y el detalle con el que efectivamente se generó.
+     */
+    public static final class Salida {
 
-            if (bestIndex >= 0 && bestIndex < matches.size()) {
-                MatchInfo best = matches.get(bestIndex);
-                String modTag = agregarClaseAlPath(best.tag, className);
-                if (!modTag.equals(best.tag)) {
-                    StringBuilder sb = new StringBuilder(svg);
-                    sb.replace(best.start, best.end, modTag);
-                    return sb.toString();
-                }
-            }
-        } catch (Exception ignore) {
+        private final byte[] datos;
+        private final Detalle detalle;
+
+        private Salida(byte[] datos, Detalle detalle) {
+            this.datos = datos;
+            this.detalle = detalle;
         }
-        return svg;
-    }
 
-    private static double areaAproxDePath(String pathTag) {
-        try {
-            Matcher dm = D_ATTR_PATTERN.matcher(pathTag);
-            if (!dm.find()) return -1.0;
-            String d = dm.group(1);
-
-            Matcher nm = NUM_PATTERN.matcher(d);
-            List<Double> nums = new ArrayList<>();
-            while (nm.find()) {
-                try {
-                    nums.add(Double.parseDouble(nm.group()));
-                } catch (NumberFormatException ignored) {}
-            }
-            if (nums.size() < 4) return -1.0;
-
-            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
-            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
-            for (int i = 0; i + 1 < nums.size(); i += 2) {
-                double x = nums.get(i);
-                double y = nums.get(i + 1);
-                if (x < minX) minX = x; if (x > maxX) maxX = x;
-                if (y < minY) minY = y; if (y > maxY) maxY = y;
-            }
-            if (!Double.isFinite(minX) || !Double.isFinite(maxX) || !Double.isFinite(minY) || !Double.isFinite(maxY)) return -1.0;
-            double w = Math.max(0, maxX - minX);
-            double h = Math.max(0, maxY - minY);
-            double area = w * h;
-            return Double.isFinite(area) ? area : -1.0;
-        } catch (Exception e) {
-            return -1.0;
+        public byte[] getDatos() {
+            return datos;
         }
-    }
 
-    private static String agregarClaseAlPath(String pathTag, String className) {
-        try {
-            Matcher cm = CLASS_ATTR_PATTERN.matcher(pathTag);
-            if (cm.find()) {
-                String classes = cm.group(1);
-                if (classes != null && classes.contains(className)) return pathTag; // ya la tiene
-                String nuevas = classes == null || classes.isEmpty() ? className : (classes + " " + className);
-                return pathTag.substring(0, cm.start(1)) + nuevas + pathTag.substring(cm.end(1));
-            } else {
-                return pathTag.replaceFirst(PATH_OPEN_REGEX, "<path class=\"" + className + "\"");
-            }
-        } catch (Exception e) {
-            return pathTag;
+        public Detalle getDetalle() {
+            return detalle;
+        }
+
+        public boolean isDegradada() {
+            return detalle != Detalle.COMPLETO;
         }
+
     }
 
-    public static String generarVistaPreviaBase64(InputStream dxfInputStream) {
-        try {
-            Parser parser = ParserBuilder.createDefaultParser();
-            parser.parse(dxfInputStream, "");
-            DXFDocument doc = parser.getDocument();
+    @FunctionalInterface
+    private interface Writer {
+        byte[] escribir(DxfAnalysis analisis, int pixeles, DxfPresupuesto presupuesto, Detalle detalle);
+    }
 
-            if (doc == null) {
-                logger.warn("DXFDocument es nulo, no se puede generar preview");
-                throw new PreviewGenerationException("El documento DXF es nulo o no se pudo parsear.", null);
-            }
+    public static int getNiveles() {
+        return PIXELES_POR_NIVEL.length;
+    }
 
-            ByteArrayOutputStream svgOutput = new ByteArrayOutputStream();
-            SVGGenerator generator = new SVGGenerator();
+    /**
+     * Genera la vista previa con todo el detalle.
+     */
+    public static byte[] generarVistaPrevia(DxfAnalysis analisis) {
+        return generarVistaPrevia(analisis, NIVEL_COMPLETO);
+    }
 
-            SAXTransformerFactory tf = (SAXTransformerFactory) SAXTransformerFactory.newInstance();
-            TransformerHandler handler = tf.newTransformerHandler();
-            handler.getTransformer().setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-            handler.getTransformer().setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
-            handler.setResult(new StreamResult(svgOutput));
+    /**
+     * Genera la vista previa a partir de la geometría ya leída, sin volver a parsear el DXF.
+     * El contorno exterior y los agujeros ya salen marcados de {@link DxfSvgWriter}.
+     *
+     * @param nivel nivel de detalle, de 0 a {@link #NIVEL_COMPLETO}
+     */
+    public static byte[] generarVistaPrevia(DxfAnalysis analisis, int nivel) {
+        return generarVistaPrevia(analisis, nivel, DxfPresupuesto.SIN_LIMITE).getDatos();
+    }
 
-            generator.generate(doc, handler, new HashMap<>());
+    /**
+     * Como {@link #generarVistaPrevia(DxfAnalysis, int)}, pero dentro del presupuesto: si no
+     * alcanza, se sirve una versión degradada (ver {@link Detalle}).
+     */
+    public static Salida generarVistaPrevia(DxfAnalysis analisis, int nivel, DxfPresupuesto presupuesto) {
+        return generar(DxfSvgWriter::escribir, "vista previa", analisis, nivel, presupuesto);
+    }
 
-            String svg = svgOutput.toString(StandardCharsets.UTF_8);
-            if (svg.contains("NaN") || svg.trim().isEmpty()) {
-                logger.warn("SVG generado inválido o vacío");
-                throw new PreviewGenerationException("SVG generado vacío o inválido (contiene NaN)", null);
-            }
+    /**
+     * Misma geometría que {@link #generarVistaPrevia(DxfAnalysis, int)}, en el formato binario
+     * de {@link DxfBinaryWriter}.
+     *
+     * @param nivel nivel de detalle, de 0 a {@link #NIVEL_COMPLETO}
+     */
+    public static byte[] generarGeometria(DxfAnalysis analisis, int nivel) {
+        return generarGeometria(analisis, nivel, DxfPresupuesto.SIN_LIMITE).getDatos();
+    }
 
-            int svgTagStart = svg.indexOf(SVG_TAG);
-            if (svgTagStart >= 0) {
-                int svgTagEnd = svg.indexOf('>', svgTagStart);
-                if (svgTagEnd > svgTagStart) {
-                    svg = svg.substring(0, svgTagEnd + 1) + STYLE_BLOCK + svg.substring(svgTagEnd + 1);
-                }
-            }
+    /**
+     * Como {@link #generarGeometria(DxfAnalysis, int)}, dentro del presupuesto y con la misma
+     * degradación que la vista previa.
+     */
+    public static Salida generarGeometria(DxfAnalysis analisis, int nivel, DxfPresupuesto presupuesto) {
+        return generar(DxfBinaryWriter::escribir, "geometría binaria", analisis, nivel, presupuesto);
+    }
 
-            svg = marcarPathExterior(svg, "pieza-principal");
+    /**
+     * Intenta el nivel pedido y, si se pasa del presupuesto, los contornos exteriores al nivel
+     * más simplificado (con un presupuesto nuevo) y por último la caja, que es de tamaño fijo.
+     */
+    private static Salida generar(Writer writer, String que, DxfAnalysis analisis, int nivel, DxfPresupuesto presupuesto) {
+        try {
+            if (analisis == null || analisis.getGeometria().isVacia()) {
+                logger.warn("Análisis DXF vacío, no se puede generar la {}", que);
+                throw new PreviewGenerationException("El documento DXF es nulo o no se pudo parsear.", null);
+            }
 
-            return Base64.getEncoder().encodeToString(svg.getBytes(StandardCharsets.UTF_8));
+            try {
+                return new Salida(writer.escribir(analisis, PIXELES_POR_NIVEL[nivel], presupuesto, Detalle.COMPLETO), Detalle.COMPLETO);
+            } catch (PresupuestoExcedidoException e) {
+                logger.warn("{} (nivel {}, {} primitivas): se genera solo con los contornos", e.getMessage(), nivel, analisis.getPrimitivas());
+            }
+            try {
+                return new Salida(writer.escribir(analisis, PIXELES_POR_NIVEL[0], presupuesto, Detalle.CONTORNOS), Detalle.CONTORNOS);
+            } catch (PresupuestoExcedidoException e) {
+                logger.warn("{} con solo los contornos: se genera la caja del dibujo", e.getMessage());
+            }
+            return new Salida(writer.escribir(analisis, PIXELES_POR_NIVEL[0], DxfPresupuesto.SIN_LIMITE, Detalle.CAJA), Detalle.CAJA);
 
         } catch (Exception e) {
-            logger.error("Error generando vista previa DXF", e);
-            throw new PreviewGenerationException("Error generando vista previa DXF", e);
+            logger.error("Error generando {} DXF", que, e);
+            throw new PreviewGenerationException("Error generando " + que + " DXF", e);
         }
     }
 
@@ -0,0 +1,640 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.example.lasercut.laser_cut_back.exception.BadRequestException;
+
+/**
+ * Lector DXF en una sola pasada.
+ *
+ * Recorre los pares código/valor de {@link DxfTokenizer} (o de {@link DxfBinaryTokenizer}, para
+ * DXF binarios) y emite la geometría de la sección
+ * ENTITIES hacia un {@link DxfEntityHandler}, sin construir objetos por entidad. El contenido
+ * de la sección BLOCKS se graba en {@link DxfGeometry} y se expande en cada INSERT.
+ *
+ * Entidades soportadas: LINE, ARC, CIRCLE, LWPOLYLINE, POLYLINE/VERTEX, ELLIPSE, SPLINE e INSERT.
+ * El resto (textos, cotas, hatch, etc.) se cuenta pero no aporta geometría de corte.
+ *
+ * Los {@link DxfLimites} se controlan dentro del bucle de lectura y de la expansión de
+ * bloques, así un archivo patológico se corta con BadRequestException en lugar de ocupar
+ * el hilo indefinidamente.
+ */
+public class DxfStreamReader {
+
+    private static final int SEGMENTOS_POR_TRAMO_SPLINE = 8;
+    private static final int GRADO_MAXIMO_SPLINE = 15;
+
+    /** Parámetros de ELLIPSE más allá de mil vueltas no salen de ningún programa de dibujo. */
+    private static final double MAX_PARAMETRO_ELIPSE = 1000 * 2 * Math.PI;
+
+    private static final int SECCION_OTRA = 0;
+    private static final int SECCION_BLOQUES = 1;
+    private static final int SECCION_ENTIDADES = 2;
+
+    private static final int NINGUNA = 0;
+    private static final int LINE = 1;
+    private static final int ARC = 2;
+    private static final int CIRCLE = 3;
+    private static final int LWPOLYLINE = 4;
+    private static final int POLYLINE = 5;
+    private static final int VERTEX = 6;
+    private static final int SEQEND = 7;
+    private static final int ELLIPSE = 8;
+    private static final int SPLINE = 9;
+    private static final int INSERT = 10;
+    private static final int OTRA = 11;
+    private static final int CABECERA_BLOQUE = 12;
+
+    private static final int POLILINEA_CERRADA = 1;
+    private static final int POLILINEA_MALLA = 16 | 64;
+    private static final int VERTICE_CONTROL_SPLINE = 16;
+    private static final int VERTICE_CARA = 128;
+
+    private final DxfEntityHandler handler;
+    private final DxfLimites.Control control;
+    private final Map<String, DxfGeometry> bloques = new HashMap<>();
+    private DxfPares tok;
+
+    private int seccion = SECCION_OTRA;
+    private boolean esperandoNombreSeccion;
+    private boolean huboSecciones;
+    private DxfGeometry bloqueActual;
+    private String nombreBloqueActual;
+
+    private int entidades;
+    private int entidadesSinGeometria;
+
+    // Campos de la entidad en curso (reutilizados entre entidades)
+    private int tipo = NINGUNA;
+    private double x1, y1, x2, y2;
+    private double radio, angulo1, angulo2;
+    private double ratio, param1, param2, bulge;
+    private double extrusionZ;
+    private double escalaX, escalaY, rotacion, espaciadoColumnas, espaciadoFilas;
+    private int flags, grado, columnas, filas;
+    private boolean espacioPapel;
+    private String nombre;
+
+    // Vértices de LWPOLYLINE / POLYLINE
+    private double[] vx = new double[64];
+    private double[] vy = new double[64];
+    private double[] vb = new double[64];
+    private int nv;
+
+    private boolean enPolilinea;
+    private boolean polilineaCerrada;
+    private boolean polilineaIgnorada;
+    private boolean polilineaEnPapel;
+    private double polilineaExtrusionZ;
+
+    // Datos de SPLINE
+    private double[] nudos = new double[32];
+    private int cantidadNudos;
+    private double[] pesos = new double[32];
+    private int cantidadPesos;
+    private double[] controlX = new double[32];
+    private double[] controlY = new double[32];
+    private int cantidadControl;
+    private double[] ajusteX = new double[32];
+    private double[] ajusteY = new double[32];
+    private int cantidadAjuste;
+    private double[] puntosX = new double[64];
+    private double[] puntosY = new double[64];
+    private int cantidadPuntos;
+    private final double[] deBoorX = new double[GRADO_MAXIMO_SPLINE + 1];
+    private final double[] deBoorY = new double[GRADO_MAXIMO_SPLINE + 1];
+    private final double[] deBoorW = new double[GRADO_MAXIMO_SPLINE + 1];
+
+    public DxfStreamReader(DxfEntityHandler handler) {
+        this(handler, DxfLimites.SIN_LIMITE);
+    }
+
+    public DxfStreamReader(DxfEntityHandler handler, DxfLimites limites) {
+        this.handler = handler;
+        this.control = limites.iniciar();
+    }
+
+    /**
+     * Control de límites de esta lectura; el análisis que sigue a la lectura lo sigue usando
+     * para que el tiempo y la interrupción cubran todo el proceso.
+     */
+    DxfLimites.Control getControl() {
+        return control;
+    }
+
+    /**
+     * Cantidad de entidades leídas (en ENTITIES y dentro de bloques), sin contar VERTEX ni SEQEND.
+     */
+    public int getEntidades() {
+        return entidades;
+    }
+
+    /**
+     * Entidades leídas que no aportan geometría de corte (textos, cotas, etc.).
+     */
+    public int getEntidadesSinGeometria() {
+        return entidadesSinGeometria;
+    }
+
+    public void leer(InputStream is) throws IOException {
+        leer(new DxfTokenizer(is));
+    }
+
+    public void leer(ByteBuffer datos) throws IOException {
+        leer(new DxfTokenizer(datos));
+    }
+
+    /**
+     * Lee los pares de cualquier origen, ASCII o binario.
+     */
+    public void leer(DxfPares pares) throws IOException {
+        tok = pares;
+        while (tok.siguiente()) {
+            control.avanzar();
+            int codigo = tok.codigo();
+            if (codigo == 0) {
+                terminarEntidad();
+                if (tok.valorEs("EOF")) {
+                    break;
+                }
+                iniciarRegistro();
+            } else if (esperandoNombreSeccion) {
+                if (codigo == 2) {
+                    esperandoNombreSeccion = false;
+                    seccion = tok.valorEs("ENTITIES") ? SECCION_ENTIDADES
+                        : tok.valorEs("BLOCKS") ? SECCION_BLOQUES
+                        : SECCION_OTRA;
+                }
+            } else if (tipo != NINGUNA) {
+                leerCampo(codigo);
+            }
+        }
+        terminarEntidad();
+        if (enPolilinea) {
+            terminarPolilinea();
+        }
+        if (!huboSecciones) {
+            throw new IOException("El archivo no tiene estructura DXF (no se encontró ninguna sección).");
+        }
+    }
+
+    private DxfEntityHandler destino() {
+        return bloqueActual != null ? bloqueActual : handler;
+    }
+
+    private void iniciarRegistro() {
+        tipo = NINGUNA;
+        if (tok.valorEs("SECTION")) {
+            esperandoNombreSeccion = true;
+            huboSecciones = true;
+            return;
+        }
+        if (tok.valorEs("ENDSEC")) {
+            if (enPolilinea) {
+                terminarPolilinea();
+            }
+            seccion = SECCION_OTRA;
+            return;
+        }
+        if (seccion == SECCION_BLOQUES) {
+            if (tok.valorEs("BLOCK")) {
+                bloqueActual = new DxfGeometry();
+                nombreBloqueActual = null;
+                tipo = CABECERA_BLOQUE;
+                reiniciarCampos();
+                return;
+            }
+            if (tok.valorEs("ENDBLK")) {
+                if (enPolilinea) {
+                    terminarPolilinea();
+                }
+                if (bloqueActual != null && nombreBloqueActual != null) {
+                    bloques.put(nombreBloqueActual, bloqueActual);
+                }
+                bloqueActual = null;
+                return;
+            }
+            if (bloqueActual == null) {
+                return;
+            }
+        } else if (seccion != SECCION_ENTIDADES) {
+            return;
+        }
+
+        int nuevo = tipoEntidad();
+        if (enPolilinea && nuevo != VERTEX && nuevo != SEQEND) {
+            terminarPolilinea();
+        }
+        tipo = nuevo;
+        reiniciarCampos();
+        if (nuevo != VERTEX && nuevo != SEQEND) {
+            control.contar(1);
+            entidades++;
+            if (nuevo == OTRA) {
+                entidadesSinGeometria++;
+            }
+        }
+        if (nuevo == LWPOLYLINE || nuevo == POLYLINE) {
+            nv = 0;
+        } else if (nuevo == SPLINE) {
+            cantidadNudos = 0;
+            cantidadPesos = 0;
+            cantidadControl = 0;
+            cantidadAjuste = 0;
+        }
+    }
+
+    private int tipoEntidad() {
+        if (tok.valorEs("LINE")) return LINE;
+        if (tok.valorEs("ARC")) return ARC;
+        if (tok.valorEs("CIRCLE")) return CIRCLE;
+        if (tok.valorEs("LWPOLYLINE")) return LWPOLYLINE;
+        if (tok.valorEs("POLYLINE")) return POLYLINE;
+        if (tok.valorEs("VERTEX")) return VERTEX;
+        if (tok.valorEs("SEQEND")) return SEQEND;
+        if (tok.valorEs("ELLIPSE")) return ELLIPSE;
+        if (tok.valorEs("SPLINE")) return SPLINE;
+        if (tok.valorEs("INSERT")) return INSERT;
+        return OTRA;
+    }
+
+    private void reiniciarCampos() {
+        x1 = y1 = x2 = y2 = 0;
+        radio = angulo1 = angulo2 = 0;
+        ratio = 1;
+        param1 = 0;
+        param2 = 2 * Math.PI;
+        bulge = 0;
+        extrusionZ = 1;
+        escalaX = escalaY = 1;
+        rotacion = 0;
+        espaciadoColumnas = espaciadoFilas = 0;
+        flags = 0;
+        grado = 3;
+        columnas = filas = 1;
+        espacioPapel = false;
+        nombre = null;
+    }
+
+    private void leerCampo(int codigo) throws IOException {
+        if (codigo == 67) {
+            espacioPapel = tok.valorInt() == 1;
+            return;
+        }
+        if (codigo == 230) {
+            extrusionZ = tok.valorDouble();
+            return;
+        }
+        switch (tipo) {
+            case LINE -> {
+                switch (codigo) {
+                    case 10 -> x1 = tok.valorDouble();
+                    case 20 -> y1 = tok.valorDouble();
+                    case 11 -> x2 = tok.valorDouble();
+                    case 21 -> y2 = tok.valorDouble();
+                    default -> { }
+                }
+            }
+            case ARC, CIRCLE -> {
+                switch (codigo) {
+                    case 10 -> x1 = tok.valorDouble();
+                    case 20 -> y1 = tok.valorDouble();
+                    case 40 -> radio = tok.valorDouble();
+                    case 50 -> angulo1 = tok.valorDouble();
+                    case 51 -> angulo2 = tok.valorDouble();
+                    default -> { }
+                }
+            }
+            case LWPOLYLINE -> {
+                switch (codigo) {
+                    case 70 -> flags = tok.valorInt();
+                    case 10 -> agregarVertice(tok.valorDouble(), 0, 0);
+                    case 20 -> {
+                        if (nv > 0) vy[nv - 1] = tok.valorDouble();
+                    }
+                    case 42 -> {
+                        if (nv > 0) vb[nv - 1] = tok.valorDouble();
+                    }
+                    default -> { }
+                }
+            }
+            case POLYLINE -> {
+                if (codigo == 70) flags = tok.valorInt();
+            }
+            case VERTEX -> {
+                switch (codigo) {
+                    case 10 -> x1 = tok.valorDouble();
+                    case 20 -> y1 = tok.valorDouble();
+                    case 42 -> bulge = tok.valorDouble();
+                    case 70 -> flags = tok.valorInt();
+                    default -> { }
+                }
+            }
+            case ELLIPSE -> {
+                switch (codigo) {
+                    case 10 -> x1 = tok.valorDouble();
+                    case 20 -> y1 = tok.valorDouble();
+                    case 11 -> x2 = tok.valorDouble();
+                    case 21 -> y2 = tok.valorDouble();
+                    case 40 -> ratio = tok.valorDouble();
+                    case 41 -> param1 = tok.valorDouble();
+                    case 42 -> param2 = tok.valorDouble();
+                    default -> { }
+                }
+            }
+            case SPLINE -> leerCampoSpline(codigo);
+            case INSERT -> {
+                switch (codigo) {
+                    case 2 -> nombre = tok.valorString();
+                    case 10 -> x1 = tok.valorDouble();
+                    case 20 -> y1 = tok.valorDouble();
+                    case 41 -> escalaX = tok.valorDouble();
+                    case 42 -> escalaY = tok.valorDouble();
+                    case 50 -> rotacion = tok.valorDouble();
+                    case 70 -> columnas = tok.valorInt();
+                    case 71 -> filas = tok.valorInt();
+                    case 44 -> espaciadoColumnas = tok.valorDouble();
+                    case 45 -> espaciadoFilas = tok.valorDouble();
+                    default -> { }
+                }
+            }
+            case CABECERA_BLOQUE -> {
+                switch (codigo) {
+                    case 2 -> nombreBloqueActual = tok.valorString();
+                    case 10 -> x1 = tok.valorDouble();
+                    case 20 -> y1 = tok.valorDouble();
+                    default -> { }
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private void leerCampoSpline(int codigo) throws IOException {
+        switch (codigo) {
+            case 70 -> flags = tok.valorInt();
+            case 71 -> grado = tok.valorInt();
+            case 40 -> {
+                if (cantidadNudos == nudos.length) nudos = Arrays.copyOf(nudos, nudos.length * 2);
+                nudos[cantidadNudos++] = tok.valorDouble();
+            }
+            case 41 -> {
+                if (cantidadPesos == pesos.length) pesos = Arrays.copyOf(pesos, pesos.length * 2);
+                pesos[cantidadPesos++] = tok.valorDouble();
+            }
+            case 10 -> {
+                if (cantidadControl == controlX.length) {
+                    controlX = Arrays.copyOf(controlX, controlX.length * 2);
+                    controlY = Arrays.copyOf(controlY, controlY.length * 2);
+                }
+                controlX[cantidadControl] = tok.valorDouble();
+                controlY[cantidadControl++] = 0;
+            }
+            case 20 -> {
+                if (cantidadControl > 0) controlY[cantidadControl - 1] = tok.valorDouble();
+            }
+            case 11 -> {
+                if (cantidadAjuste == ajusteX.length) {
+                    ajusteX = Arrays.copyOf(ajusteX, ajusteX.length * 2);
+                    ajusteY = Arrays.copyOf(ajusteY, ajusteY.length * 2);
+                }
+                ajusteX[cantidadAjuste] = tok.valorDouble();
+                ajusteY[cantidadAjuste++] = 0;
+            }
+            case 21 -> {
+                if (cantidadAjuste > 0) ajusteY[cantidadAjuste - 1] = tok.valorDouble();
+            }
+            default -> { }
+        }
+    }
+
+    private void terminarEntidad() throws IOException {
+        int actual = tipo;
+        tipo = NINGUNA;
+        switch (actual) {
+            case LINE -> {
+                if (!espacioPapel) destino().linea(x1, y1, x2, y2);
+            }
+            case CIRCLE -> {
+                if (!espacioPapel && radio > 0) {
+                    destino().circulo(extrusionZ < 0 ? -x1 : x1, y1, radio);
+                }
+            }
+            case ARC -> {
+                if (!espacioPapel && radio > 0) {
+                    if (extrusionZ < 0) {
+                        destino().arco(-x1, y1, radio, 180.0 - angulo2, 180.0 - angulo1);
+                    } else {
+                        destino().arco(x1, y1, radio, angulo1, angulo2);
+                    }
+                }
+            }
+            case LWPOLYLINE -> {
+                if (!espacioPapel) {
+                    emitirPolilinea((flags & POLILINEA_CERRADA) != 0, extrusionZ < 0);
+                }
+            }
+            case POLYLINE -> {
+                enPolilinea = true;
+                polilineaCerrada = (flags & POLILINEA_CERRADA) != 0;
+                polilineaIgnorada = (flags & POLILINEA_MALLA) != 0;
+                polilineaEnPapel = espacioPapel;
+                polilineaExtrusionZ = extrusionZ;
+                nv = 0;
+            }
+            case VERTEX -> {
+                if (enPolilinea && !polilineaIgnorada && (flags & (VERTICE_CONTROL_SPLINE | VERTICE_CARA)) == 0) {
+                    agregarVertice(x1, y1, bulge);
+                }
+            }
+            case SEQEND -> {
+                if (enPolilinea) terminarPolilinea();
+            }
+            case ELLIPSE -> {
+                validarElipse();
+                if (!espacioPapel && ratio > 0 && (x2 != 0 || y2 != 0)) {
+                    if (extrusionZ < 0) {
+                        destino().elipse(x1, y1, x2, y2, ratio, -param2, -param1);
+                    } else {
+                        destino().elipse(x1, y1, x2, y2, ratio, param1, param2);
+                    }
+                }
+            }
+            case SPLINE -> {
+                if (!espacioPapel) {
+                    aplanarSpline();
+                    if (cantidadPuntos >= 2) {
+                        destino().spline(puntosX, puntosY, cantidadPuntos, (flags & 1) != 0);
+                    }
+                }
+            }
+            case INSERT -> {
+                if (!espacioPapel && nombre != null) expandirInsert();
+            }
+            case CABECERA_BLOQUE -> {
+                if (bloqueActual != null) bloqueActual.setBase(x1, y1);
+            }
+            default -> { }
+        }
+    }
+
+    /**
+     * Rechaza una ELLIPSE con parámetros que no son números (NaN, infinito) o están fuera de
+     * rango, antes de que llegue a los receptores.
+     *
+     * @throws BadRequestException si la elipse no es válida
+     */
+    private void validarElipse() {
+        boolean valida = Double.isFinite(ratio) && ratio <= 1 + 1e-9
+            && Math.abs(param1) <= MAX_PARAMETRO_ELIPSE && Math.abs(param2) <= MAX_PARAMETRO_ELIPSE;
+        if (!valida) {
+            throw new BadRequestException("El archivo DXF tiene una ELLIPSE con parámetros inválidos.");
+        }
+    }
+
+    private void terminarPolilinea() {
+        enPolilinea = false;
+        if (!polilineaIgnorada && !polilineaEnPapel) {
+            emitirPolilinea(polilineaCerrada, polilineaExtrusionZ < 0);
+        }
+        nv = 0;
+    }
+
+    private void emitirPolilinea(boolean cerrada, boolean reflejada) {
+        if (nv < 2) {
+            return;
+        }
+        if (reflejada) {
+            for (int i = 0; i < nv; i++) {
+                vx[i] = -vx[i];
+                vb[i] = -vb[i];
+            }
+        }
+        destino().polilinea(vx, vy, vb, nv, cerrada);
+    }
+
+    private void agregarVertice(double x, double y, double b) {
+        if (nv == vx.length) {
+            int nuevo = vx.length * 2;
+            vx = Arrays.copyOf(vx, nuevo);
+            vy = Arrays.copyOf(vy, nuevo);
+            vb = Arrays.copyOf(vb, nuevo);
+        }
+        vx[nv] = x;
+        vy[nv] = y;
+        vb[nv] = b;
+        nv++;
+    }
+
+    private void expandirInsert() throws IOException {
+        double rad = Math.toRadians(rotacion);
+        double cos = Math.cos(rad);
+        double sin = Math.sin(rad);
+        DxfGeometry bloque = bloqueActual == null ? bloques.get(nombre) : null;
+        if (bloqueActual == null && bloque == null) {
+            return;
+        }
+        double baseX = bloque != null ? bloque.getBaseX() : 0;
+        double baseY = bloque != null ? bloque.getBaseY() : 0;
+        for (int fila = 0; fila < Math.max(1, filas); fila++) {
+            for (int columna = 0; columna < Math.max(1, columnas); columna++) {
+                control.contar(1);
+                double dx = columna * espaciadoColumnas;
+                double dy = fila * espaciadoFilas;
+                double insX = x1 + dx * cos - dy * sin;
+                double insY = y1 + dx * sin + dy * cos;
+                DxfTransform transform;
+                if (bloqueActual != null) {
+                    // El punto base del bloque referenciado se aplica al reproducir
+                    transform = DxfTransform.insercion(insX, insY, escalaX, escalaY, rotacion, 0, 0);
+                } else {
+                    transform = DxfTransform.insercion(insX, insY, escalaX, escalaY, rotacion, baseX, baseY);
+                }
+                if (extrusionZ < 0) {
+                    transform = transform.reflejarX();
+                }
+                if (bloqueActual != null) {
+                    bloqueActual.insert(nombre, transform);
+                } else {
+                    bloque.reproducir(handler, transform, bloques, 1, control);
+                }
+            }
+        }
+    }
+
+    /**
+     * Aproxima la spline en curso por puntos con el algoritmo de de Boor (racional si trae pesos).
+     * Si los nudos no son consistentes usa los puntos de ajuste o el polígono de control.
+     */
+    private void aplanarSpline() {
+        cantidadPuntos = 0;
+        int p = grado;
+        if (cantidadControl >= 2 && p >= 1 && p <= GRADO_MAXIMO_SPLINE && cantidadNudos == cantidadControl + p + 1) {
+            boolean racional = cantidadPesos == cantidadControl;
+            int ultimoTramo = -1;
+            for (int i = p; i < cantidadControl; i++) {
+                double u0 = nudos[i];
+                double u1 = nudos[i + 1];
+                if (u1 <= u0) {
+                    continue;
+                }
+                for (int k = 0; k < SEGMENTOS_POR_TRAMO_SPLINE; k++) {
+                    evaluarSpline(i, u0 + (u1 - u0) * k / SEGMENTOS_POR_TRAMO_SPLINE, racional);
+                }
+                ultimoTramo = i;
+            }
+            if (ultimoTramo >= 0) {
+                evaluarSpline(ultimoTramo, nudos[ultimoTramo + 1], racional);
+                return;
+            }
+        }
+        if (cantidadAjuste >= 2) {
+            for (int i = 0; i < cantidadAjuste; i++) {
+                agregarPuntoSpline(ajusteX[i], ajusteY[i]);
+            }
+        } else {
+            for (int i = 0; i < cantidadControl; i++) {
+                agregarPuntoSpline(controlX[i], controlY[i]);
+            }
+        }
+    }
+
+    private void evaluarSpline(int tramo, double u, boolean racional) {
+        int p = grado;
+        for (int j = 0; j <= p; j++) {
+            int idx = j + tramo - p;
+            double w = racional ? pesos[idx] : 1.0;
+            deBoorX[j] = controlX[idx] * w;
+            deBoorY[j] = controlY[idx] * w;
+            deBoorW[j] = w;
+        }
+        for (int r = 1; r <= p; r++) {
+            for (int j = p; j >= r; j--) {
+                int idx = j + tramo - p;
+                double denominador = nudos[j + 1 + tramo - r] - nudos[idx];
+                double alpha = denominador == 0 ? 0 : (u - nudos[idx]) / denominador;
+                deBoorX[j] = (1 - alpha) * deBoorX[j - 1] + alpha * deBoorX[j];
+                deBoorY[j] = (1 - alpha) * deBoorY[j - 1] + alpha * deBoorY[j];
+                deBoorW[j] = (1 - alpha) * deBoorW[j - 1] + alpha * deBoorW[j];
+            }
+        }
+        double w = deBoorW[p] == 0 ? 1.0 : deBoorW[p];
+        agregarPuntoSpline(deBoorX[p] / w, deBoorY[p] / w);
+    }
+
+    private void agregarPuntoSpline(double x, double y) {
+        if (cantidadPuntos == puntosX.length) {
+            puntosX = Arrays.copyOf(puntosX, puntosX.length * 2);
+            puntosY = Arrays.copyOf(puntosY, puntosY.length * 2);
+        }
+        puntosX[cantidadPuntos] = x;
+        puntosY[cantidadPuntos] = y;
+        cantidadPuntos++;
+    }
+
+}
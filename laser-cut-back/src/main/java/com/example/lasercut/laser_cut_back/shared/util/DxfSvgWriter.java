@@ -0,0 +1,285 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.util.Arrays;
+
+import com.example.lasercut.laser_cut_back.exception.PresupuestoExcedidoException;
+import com.example.lasercut.laser_cut_back.exception.PreviewGenerationException;
+import com.example.lasercut.laser_cut_back.shared.util.DxfPreviewGenerator.Detalle;
+
+/**
+ * Escribe la geometría de un {@link DxfAnalysis} como SVG directamente en bytes.
+ *
+ * Cada pieza (un contorno exterior con sus agujeros e islas) va en un único path con un
+ * subpath cerrado por lazo, en el orden del recorrido que armó {@link DxfContourBuilder}; con
+ * fill-rule evenodd los agujeros quedan vacíos sin tener que identificarlos después en el texto.
+ * La pieza más grande lleva además la clase pieza-principal. Lo que no cierra va en un path
+ * aparte, solo con trazo.
+ *
+ * Las coordenadas se cuantizan a la grilla de {@link DxfPathWriter} (paso 0,0001 en el detalle
+ * completo, medio píxel en las versiones simplificadas) y, salvo la primera de cada subpath, se
+ * escriben relativas al punto anterior, que son números cortos. El grupo que las contiene
+ * traslada al origen del dibujo e invierte Y (en el DXF crece hacia arriba), así los arcos
+ * conservan el sentido antihorario sin recalcular ángulos.
+ *
+ * El documento es ASCII y se arma en un buffer por hilo que se reutiliza entre vistas previas.
+ */
+public class DxfSvgWriter extends DxfPathWriter {
+
+    public static final String CLASE_PIEZA = "pieza";
+    public static final String CLASE_PIEZA_PRINCIPAL = "pieza-principal";
+    public static final String CLASE_ABIERTO = "abierto";
+
+    private static final String ESTILO = "<style>." + CLASE_PIEZA + "{fill:#e0e0e0;fill-rule:evenodd}</style>";
+
+    private static final double MARGEN_RELATIVO = 0.02;
+    private static final double TRAZO_RELATIVO = 0.002;
+    private static final long[] POTENCIAS_10 = {1, 10, 100, 1000, 10_000};
+
+    /** Buffers más grandes que esto no se conservan, para no retener memoria por un archivo enorme. */
+    private static final int MAXIMO_BUFFER_REUTILIZABLE = 4 * 1024 * 1024;
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[64 * 1024]);
+
+    private byte[] buf;
+    private int largo;
+    private final byte[] digitos = new byte[20];
+
+    private DxfSvgWriter(byte[] buf, DxfAnalysis analisis, int pixeles, DxfPresupuesto.Control control) {
+        super(analisis, pixeles, control);
+        this.buf = buf;
+    }
+
+    /**
+     * Escribe el documento completo, con todo el detalle del dibujo.
+     *
+     * @throws PreviewGenerationException si alguna coordenada no es un número finito
+     */
+    public static byte[] escribir(DxfAnalysis analisis) {
+        return escribir(analisis, 0);
+    }
+
+    /**
+     * Escribe el documento simplificado para verse a pixeles de ancho (el lado mayor del
+     * dibujo); con pixeles &lt;= 0 no se simplifica.
+     *
+     * @throws PreviewGenerationException si alguna coordenada no es un número finito
+     */
+    public static byte[] escribir(DxfAnalysis analisis, int pixeles) {
+        return escribir(analisis, pixeles, DxfPresupuesto.SIN_LIMITE, Detalle.COMPLETO);
+    }
+
+    /**
+     * Escribe el documento con el detalle pedido, dentro del presupuesto.
+     *
+     * @throws PresupuestoExcedidoException si se pasa de tiempo o de memoria
+     * @throws PreviewGenerationException si alguna coordenada no es un número finito
+     */
+    public static byte[] escribir(DxfAnalysis analisis, int pixeles, DxfPresupuesto presupuesto, Detalle detalle) {
+        DxfPresupuesto.Control control = presupuesto.iniciar();
+        DxfSvgWriter writer = new DxfSvgWriter(BUFFER.get(), analisis, pixeles, control);
+        if (detalle != Detalle.CAJA) {
+            writer.asegurar(control.acotar(Math.min(analisis.getPrimitivas(), 1 << 24) * 32L));
+        }
+        writer.abrir(analisis.getMinX(), analisis.getMinY(), analisis.getMaxX(), analisis.getMaxY());
+        writer.recorrer(analisis, detalle);
+        writer.cerrar();
+        if (writer.buf.length <= MAXIMO_BUFFER_REUTILIZABLE) {
+            BUFFER.set(writer.buf);
+        }
+        if (writer.isValoresInvalidos()) {
+            throw new PreviewGenerationException("SVG generado vacío o inválido (contiene NaN)", null);
+        }
+        return Arrays.copyOf(writer.buf, writer.largo);
+    }
+
+    private void abrir(double minX, double minY, double maxX, double maxY) {
+        double ancho = maxX - minX;
+        double alto = maxY - minY;
+        double mayor = Math.max(ancho, alto);
+        double margen = mayor * MARGEN_RELATIVO;
+        texto("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        texto("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"");
+        numero(minX - margen);
+        caracter(' ');
+        numero(-(maxY + margen));
+        caracter(' ');
+        numero(ancho + 2 * margen);
+        caracter(' ');
+        numero(alto + 2 * margen);
+        texto("\" width=\"100%\" height=\"100%\" preserveAspectRatio=\"xMidYMid meet\">");
+        texto(ESTILO);
+        texto("<g transform=\"matrix(1 0 0 -1 ");
+        numero(origenX);
+        caracter(' ');
+        numero(-origenY);
+        texto(")\" fill=\"none\" stroke=\"#000000\" stroke-width=\"");
+        numero(Math.max(mayor * TRAZO_RELATIVO, CUANTO_COMPLETO));
+        texto("\">");
+    }
+
+    @Override
+    protected long getTamanioSalida() {
+        return largo;
+    }
+
+    private void cerrar() {
+        texto("</g></svg>");
+    }
+
+    /**
+     * Un path por pieza; el primer m de cada uno es absoluto porque la pluma arranca en el
+     * origen de la grilla.
+     */
+    @Override
+    protected void abrirTrazo(boolean cerrada, boolean principal) {
+        texto("<path class=\"");
+        texto(!cerrada ? CLASE_ABIERTO : principal ? CLASE_PIEZA + " " + CLASE_PIEZA_PRINCIPAL : CLASE_PIEZA);
+        texto("\" d=\"");
+    }
+
+    @Override
+    protected void cerrarTrazo() {
+        texto("\"/>");
+    }
+
+    @Override
+    protected void escribirMovimiento(long dx, long dy) {
+        caracter('m');
+        coordenada(dx);
+        separar(dy);
+        coordenada(dy);
+    }
+
+    @Override
+    protected void empezarRectas() {
+        caracter('l');
+    }
+
+    @Override
+    protected void escribirRecta(long dx, long dy, boolean primera) {
+        if (!primera) {
+            separar(dx);
+        }
+        coordenada(dx);
+        separar(dy);
+        coordenada(dy);
+    }
+
+    @Override
+    protected void escribirArco(long rx, long ry, double rotacion, boolean grande, boolean antihorario, long dx, long dy) {
+        caracter('a');
+        coordenada(rx);
+        caracter(' ');
+        coordenada(ry);
+        caracter(' ');
+        numero(rotacion);
+        caracter(' ');
+        caracter(grande ? '1' : '0');
+        caracter(' ');
+        caracter(antihorario ? '1' : '0');
+        separar(dx);
+        coordenada(dx);
+        separar(dy);
+        coordenada(dy);
+    }
+
+    @Override
+    protected void escribirCierre() {
+        caracter('Z');
+    }
+
+    /**
+     * El signo menos ya separa dos números; solo los positivos necesitan un espacio.
+     */
+    private void separar(long siguiente) {
+        if (siguiente >= 0) {
+            caracter(' ');
+        }
+    }
+
+    /**
+     * Agrega el número con hasta cuatro decimales, sin ceros de más ni notación científica.
+     */
+    private void numero(double v) {
+        if (!Double.isFinite(v)) {
+            marcarInvalido();
+            caracter('0');
+            return;
+        }
+        decimal(Math.round(v * ESCALA_DECIMALES), DECIMALES);
+    }
+
+    /**
+     * Agrega una coordenada de la grilla en las unidades del dibujo.
+     */
+    private void coordenada(long g) {
+        if (exponente < 0) {
+            decimal(g * mantisa, -exponente);
+        } else {
+            entero(g * mantisa * (long) Math.pow(10, exponente));
+        }
+    }
+
+    /**
+     * Agrega escalado / 10^decimales sin ceros de más.
+     */
+    private void decimal(long escalado, int decimales) {
+        if (escalado < 0) {
+            caracter('-');
+            escalado = -escalado;
+        }
+        long entero = escalado / POTENCIAS_10[decimales];
+        long fraccion = escalado % POTENCIAS_10[decimales];
+        // 0,5 se escribe .5
+        if (entero != 0 || fraccion == 0) {
+            entero(entero);
+        }
+        if (fraccion != 0) {
+            caracter('.');
+            int digitos = decimales;
+            while (fraccion % 10 == 0) {
+                fraccion /= 10;
+                digitos--;
+            }
+            for (long umbral = POTENCIAS_10[digitos - 1]; fraccion < umbral; umbral /= 10) {
+                caracter('0');
+            }
+            entero(fraccion);
+        }
+    }
+
+    private void entero(long v) {
+        if (v < 0) {
+            caracter('-');
+            v = -v;
+        }
+        int n = 0;
+        do {
+            digitos[n++] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v > 0);
+        asegurar(n);
+        while (n > 0) {
+            buf[largo++] = digitos[--n];
+        }
+    }
+
+    private void texto(String s) {
+        int n = s.length();
+        asegurar(n);
+        for (int i = 0; i < n; i++) {
+            buf[largo++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void caracter(char c) {
+        asegurar(1);
+        buf[largo++] = (byte) c;
+    }
+
+    private void asegurar(int extra) {
+        if (largo + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, largo + extra));
+        }
+    }
+
+}
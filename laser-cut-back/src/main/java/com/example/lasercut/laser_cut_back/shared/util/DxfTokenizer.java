@@ -0,0 +1,313 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lector de pares código de grupo / valor de un DXF ASCII.
+ *
+ * Lee directamente de los bytes con un buffer propio y reutiliza el buffer del valor,
+ * así recorrer un archivo grande no genera un String por línea. Los valores numéricos
+ * se convierten sobre los mismos bytes. Puede leer de un InputStream o de un ByteBuffer (por
+ * ejemplo el archivo mapeado en memoria), que se copia al buffer propio de a bloques.
+ */
+public class DxfTokenizer implements DxfPares {
+
+    private static final int TAMANIO_BUFFER = 64 * 1024;
+    private static final int MAX_LARGO_LINEA = 64 * 1024;
+    private static final long MAX_MANTISA_EXACTA = 1L << 53;
+
+    private static final double[] POTENCIAS_10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream in;
+    private final ByteBuffer datos;
+    private final byte[] buffer = new byte[TAMANIO_BUFFER];
+    private int pos;
+    private int limite;
+    private boolean finDeStream;
+
+    private byte[] valor = new byte[256];
+    private int largoValor;
+    private int codigo;
+    private long linea;
+
+    public DxfTokenizer(InputStream in) {
+        this.in = in;
+        this.datos = null;
+    }
+
+    public DxfTokenizer(ByteBuffer datos) {
+        this.in = null;
+        this.datos = datos;
+    }
+
+    /**
+     * Avanza al siguiente par. Devuelve false al llegar al final del stream.
+     */
+    @Override
+    public boolean siguiente() throws IOException {
+        if (!leerLinea()) {
+            return false;
+        }
+        if (linea == 1) {
+            saltearBom();
+        }
+        codigo = parsearCodigo();
+        if (!leerLinea()) {
+            throw new IOException("Fin de archivo inesperado después del código de grupo en la línea " + (linea - 1));
+        }
+        return true;
+    }
+
+    @Override
+    public int codigo() {
+        return codigo;
+    }
+
+    public long linea() {
+        return linea;
+    }
+
+    /**
+     * Compara el valor actual con un texto ASCII sin crear un String.
+     */
+    @Override
+    public boolean valorEs(String texto) {
+        if (texto.length() != largoValor) {
+            return false;
+        }
+        for (int i = 0; i < largoValor; i++) {
+            if (valor[i] != (byte) texto.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String valorString() {
+        return new String(valor, 0, largoValor, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int valorInt() throws IOException {
+        int i = 0;
+        boolean negativo = false;
+        if (largoValor > 0 && (valor[0] == '-' || valor[0] == '+')) {
+            negativo = valor[0] == '-';
+            i = 1;
+        }
+        if (i == largoValor || largoValor - i > 9) {
+            return (int) convertir();
+        }
+        int resultado = 0;
+        for (; i < largoValor; i++) {
+            int digito = valor[i] - '0';
+            if (digito < 0 || digito > 9) {
+                return (int) convertir();
+            }
+            resultado = resultado * 10 + digito;
+        }
+        return negativo ? -resultado : resultado;
+    }
+
+    @Override
+    public double valorDouble() throws IOException {
+        return DxfPares.verificarValor(convertir(), codigo);
+    }
+
+    /**
+     * Convierte el valor actual a double. Los números con hasta 15 dígitos significativos
+     * y exponente chico (el caso de todo DXF exportado por CAD) se resuelven con aritmética
+     * exacta sobre los bytes; el resto cae en Double.parseDouble.
+     */
+    private double convertir() throws IOException {
+        int i = 0;
+        boolean negativo = false;
+        if (largoValor > 0 && (valor[0] == '-' || valor[0] == '+')) {
+            negativo = valor[0] == '-';
+            i = 1;
+        }
+        long mantisa = 0;
+        int digitos = 0;
+        int decimales = 0;
+        boolean punto = false;
+        boolean algunDigito = false;
+        for (; i < largoValor; i++) {
+            byte b = valor[i];
+            if (b >= '0' && b <= '9') {
+                algunDigito = true;
+                if (mantisa == 0 && b == '0') {
+                    if (punto) {
+                        decimales++;
+                    }
+                    continue;
+                }
+                if (++digitos > 15) {
+                    return parsearLento();
+                }
+                mantisa = mantisa * 10 + (b - '0');
+                if (punto) {
+                    decimales++;
+                }
+            } else if (b == '.' && !punto) {
+                punto = true;
+            } else {
+                break;
+            }
+        }
+        if (!algunDigito) {
+            return parsearLento();
+        }
+        int exponente = 0;
+        if (i < largoValor) {
+            byte b = valor[i];
+            if (b != 'e' && b != 'E') {
+                return parsearLento();
+            }
+            i++;
+            boolean expNegativo = false;
+            if (i < largoValor && (valor[i] == '-' || valor[i] == '+')) {
+                expNegativo = valor[i] == '-';
+                i++;
+            }
+            if (i == largoValor) {
+                return parsearLento();
+            }
+            for (; i < largoValor; i++) {
+                int digito = valor[i] - '0';
+                if (digito < 0 || digito > 9 || exponente > 1000) {
+                    return parsearLento();
+                }
+                exponente = exponente * 10 + digito;
+            }
+            if (expNegativo) {
+                exponente = -exponente;
+            }
+        }
+        exponente -= decimales;
+        if (mantisa == 0) {
+            return negativo ? -0.0 : 0.0;
+        }
+        if (mantisa >= MAX_MANTISA_EXACTA || exponente < -22 || exponente > 22) {
+            return parsearLento();
+        }
+        double resultado = exponente >= 0
+            ? mantisa * POTENCIAS_10[exponente]
+            : mantisa / POTENCIAS_10[-exponente];
+        return negativo ? -resultado : resultado;
+    }
+
+    private double parsearLento() throws IOException {
+        String texto = new String(valor, 0, largoValor, StandardCharsets.ISO_8859_1);
+        try {
+            return Double.parseDouble(texto);
+        } catch (NumberFormatException e) {
+            throw new IOException("Valor numérico inválido '" + texto + "' en la línea " + linea);
+        }
+    }
+
+    private int parsearCodigo() throws IOException {
+        if (largoValor == 0 || largoValor > 6) {
+            throw new IOException("Código de grupo inválido en la línea " + linea);
+        }
+        int i = 0;
+        boolean negativo = valor[0] == '-';
+        if (negativo) {
+            i = 1;
+        }
+        int resultado = 0;
+        for (; i < largoValor; i++) {
+            int digito = valor[i] - '0';
+            if (digito < 0 || digito > 9) {
+                throw new IOException("Código de grupo inválido en la línea " + linea);
+            }
+            resultado = resultado * 10 + digito;
+        }
+        return negativo ? -resultado : resultado;
+    }
+
+    private void saltearBom() {
+        if (largoValor >= 3 && (valor[0] & 0xFF) == 0xEF && (valor[1] & 0xFF) == 0xBB && (valor[2] & 0xFF) == 0xBF) {
+            int inicio = 3;
+            while (inicio < largoValor && (valor[inicio] == ' ' || valor[inicio] == '\t')) {
+                inicio++;
+            }
+            System.arraycopy(valor, inicio, valor, 0, largoValor - inicio);
+            largoValor -= inicio;
+        }
+    }
+
+    /**
+     * Lee la siguiente línea en el buffer del valor, sin espacios ni CR en los extremos.
+     */
+    private boolean leerLinea() throws IOException {
+        largoValor = 0;
+        boolean leyoAlgo = false;
+        while (true) {
+            if (pos == limite) {
+                if (finDeStream || !llenarBuffer()) {
+                    if (leyoAlgo) {
+                        linea++;
+                        recortar();
+                        return true;
+                    }
+                    return false;
+                }
+            }
+            byte b = buffer[pos++];
+            leyoAlgo = true;
+            if (b == '\n') {
+                linea++;
+                recortar();
+                return true;
+            }
+            if (largoValor == 0 && (b == ' ' || b == '\t')) {
+                continue;
+            }
+            if (largoValor == valor.length) {
+                if (valor.length >= MAX_LARGO_LINEA) {
+                    throw new IOException("Línea demasiado larga en el archivo DXF (línea " + (linea + 1) + ")");
+                }
+                byte[] nuevo = new byte[valor.length * 2];
+                System.arraycopy(valor, 0, nuevo, 0, largoValor);
+                valor = nuevo;
+            }
+            valor[largoValor++] = b;
+        }
+    }
+
+    private void recortar() {
+        while (largoValor > 0) {
+            byte b = valor[largoValor - 1];
+            if (b == '\r' || b == ' ' || b == '\t') {
+                largoValor--;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private boolean llenarBuffer() throws IOException {
+        int leidos;
+        if (datos != null) {
+            leidos = Math.min(datos.remaining(), buffer.length);
+            datos.get(buffer, 0, leidos);
+        } else {
+            leidos = in.read(buffer, 0, buffer.length);
+        }
+        if (leidos <= 0) {
+            finDeStream = true;
+            return false;
+        }
+        pos = 0;
+        limite = leidos;
+        return true;
+    }
+
+}
@@ -0,0 +1,256 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.util.Arrays;
+
+/**
+ * Transformación afín de un INSERT (x' = a·x + b·y + e, y' = c·x + d·y + f).
+ *
+ * Si es una semejanza (rotación, escala uniforme y opcionalmente espejo) las curvas se
+ * transforman de forma exacta; con escalas no uniformes se aproximan por polilíneas.
+ * Usa buffers internos para los puntos transformados, por lo que no es thread-safe.
+ */
+final class DxfTransform {
+
+    private static final double TOLERANCIA = 1e-9;
+
+    private final double a, b, c, d, e, f;
+    private final boolean semejanza;
+    private final boolean reflejada;
+    private final double escala;
+    private final double rotacion;
+
+    private double[] xs = new double[64];
+    private double[] ys = new double[64];
+    private double[] bs = new double[64];
+    private int n;
+    private final double[] arcoTmp = new double[5];
+
+    DxfTransform(double a, double b, double c, double d, double e, double f) {
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        this.d = d;
+        this.e = e;
+        this.f = f;
+        double det = a * d - b * c;
+        this.reflejada = det < 0;
+        this.escala = Math.sqrt(a * a + c * c);
+        double tol = TOLERANCIA * Math.max(1.0, escala);
+        this.semejanza = reflejada
+            ? Math.abs(a + d) <= tol && Math.abs(b - c) <= tol
+            : Math.abs(a - d) <= tol && Math.abs(b + c) <= tol;
+        this.rotacion = Math.toDegrees(Math.atan2(c, a));
+    }
+
+    /**
+     * Transformación de un INSERT: traslada el punto base del bloque al origen, escala,
+     * rota y lleva al punto de inserción.
+     */
+    static DxfTransform insercion(double insX, double insY, double escalaX, double escalaY, double rotacionGrados,
+            double baseX, double baseY) {
+        double rad = Math.toRadians(rotacionGrados);
+        double cos = Math.cos(rad);
+        double sin = Math.sin(rad);
+        double a = cos * escalaX;
+        double b = -sin * escalaY;
+        double c = sin * escalaX;
+        double d = cos * escalaY;
+        double e = insX - (a * baseX + b * baseY);
+        double f = insY - (c * baseX + d * baseY);
+        return new DxfTransform(a, b, c, d, e, f);
+    }
+
+    /**
+     * Devuelve this ∘ interna: primero se aplica interna y después esta.
+     */
+    DxfTransform componer(DxfTransform interna) {
+        return new DxfTransform(
+            a * interna.a + b * interna.c,
+            a * interna.b + b * interna.d,
+            c * interna.a + d * interna.c,
+            c * interna.b + d * interna.d,
+            a * interna.e + b * interna.f + e,
+            c * interna.e + d * interna.f + f);
+    }
+
+    /**
+     * Espejo en X aplicado después de esta transformación (OCS con extrusión -Z).
+     */
+    DxfTransform reflejarX() {
+        return new DxfTransform(-a, -b, c, d, -e, f);
+    }
+
+    double a() {
+        return a;
+    }
+
+    double b() {
+        return b;
+    }
+
+    double c() {
+        return c;
+    }
+
+    double d() {
+        return d;
+    }
+
+    double e() {
+        return e;
+    }
+
+    double f() {
+        return f;
+    }
+
+    private double tx(double x, double y) {
+        return a * x + b * y + e;
+    }
+
+    private double ty(double x, double y) {
+        return c * x + d * y + f;
+    }
+
+    void linea(DxfEntityHandler destino, double x1, double y1, double x2, double y2) {
+        destino.linea(tx(x1, y1), ty(x1, y1), tx(x2, y2), ty(x2, y2));
+    }
+
+    void circulo(DxfEntityHandler destino, double cx, double cy, double radio) {
+        if (semejanza) {
+            destino.circulo(tx(cx, cy), ty(cx, cy), radio * escala);
+            return;
+        }
+        n = 0;
+        agregarArco(cx, cy, radio, 0, 360.0, true);
+        emitirPolilinea(destino, true);
+    }
+
+    void arco(DxfEntityHandler destino, double cx, double cy, double radio, double anguloInicio, double anguloFin) {
+        if (semejanza) {
+            if (reflejada) {
+                destino.arco(tx(cx, cy), ty(cx, cy), radio * escala, rotacion - anguloFin, rotacion - anguloInicio);
+            } else {
+                destino.arco(tx(cx, cy), ty(cx, cy), radio * escala, anguloInicio + rotacion, anguloFin + rotacion);
+            }
+            return;
+        }
+        n = 0;
+        agregarArco(cx, cy, radio, anguloInicio, DxfMath.barrido(anguloInicio, anguloFin), false);
+        emitirPolilinea(destino, false);
+    }
+
+    void polilinea(DxfEntityHandler destino, double[] pxs, double[] pys, double[] pbs, int cantidad, boolean cerrada) {
+        n = 0;
+        if (semejanza) {
+            for (int i = 0; i < cantidad; i++) {
+                agregarPunto(pxs[i], pys[i], reflejada ? -pbs[i] : pbs[i]);
+            }
+            emitirPolilinea(destino, cerrada);
+            return;
+        }
+        int tramos = cerrada ? cantidad : cantidad - 1;
+        for (int i = 0; i < cantidad; i++) {
+            agregarPunto(pxs[i], pys[i], 0);
+            if (i < tramos && pbs[i] != 0) {
+                int j = (i + 1) % cantidad;
+                if (DxfMath.arcoDeBulge(pxs[i], pys[i], pxs[j], pys[j], pbs[i], arcoTmp)) {
+                    agregarTramoBulge(pbs[i] > 0);
+                }
+            }
+        }
+        emitirPolilinea(destino, cerrada);
+    }
+
+    void elipse(DxfEntityHandler destino, double cx, double cy, double ejeMayorX, double ejeMayorY, double ratio,
+            double paramInicio, double paramFin) {
+        if (semejanza) {
+            double mx = a * ejeMayorX + b * ejeMayorY;
+            double my = c * ejeMayorX + d * ejeMayorY;
+            if (reflejada) {
+                destino.elipse(tx(cx, cy), ty(cx, cy), mx, my, ratio, -paramFin, -paramInicio);
+            } else {
+                destino.elipse(tx(cx, cy), ty(cx, cy), mx, my, ratio, paramInicio, paramFin);
+            }
+            return;
+        }
+        double barrido = DxfMath.barridoRadianes(paramInicio, paramFin);
+        boolean completa = Math.abs(barrido - 2 * Math.PI) < 1e-9;
+        int segmentos = DxfMath.segmentos(barrido);
+        n = 0;
+        int puntos = completa ? segmentos : segmentos + 1;
+        for (int i = 0; i < puntos; i++) {
+            double t = paramInicio + barrido * i / segmentos;
+            double cos = Math.cos(t);
+            double sin = Math.sin(t);
+            agregarPunto(cx + ejeMayorX * cos - ratio * ejeMayorY * sin, cy + ejeMayorY * cos + ratio * ejeMayorX * sin, 0);
+        }
+        emitirPolilinea(destino, completa);
+    }
+
+    void spline(DxfEntityHandler destino, double[] pxs, double[] pys, int cantidad, boolean cerrada) {
+        n = 0;
+        for (int i = 0; i < cantidad; i++) {
+            agregarPunto(pxs[i], pys[i], 0);
+        }
+        for (int i = 0; i < n; i++) {
+            double x = xs[i];
+            double y = ys[i];
+            xs[i] = tx(x, y);
+            ys[i] = ty(x, y);
+        }
+        destino.spline(xs, ys, n, cerrada);
+    }
+
+    /**
+     * Agrega los puntos interiores del arco guardado en arcoTmp, en el sentido del tramo.
+     */
+    private void agregarTramoBulge(boolean antihorario) {
+        double barrido = Math.toRadians(DxfMath.barrido(arcoTmp[3], arcoTmp[4]));
+        int segmentos = DxfMath.segmentos(barrido);
+        double inicio = Math.toRadians(antihorario ? arcoTmp[3] : arcoTmp[4]);
+        double paso = (antihorario ? barrido : -barrido) / segmentos;
+        for (int i = 1; i < segmentos; i++) {
+            double t = inicio + paso * i;
+            agregarPunto(arcoTmp[0] + arcoTmp[2] * Math.cos(t), arcoTmp[1] + arcoTmp[2] * Math.sin(t), 0);
+        }
+    }
+
+    private void agregarArco(double cx, double cy, double radio, double anguloInicio, double barridoGrados, boolean completo) {
+        double barrido = Math.toRadians(barridoGrados);
+        double inicio = Math.toRadians(anguloInicio);
+        int segmentos = DxfMath.segmentos(barrido);
+        int puntos = completo ? segmentos : segmentos + 1;
+        for (int i = 0; i < puntos; i++) {
+            double t = inicio + barrido * i / segmentos;
+            agregarPunto(cx + radio * Math.cos(t), cy + radio * Math.sin(t), 0);
+        }
+    }
+
+    private void agregarPunto(double x, double y, double bulge) {
+        if (n == xs.length) {
+            int nuevo = xs.length * 2;
+            xs = Arrays.copyOf(xs, nuevo);
+            ys = Arrays.copyOf(ys, nuevo);
+            bs = Arrays.copyOf(bs, nuevo);
+        }
+        xs[n] = x;
+        ys[n] = y;
+        bs[n] = bulge;
+        n++;
+    }
+
+    /**
+     * Transforma los puntos acumulados y los emite como polilínea.
+     */
+    private void emitirPolilinea(DxfEntityHandler destino, boolean cerrada) {
+        for (int i = 0; i < n; i++) {
+            double x = xs[i];
+            double y = ys[i];
+            xs[i] = tx(x, y);
+            ys[i] = ty(x, y);
+        }
+        destino.polilinea(xs, ys, bs, n, cerrada);
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+/**
+ * Unidades de dibujo que se aceptan para cotizar, con su equivalencia en milímetros.
+ */
+public enum DxfUnidad {
+
+    MM("mm", 1.0),
+    CM("cm", 10.0),
+    M("m", 1000.0),
+    INCH("inch", 25.4),
+    FT("ft", 304.8);
+
+    private final String nombre;
+    private final double milimetros;
+
+    DxfUnidad(String nombre, double milimetros) {
+        this.nombre = nombre;
+        this.milimetros = milimetros;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Milímetros que mide una unidad del dibujo.
+     */
+    public double getMilimetros() {
+        return milimetros;
+    }
+
+    /**
+     * Por nombre, sin distinguir mayúsculas; null si no es ninguna de las aceptadas.
+     */
+    public static DxfUnidad desdeNombre(String nombre) {
+        if (nombre == null) {
+            return null;
+        }
+        for (DxfUnidad unidad : values()) {
+            if (unidad.nombre.equalsIgnoreCase(nombre.trim())) {
+                return unidad;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Según el código de $INSUNITS de la cabecera; null si es 0 (sin unidad) o una que no se
+     * usa para corte (millas, micrones, años luz...).
+     */
+    static DxfUnidad desdeInsunits(int codigo) {
+        return switch (codigo) {
+            case 1 -> INCH;
+            case 2 -> FT;
+            case 4 -> MM;
+            case 5 -> CM;
+            case 6 -> M;
+            default -> null;
+        };
+    }
+
+}
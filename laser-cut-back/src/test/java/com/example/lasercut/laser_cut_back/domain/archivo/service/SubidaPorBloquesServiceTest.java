@@ -0,0 +1,162 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import com.example.lasercut.laser_cut_back.domain.archivo.dto.SubidaRequest;
+import com.example.lasercut.laser_cut_back.domain.archivo.dto.SubidaResponse;
+import com.example.lasercut.laser_cut_back.exception.BadRequestException;
+
+class SubidaPorBloquesServiceTest {
+
+	private static final int BLOQUE = 1024;
+
+	@TempDir
+	Path directorio;
+
+	private final ArchivoService archivoService = mock(ArchivoService.class);
+	private final byte[] archivo = new byte[3 * BLOQUE + 100];
+	private SubidaPorBloquesService service;
+
+	@BeforeEach
+	void crearServicio() {
+		new Random(1).nextBytes(archivo);
+		service = new SubidaPorBloquesService(archivoService, directorio.resolve("subidas").toString(),
+			directorio.resolve("almacen").toString(), 50, 1, 64, 60, 24);
+	}
+
+	@Test
+	void losBloquesPuedenLlegarDesordenadosYRepetidos() throws Exception {
+		SubidaResponse subida = service.iniciar(pedido(sha256(archivo)));
+		assertThat(subida.getBloques()).isEqualTo(4);
+
+		enviar(subida, 3);
+		enviar(subida, 1);
+		enviar(subida, 1);
+		enviar(subida, 0);
+		assertThat(service.estado(subida.getId()).getFaltantes()).containsExactly(2);
+		enviar(subida, 2);
+		enviar(subida, 0);
+		assertThat(service.estado(subida.getId()).getFaltantes()).isEmpty();
+
+		service.completar(subida.getId());
+
+		ArgumentCaptor<Path> ruta = ArgumentCaptor.forClass(Path.class);
+		verify(archivoService).analizar(ruta.capture(), eq(sha256(archivo)), eq("pieza.dxf"));
+		assertThat(Files.readAllBytes(ruta.getValue())).isEqualTo(archivo);
+	}
+
+	@Test
+	void unBloqueConChecksumIncorrectoQuedaFaltante() throws Exception {
+		SubidaResponse subida = service.iniciar(pedido(null));
+		enviar(subida, 0);
+
+		byte[] datos = bloque(1);
+		assertThatThrownBy(() -> service.recibirBloque(subida.getId(), 1, sha256(bloque(2)), new ByteArrayInputStream(datos)))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessageContaining("no coincide");
+
+		assertThat(service.estado(subida.getId()).getFaltantes()).containsExactly(1, 2, 3);
+	}
+
+	@Test
+	void unBloqueReenviadoMalPisaAlQueHabiaLlegadoBien() throws Exception {
+		SubidaResponse subida = service.iniciar(pedido(null));
+		for (int i = 0; i < subida.getBloques(); i++) {
+			enviar(subida, i);
+		}
+
+		byte[] corto = Arrays.copyOf(bloque(2), 10);
+		assertThatThrownBy(() -> service.recibirBloque(subida.getId(), 2, sha256(corto), new ByteArrayInputStream(corto)))
+			.isInstanceOf(BadRequestException.class);
+
+		assertThat(service.estado(subida.getId()).getFaltantes()).containsExactly(2);
+		assertThatThrownBy(() -> service.completar(subida.getId()))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessageContaining("Faltan 1 bloque");
+	}
+
+	@Test
+	void siElArchivoYaEstaGuardadoPideUnBloqueQueCoincida() throws Exception {
+		SubidaResponse primera = service.iniciar(pedido(sha256(archivo)));
+		for (int i = 0; i < primera.getBloques(); i++) {
+			enviar(primera, i);
+		}
+		service.completar(primera.getId());
+
+		SubidaResponse segunda = service.iniciar(pedido(sha256(archivo)));
+		assertThat(segunda.getFaltantes()).hasSize(1);
+		int pendiente = segunda.getFaltantes().get(0);
+		assertThatThrownBy(() -> service.completar(segunda.getId()))
+			.isInstanceOf(BadRequestException.class);
+
+		// Un bloque con su checksum bien calculado pero que no es el del archivo guardado
+		byte[] otro = bloque(pendiente);
+		otro[0]++;
+		assertThatThrownBy(() -> service.recibirBloque(segunda.getId(), pendiente, sha256(otro), new ByteArrayInputStream(otro)))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessageContaining("no coincide con el archivo declarado");
+		assertThat(service.estado(segunda.getId()).getFaltantes()).containsExactly(pendiente);
+
+		enviar(segunda, pendiente);
+		service.completar(segunda.getId());
+
+		verify(archivoService, times(2)).analizar(any(Path.class), eq(sha256(archivo)), eq("pieza.dxf"));
+	}
+
+	@Test
+	void unArchivoArmadoQueNoCoincideConElHashDeclaradoNoSeAnaliza() throws Exception {
+		byte[] otro = new byte[archivo.length];
+		SubidaResponse subida = service.iniciar(pedido(sha256(otro)));
+		for (int i = 0; i < subida.getBloques(); i++) {
+			enviar(subida, i);
+		}
+
+		assertThatThrownBy(() -> service.completar(subida.getId()))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessageContaining("no coincide con el SHA-256 declarado");
+		verify(archivoService, never()).analizar(any(Path.class), any(), any());
+	}
+
+	private void enviar(SubidaResponse subida, int numero) throws Exception {
+		byte[] datos = bloque(numero);
+		service.recibirBloque(subida.getId(), numero, sha256(datos), new ByteArrayInputStream(datos));
+	}
+
+	private byte[] bloque(int numero) {
+		int desde = numero * BLOQUE;
+		return Arrays.copyOfRange(archivo, desde, Math.min(archivo.length, desde + BLOQUE));
+	}
+
+	private SubidaRequest pedido(String sha256) {
+		SubidaRequest pedido = new SubidaRequest();
+		pedido.setNombre("pieza.dxf");
+		pedido.setTamanio(archivo.length);
+		pedido.setSha256(sha256);
+		return pedido;
+	}
+
+	private static String sha256(byte[] contenido) throws Exception {
+		return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contenido));
+	}
+
+}
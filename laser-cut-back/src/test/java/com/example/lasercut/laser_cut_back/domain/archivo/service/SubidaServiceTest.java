@@ -0,0 +1,137 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.lasercut.laser_cut_back.exception.BadRequestException;
+
+class SubidaServiceTest {
+
+	private static final byte[] DXF = "0\nSECTION\n2\nENTITIES\n0\nENDSEC\n0\nEOF\n".getBytes(StandardCharsets.US_ASCII);
+
+	@TempDir
+	Path directorio;
+
+	private SubidaService service;
+
+	@BeforeEach
+	void crearServicio() {
+		service = new SubidaService(directorio.toString(), 50, 200, 100);
+	}
+
+	@Test
+	void unDxfSinComprimirSeCopiaConSuHash() throws Exception {
+		try (ArchivoSubido subido = service.guardar(new ByteArrayInputStream(DXF))) {
+			assertThat(Files.readAllBytes(subido.getRuta())).isEqualTo(DXF);
+			assertThat(subido.getHash()).isEqualTo(sha256(DXF));
+		}
+	}
+
+	@Test
+	void unZipConUnSoloDxfSeGuardaDescomprimido() throws Exception {
+		byte[] zip = zip(new String[] { "pieza.dxf" }, DXF);
+
+		try (ArchivoSubido subido = service.guardar(new ByteArrayInputStream(zip))) {
+			assertThat(Files.readAllBytes(subido.getRuta())).isEqualTo(DXF);
+			assertThat(subido.getHash()).isEqualTo(sha256(DXF));
+		}
+	}
+
+	@Test
+	void unZipConDosArchivosSeRechaza() throws Exception {
+		byte[] zip = zip(new String[] { "pieza.dxf", "otra.dxf" }, DXF);
+
+		assertThatThrownBy(() -> service.guardar(new ByteArrayInputStream(zip)))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessage("El .zip debe contener un solo archivo .dxf.");
+		assertThat(temporales()).isZero();
+	}
+
+	@Test
+	void unZipSinDxfSeRechaza() throws Exception {
+		byte[] zip = zip(new String[] { "pieza.txt" }, DXF);
+
+		assertThatThrownBy(() -> service.guardar(new ByteArrayInputStream(zip)))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessage("El .zip debe contener un solo archivo .dxf.");
+	}
+
+	@Test
+	void unaBombaDeCompresionSeRechazaPorLaRelacion() throws Exception {
+		// 20 MB de ceros comprimen a unos 20 KB: una relación de más de 1000
+		byte[] gzip = gzip(new byte[20 * 1024 * 1024]);
+
+		assertThatThrownBy(() -> service.guardar(new ByteArrayInputStream(gzip)))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessageContaining("relación de compresión sospechosa");
+		assertThat(temporales()).isZero();
+	}
+
+	@Test
+	void unArchivoQueSuperaElMaximoDescomprimidoSeRechaza() throws Exception {
+		service = new SubidaService(directorio.toString(), 50, 1, 0);
+		byte[] zip = zip(new String[] { "pieza.dxf" }, new byte[2 * 1024 * 1024]);
+
+		assertThatThrownBy(() -> service.guardar(new ByteArrayInputStream(zip)))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessageContaining("descomprimido supera el tamaño máximo de 1 MB");
+	}
+
+	@Test
+	void unGzipCortadoSeRechaza() throws Exception {
+		byte[] gzip = gzip(DXF);
+		byte[] cortado = Arrays.copyOf(gzip, gzip.length / 2);
+
+		assertThatThrownBy(() -> service.guardar(new ByteArrayInputStream(cortado)))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessage("El archivo comprimido está dañado o incompleto.");
+	}
+
+	private long temporales() throws IOException {
+		try (var archivos = Files.list(directorio)) {
+			return archivos.count();
+		}
+	}
+
+	private static byte[] zip(String[] nombres, byte[] contenido) throws IOException {
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(salida)) {
+			for (String nombre : nombres) {
+				zip.putNextEntry(new ZipEntry(nombre));
+				zip.write(contenido);
+				zip.closeEntry();
+			}
+		}
+		return salida.toByteArray();
+	}
+
+	private static byte[] gzip(byte[] contenido) throws IOException {
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+			gzip.write(contenido);
+		}
+		return salida.toByteArray();
+	}
+
+	private static String sha256(byte[] contenido) throws Exception {
+		return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contenido));
+	}
+
+}
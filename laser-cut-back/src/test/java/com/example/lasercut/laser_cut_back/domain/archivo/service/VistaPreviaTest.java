@@ -0,0 +1,50 @@
+package com.example.lasercut.laser_cut_back.domain.archivo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class VistaPreviaTest {
+
+	private static final byte[] SVG = "<svg xmlns=\"http://www.w3.org/2000/svg\"><path d=\"M0 0h10v10h-10Z\"/></svg>"
+		.getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	void guardaElSvgComprimidoYLoDevuelveIgual() {
+		VistaPrevia vistaPrevia = VistaPrevia.de(SVG, false);
+
+		assertThat(vistaPrevia.getSvgGzip()[0] & 0xFF).isEqualTo(0x1F);
+		assertThat(vistaPrevia.getSvg()).isEqualTo(SVG);
+		assertThat(vistaPrevia.getTamanioSvg()).isEqualTo(SVG.length);
+	}
+
+	@Test
+	void elEtagDependeSoloDelContenido() {
+		assertThat(VistaPrevia.de(SVG, false).getEtag()).isEqualTo(VistaPrevia.de(SVG.clone(), true).getEtag()).hasSize(32);
+		assertThat(VistaPrevia.de("<svg/>".getBytes(StandardCharsets.UTF_8), false).getEtag())
+			.isNotEqualTo(VistaPrevia.de(SVG, false).getEtag());
+	}
+
+	@Test
+	void aceptaGzipSegunElAcceptEncoding() {
+		assertThat(VistaPrevia.aceptaGzip("gzip, deflate, br")).isTrue();
+		assertThat(VistaPrevia.aceptaGzip("br;q=1.0, GZIP;q=0.5")).isTrue();
+		assertThat(VistaPrevia.aceptaGzip("*")).isTrue();
+		assertThat(VistaPrevia.aceptaGzip(null)).isFalse();
+		assertThat(VistaPrevia.aceptaGzip("br, deflate")).isFalse();
+		assertThat(VistaPrevia.aceptaGzip("identity")).isFalse();
+	}
+
+	@Test
+	void q0RechazaLaCodificacion() {
+		assertThat(VistaPrevia.aceptaGzip("gzip;q=0")).isFalse();
+		assertThat(VistaPrevia.aceptaGzip("gzip; q=0.000, br")).isFalse();
+		assertThat(VistaPrevia.aceptaGzip("*;q=0")).isFalse();
+		// Una mención explícita manda sobre el comodín
+		assertThat(VistaPrevia.aceptaGzip("gzip, *;q=0")).isTrue();
+		assertThat(VistaPrevia.aceptaGzip("*, gzip;q=0")).isFalse();
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.example.lasercut.laser_cut_back.domain.cotizacion.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class SheetNesterTest {
+
+	@Test
+	void cuentaLasHojasYMideSoloLoOcupadoEnLaUltima() {
+		SheetNester.Resultado resultado = SheetNester.anidar(100, 100, 250, 1000, 1000, 0, 0);
+
+		assertThat(resultado.getPiezasPorHoja()).isEqualTo(100);
+		assertThat(resultado.getHojas()).isEqualTo(3);
+		// Dos hojas completas y cinco filas de diez en la tercera
+		assertThat(resultado.getAreaConsumida()).isCloseTo(2 * 1_000_000 + 1000 * 500, within(1e-6));
+	}
+
+	@Test
+	void laSeparacionQuitaLugarEntrePiezasPeroNoContraElBorde() {
+		// Con 10 mm entre piezas entran 9 por fila: 9 × 100 + 8 × 10 = 980
+		SheetNester.Resultado resultado = SheetNester.anidar(100, 100, 200, 1000, 1000, 0, 10);
+
+		assertThat(resultado.getPiezasPorHoja()).isEqualTo(81);
+		assertThat(resultado.getHojas()).isEqualTo(3);
+	}
+
+	@Test
+	void elMargenSeDescuentaDeLaHoja() {
+		// 1000 - 2 × 50 = 900: entran 9 por fila
+		SheetNester.Resultado resultado = SheetNester.anidar(100, 100, 100, 1000, 1000, 50, 0);
+
+		assertThat(resultado.getPiezasPorHoja()).isEqualTo(81);
+		assertThat(resultado.getHojas()).isEqualTo(2);
+	}
+
+	@Test
+	void unaPiezaMasGrandeQueLaHojaNoSeAnida() {
+		assertThat(SheetNester.anidar(1200, 1200, 1, 1000, 1000, 0, 0)).isNull();
+		assertThat(SheetNester.anidar(995, 100, 1, 1000, 1000, 5, 0)).isNull();
+	}
+
+	@Test
+	void unaPiezaQueSoloEntraGiradaSeAnida() {
+		SheetNester.Resultado resultado = SheetNester.anidar(1500, 100, 3, 1000, 2000, 0, 0);
+
+		assertThat(resultado).isNotNull();
+		assertThat(resultado.getHojas()).isEqualTo(1);
+	}
+
+	@Test
+	void unaSolaPiezaConsumeSuRectanguloMasElMargen() {
+		SheetNester.Resultado resultado = SheetNester.anidar(300, 200, 1, 1000, 1000, 5, 3);
+
+		assertThat(resultado.getHojas()).isEqualTo(1);
+		assertThat(resultado.getAreaConsumida()).isCloseTo(310 * 210, within(1e-6));
+	}
+
+	@Test
+	void sinCantidadNoHayResultado() {
+		assertThat(SheetNester.anidar(100, 100, 0, 1000, 1000, 0, 0)).isNull();
+	}
+
+	@Test
+	void unaCantidadEnormeNoRecorreCadaPieza() {
+		SheetNester.Resultado resultado = SheetNester.anidar(10, 10, 1_000_000_000, 1000, 1000, 0, 0);
+
+		assertThat(resultado.getPiezasPorHoja()).isEqualTo(10_000);
+		assertThat(resultado.getHojas()).isEqualTo(100_000);
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.example.lasercut.laser_cut_back.domain.cotizacion.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.lasercut.laser_cut_back.domain.catalogo.repository.MaterialRepository;
+
+class TablaPreciosServiceTest {
+
+	private final MaterialRepository repository = mock(MaterialRepository.class);
+	private final TablaPreciosService service = new TablaPreciosService(repository);
+
+	@BeforeEach
+	void configurar() {
+		ReflectionTestUtils.setField(service, "vigenciaMinutos", 5L);
+		ReflectionTestUtils.setField(service, "formatosHoja", "1220x2440, 1500X3000");
+		ReflectionTestUtils.setField(service, "margenHojaMm", 10.0);
+		ReflectionTestUtils.setField(service, "separacionMinimaMm", 2.0);
+		when(repository.findAllWithRelations()).thenReturn(TablaPreciosTest.catalogo());
+	}
+
+	@Test
+	void compilaUnaVezMientrasEstaVigente() {
+		TablaPrecios primera = service.getTabla();
+		TablaPrecios segunda = service.getTabla();
+
+		assertThat(segunda).isSameAs(primera);
+		verify(repository, times(1)).findAllWithRelations();
+		assertThat(primera.getEspesor(11L).getHojaAncho(1)).isEqualTo(1500);
+		assertThat(primera.getEspesor(11L).getMargenHojaMm()).isEqualTo(10);
+	}
+
+	@Test
+	void recompilarPublicaUnaTablaNueva() {
+		TablaPrecios primera = service.getTabla();
+
+		TablaPrecios nueva = service.recompilar();
+
+		assertThat(nueva).isNotSameAs(primera);
+		assertThat(service.getTabla()).isSameAs(nueva);
+	}
+
+	@Test
+	void vencidaSeRecompilaYSiFallaSigueConLaAnterior() {
+		ReflectionTestUtils.setField(service, "vigenciaMinutos", -1L);
+		TablaPrecios primera = service.getTabla();
+		when(repository.findAllWithRelations()).thenThrow(new IllegalStateException("sin base"));
+
+		TablaPrecios despues = service.getTabla();
+
+		assertThat(despues).isSameAs(primera);
+		verify(repository, times(2)).findAllWithRelations();
+		// Después del fallo se espera un rato antes de volver a intentar
+		service.getTabla();
+		verify(repository, times(2)).findAllWithRelations();
+	}
+
+	@Test
+	void unCatalogoVacioCompilaUnaTablaVacia() {
+		when(repository.findAllWithRelations()).thenReturn(List.of());
+
+		assertThat(service.getTabla().getMateriales()).isEmpty();
+	}
+
+}
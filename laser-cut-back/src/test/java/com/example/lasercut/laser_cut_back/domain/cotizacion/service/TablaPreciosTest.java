@@ -0,0 +1,109 @@
+package com.example.lasercut.laser_cut_back.domain.cotizacion.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.lasercut.laser_cut_back.domain.catalogo.model.Espesor;
+import com.example.lasercut.laser_cut_back.domain.catalogo.model.Material;
+import com.example.lasercut.laser_cut_back.domain.catalogo.model.Terminacion;
+import com.example.lasercut.laser_cut_back.domain.cotizacion.service.TablaPrecios.EspesorPrecio;
+import com.example.lasercut.laser_cut_back.domain.cotizacion.service.TablaPrecios.MaterialPrecio;
+
+class TablaPreciosTest {
+
+	private static final double[][] FORMATOS = { { 1220, 2440 }, { 1500, 3000 } };
+
+	@Test
+	void compilaLosPreciosACoeficientesPorMm2() {
+		TablaPrecios tabla = TablaPrecios.compilar(catalogo(), FORMATOS, 10, 2);
+
+		EspesorPrecio espesor = tabla.getEspesor(11L);
+		// 2 mm × 7,85 g/cm³ = 15,7 kg/m²; a 2000 $/kg más 1000 $/m² de extra
+		assertThat(espesor.peso(1_000_000)).isCloseTo(15.7, within(1e-9));
+		assertThat(espesor.precio(1_000_000, null)).isCloseTo(15.7 * 2000 + 1000, within(1e-6));
+		assertThat(espesor.precio(1_000_000, tabla.getTerminacion(111L))).isCloseTo(15.7 * 2000 + 1000 + 500, within(1e-6));
+		// El material por la chapa consumida, los extras por la superficie de las piezas
+		assertThat(espesor.precioLote(2_000_000, 1_000_000, null)).isCloseTo(2 * 15.7 * 2000 + 1000, within(1e-6));
+	}
+
+	@Test
+	void sinVelocidadNiPerforacionCargadasUsaLosValoresDeReferencia() {
+		TablaPrecios tabla = TablaPrecios.compilar(catalogo(), FORMATOS, 10, 2);
+
+		EspesorPrecio espesor = tabla.getEspesor(11L);
+
+		assertThat(espesor.getVelocidadCorteMmS()).isCloseTo(10_000 / Math.pow(2, 0.8) / 60, within(1e-9));
+		assertThat(espesor.getTiempoPerforacionS()).isCloseTo(0.2 + 0.15 * 2, within(1e-9));
+	}
+
+	@Test
+	void laVelocidadDeReferenciaTieneUnPiso() {
+		TablaPrecios tabla = TablaPrecios.compilar(catalogo(), FORMATOS, 10, 2);
+
+		// 10000 / 100^0,8 da menos de 300 mm/min
+		assertThat(tabla.getEspesor(13L).getVelocidadCorteMmS()).isCloseTo(300 / 60.0, within(1e-9));
+	}
+
+	@Test
+	void respetaLaVelocidadYLaPerforacionDelCatalogo() {
+		TablaPrecios tabla = TablaPrecios.compilar(catalogo(), FORMATOS, 10, 2);
+
+		EspesorPrecio espesor = tabla.getEspesor(12L);
+
+		assertThat(espesor.getVelocidadCorteMmS()).isCloseTo(800 / 60.0, within(1e-9));
+		assertThat(espesor.getTiempoPerforacionS()).isEqualTo(3);
+	}
+
+	@Test
+	void laSeparacionCreceConElEspesor() {
+		TablaPrecios tabla = TablaPrecios.compilar(catalogo(), FORMATOS, 10, 2);
+
+		assertThat(tabla.getEspesor(11L).getSeparacionMm()).isEqualTo(2);
+		assertThat(tabla.getEspesor(12L).getSeparacionMm()).isEqualTo(10);
+		assertThat(tabla.getEspesor(12L).getMargenHojaMm()).isEqualTo(10);
+		assertThat(tabla.getEspesor(12L).getCantidadFormatosHoja()).isEqualTo(2);
+		assertThat(tabla.getEspesor(12L).getHojaAlto(1)).isEqualTo(3000);
+	}
+
+	@Test
+	void ordenaYBuscaPorNombreSinImportarMayusculas() {
+		TablaPrecios tabla = TablaPrecios.compilar(catalogo(), FORMATOS, 10, 2);
+
+		assertThat(tabla.getMateriales()).extracting(MaterialPrecio::getNombre).containsExactly("Acero", "aluminio", "Bronce");
+		MaterialPrecio acero = tabla.getMaterial("  ACERO ");
+		assertThat(acero.getId()).isEqualTo(1L);
+		assertThat(acero.getEspesores()).extracting(EspesorPrecio::getEspesorMm).containsExactly(2.0, 10.0, 100.0);
+		assertThat(acero.getEspesor(10.0005).getId()).isEqualTo(12L);
+		assertThat(acero.getEspesor(3)).isNull();
+		assertThat(acero.getEspesor(2).getTerminacion("pintado").getId()).isEqualTo(111L);
+		assertThat(tabla.getMaterial("cobre")).isNull();
+	}
+
+	static List<Material> catalogo() {
+		Material acero = new Material(1L, "Acero", 7.85, 2000, new HashSet<>());
+		Espesor delgado = espesor(11L, 2.0, 1000.0, acero);
+		delgado.getTerminaciones().add(new Terminacion(111L, "Pintado", 500.0, delgado));
+		Espesor grueso = espesor(12L, 10.0, 0.0, acero);
+		grueso.setVelocidadCorteMmMin(800.0);
+		grueso.setTiempoPerforacionSeg(3.0);
+		espesor(13L, 100.0, null, acero);
+
+		Material aluminio = new Material(2L, "aluminio", 2.7, 5000, new HashSet<>());
+		espesor(21L, 3.0, 0.0, aluminio);
+
+		Material bronce = new Material(3L, "Bronce", 8.8, 9000, new HashSet<>());
+		return List.of(bronce, acero, aluminio);
+	}
+
+	private static Espesor espesor(Long id, double mm, Double extra, Material material) {
+		Espesor espesor = new Espesor(id, mm, extra, material, new HashSet<>());
+		material.getEspesores().add(espesor);
+		return espesor;
+	}
+
+}
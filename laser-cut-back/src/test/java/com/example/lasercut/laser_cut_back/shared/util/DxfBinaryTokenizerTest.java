@@ -0,0 +1,192 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.lasercut.laser_cut_back.exception.BadRequestException;
+
+class DxfBinaryTokenizerTest {
+
+	private static final double[][] RECTANGULO = { { 0, 0, 100, 0 }, { 100, 0, 100, 50 }, { 100, 50, 0, 50 }, { 0, 50, 0, 0 } };
+
+	@Test
+	void unDxfBinarioMideLoMismoQueSuGemeloAscii() throws Exception {
+		StringBuilder ascii = new StringBuilder();
+		for (double[] l : RECTANGULO) {
+			ascii.append(DxfParserTest.linea(l[0], l[1], l[2], l[3]));
+		}
+
+		DxfAnalysis deTexto = DxfParser.analizar(DxfParserTest.dxf(ascii.toString()));
+		DxfAnalysis binario = DxfParser.analizar(new ByteArrayInputStream(rectangulo(false)));
+
+		assertThat(binario.getVersion()).isEqualTo("AC1009");
+		assertThat(binario.getAncho()).isCloseTo(deTexto.getAncho(), within(1e-9));
+		assertThat(binario.getAlto()).isCloseTo(deTexto.getAlto(), within(1e-9));
+		assertThat(binario.getLongitudCorte()).isCloseTo(deTexto.getLongitudCorte(), within(1e-9));
+		assertThat(binario.getEntidades()).isEqualTo(deTexto.getEntidades());
+	}
+
+	@Test
+	void unDxfR12ConCodigosDeUnByteSeLeeIgual() throws Exception {
+		DxfAnalysis analisis = DxfParser.analizar(new ByteArrayInputStream(rectangulo(true)));
+
+		assertThat(analisis.getAncho()).isCloseTo(100, within(1e-9));
+		assertThat(analisis.getAlto()).isCloseTo(50, within(1e-9));
+		assertThat(analisis.getEntidades()).isEqualTo(4);
+	}
+
+	@Test
+	void leeCadaValorConElAnchoDeSuCodigo() throws Exception {
+		Binario dxf = new Binario(false)
+			.texto(0, "LINE")
+			.real(10, -12.5)
+			.entero(70, -3)
+			.texto(1000, "ñandú")
+			.codigo(1071).entero4(123456)
+			.codigo(290).byteCrudo(1)
+			.texto(0, "EOF");
+		DxfBinaryTokenizer tok = new DxfBinaryTokenizer(new ByteArrayInputStream(dxf.bytes()));
+
+		assertThat(tok.siguiente()).isTrue();
+		assertThat(tok.codigo()).isZero();
+		assertThat(tok.valorEs("LINE")).isTrue();
+		assertThat(tok.siguiente()).isTrue();
+		assertThat(tok.valorDouble()).isEqualTo(-12.5);
+		assertThat(tok.siguiente()).isTrue();
+		assertThat(tok.valorInt()).isEqualTo(-3);
+		assertThat(tok.siguiente()).isTrue();
+		assertThat(tok.valorString()).isEqualTo("ñandú");
+		assertThat(tok.siguiente()).isTrue();
+		assertThat(tok.valorInt()).isEqualTo(123456);
+		assertThat(tok.siguiente()).isTrue();
+		assertThat(tok.codigo()).isEqualTo(290);
+		assertThat(tok.valorInt()).isEqualTo(1);
+		assertThat(tok.siguiente()).isTrue();
+		assertThat(tok.valorEs("EOF")).isTrue();
+		assertThat(tok.siguiente()).isFalse();
+	}
+
+	@Test
+	void unDoubleNoFinitoSeRechaza() throws Exception {
+		Binario dxf = new Binario(false).real(10, Double.NaN);
+		DxfBinaryTokenizer tok = new DxfBinaryTokenizer(new ByteArrayInputStream(dxf.bytes()));
+
+		assertThat(tok.siguiente()).isTrue();
+		assertThatThrownBy(tok::valorDouble)
+			.isInstanceOf(BadRequestException.class)
+			.hasMessageContaining("código 10");
+	}
+
+	@Test
+	void sinElCentinelaNoEsUnDxfBinario() {
+		byte[] datos = new Binario(false).texto(0, "SECTION").bytes();
+		datos[0] = 'X';
+		DxfBinaryTokenizer tok = new DxfBinaryTokenizer(new ByteArrayInputStream(datos));
+
+		assertThatThrownBy(tok::siguiente)
+			.isInstanceOf(IOException.class)
+			.hasMessageContaining("no es un DXF binario");
+	}
+
+	@Test
+	void unArchivoCortadoAMitadDeUnValorSeRechaza() {
+		byte[] completo = rectangulo(false);
+		// El corte cae en medio de un double: el final del archivo no es un fin de par
+		byte[] cortado = Arrays.copyOf(completo, completo.length - 30);
+
+		assertThatThrownBy(() -> DxfParser.analizar(new ByteArrayInputStream(cortado)))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessageContaining("Fin de archivo inesperado");
+	}
+
+	private static byte[] rectangulo(boolean codigosDeUnByte) {
+		Binario dxf = new Binario(codigosDeUnByte)
+			.texto(0, "SECTION").texto(2, "HEADER")
+			.texto(9, "$ACADVER").texto(1, "AC1009")
+			.texto(0, "ENDSEC")
+			.texto(0, "SECTION").texto(2, "ENTITIES");
+		for (double[] l : RECTANGULO) {
+			dxf.texto(0, "LINE").texto(8, "0")
+				.real(10, l[0]).real(20, l[1]).real(11, l[2]).real(21, l[3]);
+		}
+		return dxf.texto(0, "ENDSEC").texto(0, "EOF").bytes();
+	}
+
+	/**
+	 * Arma un DXF binario: el centinela y después cada código con su valor en el formato que le
+	 * corresponde.
+	 */
+	private static final class Binario {
+
+		private final ByteArrayOutputStream salida = new ByteArrayOutputStream();
+		private final boolean codigosDeUnByte;
+
+		Binario(boolean codigosDeUnByte) {
+			this.codigosDeUnByte = codigosDeUnByte;
+			salida.writeBytes(DxfCabecera.CENTINELA_BINARIO);
+		}
+
+		Binario codigo(int codigo) {
+			if (codigosDeUnByte && codigo < 255) {
+				salida.write(codigo);
+			} else {
+				if (codigosDeUnByte) {
+					salida.write(255);
+				}
+				escribir(2, codigo);
+			}
+			return this;
+		}
+
+		Binario texto(int codigo, String valor) {
+			codigo(codigo);
+			salida.writeBytes(valor.getBytes(StandardCharsets.UTF_8));
+			salida.write(0);
+			return this;
+		}
+
+		Binario real(int codigo, double valor) {
+			codigo(codigo);
+			escribir(8, Double.doubleToRawLongBits(valor));
+			return this;
+		}
+
+		Binario entero(int codigo, int valor) {
+			codigo(codigo);
+			escribir(2, valor);
+			return this;
+		}
+
+		Binario entero4(int valor) {
+			escribir(4, valor);
+			return this;
+		}
+
+		Binario byteCrudo(int valor) {
+			salida.write(valor);
+			return this;
+		}
+
+		byte[] bytes() {
+			return salida.toByteArray();
+		}
+
+		private void escribir(int bytes, long valor) {
+			ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(valor);
+			salida.write(buffer.array(), 0, bytes);
+		}
+
+	}
+
+}
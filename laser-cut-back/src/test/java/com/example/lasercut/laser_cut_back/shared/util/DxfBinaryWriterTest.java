@@ -0,0 +1,209 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class DxfBinaryWriterTest {
+
+	@Test
+	void laCabeceraTraeLaVersionLaGrillaYLaCaja() {
+		DxfAnalysis analisis = DxfDibujo.analizar(d -> DxfDibujo.rectangulo(d, 10, 20, 100, 50));
+
+		Lectura lectura = new Lectura(DxfBinaryWriter.escribir(analisis, 0));
+
+		assertThat(lectura.firma).isEqualTo("LCG");
+		assertThat(lectura.version).isEqualTo(DxfBinaryWriter.VERSION);
+		assertThat(lectura.paso).isPositive().isLessThanOrEqualTo(1);
+		assertThat(lectura.caja).containsExactly(10, 20, 110, 70);
+	}
+
+	@Test
+	void unRectanguloEsUnContornoCerradoConSusVertices() {
+		DxfAnalysis analisis = DxfDibujo.analizar(d -> DxfDibujo.rectangulo(d, 10, 20, 100, 50));
+
+		Lectura lectura = new Lectura(DxfBinaryWriter.escribir(analisis, 0));
+
+		assertThat(lectura.contornos).hasSize(1);
+		Contorno contorno = lectura.contornos.get(0);
+		assertThat(contorno.banderas).isEqualTo(DxfBinaryWriter.NUEVA_PIEZA | DxfBinaryWriter.CERRADO | DxfBinaryWriter.PRINCIPAL);
+		assertThat(contorno.tipos).allMatch(t -> t == DxfBinaryWriter.RECTA || t == DxfBinaryWriter.RECTA_PREDICHA);
+		assertThat(contorno.puntos).hasSizeBetween(4, 5);
+		double[][] esquinas = { { 10, 20 }, { 110, 20 }, { 110, 70 }, { 10, 70 } };
+		for (double[] esquina : esquinas) {
+			assertThat(contorno.puntos).anySatisfy(p -> {
+				assertThat(p[0]).isCloseTo(esquina[0], within(lectura.paso));
+				assertThat(p[1]).isCloseTo(esquina[1], within(lectura.paso));
+			});
+		}
+	}
+
+	@Test
+	void unAgujeroCircularSeEscribeComoCirculo() {
+		DxfAnalysis analisis = DxfDibujo.analizar(d -> {
+			DxfDibujo.rectangulo(d, 0, 0, 100, 100);
+			d.circulo(50, 50, 10);
+		});
+
+		Lectura lectura = new Lectura(DxfBinaryWriter.escribir(analisis, 0));
+
+		// Una sola pieza: el primer contorno la abre y el otro sigue en el mismo trazo
+		assertThat(lectura.contornos).hasSize(2);
+		assertThat(lectura.contornos.get(0).banderas & DxfBinaryWriter.NUEVA_PIEZA).isNotZero();
+		assertThat(lectura.contornos.get(1).banderas & DxfBinaryWriter.NUEVA_PIEZA).isZero();
+		assertThat(lectura.contornos).allMatch(c -> (c.banderas & DxfBinaryWriter.CERRADO) != 0);
+		Contorno agujero = lectura.contornos.stream().filter(c -> c.tipos.size() == 1).findFirst().orElseThrow();
+		assertThat(agujero.tipos.get(0)).isBetween(DxfBinaryWriter.CIRCULO, DxfBinaryWriter.CIRCULO + 1);
+		// El inicio y el punto opuesto están sobre el círculo, a un diámetro de distancia
+		double[] inicio = agujero.puntos.get(0);
+		double[] opuesto = agujero.puntos.get(1);
+		assertThat(Math.hypot(inicio[0] - 50, inicio[1] - 50)).isCloseTo(10, within(2 * lectura.paso));
+		assertThat(Math.hypot(opuesto[0] - inicio[0], opuesto[1] - inicio[1])).isCloseTo(20, within(2 * lectura.paso));
+	}
+
+	@Test
+	void dosPiezasEmpiezanCadaUnaDesdeElOrigenDeLaGrilla() {
+		DxfAnalysis analisis = DxfDibujo.analizar(d -> {
+			DxfDibujo.rectangulo(d, 0, 0, 100, 100);
+			DxfDibujo.rectangulo(d, 200, 0, 10, 10);
+		});
+
+		Lectura lectura = new Lectura(DxfBinaryWriter.escribir(analisis, 0));
+
+		assertThat(lectura.contornos).hasSize(2);
+		assertThat(lectura.contornos).allMatch(c -> (c.banderas & DxfBinaryWriter.NUEVA_PIEZA) != 0);
+		assertThat(lectura.contornos).filteredOn(c -> (c.banderas & DxfBinaryWriter.PRINCIPAL) != 0)
+			.singleElement()
+			.satisfies(c -> assertThat(c.puntos).allMatch(p -> p[0] <= 100 + lectura.paso));
+		assertThat(lectura.restantes).isZero();
+	}
+
+	private static final class Contorno {
+
+		private int banderas;
+		private final List<Integer> tipos = new ArrayList<>();
+		private final List<double[]> puntos = new ArrayList<>();
+
+	}
+
+	/**
+	 * Decodifica el formato de {@link DxfBinaryWriter} a puntos en mm, siguiendo la pluma.
+	 */
+	private static final class Lectura {
+
+		private final ByteBuffer datos;
+		private final String firma;
+		private final int version;
+		private final double paso;
+		private final double[] caja = new double[4];
+		private final List<Contorno> contornos = new ArrayList<>();
+		private final int restantes;
+
+		Lectura(byte[] bytes) {
+			datos = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+			firma = new String(bytes, 0, 3);
+			datos.position(3);
+			version = datos.get();
+			int mantisa = datos.get() & 0xFF;
+			int exponente = datos.get();
+			paso = mantisa * Math.pow(10, exponente);
+			for (int i = 0; i < 4; i++) {
+				caja[i] = datos.getDouble();
+			}
+			double origenX = datos.getDouble();
+			double origenY = datos.getDouble();
+
+			long cantidad = varint();
+			int[] tramos = new int[(int) cantidad];
+			for (int c = 0; c < cantidad; c++) {
+				Contorno contorno = new Contorno();
+				contorno.banderas = datos.get() & 0xFF;
+				tramos[c] = (int) varint();
+				contornos.add(contorno);
+			}
+			List<Integer> tipos = new ArrayList<>();
+			long corridas = varint();
+			for (int r = 0; r < corridas; r++) {
+				int tipo = datos.get() & 0xFF;
+				for (long k = varint(); k > 0; k--) {
+					tipos.add(tipo);
+				}
+			}
+
+			long x = 0;
+			long y = 0;
+			int siguienteTipo = 0;
+			for (int c = 0; c < cantidad; c++) {
+				Contorno contorno = contornos.get(c);
+				if ((contorno.banderas & DxfBinaryWriter.NUEVA_PIEZA) != 0) {
+					x = 0;
+					y = 0;
+				}
+				x += zigzag();
+				y += zigzag();
+				long inicioX = x;
+				long inicioY = y;
+				contorno.puntos.add(new double[] { origenX + x * paso, origenY + y * paso });
+				long rectaDx = 0;
+				long rectaDy = 0;
+				for (int t = 0; t < tramos[c]; t++) {
+					int tipo = tipos.get(siguienteTipo++);
+					contorno.tipos.add(tipo);
+					long dx = zigzag();
+					long dy = zigzag();
+					if (tipo == DxfBinaryWriter.RECTA_PREDICHA) {
+						dx += rectaDx;
+						dy += rectaDy;
+					}
+					if (tipo == DxfBinaryWriter.RECTA || tipo == DxfBinaryWriter.RECTA_PREDICHA) {
+						rectaDx = dx;
+						rectaDy = dy;
+					} else if (tipo < DxfBinaryWriter.ELIPSE) {
+						varint();
+					} else if (tipo < DxfBinaryWriter.CIRCULO) {
+						varint();
+						varint();
+						zigzag();
+					}
+					if (tipo == DxfBinaryWriter.CIRCULO || tipo == DxfBinaryWriter.CIRCULO + 1) {
+						contorno.puntos.add(new double[] { origenX + (x + dx) * paso, origenY + (y + dy) * paso });
+					} else {
+						x += dx;
+						y += dy;
+						contorno.puntos.add(new double[] { origenX + x * paso, origenY + y * paso });
+					}
+				}
+				if ((contorno.banderas & DxfBinaryWriter.CERRADO) != 0) {
+					x = inicioX;
+					y = inicioY;
+				}
+			}
+			assertThat(siguienteTipo).isEqualTo(tipos.size());
+			restantes = datos.remaining();
+		}
+
+		private long varint() {
+			long v = 0;
+			for (int desplazamiento = 0;; desplazamiento += 7) {
+				int b = datos.get() & 0xFF;
+				v |= (long) (b & 0x7F) << desplazamiento;
+				if ((b & 0x80) == 0) {
+					return v;
+				}
+			}
+		}
+
+		private long zigzag() {
+			long z = varint();
+			return (z >>> 1) ^ -(z & 1);
+		}
+
+	}
+
+}
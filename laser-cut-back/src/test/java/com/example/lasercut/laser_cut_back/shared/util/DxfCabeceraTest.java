@@ -0,0 +1,112 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.lasercut.laser_cut_back.exception.BadRequestException;
+
+class DxfCabeceraTest {
+
+	@Test
+	void unArchivoQueNoEsDxfSeRechazaSinLeerElResto() {
+		Infinito entrada = new Infinito("PK\u0003\u0004 no es un DXF\n".getBytes(StandardCharsets.US_ASCII));
+
+		assertThatThrownBy(() -> DxfParser.analizar(entrada))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessage("El archivo no es un DXF válido.");
+		assertThat(entrada.leidos).isLessThanOrEqualTo(DxfCabecera.TAMANIO);
+	}
+
+	@Test
+	void unArchivoQueNoEmpiezaConUnaSeccionSeRechaza() {
+		assertThatThrownBy(() -> leer("0\nLINE\n8\n0\n10\n0\n20\n0\n"))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessage("El archivo no es un DXF válido.");
+	}
+
+	@Test
+	void losComentariosAntesDeLaPrimeraSeccionSeSaltean() {
+		DxfCabecera cabecera = leer("999\nExportado por CAD\n0\nSECTION\n2\nENTITIES\n0\nENDSEC\n0\nEOF\n");
+
+		assertThat(cabecera.isBinario()).isFalse();
+		assertThat(cabecera.getVersion()).isNull();
+		assertThat(cabecera.getUnidad()).isNull();
+	}
+
+	@Test
+	void lasUnidadesSalenDeInsunits() {
+		DxfCabecera cabecera = leer(encabezado("9\n$ACADVER\n1\nAC1015\n9\n$INSUNITS\n70\n4\n"));
+
+		assertThat(cabecera.getVersion()).isEqualTo("AC1015");
+		assertThat(cabecera.getUnidad()).isEqualTo(DxfUnidad.MM);
+	}
+
+	@Test
+	void sinInsunitsDecideMeasurement() {
+		assertThat(leer(encabezado("9\n$MEASUREMENT\n70\n0\n")).getUnidad()).isEqualTo(DxfUnidad.INCH);
+		assertThat(leer(encabezado("9\n$MEASUREMENT\n70\n1\n")).getUnidad()).isEqualTo(DxfUnidad.MM);
+	}
+
+	@Test
+	void insunitsTienePrioridadSobreMeasurement() {
+		DxfCabecera cabecera = leer(encabezado("9\n$MEASUREMENT\n70\n1\n9\n$INSUNITS\n70\n1\n"));
+
+		assertThat(cabecera.getUnidad()).isEqualTo(DxfUnidad.INCH);
+	}
+
+	@Test
+	void unaUnidadQueNoSeUsaParaCorteQuedaSinDeclarar() {
+		// 8 son micropulgadas; con $INSUNITS declarado no se mira $MEASUREMENT
+		DxfCabecera cabecera = leer(encabezado("9\n$INSUNITS\n70\n8\n9\n$MEASUREMENT\n70\n1\n"));
+
+		assertThat(cabecera.getUnidad()).isNull();
+	}
+
+	@Test
+	void unBomAlPrincipioNoImpideLeerLaCabecera() {
+		byte[] texto = encabezado("9\n$INSUNITS\n70\n5\n").getBytes(StandardCharsets.US_ASCII);
+		byte[] conBom = new byte[texto.length + 3];
+		conBom[0] = (byte) 0xEF;
+		conBom[1] = (byte) 0xBB;
+		conBom[2] = (byte) 0xBF;
+		System.arraycopy(texto, 0, conBom, 3, texto.length);
+
+		DxfCabecera cabecera = DxfCabecera.leer(ByteBuffer.wrap(conBom));
+
+		assertThat(cabecera.getUnidad()).isEqualTo(DxfUnidad.CM);
+	}
+
+	private static DxfCabecera leer(String texto) {
+		return DxfCabecera.leer(ByteBuffer.wrap(texto.getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	private static String encabezado(String variables) {
+		return "0\nSECTION\n2\nHEADER\n" + variables + "0\nENDSEC\n0\nSECTION\n2\nENTITIES\n0\nENDSEC\n0\nEOF\n";
+	}
+
+	/**
+	 * Repite el mismo contenido sin fin y cuenta cuánto se leyó.
+	 */
+	private static final class Infinito extends InputStream {
+
+		private final byte[] contenido;
+		private long leidos;
+
+		Infinito(byte[] contenido) {
+			this.contenido = contenido;
+		}
+
+		@Override
+		public int read() {
+			return contenido[(int) (leidos++ % contenido.length)] & 0xFF;
+		}
+
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DxfContourBuilderTest {
+
+	private final DxfContourBuilder builder = new DxfContourBuilder();
+	private final DxfGeometry geometria = new DxfGeometry();
+	private final DxfEntityHandler dibujo = new DxfMultiHandler(builder, geometria);
+
+	@Test
+	void dosRectangulosQueSeTocanEnUnVerticeSonDosLazos() {
+		// Los tramos de los dos rectángulos se mezclan: el vértice (10,10) tiene grado 4
+		dibujo.linea(0, 0, 10, 0);
+		dibujo.linea(10, 10, 20, 10);
+		dibujo.linea(10, 0, 10, 10);
+		dibujo.linea(20, 10, 20, 20);
+		dibujo.linea(10, 10, 0, 10);
+		dibujo.linea(20, 20, 10, 20);
+		dibujo.linea(0, 10, 0, 0);
+		dibujo.linea(10, 20, 10, 10);
+
+		DxfContours contornos = builder.construir(geometria);
+
+		assertThat(contornos.getLazosCerrados()).isEqualTo(2);
+		assertThat(contornos.getCadenasAbiertas()).isZero();
+		assertThat(contornos.getArea(0)).isCloseTo(100, within(1e-9));
+		assertThat(contornos.getArea(1)).isCloseTo(100, within(1e-9));
+		assertThat(contornos.getAreaNeta()).isCloseTo(200, within(1e-9));
+	}
+
+	@Test
+	void ochoDibujadoComoUnaSolaPolilineaSeParteEnDosLazos() {
+		double[] xs = { 0, 10, 10, 20, 20, 10, 10, 0 };
+		double[] ys = { 0, 0, 10, 10, 20, 20, 10, 10 };
+		for (int i = 0; i < xs.length; i++) {
+			int j = (i + 1) % xs.length;
+			dibujo.linea(xs[i], ys[i], xs[j], ys[j]);
+		}
+
+		DxfContours contornos = builder.construir(geometria);
+
+		assertThat(contornos.getLazosCerrados()).isEqualTo(2);
+		assertThat(contornos.getCadenasAbiertas()).isZero();
+		assertThat(contornos.getPerforaciones()).isEqualTo(2);
+		assertThat(contornos.getAreaNeta()).isCloseTo(200, within(1e-9));
+	}
+
+	@Test
+	void lazoQueTocaElBordeDeOtroDesdeAdentroQuedaComoAgujero() {
+		rectangulo(0, 0, 100, 100);
+		// Triángulo apoyado en el vértice (0,0) del exterior
+		dibujo.linea(0, 0, 40, 10);
+		dibujo.linea(40, 10, 10, 40);
+		dibujo.linea(10, 40, 0, 0);
+
+		DxfContours contornos = builder.construir(geometria);
+
+		assertThat(contornos.getLazosCerrados()).isEqualTo(2);
+		assertThat(contornos.getCadenasAbiertas()).isZero();
+		assertThat(contornos.getAreaNeta()).isCloseTo(10000 - 750, within(1e-6));
+	}
+
+	@Test
+	void mediaElipseCerradaPorSuDiametroEsUnLazo() {
+		dibujo.elipse(0, 0, 10, 0, 0.5, 0, Math.PI);
+		dibujo.linea(-10, 0, 10, 0);
+
+		DxfContours contornos = builder.construir(geometria);
+
+		assertThat(contornos.getLazosCerrados()).isEqualTo(1);
+		assertThat(contornos.getArea(0)).isCloseTo(Math.PI * 10 * 5 / 2, within(1e-6));
+	}
+
+	@Test
+	void unaElipseConParametrosEnormesNoCuelgaElHilo() {
+		assertTimeoutPreemptively(Duration.ofSeconds(2), () -> dibujo.elipse(0, 0, 10, 0, 0.5, 0, -1e300));
+
+		assertThat(builder.construir(geometria).getCadenasAbiertas()).isEqualTo(1);
+	}
+
+	@Test
+	void extremosDentroDeLaToleranciaSeUnen() {
+		dibujo.linea(0, 0, 10, 0);
+		dibujo.linea(10.005, 0, 10, 10);
+		dibujo.linea(10, 10, 0, 10);
+		dibujo.linea(0, 10, 0, 0.005);
+
+		DxfContours contornos = builder.construir(geometria, DxfUnidad.MM, DxfLimites.SIN_LIMITE.iniciar());
+
+		assertThat(contornos.getLazosCerrados()).isEqualTo(1);
+		assertThat(contornos.isCerrado()).isTrue();
+	}
+
+	@Test
+	void laToleranciaSeExpresaEnLasUnidadesDelDibujo() {
+		// 0,005" son 0,127 mm: en pulgadas el hueco ya no se cierra
+		dibujo.linea(0, 0, 10, 0);
+		dibujo.linea(10.005, 0, 10, 10);
+		dibujo.linea(10, 10, 0, 10);
+		dibujo.linea(0, 10, 0, 0);
+
+		DxfContours contornos = builder.construir(geometria, DxfUnidad.INCH, DxfLimites.SIN_LIMITE.iniciar());
+
+		assertThat(contornos.getLazosCerrados()).isZero();
+		assertThat(contornos.getCadenasAbiertas()).isEqualTo(1);
+		assertThat(contornos.getExtremosSueltos()).isEqualTo(2);
+	}
+
+	@Test
+	void muchosExtremosEnLaMismaCeldaNoSeComparanTodosContraTodos() {
+		Random random = new Random(1);
+		for (int i = 0; i < 80_000; i++) {
+			double x = random.nextDouble() * 0.05;
+			double y = random.nextDouble() * 0.05;
+			dibujo.linea(x, y, x + 0.001, y + 0.001);
+		}
+
+		DxfContours contornos = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> builder.construir(geometria));
+
+		assertThat(contornos.getLazosCerrados() + contornos.getCadenasAbiertas()).isPositive();
+	}
+
+	private void rectangulo(double x, double y, double ancho, double alto) {
+		dibujo.linea(x, y, x + ancho, y);
+		dibujo.linea(x + ancho, y, x + ancho, y + alto);
+		dibujo.linea(x + ancho, y + alto, x, y + alto);
+		dibujo.linea(x, y + alto, x, y);
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class DxfCutMetricsTest {
+
+	private final DxfCutMetrics metricas = new DxfCutMetrics();
+
+	@Test
+	void sumaLineasArcosYCirculos() {
+		metricas.linea(0, 0, 3, 4);
+		metricas.arco(0, 0, 10, 0, 90);
+		metricas.circulo(0, 0, 1);
+
+		assertThat(metricas.getLongitudCorte()).isCloseTo(5 + 5 * Math.PI + 2 * Math.PI, within(1e-9));
+	}
+
+	@Test
+	void unaElipseCompletaConRelacionUnoEsUnaCircunferencia() {
+		metricas.elipse(0, 0, 10, 0, 1, 0, 2 * Math.PI);
+
+		assertThat(metricas.getLongitudCorte()).isCloseTo(20 * Math.PI, within(1e-6));
+	}
+
+	@Test
+	void unaElipseConParametrosEnormesNoCuelgaElHilo() {
+		assertTimeoutPreemptively(Duration.ofSeconds(2), () -> metricas.elipse(0, 0, 10, 0, 0.5, 0, -1e300));
+
+		assertThat(metricas.getLongitudCorte()).isBetween(0.0, 20 * Math.PI);
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Arma un {@link DxfAnalysis} con primitivas emitidas a mano, sin pasar por el lector: así
+ * los tests pueden dar a los receptores valores que un DXF válido no trae.
+ */
+final class DxfDibujo {
+
+	private static final byte[] DXF_VACIO = "0\nSECTION\n2\nENTITIES\n0\nENDSEC\n0\nEOF\n".getBytes(StandardCharsets.US_ASCII);
+
+	private DxfDibujo() {
+	}
+
+	static DxfAnalysis analizar(Consumer<DxfEntityHandler> dibujo) {
+		DxfBounds bounds = new DxfBounds();
+		DxfCutMetrics metricas = new DxfCutMetrics();
+		DxfContourBuilder contornos = new DxfContourBuilder();
+		DxfGeometry geometria = new DxfGeometry();
+		dibujo.accept(new DxfMultiHandler(bounds, metricas, contornos, geometria));
+		return new DxfAnalysis(bounds, metricas, contornos.construir(geometria), bounds.getPrimitivas(), geometria,
+			DxfCabecera.leer(ByteBuffer.wrap(DXF_VACIO)));
+	}
+
+	static void rectangulo(DxfEntityHandler destino, double x, double y, double ancho, double alto) {
+		destino.linea(x, y, x + ancho, y);
+		destino.linea(x + ancho, y, x + ancho, y + alto);
+		destino.linea(x + ancho, y + alto, x, y + alto);
+		destino.linea(x, y + alto, x, y);
+	}
+
+}
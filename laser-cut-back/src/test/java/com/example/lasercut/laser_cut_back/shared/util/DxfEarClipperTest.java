@@ -0,0 +1,92 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class DxfEarClipperTest {
+
+	private final DxfEarClipper clipper = new DxfEarClipper(DxfPresupuesto.SIN_LIMITE.iniciar());
+
+	@Test
+	void unCuadradoSonDosTriangulosConElMismoSentido() {
+		double[] xy = { 0, 0, 10, 0, 10, 10, 0, 10 };
+
+		int[] triangulos = clipper.triangular(xy, 0, 4, new int[0], 0, new int[16], 0);
+
+		assertThat(clipper.getIndices()).isEqualTo(6);
+		double primero = areaFirmada(xy, triangulos, 0);
+		assertThat(Math.signum(areaFirmada(xy, triangulos, 3))).isEqualTo(Math.signum(primero));
+		assertThat(areaTotal(xy, triangulos, 6)).isCloseTo(100, within(1e-9));
+	}
+
+	@Test
+	void elSentidoDelContornoNoCambiaElResultado() {
+		double[] xy = { 0, 10, 10, 10, 10, 0, 0, 0 };
+
+		int[] triangulos = clipper.triangular(xy, 0, 4, new int[0], 0, new int[16], 0);
+
+		assertThat(clipper.getIndices()).isEqualTo(6);
+		assertThat(areaTotal(xy, triangulos, 6)).isCloseTo(100, within(1e-9));
+	}
+
+	@Test
+	void unAgujeroQuedaSinCubrir() {
+		double[] xy = {
+			0, 0, 30, 0, 30, 30, 0, 30,
+			10, 10, 20, 10, 20, 20, 10, 20
+		};
+
+		int[] triangulos = clipper.triangular(xy, 0, 8, new int[] { 4 }, 1, new int[16], 0);
+
+		// 8 vértices y un puente: 8 triángulos
+		assertThat(clipper.getIndices()).isEqualTo(24);
+		assertThat(areaTotal(xy, triangulos, clipper.getIndices())).isCloseTo(900 - 100, within(1e-9));
+		for (int t = 0; t < clipper.getIndices(); t += 3) {
+			double cx = 0;
+			double cy = 0;
+			for (int k = 0; k < 3; k++) {
+				cx += xy[2 * triangulos[t + k]] / 3;
+				cy += xy[2 * triangulos[t + k] + 1] / 3;
+			}
+			assertThat(cx > 10 && cx < 20 && cy > 10 && cy < 20).isFalse();
+		}
+	}
+
+	@Test
+	void unPoligonoDegeneradoNoDejaTriangulos() {
+		double[] xy = { 0, 0, 5, 0, 10, 0 };
+
+		clipper.triangular(xy, 0, 3, new int[0], 0, new int[16], 0);
+
+		assertThat(clipper.getIndices()).isZero();
+	}
+
+	@Test
+	void losTriangulosSeAgreganDespuesDeLosQueYaHabia() {
+		double[] xy = { 0, 0, 10, 0, 10, 10, 0, 10, 20, 0, 30, 0, 30, 10 };
+		int[] triangulos = clipper.triangular(xy, 0, 4, new int[0], 0, new int[2], 0);
+
+		triangulos = clipper.triangular(xy, 4, 7, new int[0], 0, triangulos, clipper.getIndices());
+
+		assertThat(clipper.getIndices()).isEqualTo(9);
+		assertThat(triangulos[6]).isBetween(4, 6);
+		assertThat(areaTotal(xy, triangulos, 9)).isCloseTo(100 + 50, within(1e-9));
+	}
+
+	private static double areaTotal(double[] xy, int[] triangulos, int indices) {
+		double total = 0;
+		for (int t = 0; t < indices; t += 3) {
+			total += Math.abs(areaFirmada(xy, triangulos, t));
+		}
+		return total;
+	}
+
+	private static double areaFirmada(double[] xy, int[] triangulos, int t) {
+		int a = triangulos[t], b = triangulos[t + 1], c = triangulos[t + 2];
+		return ((xy[2 * b] - xy[2 * a]) * (xy[2 * c + 1] - xy[2 * a + 1])
+			- (xy[2 * b + 1] - xy[2 * a + 1]) * (xy[2 * c] - xy[2 * a])) / 2;
+	}
+
+}
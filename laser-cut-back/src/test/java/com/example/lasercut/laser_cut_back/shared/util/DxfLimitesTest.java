@@ -0,0 +1,153 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.lasercut.laser_cut_back.exception.AnalisisInterrumpidoException;
+import com.example.lasercut.laser_cut_back.exception.BadRequestException;
+
+class DxfLimitesTest {
+
+	@AfterEach
+	void limpiarInterrupcion() {
+		Thread.interrupted();
+	}
+
+	@Test
+	void cortaLaLecturaAlSuperarElMaximoDeEntidades() {
+		DxfLimites limites = new DxfLimites(0, 10, 0, 0);
+
+		assertThatThrownBy(() -> DxfParser.analizar(dxf(cuadrados(5)), limites))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessageContaining("10 entidades");
+	}
+
+	@Test
+	void cortaLaLecturaAlSuperarElTamanio() {
+		DxfLimites limites = new DxfLimites(1024, 0, 0, 0);
+
+		assertThatThrownBy(() -> DxfParser.analizar(dxf(cuadrados(50)), limites))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessageContaining("tamaño máximo");
+	}
+
+	@Test
+	void dentroDeLosLimitesSeAnaliza() throws Exception {
+		DxfLimites limites = new DxfLimites(1024 * 1024, 100, 0, 60_000);
+
+		DxfAnalysis analisis = DxfParser.analizar(dxf(cuadrados(5)), limites);
+
+		assertThat(analisis.getContornos().getLazosCerrados()).isEqualTo(5);
+	}
+
+	@Test
+	void elTiempoSigueCorriendoAlArmarLosContornos() throws Exception {
+		DxfContourBuilder builder = new DxfContourBuilder();
+		DxfGeometry geometria = new DxfGeometry();
+		dibujarCuadrados(new DxfMultiHandler(builder, geometria), 5_000);
+		// La lectura terminó a tiempo; el vencimiento llega después
+		DxfLimites.Control control = new DxfLimites(0, 0, 0, 1).iniciar();
+		Thread.sleep(20);
+
+		assertThatThrownBy(() -> builder.construir(geometria, null, control))
+			.isInstanceOf(AnalisisInterrumpidoException.class)
+			.hasMessageContaining("tarda demasiado");
+	}
+
+	@Test
+	void unaInterrupcionCortaElArmadoDeLosContornos() {
+		DxfContourBuilder builder = new DxfContourBuilder();
+		DxfGeometry geometria = new DxfGeometry();
+		dibujarCuadrados(new DxfMultiHandler(builder, geometria), 5_000);
+		DxfLimites.Control control = DxfLimites.SIN_LIMITE.iniciar();
+		Thread.currentThread().interrupt();
+
+		assertThatThrownBy(() -> builder.construir(geometria, null, control))
+			.isInstanceOf(AnalisisInterrumpidoException.class);
+	}
+
+	@Test
+	void unaCoordenadaNoFinitaSeRechaza() {
+		for (String valor : new String[] { "NaN", "Infinity", "-Infinity", "1e308" }) {
+			String linea = "0\nLINE\n8\n0\n10\n0\n20\n" + valor + "\n11\n10\n21\n10\n";
+
+			assertThatThrownBy(() -> DxfParser.analizar(dxf(linea), DxfLimites.SIN_LIMITE))
+				.isInstanceOf(BadRequestException.class)
+				.hasMessageContaining("valor numérico inválido (código 20)");
+		}
+	}
+
+	@Test
+	void unaElipsePatologicaFallaDentroDelPlazo() {
+		DxfLimites limites = new DxfLimites(0, 0, 0, 2_000);
+		String elipse = "0\nELLIPSE\n8\n0\n10\n0\n20\n0\n11\n10\n21\n0\n40\n0.5\n41\n0\n42\n-1e11\n";
+
+		assertTimeoutPreemptively(Duration.ofSeconds(2), () ->
+			assertThatThrownBy(() -> DxfParser.analizar(dxf(elipse), limites))
+				.isInstanceOf(BadRequestException.class));
+	}
+
+	@Test
+	void unArcoConAngulosEnormesTerminaDentroDelPlazo() {
+		DxfLimites limites = new DxfLimites(0, 0, 0, 2_000);
+		// Una vuelta completa escrita con ángulos enormes
+		String arco = "0\nARC\n8\n0\n10\n0\n20\n0\n40\n10\n50\n1e11\n51\n100000000360\n";
+
+		DxfAnalysis analisis = assertTimeoutPreemptively(Duration.ofSeconds(2), () -> DxfParser.analizar(dxf(arco), limites));
+
+		assertThat(analisis.getAncho()).isCloseTo(20, within(1e-9));
+	}
+
+	@Test
+	void unArcoConRadioEnormeSeRechaza() {
+		String arco = "0\nARC\n8\n0\n10\n0\n20\n0\n40\n1e300\n50\n0\n51\n90\n";
+
+		assertTimeoutPreemptively(Duration.ofSeconds(2), () ->
+			assertThatThrownBy(() -> DxfParser.analizar(dxf(arco), DxfLimites.SIN_LIMITE))
+				.isInstanceOf(BadRequestException.class)
+				.hasMessageContaining("código 40"));
+	}
+
+	private static void dibujarCuadrados(DxfEntityHandler destino, int cantidad) {
+		for (int i = 0; i < cantidad; i++) {
+			double x = 20 * (i % 100);
+			double y = 20 * (i / 100);
+			destino.linea(x, y, x + 10, y);
+			destino.linea(x + 10, y, x + 10, y + 10);
+			destino.linea(x + 10, y + 10, x, y + 10);
+			destino.linea(x, y + 10, x, y);
+		}
+	}
+
+	private static String cuadrados(int cantidad) {
+		StringBuilder entidades = new StringBuilder();
+		for (int i = 0; i < cantidad; i++) {
+			int x = 20 * i;
+			linea(entidades, x, 0, x + 10, 0);
+			linea(entidades, x + 10, 0, x + 10, 10);
+			linea(entidades, x + 10, 10, x, 10);
+			linea(entidades, x, 10, x, 0);
+		}
+		return entidades.toString();
+	}
+
+	private static void linea(StringBuilder entidades, int x1, int y1, int x2, int y2) {
+		entidades.append("0\nLINE\n8\n0\n10\n").append(x1).append("\n20\n").append(y1)
+			.append("\n11\n").append(x2).append("\n21\n").append(y2).append('\n');
+	}
+
+	private static ByteArrayInputStream dxf(String entidades) {
+		String texto = "0\nSECTION\n2\nENTITIES\n" + entidades + "0\nENDSEC\n0\nEOF\n";
+		return new ByteArrayInputStream(texto.getBytes(StandardCharsets.US_ASCII));
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class DxfLoopIndexTest {
+
+	private final DxfLoopIndex indice = new DxfLoopIndex(DxfLimites.SIN_LIMITE.iniciar());
+
+	@Test
+	void unPuntoDentroDeUnaElipseQuedaAdentro() {
+		indice.elipse(0, 0, 10, 0, 0.5, 0, 2 * Math.PI);
+		indice.indexar();
+
+		assertThat(indice.contiene(0, 0)).isTrue();
+		assertThat(indice.contiene(9, 1)).isTrue();
+		assertThat(indice.contiene(0, 6)).isFalse();
+		assertThat(indice.contiene(11, 0)).isFalse();
+	}
+
+	@Test
+	void mediaElipseConSuDiametro() {
+		indice.elipse(0, 0, 10, 0, 0.5, 0, Math.PI);
+		indice.linea(-10, 0, 10, 0);
+		indice.indexar();
+
+		assertThat(indice.contiene(0, 2)).isTrue();
+		assertThat(indice.contiene(0, -2)).isFalse();
+	}
+
+	@Test
+	void parametrosYAngulosEnormesNoCuelganLaConsulta() {
+		assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+			indice.elipse(0, 0, 10, 0, 0.5, 0, -1e300);
+			indice.arco(0, 0, 10, 2e18, 2e18 + 180);
+			indice.indexar();
+			indice.contiene(0, 1);
+		});
+	}
+
+	@Test
+	void dosTramosConBulgeFormanUnCirculo() {
+		// Dos medias vueltas (bulge 1) forman un círculo de radio 5 centrado en el origen
+		indice.polilinea(new double[] { -5, 5 }, new double[] { 0, 0 }, new double[] { 1, 1 }, 2, true);
+		indice.indexar();
+
+		assertThat(indice.contiene(0, 4)).isTrue();
+		assertThat(indice.contiene(0, -4)).isTrue();
+		assertThat(indice.contiene(4, 4)).isFalse();
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class DxfMathTest {
+
+	@Test
+	void barridoEnGradosQuedaEntreCeroYTrescientosSesenta() {
+		assertThat(DxfMath.barrido(350, 10)).isCloseTo(20, within(1e-9));
+		assertThat(DxfMath.barrido(10, 10)).isEqualTo(360);
+		assertThat(DxfMath.barrido(0, 720 + 90)).isCloseTo(90, within(1e-9));
+	}
+
+	@Test
+	void barridoEnRadianesQuedaEntreCeroYDosPi() {
+		assertThat(DxfMath.barridoRadianes(Math.PI, Math.PI / 2)).isCloseTo(1.5 * Math.PI, within(1e-9));
+		assertThat(DxfMath.barridoRadianes(0, 2 * Math.PI)).isEqualTo(2 * Math.PI);
+		assertThat(DxfMath.barridoRadianes(1, 1)).isEqualTo(2 * Math.PI);
+	}
+
+	@Test
+	void barridoEnRadianesConParametrosEnormesTermina() {
+		double barrido = DxfMath.barridoRadianes(0, -1e300);
+
+		assertThat(barrido).isGreaterThan(0).isLessThanOrEqualTo(2 * Math.PI);
+	}
+
+	@Test
+	void dosPiEscritoConPocosDecimalesEsLaVueltaCompleta() {
+		assertThat(DxfMath.barridoRadianes(0, 6.28318531)).isEqualTo(2 * Math.PI);
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.lasercut.laser_cut_back.exception.PreviewGenerationException;
+import com.example.lasercut.laser_cut_back.shared.util.DxfPreviewGenerator.Detalle;
+
+class DxfMeshTest {
+
+	@Test
+	void unaPlacaConUnAgujeroSeTriangulaCompleta() {
+		DxfAnalysis analisis = DxfDibujo.analizar(d -> {
+			DxfDibujo.rectangulo(d, 0, 0, 100, 50);
+			d.circulo(50, 25, 10);
+		});
+
+		DxfMesh malla = DxfMesh.triangular(analisis);
+
+		assertThat(malla.getDetalle()).isEqualTo(Detalle.COMPLETO);
+		assertThat(malla.isDegradada()).isFalse();
+		assertThat(malla.getVertices()).isGreaterThan(2 * (4 + 8));
+		assertThat(malla.getTriangulos()).isGreaterThan(malla.getVertices());
+	}
+
+	@Test
+	void unaElipseConParametrosEnormesNoCuelgaLaTriangulacion() {
+		double barrido = DxfMath.barridoRadianes(0, -1e300);
+		DxfAnalysis analisis = DxfDibujo.analizar(d -> {
+			d.elipse(0, 0, 10, 0, 0.5, 0, -1e300);
+			// Cierra el arco con su cuerda
+			d.linea(10 * Math.cos(barrido), 5 * Math.sin(barrido), 10, 0);
+		});
+
+		DxfMesh malla = assertTimeoutPreemptively(Duration.ofSeconds(2), () -> DxfMesh.triangular(analisis));
+
+		assertThat(malla.getTriangulos()).isPositive();
+	}
+
+	@Test
+	void unLazoSinAreaNoDejaUnaMallaVacia() {
+		DxfAnalysis analisis = DxfDibujo.analizar(d -> {
+			d.linea(0, 0, 10, 0);
+			d.linea(10, 0, 0, 0);
+		});
+
+		assertThatThrownBy(() -> DxfMesh.triangular(analisis))
+			.isInstanceOf(PreviewGenerationException.class)
+			.hasMessageContaining("piezas cerradas");
+	}
+
+	@Test
+	void elGlbNoTieneAccesoresVacios() {
+		DxfAnalysis analisis = DxfDibujo.analizar(d -> DxfDibujo.rectangulo(d, 0, 0, 100, 50));
+
+		byte[] glb = DxfMesh.triangular(analisis).escribirGlb(3);
+
+		ByteBuffer buffer = ByteBuffer.wrap(glb).order(ByteOrder.LITTLE_ENDIAN);
+		assertThat(buffer.getInt(0)).isEqualTo(0x46546C67);
+		assertThat(buffer.getInt(8)).isEqualTo(glb.length);
+		String json = new String(glb, 20, buffer.getInt(12), StandardCharsets.UTF_8);
+		// 4 vértices arriba y 4 abajo; 2 triángulos por tapa y 2 por cada lado
+		assertThat(json).contains("\"count\":8").contains("\"count\":36").doesNotContain("\"count\":0");
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.lasercut.laser_cut_back.exception.BadRequestException;
+
+class DxfParserTest {
+
+	@Test
+	void mideUnRectanguloDeLineas() throws Exception {
+		DxfAnalysis analisis = DxfParser.analizar(dxf(
+			linea(0, 0, 100, 0) + linea(100, 0, 100, 50) + linea(100, 50, 0, 50) + linea(0, 50, 0, 0)));
+
+		assertThat(analisis.getAncho()).isCloseTo(100, within(1e-9));
+		assertThat(analisis.getAlto()).isCloseTo(50, within(1e-9));
+		assertThat(analisis.getEntidades()).isEqualTo(4);
+	}
+
+	@Test
+	void unaElipseCompletaEscritaConPocosDecimalesMideLaElipseEntera() throws Exception {
+		DxfAnalysis analisis = DxfParser.analizar(dxf(elipse("0.5", "0", "6.28318531")));
+
+		assertThat(analisis.getAncho()).isCloseTo(20, within(1e-6));
+		assertThat(analisis.getAlto()).isCloseTo(10, within(1e-6));
+	}
+
+	@Test
+	void unaElipseConParametrosEnormesSeRechazaSinColgarse() {
+		assertTimeoutPreemptively(Duration.ofSeconds(2), () ->
+			assertThatThrownBy(() -> DxfParser.analizar(dxf(elipse("0.5", "0", "-1e11"))))
+				.isInstanceOf(BadRequestException.class)
+				.hasMessageContaining("ELLIPSE"));
+	}
+
+	@Test
+	void unValorFueraDeRangoSeRechazaEnLaLectura() {
+		assertThatThrownBy(() -> DxfParser.analizar(dxf(elipse("0.5", "0", "-1e300"))))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessageContaining("código 42");
+	}
+
+	@Test
+	void unaElipseConRelacionMayorAUnoSeRechaza() {
+		assertThatThrownBy(() -> DxfParser.analizar(dxf(elipse("2", "0", "6.283185307179586"))))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessageContaining("ELLIPSE");
+	}
+
+	static String linea(double x1, double y1, double x2, double y2) {
+		return "0\nLINE\n8\n0\n10\n" + x1 + "\n20\n" + y1 + "\n11\n" + x2 + "\n21\n" + y2 + "\n";
+	}
+
+	/**
+	 * Elipse centrada en el origen con semieje mayor 10 sobre X.
+	 */
+	static String elipse(String ratio, String inicio, String fin) {
+		return "0\nELLIPSE\n8\n0\n10\n0\n20\n0\n11\n10\n21\n0\n40\n" + ratio + "\n41\n" + inicio + "\n42\n" + fin + "\n";
+	}
+
+	static ByteArrayInputStream dxf(String entidades) {
+		String texto = "0\nSECTION\n2\nENTITIES\n" + entidades + "0\nENDSEC\n0\nEOF\n";
+		return new ByteArrayInputStream(texto.getBytes(StandardCharsets.US_ASCII));
+	}
+
+}
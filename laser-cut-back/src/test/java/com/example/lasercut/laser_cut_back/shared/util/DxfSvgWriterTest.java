@@ -0,0 +1,43 @@
+package com.example.lasercut.laser_cut_back.shared.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class DxfSvgWriterTest {
+
+	@Test
+	void unRectanguloSaleComoUnTrazoCerrado() {
+		DxfAnalysis analisis = DxfDibujo.analizar(d -> DxfDibujo.rectangulo(d, 0, 0, 100, 50));
+
+		String svg = new String(DxfSvgWriter.escribir(analisis), StandardCharsets.UTF_8);
+
+		assertThat(svg).startsWith("<?xml").contains("<svg").contains("<path").contains("Z").endsWith("</svg>");
+	}
+
+	@Test
+	void unaElipseSaleComoArcos() {
+		DxfAnalysis analisis = DxfDibujo.analizar(d -> d.elipse(0, 0, 10, 0, 0.5, 0, 2 * Math.PI));
+
+		String svg = new String(DxfSvgWriter.escribir(analisis), StandardCharsets.UTF_8);
+
+		assertThat(svg).contains("a10 5 0 0 1-20 0a10 5 0 0 1 20 0Z");
+	}
+
+	@Test
+	void unaElipseConParametrosEnormesNoCuelgaLaVistaPrevia() {
+		DxfAnalysis analisis = DxfDibujo.analizar(d -> {
+			DxfDibujo.rectangulo(d, -20, -20, 40, 40);
+			d.elipse(0, 0, 10, 0, 0.5, 0, -1e300);
+		});
+
+		byte[] svg = assertTimeoutPreemptively(Duration.ofSeconds(2), () -> DxfSvgWriter.escribir(analisis, 600));
+
+		assertThat(svg).isNotEmpty();
+	}
+
+}
@@ -93,7 +93,9 @@ function CheckoutPage() {
           archivoNombre: item.archivo?.nombre,
           dimensiones: item.archivo?.dimensiones,
           terminacion: item.terminacion,
-          urlPreview: item.archivo?.urlPreview,
+          miniaturaUrl: item.archivo?.miniaturaUrl,
+          // Con miniatura no hace falta guardar el SVG embebido en el pedido
+          urlPreview: item.archivo?.miniaturaUrl ? undefined : item.archivo?.urlPreview,
         }),
       }));
 
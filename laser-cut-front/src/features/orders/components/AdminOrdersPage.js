@@ -4,6 +4,7 @@ import { useAuth } from '../../../context/AuthContext';
 import { ordersService } from '../../../services/ordersService';
 import Header from '../../../shared/components/Header';
 import OrderDetailModal from './OrderDetailModal';
+import OrderThumbnails from './OrderThumbnails';
 import '../OrdersPage.css';
 import '../../quote/QuotePage.css';
 import '../../quote/Wizard.css';
@@ -202,6 +203,7 @@ function AdminOrdersPage() {
                         </span>
                       </div>
                     )}
+                    <OrderThumbnails items={pedido.items} />
                     <div className="order-item-details">
                       <div className="order-item-info-row">
                         <span className="order-detail-label">Items:</span>
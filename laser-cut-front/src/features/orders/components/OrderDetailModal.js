@@ -1,4 +1,5 @@
 import React, { useEffect } from 'react';
+import { urlMiniatura } from '../../../services/api';
 import '../OrderDetailModal.css';
 
 function OrderDetailModal({ pedido, onClose, showCustomerInfo = false }) {
@@ -122,9 +123,9 @@ function OrderDetailModal({ pedido, onClose, showCustomerInfo = false }) {
                 return (
                   <div key={item.id} className="order-detail-item">
                     <div className="order-detail-item-preview">
-                      {metadata?.urlPreview && (
+                      {(metadata?.miniaturaUrl || metadata?.urlPreview) && (
                         <img
-                          src={metadata.urlPreview}
+                          src={metadata.miniaturaUrl ? urlMiniatura(metadata.miniaturaUrl) : metadata.urlPreview}
                           alt={metadata.archivoNombre || 'Pieza'}
                           className="order-detail-item-image"
                         />
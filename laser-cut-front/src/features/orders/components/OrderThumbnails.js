@@ -0,0 +1,47 @@
+import React from 'react';
+import { urlMiniatura } from '../../../services/api';
+
+const MAXIMO_MINIATURAS = 4;
+
+const parseMetadata = (metadata) => {
+  if (!metadata) return null;
+  try {
+    return JSON.parse(metadata);
+  } catch {
+    return null;
+  }
+};
+
+/**
+ * Miniaturas de las primeras piezas de un pedido para los listados. Son PNG chicos que el
+ * servidor genera una vez por archivo y el navegador guarda en caché.
+ */
+function OrderThumbnails({ items }) {
+  const miniaturas = (items || [])
+    .map((item) => ({ id: item.id, metadata: parseMetadata(item.metadata) }))
+    .filter(({ metadata }) => metadata?.miniaturaUrl);
+
+  if (miniaturas.length === 0) return null;
+
+  return (
+    <div className="order-item-thumbnails">
+      {miniaturas.slice(0, MAXIMO_MINIATURAS).map(({ id, metadata }) => (
+        <img
+          key={id}
+          src={urlMiniatura(metadata.miniaturaUrl)}
+          alt={metadata.archivoNombre || 'Pieza'}
+          className="order-item-thumbnail"
+          width="48"
+          height="48"
+          loading="lazy"
+          decoding="async"
+        />
+      ))}
+      {miniaturas.length > MAXIMO_MINIATURAS && (
+        <span className="order-item-thumbnails-more">+{miniaturas.length - MAXIMO_MINIATURAS}</span>
+      )}
+    </div>
+  );
+}
+
+export default OrderThumbnails;
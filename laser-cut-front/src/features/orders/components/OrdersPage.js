@@ -5,6 +5,7 @@ import { ordersService } from '../../../services/ordersService';
 import Header from '../../../shared/components/Header';
 import AuthModal from '../../auth/components/AuthModal';
 import OrderDetailModal from './OrderDetailModal';
+import OrderThumbnails from './OrderThumbnails';
 import '../OrdersPage.css';
 import '../../quote/QuotePage.css';
 import '../../quote/Wizard.css';
@@ -191,6 +192,7 @@ function OrdersPage() {
                   <div className="order-item-date">
                     {formatearFecha(pedido.createdAt)}
                   </div>
+                  <OrderThumbnails items={pedido.items} />
                   <div className="order-item-details">
                     <div className="order-item-info-row">
                       <span className="order-detail-label">Items:</span>
@@ -7,6 +7,7 @@ import Header from '../../../shared/components/Header';
 import Preview from '../../../shared/components/Preview';
 import CartModal from '../../cart/components/CartModal';
 import { useCart } from '../../../context/CartContext';
+import { obtenerVistaPrevia } from '../../../services/api';
 
 function QuotePage() {
   const navigate = useNavigate();
@@ -30,12 +31,14 @@ function QuotePage() {
     navigate('/upload');
   };
 
-  const handleAddToCart = () => {
+  const handleAddToCart = async () => {
+    // El carrito guarda el SVG embebido (la versión simplificada alcanza para la miniatura):
+    // la vista previa del servidor puede dejar de existir
     let previewUrl = null;
-    if (fileData?.vistaPreviaBase64) {
+    if (fileData?.vistaPreviaUrl) {
       try {
-        const decodedSvg = atob(fileData.vistaPreviaBase64);
-        previewUrl = `data:image/svg+xml;base64,${fileData.vistaPreviaBase64}`;
+        const svg = await obtenerVistaPrevia(fileData.vistaPreviaUrl, 0);
+        previewUrl = `data:image/svg+xml;charset=utf-8,${encodeURIComponent(svg)}`;
       } catch (e) {
         console.error('Error generating preview URL:', e);
       }
@@ -46,6 +49,7 @@ function QuotePage() {
         nombre: file?.name || 'Sin nombre',
         dimensiones: `${quoteData.ancho} × ${quoteData.alto} mm`,
         urlPreview: previewUrl,
+        miniaturaUrl: fileData?.miniaturaUrl || null,
       },
       material: {
         nombre: quoteData.material || '--',
@@ -1,22 +1,75 @@
-import React, { useState, useEffect, useCallback } from 'react';
+import React, { useState, useEffect, useCallback, useRef } from 'react';
 import '../Step.css';
+import { calcularMatrizPrecios } from '../../../services/api';
+
+const formatearPrecio = (precio) => new Intl.NumberFormat('es-AR', {
+  style: 'currency',
+  currency: 'ARS',
+  minimumFractionDigits: 2,
+}).format(precio || 0);
 
 function Step3({ wizardState, onNext, onBack, setHeaderControls }) {
   const {
+    file,
+    fileData,
+    unitConfirmed,
+    material,
+    thickness,
+    setThickness,
+    finish,
+    setFinish,
     quantity,
     setQuantity,
   } = wizardState;
 
   const [tempQuantity, setTempQuantity] = useState(1);
-  const MAX_QUANTITY = 30;
+  const MAX_QUANTITY = 10000;
   const canContinue = tempQuantity && tempQuantity > 0 && tempQuantity <= MAX_QUANTITY;
   const pressTimerRef = React.useRef(null);
   const pressTypeRef = React.useRef(null);
 
+  // Precios de todos los espesores y terminaciones del material para la cantidad elegida,
+  // en una sola llamada; cambiar de combinación acá no vuelve a cotizar.
+  const [matriz, setMatriz] = useState(null);
+  const [errorMatriz, setErrorMatriz] = useState(null);
+  const consultaRef = useRef(0);
+
   useEffect(() => {
     setQuantity(tempQuantity);
   }, [tempQuantity, setQuantity]);
 
+  useEffect(() => {
+    if (!material || !fileData || !(tempQuantity > 0)) return undefined;
+    const consulta = ++consultaRef.current;
+    const temporizador = setTimeout(() => {
+      calcularMatrizPrecios({
+        archivo: file,
+        token: fileData?.token,
+        materiales: [material],
+        cantidad: tempQuantity,
+        unidad: unitConfirmed === 'INCH' ? 'INCH' : 'MM',
+      })
+        .then((data) => {
+          if (consulta !== consultaRef.current) return;
+          setMatriz(data);
+          setErrorMatriz(null);
+        })
+        .catch(() => {
+          if (consulta !== consultaRef.current) return;
+          setErrorMatriz('No se pudieron calcular los precios de referencia.');
+        });
+    }, 400);
+    return () => clearTimeout(temporizador);
+  }, [file, fileData, unitConfirmed, material, tempQuantity]);
+
+  const esSeleccionada = (p) =>
+    String(p.espesorMm) === String(thickness) && (p.terminacion || null) === (finish || null);
+
+  const seleccionar = (p) => {
+    setThickness(String(p.espesorMm));
+    setFinish(p.terminacion || null);
+  };
+
   const stopPress = useCallback(() => {
     if (pressTimerRef.current) {
       clearInterval(pressTimerRef.current);
@@ -90,7 +143,7 @@ function Step3({ wizardState, onNext, onBack, setHeaderControls }) {
   return (
     <div className="step">
       <h3 className="step-title">¿Cuántas piezas querés fabricar?</h3>
-      <p className="step-description">Indicá cuántas piezas querés producir. El máximo permitido es 30.</p>
+      <p className="step-description">Indicá cuántas piezas querés producir. El máximo permitido es {MAX_QUANTITY.toLocaleString('es-AR')}.</p>
 
       <div className="quantity-selector">
         <div className="quantity-controls">
@@ -131,6 +184,30 @@ function Step3({ wizardState, onNext, onBack, setHeaderControls }) {
           </button>
         </div>
       </div>
+
+      {matriz && matriz.precios && matriz.precios.length > 0 && (
+        <div className="price-matrix">
+          <p className="step-description">
+            Precio total para {tempQuantity.toLocaleString('es-AR')} pieza{tempQuantity === 1 ? '' : 's'} en cada espesor y terminación de {material}. Podés cambiar la combinación desde acá.
+          </p>
+          <div className="price-matrix-grid">
+            {matriz.precios.map((p) => (
+              <button
+                key={`${p.espesorId}-${p.terminacionId ?? 'base'}`}
+                type="button"
+                className={`price-matrix-option ${esSeleccionada(p) ? 'selected' : ''}`}
+                onClick={() => seleccionar(p)}
+              >
+                <span className="price-matrix-label">
+                  {p.espesorMm} mm{p.terminacion ? ` · ${p.terminacion}` : ''}
+                </span>
+                <span className="price-matrix-price">{formatearPrecio(p.precioTotal)}</span>
+              </button>
+            ))}
+          </div>
+        </div>
+      )}
+      {errorMatriz && !matriz && <p className="step-description">{errorMatriz}</p>}
     </div>
   );
 }
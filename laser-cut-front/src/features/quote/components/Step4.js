@@ -45,8 +45,10 @@ function Step4({ wizardState, onBack, setHeaderControls }) {
     try {
       const apiPromise = calcularCotizacion({
         archivo: file,
+        token: fileData?.token,
         material,
         espesor: parseFloat(thickness),
+        terminacion: finish || undefined,
         cantidad: parseInt(quantity),
         unidad: unitConfirmed === 'INCH' ? 'INCH' : 'MM',
       });
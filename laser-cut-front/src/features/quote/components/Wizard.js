@@ -45,6 +45,11 @@ function Wizard() {
         }
         if (location.state.fileData) {
           setFileData(location.state.fileData);
+          // Si la cabecera del DXF declara mm o pulgadas, se propone esa unidad
+          const detectada = location.state.fileData.unidadDetectada;
+          if (detectada === 'mm' || detectada === 'inch') {
+            setUnitConfirmed(detectada.toUpperCase());
+          }
         }
       } else {
         navigate('/upload', { replace: true });
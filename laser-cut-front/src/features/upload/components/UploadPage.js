@@ -19,8 +19,8 @@ function UploadPage() {
   const onDrop = async (acceptedFiles) => {
     if (!acceptedFiles || acceptedFiles.length === 0) return;
     const selectedFile = acceptedFiles[0];
-    if (!selectedFile.name.toLowerCase().endsWith('.dxf')) {
-      setError('Por favor, suba un archivo DXF válido.');
+    if (!/\.(dxf|dxf\.gz|zip)$/i.test(selectedFile.name)) {
+      setError('Por favor, suba un archivo DXF válido (.dxf, .dxf.gz o .zip).');
       return;
     }
     setIsProcessing(true);
@@ -48,7 +48,7 @@ function UploadPage() {
   const handleFileBrowse = () => {
     const input = document.createElement('input');
     input.type = 'file';
-    input.accept = '.dxf';
+    input.accept = '.dxf,.gz,.zip';
     input.onchange = (e) => {
       if (e.target.files && e.target.files.length > 0) {
         onDrop(e.target.files);
@@ -60,7 +60,9 @@ function UploadPage() {
   const { getRootProps, getInputProps, isDragActive } = useDropzone({
     onDrop,
     accept: {
-      'application/dxf': ['.dxf']
+      'application/dxf': ['.dxf'],
+      'application/gzip': ['.gz'],
+      'application/zip': ['.zip']
     },
     multiple: false,
     noClick: true,
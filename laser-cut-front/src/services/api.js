@@ -1,6 +1,7 @@
 import { authService } from './authService';
 
 const API_BASE_URL = 'http://localhost:8080/api';
+const API_ORIGIN = API_BASE_URL.replace(/\/api$/, '');
 
 /**
  * Servicio API para comunicación con el backend
@@ -37,7 +38,14 @@ export async function getCatalogo() {
   }
 }
 
+/** Desde este tamaño el archivo se sube por bloques (ver subirPorBloques). */
+const TAMANIO_SUBIDA_POR_BLOQUES = 8 * 1024 * 1024;
+const REINTENTOS_BLOQUE = 3;
+
 export async function analizarArchivo(file) {
+  if (file.size > TAMANIO_SUBIDA_POR_BLOQUES) {
+    return subirPorBloques(file);
+  }
   try {
     const formData = new FormData();
     formData.append('archivo', file);
@@ -65,12 +73,190 @@ export async function analizarArchivo(file) {
   }
 }
 
-export async function calcularCotizacion({ archivo, material, espesor, cantidad, unidad }) {
+async function errorDeRespuesta(response) {
+  const errorData = await response.json().catch(() => null);
+  return new Error(errorData?.message || `Error ${response.status}: ${response.statusText}`);
+}
+
+async function sha256Hex(datos) {
+  const hash = await crypto.subtle.digest('SHA-256', datos);
+  return Array.from(new Uint8Array(hash), (b) => b.toString(16).padStart(2, '0')).join('');
+}
+
+/**
+ * Sube el archivo por bloques con /api/subidas y devuelve el mismo análisis que
+ * analizarArchivo. Cada bloque lleva su SHA-256 y se reintenta si falla; el id de la subida
+ * queda en localStorage, así que si se corta la conexión o se recarga la página, volver a
+ * elegir el mismo archivo retoma desde los bloques que faltan.
+ */
+async function subirPorBloques(file) {
+  const clave = `subida:${file.name}:${file.size}:${file.lastModified}`;
   try {
-    const formData = new FormData();
+    const headers = authService.getAuthHeaders();
+    let subida = null;
+
+    const guardada = localStorage.getItem(clave);
+    if (guardada) {
+      const response = await fetch(`${API_BASE_URL}/subidas/${guardada}`, { headers });
+      if (response.ok) {
+        subida = await response.json();
+      } else {
+        localStorage.removeItem(clave);
+      }
+    }
+
+    if (!subida) {
+      const response = await fetch(`${API_BASE_URL}/subidas`, {
+        method: 'POST',
+        headers,
+        body: JSON.stringify({ nombre: file.name, tamanio: file.size }),
+      });
+      if (!response.ok) {
+        throw await errorDeRespuesta(response);
+      }
+      subida = await response.json();
+      localStorage.setItem(clave, subida.id);
+    }
+
+    for (const numero of subida.faltantes) {
+      const inicio = numero * subida.tamanioBloque;
+      const datos = await file.slice(inicio, inicio + subida.tamanioBloque).arrayBuffer();
+      const checksum = await sha256Hex(datos);
+      for (let intento = 1; ; intento++) {
+        const response = await fetch(`${API_BASE_URL}/subidas/${subida.id}/bloques/${numero}`, {
+          method: 'PUT',
+          headers: { ...headers, 'Content-Type': 'application/octet-stream', 'X-Checksum-Sha256': checksum },
+          body: datos,
+        }).catch((error) => ({ ok: false, error }));
+        if (response.ok) {
+          break;
+        }
+        if (intento >= REINTENTOS_BLOQUE) {
+          throw response.error || await errorDeRespuesta(response);
+        }
+      }
+    }
+
+    const response = await fetch(`${API_BASE_URL}/subidas/${subida.id}/completar`, {
+      method: 'POST',
+      headers,
+    });
+    if (!response.ok) {
+      throw await errorDeRespuesta(response);
+    }
+    localStorage.removeItem(clave);
+    return await response.json();
+  } catch (error) {
+    console.error('Error al subir archivo por bloques:', error);
+    throw error;
+  }
+}
+
+/**
+ * Descarga el SVG de la vista previa a partir de la ruta que devuelve analizarArchivo
+ * (vistaPreviaUrl). La respuesta es inmutable, así que las siguientes veces la sirve
+ * la caché del navegador. Con nivel (0 o 1) se pide una versión simplificada, más liviana;
+ * sin nivel, el dibujo completo.
+ */
+export async function obtenerVistaPrevia(vistaPreviaUrl, nivel) {
+  try {
+    const query = nivel === undefined ? '' : `?nivel=${nivel}`;
+    const response = await fetch(`${API_ORIGIN}${vistaPreviaUrl}${query}`);
+
+    if (!response.ok) {
+      const errorData = await response.json().catch(() => null);
+      throw new Error(errorData?.message || `Error ${response.status}: ${response.statusText}`);
+    }
+
+    return await response.text();
+  } catch (error) {
+    console.error('Error al obtener vista previa:', error);
+    throw error;
+  }
+}
+
+/**
+ * URL absoluta del modelo 3D (glTF binario) de una pieza extruida al espesor indicado, a
+ * partir de la ruta que devuelve analizarArchivo (modelo3dUrl).
+ */
+export function urlModelo3D(modelo3dUrl, espesor) {
+  const query = espesor ? `?espesor=${encodeURIComponent(espesor)}` : '';
+  return `${API_ORIGIN}${modelo3dUrl}${query}`;
+}
+
+/**
+ * URL absoluta de la miniatura PNG de una pieza, a partir de la ruta que devuelve
+ * analizarArchivo (miniaturaUrl). Se guarda relativa en los pedidos para no depender del host.
+ */
+export function urlMiniatura(miniaturaUrl) {
+  return `${API_ORIGIN}${miniaturaUrl}`;
+}
+
+async function enviarCotizacion({ archivo, token, material, espesor, terminacion, cantidad, unidad }) {
+  const formData = new FormData();
+  if (token) {
+    formData.append('token', token);
+  } else {
     formData.append('archivo', archivo);
-    formData.append('espesor', espesor);
-    formData.append('material', material);
+  }
+  formData.append('espesor', espesor);
+  formData.append('material', material);
+  if (terminacion) {
+    formData.append('terminacion', terminacion);
+  }
+  formData.append('cantidad', cantidad);
+  formData.append('unidad', unidad);
+
+  const headers = authService.getAuthHeaders();
+  // FormData no necesita Content-Type
+  delete headers['Content-Type'];
+
+  return fetch(`${API_BASE_URL}/cotizacion`, {
+    method: 'POST',
+    headers: headers,
+    body: formData,
+  });
+}
+
+/**
+ * Si se tiene el token devuelto por analizarArchivo se envía solo el token; el backend
+ * reutiliza el análisis y no hace falta volver a subir el archivo. Si el backend ya no lo
+ * tiene (404, por ejemplo tras un reinicio) se reintenta una vez con el archivo.
+ */
+export async function calcularCotizacion({ archivo, token, material, espesor, terminacion, cantidad, unidad }) {
+  try {
+    let response = await enviarCotizacion({ archivo, token, material, espesor, terminacion, cantidad, unidad });
+
+    if (response.status === 404 && token && archivo) {
+      response = await enviarCotizacion({ archivo, material, espesor, terminacion, cantidad, unidad });
+    }
+
+    if (!response.ok) {
+      const errorData = await response.json().catch(() => null);
+      throw new Error(errorData?.message || `Error ${response.status}: ${response.statusText}`);
+    }
+
+    const data = await response.json();
+    return data;
+  } catch (error) {
+    console.error('Error al calcular cotización:', error);
+    throw error;
+  }
+}
+
+/**
+ * Precios de la pieza para todos los espesores y terminaciones de los materiales indicados
+ * (o de todo el catálogo si no se indica ninguno), en una sola llamada.
+ */
+export async function calcularMatrizPrecios({ archivo, token, materiales = [], cantidad = 1, unidad }) {
+  const enviar = (conToken) => {
+    const formData = new FormData();
+    if (conToken) {
+      formData.append('token', token);
+    } else {
+      formData.append('archivo', archivo);
+    }
+    materiales.forEach((m) => formData.append('material', m));
     formData.append('cantidad', cantidad);
     formData.append('unidad', unidad);
 
@@ -78,21 +264,28 @@ export async function calcularCotizacion({ archivo, material, espesor, cantidad,
     // FormData no necesita Content-Type
     delete headers['Content-Type'];
 
-    const response = await fetch(`${API_BASE_URL}/cotizacion`, {
+    return fetch(`${API_BASE_URL}/cotizacion/matriz`, {
       method: 'POST',
       headers: headers,
       body: formData,
     });
+  };
+
+  try {
+    let response = await enviar(Boolean(token));
+
+    if (response.status === 404 && token && archivo) {
+      response = await enviar(false);
+    }
 
     if (!response.ok) {
       const errorData = await response.json().catch(() => null);
       throw new Error(errorData?.message || `Error ${response.status}: ${response.statusText}`);
     }
 
-    const data = await response.json();
-    return data;
+    return await response.json();
   } catch (error) {
-    console.error('Error al calcular cotización:', error);
+    console.error('Error al calcular matriz de precios:', error);
     throw error;
   }
 }
@@ -1,18 +1,55 @@
-import React, { useState, useMemo } from 'react';
+import React, { useState, useEffect } from 'react';
 import '../Preview.css';
 import Preview3D from './Preview3D';
+import { obtenerVistaPrevia } from '../../services/api';
+
+// Descarga el SVG de la vista previa cuando cambia la URL: primero la versión simplificada,
+// que llega enseguida, y después el dibujo completo, que la reemplaza
+function useVistaPrevia(vistaPreviaUrl) {
+  const [svg, setSvg] = useState(null);
+
+  useEffect(() => {
+    if (!vistaPreviaUrl) {
+      setSvg(null);
+      return undefined;
+    }
+    let cancelado = false;
+    let completa = false;
+    let simplificada = false;
+    setSvg(null);
+    obtenerVistaPrevia(vistaPreviaUrl, 0)
+      .then((texto) => {
+        if (!cancelado && !completa) {
+          simplificada = true;
+          setSvg(texto);
+        }
+      })
+      .catch(() => {});
+    obtenerVistaPrevia(vistaPreviaUrl)
+      .then((texto) => {
+        completa = true;
+        if (!cancelado) setSvg(texto);
+      })
+      .catch(() => {
+        // Si falla el detalle queda la versión simplificada, si llegó
+        if (!cancelado && !simplificada) setSvg(null);
+      });
+    return () => {
+      cancelado = true;
+    };
+  }, [vistaPreviaUrl]);
+
+  return svg;
+}
 
 function Preview({ fileData, quoteData, currentStep, thickness }) {
   const [viewMode, setViewMode] = useState('3d'); // '2d' o '3d' - por defecto 3D
+  const decodedSvg = useVistaPrevia(fileData?.vistaPreviaUrl);
 
   // Espesor efectivo: usar el seleccionado o 3mm por defecto para vista 3D
   const effectiveThickness = thickness || 3;
   // Solo mostrar el SVG, no la cotización (la cotización se muestra en Step4)
   if (quoteData && currentStep === 4) {
-    const decodedSvg = fileData && fileData.vistaPreviaBase64 
-      ? atob(fileData.vistaPreviaBase64) 
-      : null;
-
     return (
       <div className="preview">
         {decodedSvg && (
@@ -44,7 +81,7 @@ function Preview({ fileData, quoteData, currentStep, thickness }) {
               />
             </div>
               ) : (
-                <Preview3D svgString={decodedSvg} thickness={effectiveThickness} />
+                <Preview3D modeloUrl={fileData?.modelo3dUrl} thickness={effectiveThickness} />
               )}
             </>
           )}
@@ -54,10 +91,6 @@ function Preview({ fileData, quoteData, currentStep, thickness }) {
   }
 
   if (fileData) {
-    const decodedSvg = fileData.vistaPreviaBase64 
-      ? atob(fileData.vistaPreviaBase64) 
-      : null;
-
     return (
       <div className="preview">
         {decodedSvg && (
@@ -89,7 +122,7 @@ function Preview({ fileData, quoteData, currentStep, thickness }) {
               />
             </div>
               ) : (
-                <Preview3D svgString={decodedSvg} thickness={effectiveThickness} />
+                <Preview3D modeloUrl={fileData?.modelo3dUrl} thickness={effectiveThickness} />
               )}
             </>
           ) : (